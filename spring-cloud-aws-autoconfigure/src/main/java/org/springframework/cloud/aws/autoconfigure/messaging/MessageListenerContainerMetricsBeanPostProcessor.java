@@ -0,0 +1,69 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.aws.autoconfigure.messaging;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.cloud.aws.messaging.listener.MultiplexedMessageListenerContainer;
+import org.springframework.cloud.aws.messaging.listener.SimpleMessageListenerContainer;
+import org.springframework.cloud.aws.messaging.listener.metrics.MicrometerMessageListenerContainerMetrics;
+
+/**
+ * Instruments every {@link SimpleMessageListenerContainer} and {@link MultiplexedMessageListenerContainer} that has no
+ * metrics configured with a {@link MicrometerMessageListenerContainerMetrics} using the bean name of the container as
+ * container tag. The {@link MeterRegistry} is resolved when the first container is initialized and not when this post
+ * processor is created, so containers are not instrumented if the application context does not contain a registry.
+ *
+ * @since 2.1
+ */
+class MessageListenerContainerMetricsBeanPostProcessor implements BeanPostProcessor {
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    MessageListenerContainerMetricsBeanPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+        if (bean instanceof SimpleMessageListenerContainer) {
+            SimpleMessageListenerContainer container = (SimpleMessageListenerContainer) bean;
+            if (container.getMetrics() == null) {
+                MeterRegistry meterRegistry = this.meterRegistry.getIfAvailable();
+                if (meterRegistry != null) {
+                    container.setMetrics(new MicrometerMessageListenerContainerMetrics(meterRegistry, beanName));
+                }
+            }
+        } else if (bean instanceof MultiplexedMessageListenerContainer) {
+            MultiplexedMessageListenerContainer container = (MultiplexedMessageListenerContainer) bean;
+            if (container.getMetrics() == null) {
+                MeterRegistry meterRegistry = this.meterRegistry.getIfAvailable();
+                if (meterRegistry != null) {
+                    container.setMetrics(new MicrometerMessageListenerContainerMetrics(meterRegistry, beanName));
+                }
+            }
+        }
+        return bean;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+        return bean;
+    }
+}
@@ -16,10 +16,14 @@
 
 package org.springframework.cloud.aws.autoconfigure.messaging;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.cloud.aws.messaging.config.annotation.EnableSns;
 import org.springframework.cloud.aws.messaging.config.annotation.EnableSqs;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 /**
@@ -27,6 +31,8 @@ import org.springframework.context.annotation.Configuration;
  * @author Agim Emruli
  */
 @ConditionalOnClass(name = "org.springframework.cloud.aws.messaging.listener.SimpleMessageListenerContainer")
+@AutoConfigureAfter(name = {"org.springframework.boot.actuate.autoconfigure.metrics.MetricsAutoConfiguration",
+        "org.springframework.cloud.aws.autoconfigure.metrics.CloudWatchExportAutoConfiguration"})
 @Configuration
 public class MessagingAutoConfiguration {
 
@@ -37,6 +43,17 @@ public class MessagingAutoConfiguration {
 
     }
 
+    @ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+    @Configuration
+    public static class SqsMetricsAutoConfiguration {
+
+        @Bean
+        public static MessageListenerContainerMetricsBeanPostProcessor messageListenerContainerMetricsBeanPostProcessor(
+                ObjectProvider<MeterRegistry> meterRegistry) {
+            return new MessageListenerContainerMetricsBeanPostProcessor(meterRegistry);
+        }
+    }
+
     @ConditionalOnClass(name = "com.amazonaws.services.sns.AmazonSNS")
     @EnableSns
     @Configuration
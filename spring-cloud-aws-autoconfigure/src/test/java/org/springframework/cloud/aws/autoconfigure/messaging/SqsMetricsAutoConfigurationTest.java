@@ -0,0 +1,118 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.cloud.aws.autoconfigure.messaging;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.springframework.cloud.aws.messaging.listener.MessageListenerContainerMetrics;
+import org.springframework.cloud.aws.messaging.listener.MultiplexedMessageListenerContainer;
+import org.springframework.cloud.aws.messaging.listener.SimpleMessageListenerContainer;
+import org.springframework.cloud.aws.messaging.listener.metrics.MicrometerMessageListenerContainerMetrics;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SqsMetricsAutoConfigurationTest {
+
+    @Test
+    public void messageListenerContainers_withMeterRegistry_shouldBeInstrumented() throws Exception {
+        //Arrange
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.register(MeterRegistryConfiguration.class, ListenerContainerConfiguration.class,
+                MessagingAutoConfiguration.SqsMetricsAutoConfiguration.class);
+
+        //Act
+        context.refresh();
+
+        //Assert
+        verify(context.getBean(SimpleMessageListenerContainer.class)).setMetrics(any(MicrometerMessageListenerContainerMetrics.class));
+        verify(context.getBean(MultiplexedMessageListenerContainer.class)).setMetrics(any(MicrometerMessageListenerContainerMetrics.class));
+        context.close();
+    }
+
+    @Test
+    public void messageListenerContainers_withoutMeterRegistry_shouldNotBeInstrumented() throws Exception {
+        //Arrange
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.register(ListenerContainerConfiguration.class, MessagingAutoConfiguration.SqsMetricsAutoConfiguration.class);
+
+        //Act
+        context.refresh();
+
+        //Assert
+        verify(context.getBean(SimpleMessageListenerContainer.class), never()).setMetrics(any(MessageListenerContainerMetrics.class));
+        verify(context.getBean(MultiplexedMessageListenerContainer.class), never()).setMetrics(any(MessageListenerContainerMetrics.class));
+        context.close();
+    }
+
+    @Test
+    public void messageListenerContainer_withConfiguredMetrics_shouldKeepConfiguredMetrics() throws Exception {
+        //Arrange
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.register(MeterRegistryConfiguration.class, InstrumentedListenerContainerConfiguration.class,
+                MessagingAutoConfiguration.SqsMetricsAutoConfiguration.class);
+
+        //Act
+        context.refresh();
+
+        //Assert
+        verify(context.getBean(SimpleMessageListenerContainer.class), never()).setMetrics(any(MessageListenerContainerMetrics.class));
+        context.close();
+    }
+
+    @Configuration
+    static class MeterRegistryConfiguration {
+
+        @Bean
+        public MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Configuration
+    static class ListenerContainerConfiguration {
+
+        @Bean
+        public SimpleMessageListenerContainer simpleMessageListenerContainer() {
+            return mock(SimpleMessageListenerContainer.class);
+        }
+
+        @Bean
+        public MultiplexedMessageListenerContainer multiplexedMessageListenerContainer() {
+            return mock(MultiplexedMessageListenerContainer.class);
+        }
+    }
+
+    @Configuration
+    static class InstrumentedListenerContainerConfiguration {
+
+        @Bean
+        public SimpleMessageListenerContainer simpleMessageListenerContainer() {
+            SimpleMessageListenerContainer container = mock(SimpleMessageListenerContainer.class);
+            when(container.getMetrics()).thenReturn(mock(MessageListenerContainerMetrics.class));
+            return container;
+        }
+    }
+}
@@ -0,0 +1,368 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.cloud.aws.messaging.config;
+
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.AmazonSQSAsync;
+import org.springframework.cloud.aws.core.env.ResourceIdResolver;
+import org.springframework.cloud.aws.messaging.listener.MessageListenerContainerMetrics;
+import org.springframework.cloud.aws.messaging.listener.MultiplexedMessageListenerContainer;
+import org.springframework.cloud.aws.messaging.listener.QueueMessageHandler;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.messaging.core.DestinationResolver;
+import org.springframework.util.Assert;
+
+/**
+ * Creates a {@link MultiplexedMessageListenerContainer} with the same building blocks as the
+ * {@link SimpleMessageListenerContainerFactory}. The multiplexed container is not registered by
+ * {@link org.springframework.cloud.aws.messaging.config.annotation.EnableSqs @EnableSqs}, which always creates a
+ * {@link org.springframework.cloud.aws.messaging.listener.SimpleMessageListenerContainer}. To use it, declare the
+ * container as a bean created by this factory with the {@link QueueMessageHandler} bean of {@code @EnableSqs} and
+ * disable the auto startup of the default container with {@link SimpleMessageListenerContainerFactory#setAutoStartup(boolean)},
+ * so that every queue is polled by one container only.
+ *
+ * @since 2.1
+ */
+public class MultiplexedMessageListenerContainerFactory {
+
+    private AsyncTaskExecutor taskExecutor;
+
+    private Integer workerThreads;
+
+    private Integer maxConcurrentReceives;
+
+    private Integer maxNumberOfMessages;
+
+    private Integer visibilityTimeout;
+
+    private Integer waitTimeOut;
+
+    private boolean autoStartup = true;
+
+    private AmazonSQSAsync amazonSqs;
+
+    private QueueMessageHandler queueMessageHandler;
+
+    private ResourceIdResolver resourceIdResolver;
+
+    private DestinationResolver<String> destinationResolver;
+
+    private Long backOffTime;
+
+    private Long queueStopTimeout;
+
+    private Long deleteMessageBatchMaxDelay;
+
+    private Integer visibilityHeartbeatInterval;
+
+    private MessageListenerContainerMetrics metrics;
+
+    private Integer queueRegistrationParallelism;
+
+    /**
+     * Configures the executor that runs the listener methods. If no executor is set, a default one with
+     * {@link #setWorkerThreads(Integer) workerThreads} threads is created.
+     *
+     * @param taskExecutor
+     *         the executor used by the container
+     * @see MultiplexedMessageListenerContainer#setTaskExecutor(AsyncTaskExecutor)
+     */
+    public void setTaskExecutor(AsyncTaskExecutor taskExecutor) {
+        this.taskExecutor = taskExecutor;
+    }
+
+    public Integer getWorkerThreads() {
+        return this.workerThreads;
+    }
+
+    /**
+     * Configures the number of threads of the default task executor, independent of the number of queues. Default
+     * value is 10.
+     *
+     * @param workerThreads
+     *         the number of threads that execute listener methods
+     * @see MultiplexedMessageListenerContainer#setWorkerThreads(int)
+     */
+    public void setWorkerThreads(Integer workerThreads) {
+        this.workerThreads = workerThreads;
+    }
+
+    public Integer getMaxConcurrentReceives() {
+        return this.maxConcurrentReceives;
+    }
+
+    /**
+     * Configures the maximum number of receive requests that are in progress at the same time. Default value is 10.
+     *
+     * @param maxConcurrentReceives
+     *         the maximum number of concurrent receive requests
+     * @see MultiplexedMessageListenerContainer#setMaxConcurrentReceives(int)
+     */
+    public void setMaxConcurrentReceives(Integer maxConcurrentReceives) {
+        this.maxConcurrentReceives = maxConcurrentReceives;
+    }
+
+    /**
+     * Configure the maximum number of messages that should be retrieved during one poll to the Amazon SQS system.
+     *
+     * @param maxNumberOfMessages
+     *         the maximum number of messages (between 1-10)
+     */
+    public void setMaxNumberOfMessages(Integer maxNumberOfMessages) {
+        this.maxNumberOfMessages = maxNumberOfMessages;
+    }
+
+    /**
+     * Configures the duration (in seconds) that the received messages are hidden from
+     * subsequent poll requests after being retrieved from the system.
+     *
+     * @param visibilityTimeout
+     *         the visibility timeout in seconds
+     */
+    public void setVisibilityTimeout(Integer visibilityTimeout) {
+        this.visibilityTimeout = visibilityTimeout;
+    }
+
+    /**
+     * Configures the wait timeout that the poll request will wait for new message to arrive if the are currently no
+     * messages on the queue.
+     *
+     * @param waitTimeOut
+     *         the wait time out in seconds
+     */
+    public void setWaitTimeOut(Integer waitTimeOut) {
+        this.waitTimeOut = waitTimeOut;
+    }
+
+    /**
+     * Configures if this container should be automatically started. The default value is true.
+     *
+     * @param autoStartup
+     *         false if the container will be manually started
+     */
+    public void setAutoStartup(boolean autoStartup) {
+        this.autoStartup = autoStartup;
+    }
+
+    /**
+     * Sets the {@link AmazonSQSAsync} that is going to be used by the container to interact
+     * with the messaging (SQS) API.
+     *
+     * @param amazonSqs
+     *         The {@link AmazonSQSAsync}, must not be {@code null}.
+     */
+    public void setAmazonSqs(AmazonSQSAsync amazonSqs) {
+        Assert.notNull(amazonSqs, "amazonSqs must not be null");
+        this.amazonSqs = amazonSqs;
+    }
+
+    public AmazonSQS getAmazonSqs() {
+        return this.amazonSqs;
+    }
+
+    /**
+     * Configures the {@link QueueMessageHandler} that handles the incoming messages, usually the one registered by
+     * {@link org.springframework.cloud.aws.messaging.config.annotation.EnableSqs @EnableSqs}.
+     *
+     * @param messageHandler
+     *         the {@link QueueMessageHandler} that must be used by the container, must not be {@code null}.
+     */
+    public void setQueueMessageHandler(QueueMessageHandler messageHandler) {
+        Assert.notNull(messageHandler, "messageHandler must not be null");
+        this.queueMessageHandler = messageHandler;
+    }
+
+    public QueueMessageHandler getQueueMessageHandler() {
+        return this.queueMessageHandler;
+    }
+
+    /**
+     * This value must be set if no destination resolver has been set.
+     *
+     * @param resourceIdResolver
+     *         the resourceIdResolver to use for resolving logical to physical ids in a CloudFormation environment.
+     */
+    public void setResourceIdResolver(ResourceIdResolver resourceIdResolver) {
+        this.resourceIdResolver = resourceIdResolver;
+    }
+
+    public ResourceIdResolver getResourceIdResolver() {
+        return this.resourceIdResolver;
+    }
+
+    /**
+     * Configures the destination resolver used to retrieve the queue url based on the destination name configured for
+     * this instance.
+     *
+     * @param destinationResolver
+     *         another or customized {@link DestinationResolver}
+     */
+    public void setDestinationResolver(DestinationResolver<String> destinationResolver) {
+        this.destinationResolver = destinationResolver;
+    }
+
+    public Long getBackOffTime() {
+        return this.backOffTime;
+    }
+
+    /**
+     * The number of milliseconds the next receive request of a queue is delayed after a failed one. Default value is
+     * 10000 milliseconds.
+     *
+     * @param backOffTime
+     *         in milliseconds
+     * @see MultiplexedMessageListenerContainer#setBackOffTime(long)
+     */
+    public void setBackOffTime(Long backOffTime) {
+        this.backOffTime = backOffTime;
+    }
+
+    public Long getQueueStopTimeout() {
+        return this.queueStopTimeout;
+    }
+
+    /**
+     * The number of milliseconds the container waits for the receive cycles of all queues to end when it is stopped.
+     * Default value is 10000 milliseconds.
+     *
+     * @param queueStopTimeout
+     *         in milliseconds
+     * @see MultiplexedMessageListenerContainer#setQueueStopTimeout(long)
+     */
+    public void setQueueStopTimeout(Long queueStopTimeout) {
+        this.queueStopTimeout = queueStopTimeout;
+    }
+
+    public Long getDeleteMessageBatchMaxDelay() {
+        return this.deleteMessageBatchMaxDelay;
+    }
+
+    /**
+     * Enables the aggregation of message deletions into {@code DeleteMessageBatch} requests. Default is {@code null},
+     * which deletes every message with its own request.
+     *
+     * @param deleteMessageBatchMaxDelay
+     *         in milliseconds or {@code null} to disable the aggregation
+     * @see MultiplexedMessageListenerContainer#setDeleteMessageBatchMaxDelay(Long)
+     */
+    public void setDeleteMessageBatchMaxDelay(Long deleteMessageBatchMaxDelay) {
+        this.deleteMessageBatchMaxDelay = deleteMessageBatchMaxDelay;
+    }
+
+    public Integer getVisibilityHeartbeatInterval() {
+        return this.visibilityHeartbeatInterval;
+    }
+
+    /**
+     * Enables a heartbeat that extends the visibility timeout of the messages that are still being processed every
+     * given number of seconds. Default is {@code null}, which does not extend the visibility timeout.
+     *
+     * @param visibilityHeartbeatInterval
+     *         in seconds or {@code null} to disable the heartbeat
+     * @see MultiplexedMessageListenerContainer#setVisibilityHeartbeatInterval(Integer)
+     */
+    public void setVisibilityHeartbeatInterval(Integer visibilityHeartbeatInterval) {
+        this.visibilityHeartbeatInterval = visibilityHeartbeatInterval;
+    }
+
+    public MessageListenerContainerMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * Configures the callback through which the container reports receives, message processing and errors.
+     *
+     * @param metrics
+     *         the callback or {@code null} to disable the instrumentation
+     * @see MultiplexedMessageListenerContainer#setMetrics(MessageListenerContainerMetrics)
+     */
+    public void setMetrics(MessageListenerContainerMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public Integer getQueueRegistrationParallelism() {
+        return this.queueRegistrationParallelism;
+    }
+
+    /**
+     * Configures the number of queues that are registered in parallel when the container is initialized.
+     *
+     * @param queueRegistrationParallelism
+     *         the number of parallel registrations
+     * @see MultiplexedMessageListenerContainer#setQueueRegistrationParallelism(int)
+     */
+    public void setQueueRegistrationParallelism(Integer queueRegistrationParallelism) {
+        this.queueRegistrationParallelism = queueRegistrationParallelism;
+    }
+
+    public MultiplexedMessageListenerContainer createMultiplexedMessageListenerContainer() {
+        Assert.notNull(this.amazonSqs, "amazonSqs must not be null");
+
+        MultiplexedMessageListenerContainer multiplexedMessageListenerContainer = new MultiplexedMessageListenerContainer();
+        multiplexedMessageListenerContainer.setAmazonSqs(this.amazonSqs);
+        multiplexedMessageListenerContainer.setAutoStartup(this.autoStartup);
+
+        if (this.queueMessageHandler != null) {
+            multiplexedMessageListenerContainer.setMessageHandler(this.queueMessageHandler);
+        }
+        if (this.taskExecutor != null) {
+            multiplexedMessageListenerContainer.setTaskExecutor(this.taskExecutor);
+        }
+        if (this.workerThreads != null) {
+            multiplexedMessageListenerContainer.setWorkerThreads(this.workerThreads);
+        }
+        if (this.maxConcurrentReceives != null) {
+            multiplexedMessageListenerContainer.setMaxConcurrentReceives(this.maxConcurrentReceives);
+        }
+        if (this.maxNumberOfMessages != null) {
+            multiplexedMessageListenerContainer.setMaxNumberOfMessages(this.maxNumberOfMessages);
+        }
+        if (this.visibilityTimeout != null) {
+            multiplexedMessageListenerContainer.setVisibilityTimeout(this.visibilityTimeout);
+        }
+        if (this.waitTimeOut != null) {
+            multiplexedMessageListenerContainer.setWaitTimeOut(this.waitTimeOut);
+        }
+        if (this.resourceIdResolver != null) {
+            multiplexedMessageListenerContainer.setResourceIdResolver(this.resourceIdResolver);
+        }
+        if (this.destinationResolver != null) {
+            multiplexedMessageListenerContainer.setDestinationResolver(this.destinationResolver);
+        }
+        if (this.backOffTime != null) {
+            multiplexedMessageListenerContainer.setBackOffTime(this.backOffTime);
+        }
+        if (this.queueStopTimeout != null) {
+            multiplexedMessageListenerContainer.setQueueStopTimeout(this.queueStopTimeout);
+        }
+        if (this.deleteMessageBatchMaxDelay != null) {
+            multiplexedMessageListenerContainer.setDeleteMessageBatchMaxDelay(this.deleteMessageBatchMaxDelay);
+        }
+        if (this.visibilityHeartbeatInterval != null) {
+            multiplexedMessageListenerContainer.setVisibilityHeartbeatInterval(this.visibilityHeartbeatInterval);
+        }
+        if (this.metrics != null) {
+            multiplexedMessageListenerContainer.setMetrics(this.metrics);
+        }
+        if (this.queueRegistrationParallelism != null) {
+            multiplexedMessageListenerContainer.setQueueRegistrationParallelism(this.queueRegistrationParallelism);
+        }
+
+        return multiplexedMessageListenerContainer;
+    }
+}
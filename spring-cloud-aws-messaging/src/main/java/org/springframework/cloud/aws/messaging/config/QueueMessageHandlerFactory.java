@@ -54,6 +54,8 @@ public class QueueMessageHandlerFactory {
 
     private List<MessageConverter> messageConverters;
 
+    private Boolean methodHandleInvocation;
+
     public void setArgumentResolvers(List<HandlerMethodArgumentResolver> argumentResolvers) {
         this.argumentResolvers = argumentResolvers;
     }
@@ -133,6 +135,18 @@ public class QueueMessageHandlerFactory {
         this.messageConverters = messageConverters;
     }
 
+    /**
+     * Configures if the listener methods are invoked through method handles instead of reflection.
+     *
+     * @param methodHandleInvocation
+     *         {@code true} to invoke the listener methods through method handles
+     * @see QueueMessageHandler#setMethodHandleInvocation(boolean)
+     * @since 2.1
+     */
+    public void setMethodHandleInvocation(Boolean methodHandleInvocation) {
+        this.methodHandleInvocation = methodHandleInvocation;
+    }
+
     public QueueMessageHandler createQueueMessageHandler() {
         QueueMessageHandler queueMessageHandler = new QueueMessageHandler(
                 CollectionUtils.isEmpty(this.messageConverters)
@@ -158,6 +172,10 @@ public class QueueMessageHandlerFactory {
         sendToHandlerMethodReturnValueHandler.setBeanFactory(this.beanFactory);
         queueMessageHandler.getCustomReturnValueHandlers().add(sendToHandlerMethodReturnValueHandler);
 
+        if (this.methodHandleInvocation != null) {
+            queueMessageHandler.setMethodHandleInvocation(this.methodHandleInvocation);
+        }
+
         return queueMessageHandler;
     }
 
@@ -19,12 +19,20 @@ package org.springframework.cloud.aws.messaging.config;
 import com.amazonaws.services.sqs.AmazonSQS;
 import com.amazonaws.services.sqs.AmazonSQSAsync;
 import org.springframework.cloud.aws.core.env.ResourceIdResolver;
+import org.springframework.cloud.aws.messaging.listener.IdleQueuePollingStrategy;
+import org.springframework.cloud.aws.messaging.listener.MessageDispatchMode;
+import org.springframework.cloud.aws.messaging.listener.MessageListenerContainerMetrics;
 import org.springframework.cloud.aws.messaging.listener.QueueMessageHandler;
 import org.springframework.cloud.aws.messaging.listener.SimpleMessageListenerContainer;
+import org.springframework.cloud.aws.messaging.listener.TokenBucketRateLimiter;
 import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.core.task.TaskExecutor;
 import org.springframework.messaging.core.DestinationResolver;
 import org.springframework.util.Assert;
+import org.springframework.util.backoff.BackOff;
+
+import java.util.List;
+import java.util.Map;
 
 /**
  * @author Alain Sahli
@@ -52,6 +60,52 @@ public class SimpleMessageListenerContainerFactory {
 
     private Long backOffTime;
 
+    private Integer pollerCount;
+
+    private MessageDispatchMode messageDispatchMode;
+
+    private Integer maxInFlightMessages;
+
+    private boolean virtualThreads;
+
+    private Long deleteMessageBatchMaxDelay;
+
+    private Integer visibilityHeartbeatInterval;
+
+    private BackOff backOff;
+
+    private Integer circuitBreakerFailureThreshold;
+
+    private Long circuitBreakerOpenTimeout;
+
+    private MessageListenerContainerMetrics metrics;
+
+    private IdleQueuePollingStrategy idleQueuePollingStrategy;
+
+    private Map<String, TokenBucketRateLimiter> rateLimiters;
+
+    private Long drainTimeout;
+
+    private Integer queueRegistrationParallelism;
+
+    private Boolean lazyRedrivePolicyLookup;
+
+    private List<String> attributeNames;
+
+    private List<String> messageAttributeNames;
+
+    private Map<String, Integer> queueWeights;
+
+    private Integer maxConcurrentMessages;
+
+    private Long processingTimeout;
+
+    private Boolean visibilityTimeoutAsProcessingTimeout;
+
+    private Integer prefetchSize;
+
+    private Double prefetchExpiryFraction;
+
     /**
      * Configures the {@link TaskExecutor} which is used to poll messages and execute them
      * by calling the handler methods.
@@ -196,12 +250,377 @@ public class SimpleMessageListenerContainerFactory {
         this.backOffTime = backOffTime;
     }
 
+    /**
+     * @return The number of polling threads that are started for each queue.
+     */
+    public Integer getPollerCount() {
+        return this.pollerCount;
+    }
+
+    /**
+     * Configures the number of independent polling threads that receive messages for each queue. Default value is 1.
+     *
+     * @param pollerCount
+     *         the number of pollers per queue
+     * @see SimpleMessageListenerContainer#setPollerCount(int)
+     */
+    public void setPollerCount(Integer pollerCount) {
+        this.pollerCount = pollerCount;
+    }
+
+    public MessageDispatchMode getMessageDispatchMode() {
+        return this.messageDispatchMode;
+    }
+
+    /**
+     * Configures how received messages are dispatched to the task executor. Default value is
+     * {@link MessageDispatchMode#BATCH}.
+     *
+     * @param messageDispatchMode
+     *         the dispatch mode used by the container
+     * @see SimpleMessageListenerContainer#setMessageDispatchMode(MessageDispatchMode)
+     */
+    public void setMessageDispatchMode(MessageDispatchMode messageDispatchMode) {
+        this.messageDispatchMode = messageDispatchMode;
+    }
+
+    public Integer getMaxInFlightMessages() {
+        return this.maxInFlightMessages;
+    }
+
+    /**
+     * Configures the maximum number of messages per queue that can be received but not yet completely processed when
+     * using the {@link MessageDispatchMode#CONTINUOUS} dispatch mode.
+     *
+     * @param maxInFlightMessages
+     *         the maximum number of in-flight messages per queue
+     * @see SimpleMessageListenerContainer#setMaxInFlightMessages(Integer)
+     */
+    public void setMaxInFlightMessages(Integer maxInFlightMessages) {
+        this.maxInFlightMessages = maxInFlightMessages;
+    }
+
+    public boolean isVirtualThreads() {
+        return this.virtualThreads;
+    }
+
+    /**
+     * Configures the default task executor of the container to run pollers and message executions on virtual threads
+     * if the JVM supports them. The setting is ignored if a custom {@link TaskExecutor} is configured. Default value
+     * is false.
+     *
+     * @param virtualThreads
+     *         true to use virtual threads if they are available
+     * @see SimpleMessageListenerContainer#setVirtualThreads(boolean)
+     */
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    public Long getDeleteMessageBatchMaxDelay() {
+        return this.deleteMessageBatchMaxDelay;
+    }
+
+    /**
+     * Enables the aggregation of message deletions into {@code DeleteMessageBatch} requests. A batch is sent as soon
+     * as it contains 10 deletions or the specified number of milliseconds has elapsed. Default is {@code null}, which
+     * deletes every message with its own request.
+     *
+     * @param deleteMessageBatchMaxDelay
+     *         in milliseconds or {@code null} to disable the aggregation
+     * @see SimpleMessageListenerContainer#setDeleteMessageBatchMaxDelay(Long)
+     */
+    public void setDeleteMessageBatchMaxDelay(Long deleteMessageBatchMaxDelay) {
+        this.deleteMessageBatchMaxDelay = deleteMessageBatchMaxDelay;
+    }
+
+    public Integer getVisibilityHeartbeatInterval() {
+        return this.visibilityHeartbeatInterval;
+    }
+
+    /**
+     * Enables a heartbeat that extends the visibility timeout of the messages that are still being processed every
+     * given number of seconds. Default is {@code null}, which does not extend the visibility timeout.
+     *
+     * @param visibilityHeartbeatInterval
+     *         in seconds or {@code null} to disable the heartbeat
+     * @see SimpleMessageListenerContainer#setVisibilityHeartbeatInterval(Integer)
+     */
+    public void setVisibilityHeartbeatInterval(Integer visibilityHeartbeatInterval) {
+        this.visibilityHeartbeatInterval = visibilityHeartbeatInterval;
+    }
+
+    public BackOff getBackOff() {
+        return this.backOff;
+    }
+
+    /**
+     * Configures the back off used by the polling threads after an error occurred, e.g. a
+     * {@link org.springframework.cloud.aws.messaging.listener.JitteredExponentialBackOff}. If not set, a fixed back off
+     * of {@link #setBackOffTime(Long) backOffTime} milliseconds is used.
+     *
+     * @param backOff
+     *         the back off
+     * @see SimpleMessageListenerContainer#setBackOff(BackOff)
+     */
+    public void setBackOff(BackOff backOff) {
+        this.backOff = backOff;
+    }
+
+    public Integer getCircuitBreakerFailureThreshold() {
+        return this.circuitBreakerFailureThreshold;
+    }
+
+    /**
+     * Enables a circuit breaker per queue that suspends the polling of the queue after the given number of consecutive
+     * polling errors.
+     *
+     * @param circuitBreakerFailureThreshold
+     *         the number of consecutive errors or {@code null} to disable the circuit breaker
+     * @see SimpleMessageListenerContainer#setCircuitBreakerFailureThreshold(Integer)
+     */
+    public void setCircuitBreakerFailureThreshold(Integer circuitBreakerFailureThreshold) {
+        this.circuitBreakerFailureThreshold = circuitBreakerFailureThreshold;
+    }
+
+    public Long getCircuitBreakerOpenTimeout() {
+        return this.circuitBreakerOpenTimeout;
+    }
+
+    /**
+     * The number of milliseconds the polling of a queue is suspended once its circuit breaker opened.
+     *
+     * @param circuitBreakerOpenTimeout
+     *         in milliseconds
+     * @see SimpleMessageListenerContainer#setCircuitBreakerOpenTimeout(long)
+     */
+    public void setCircuitBreakerOpenTimeout(Long circuitBreakerOpenTimeout) {
+        this.circuitBreakerOpenTimeout = circuitBreakerOpenTimeout;
+    }
+
+    public MessageListenerContainerMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * Configures the callback through which the container reports receives, message processing and errors.
+     *
+     * @param metrics
+     *         the callback or {@code null} to disable the instrumentation
+     * @see SimpleMessageListenerContainer#setMetrics(MessageListenerContainerMetrics)
+     */
+    public void setMetrics(MessageListenerContainerMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public IdleQueuePollingStrategy getIdleQueuePollingStrategy() {
+        return this.idleQueuePollingStrategy;
+    }
+
+    /**
+     * Configures the strategy that pauses the pollers of a queue after consecutive empty receives.
+     *
+     * @param idleQueuePollingStrategy
+     *         the strategy or {@code null} to poll continuously
+     * @see SimpleMessageListenerContainer#setIdleQueuePollingStrategy(IdleQueuePollingStrategy)
+     */
+    public void setIdleQueuePollingStrategy(IdleQueuePollingStrategy idleQueuePollingStrategy) {
+        this.idleQueuePollingStrategy = idleQueuePollingStrategy;
+    }
+
+    public Map<String, TokenBucketRateLimiter> getRateLimiters() {
+        return this.rateLimiters;
+    }
+
+    /**
+     * Configures rate limiters by logical queue name.
+     *
+     * @param rateLimiters
+     *         the rate limiters keyed by logical queue name
+     * @see SimpleMessageListenerContainer#setRateLimiters(Map)
+     */
+    public void setRateLimiters(Map<String, TokenBucketRateLimiter> rateLimiters) {
+        this.rateLimiters = rateLimiters;
+    }
+
+    public Long getDrainTimeout() {
+        return this.drainTimeout;
+    }
+
+    /**
+     * The number of milliseconds the container waits for in-flight messages when it is stopped. Enables the drain mode.
+     *
+     * @param drainTimeout
+     *         in milliseconds
+     * @see SimpleMessageListenerContainer#setDrainTimeout(Long)
+     */
+    public void setDrainTimeout(Long drainTimeout) {
+        this.drainTimeout = drainTimeout;
+    }
+
+    public Integer getQueueRegistrationParallelism() {
+        return this.queueRegistrationParallelism;
+    }
+
+    /**
+     * Configures the maximum number of queues that are resolved concurrently when the container is initialized.
+     *
+     * @param queueRegistrationParallelism
+     *         the maximum number of concurrent queue resolutions
+     * @see SimpleMessageListenerContainer#setQueueRegistrationParallelism(int)
+     */
+    public void setQueueRegistrationParallelism(Integer queueRegistrationParallelism) {
+        this.queueRegistrationParallelism = queueRegistrationParallelism;
+    }
+
+    public Boolean getLazyRedrivePolicyLookup() {
+        return this.lazyRedrivePolicyLookup;
+    }
+
+    /**
+     * Configures if the redrive policy of a queue is only looked up when it is needed for the first time.
+     *
+     * @param lazyRedrivePolicyLookup
+     *         true to defer the lookup of the redrive policies
+     * @see SimpleMessageListenerContainer#setLazyRedrivePolicyLookup(boolean)
+     */
+    public void setLazyRedrivePolicyLookup(Boolean lazyRedrivePolicyLookup) {
+        this.lazyRedrivePolicyLookup = lazyRedrivePolicyLookup;
+    }
+
+    public List<String> getAttributeNames() {
+        return this.attributeNames;
+    }
+
+    /**
+     * Configures the system attributes that are received with the messages of listener methods that do not declare
+     * their own attribute names.
+     *
+     * @param attributeNames
+     *         the names of the system attributes to receive, an empty list to receive none
+     * @see SimpleMessageListenerContainer#setAttributeNames(List)
+     */
+    public void setAttributeNames(List<String> attributeNames) {
+        this.attributeNames = attributeNames;
+    }
+
+    public List<String> getMessageAttributeNames() {
+        return this.messageAttributeNames;
+    }
+
+    /**
+     * Configures the message attributes that are received with the messages of listener methods that do not declare
+     * their own message attribute names.
+     *
+     * @param messageAttributeNames
+     *         the names of the message attributes to receive, an empty list to receive none
+     * @see SimpleMessageListenerContainer#setMessageAttributeNames(List)
+     */
+    public void setMessageAttributeNames(List<String> messageAttributeNames) {
+        this.messageAttributeNames = messageAttributeNames;
+    }
+
+    public Map<String, Integer> getQueueWeights() {
+        return this.queueWeights;
+    }
+
+    /**
+     * Configures the weights by logical queue name used to share the message executions between the queues. Enables
+     * weighted fair scheduling.
+     *
+     * @param queueWeights
+     *         the positive weights keyed by logical queue name
+     * @see SimpleMessageListenerContainer#setQueueWeights(Map)
+     */
+    public void setQueueWeights(Map<String, Integer> queueWeights) {
+        this.queueWeights = queueWeights;
+    }
+
+    public Integer getMaxConcurrentMessages() {
+        return this.maxConcurrentMessages;
+    }
+
+    /**
+     * Configures the maximum number of messages of all queues that are executed at the same time with weighted fair
+     * scheduling.
+     *
+     * @param maxConcurrentMessages
+     *         the maximum number of concurrently executed messages
+     * @see SimpleMessageListenerContainer#setMaxConcurrentMessages(Integer)
+     */
+    public void setMaxConcurrentMessages(Integer maxConcurrentMessages) {
+        this.maxConcurrentMessages = maxConcurrentMessages;
+    }
+
+    public Long getProcessingTimeout() {
+        return this.processingTimeout;
+    }
+
+    /**
+     * Configures the maximum number of milliseconds a listener method may process a message or a batch of messages.
+     *
+     * @param processingTimeout
+     *         in milliseconds
+     * @see SimpleMessageListenerContainer#setProcessingTimeout(Long)
+     */
+    public void setProcessingTimeout(Long processingTimeout) {
+        this.processingTimeout = processingTimeout;
+    }
+
+    public Boolean getVisibilityTimeoutAsProcessingTimeout() {
+        return this.visibilityTimeoutAsProcessingTimeout;
+    }
+
+    /**
+     * Configures the visibility timeout of every queue as its processing timeout if no explicit processing timeout is
+     * set.
+     *
+     * @param visibilityTimeoutAsProcessingTimeout
+     *         {@code true} to limit the processing time by the visibility timeout
+     * @see SimpleMessageListenerContainer#setVisibilityTimeoutAsProcessingTimeout(boolean)
+     */
+    public void setVisibilityTimeoutAsProcessingTimeout(Boolean visibilityTimeoutAsProcessingTimeout) {
+        this.visibilityTimeoutAsProcessingTimeout = visibilityTimeoutAsProcessingTimeout;
+    }
+
+    public Integer getPrefetchSize() {
+        return this.prefetchSize;
+    }
+
+    /**
+     * Configures the maximum number of messages per queue that are received ahead of demand.
+     *
+     * @param prefetchSize
+     *         the maximum number of buffered messages per queue
+     * @see SimpleMessageListenerContainer#setPrefetchSize(Integer)
+     */
+    public void setPrefetchSize(Integer prefetchSize) {
+        this.prefetchSize = prefetchSize;
+    }
+
+    public Double getPrefetchExpiryFraction() {
+        return this.prefetchExpiryFraction;
+    }
+
+    /**
+     * Configures the fraction of the visibility timeout after which an undispatched prefetched message is returned to
+     * the queue.
+     *
+     * @param prefetchExpiryFraction
+     *         a fraction greater than 0 and at most 1
+     * @see SimpleMessageListenerContainer#setPrefetchExpiryFraction(double)
+     */
+    public void setPrefetchExpiryFraction(Double prefetchExpiryFraction) {
+        this.prefetchExpiryFraction = prefetchExpiryFraction;
+    }
+
     public SimpleMessageListenerContainer createSimpleMessageListenerContainer() {
         Assert.notNull(this.amazonSqs, "amazonSqs must not be null");
 
         SimpleMessageListenerContainer simpleMessageListenerContainer = new SimpleMessageListenerContainer();
         simpleMessageListenerContainer.setAmazonSqs(this.amazonSqs);
         simpleMessageListenerContainer.setAutoStartup(this.autoStartup);
+        simpleMessageListenerContainer.setVirtualThreads(this.virtualThreads);
 
         if (this.taskExecutor != null) {
             simpleMessageListenerContainer.setTaskExecutor(this.taskExecutor);
@@ -224,6 +643,72 @@ public class SimpleMessageListenerContainerFactory {
         if (this.backOffTime != null) {
             simpleMessageListenerContainer.setBackOffTime(this.backOffTime);
         }
+        if (this.pollerCount != null) {
+            simpleMessageListenerContainer.setPollerCount(this.pollerCount);
+        }
+        if (this.messageDispatchMode != null) {
+            simpleMessageListenerContainer.setMessageDispatchMode(this.messageDispatchMode);
+        }
+        if (this.maxInFlightMessages != null) {
+            simpleMessageListenerContainer.setMaxInFlightMessages(this.maxInFlightMessages);
+        }
+        if (this.deleteMessageBatchMaxDelay != null) {
+            simpleMessageListenerContainer.setDeleteMessageBatchMaxDelay(this.deleteMessageBatchMaxDelay);
+        }
+        if (this.visibilityHeartbeatInterval != null) {
+            simpleMessageListenerContainer.setVisibilityHeartbeatInterval(this.visibilityHeartbeatInterval);
+        }
+        if (this.backOff != null) {
+            simpleMessageListenerContainer.setBackOff(this.backOff);
+        }
+        if (this.circuitBreakerFailureThreshold != null) {
+            simpleMessageListenerContainer.setCircuitBreakerFailureThreshold(this.circuitBreakerFailureThreshold);
+        }
+        if (this.circuitBreakerOpenTimeout != null) {
+            simpleMessageListenerContainer.setCircuitBreakerOpenTimeout(this.circuitBreakerOpenTimeout);
+        }
+        if (this.metrics != null) {
+            simpleMessageListenerContainer.setMetrics(this.metrics);
+        }
+        if (this.idleQueuePollingStrategy != null) {
+            simpleMessageListenerContainer.setIdleQueuePollingStrategy(this.idleQueuePollingStrategy);
+        }
+        if (this.rateLimiters != null) {
+            simpleMessageListenerContainer.setRateLimiters(this.rateLimiters);
+        }
+        if (this.drainTimeout != null) {
+            simpleMessageListenerContainer.setDrainTimeout(this.drainTimeout);
+        }
+        if (this.queueRegistrationParallelism != null) {
+            simpleMessageListenerContainer.setQueueRegistrationParallelism(this.queueRegistrationParallelism);
+        }
+        if (this.lazyRedrivePolicyLookup != null) {
+            simpleMessageListenerContainer.setLazyRedrivePolicyLookup(this.lazyRedrivePolicyLookup);
+        }
+        if (this.attributeNames != null) {
+            simpleMessageListenerContainer.setAttributeNames(this.attributeNames);
+        }
+        if (this.messageAttributeNames != null) {
+            simpleMessageListenerContainer.setMessageAttributeNames(this.messageAttributeNames);
+        }
+        if (this.queueWeights != null) {
+            simpleMessageListenerContainer.setQueueWeights(this.queueWeights);
+        }
+        if (this.maxConcurrentMessages != null) {
+            simpleMessageListenerContainer.setMaxConcurrentMessages(this.maxConcurrentMessages);
+        }
+        if (this.processingTimeout != null) {
+            simpleMessageListenerContainer.setProcessingTimeout(this.processingTimeout);
+        }
+        if (this.visibilityTimeoutAsProcessingTimeout != null) {
+            simpleMessageListenerContainer.setVisibilityTimeoutAsProcessingTimeout(this.visibilityTimeoutAsProcessingTimeout);
+        }
+        if (this.prefetchSize != null) {
+            simpleMessageListenerContainer.setPrefetchSize(this.prefetchSize);
+        }
+        if (this.prefetchExpiryFraction != null) {
+            simpleMessageListenerContainer.setPrefetchExpiryFraction(this.prefetchExpiryFraction);
+        }
 
         return simpleMessageListenerContainer;
     }
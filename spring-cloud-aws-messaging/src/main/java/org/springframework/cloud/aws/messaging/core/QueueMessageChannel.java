@@ -34,7 +34,9 @@ import org.springframework.util.MimeType;
 import org.springframework.util.NumberUtils;
 
 import java.nio.ByteBuffer;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
@@ -54,12 +56,39 @@ public class QueueMessageChannel extends AbstractMessageChannel implements Polla
     private static final String MESSAGE_ATTRIBUTE_NAMES = "All";
     private final AmazonSQSAsync amazonSqs;
     private final String queueUrl;
+    private List<String> attributeNames = Collections.singletonList(ATTRIBUTE_NAMES);
+    private List<String> messageAttributeNames = Collections.singletonList(MESSAGE_ATTRIBUTE_NAMES);
 
     public QueueMessageChannel(AmazonSQSAsync amazonSqs, String queueUrl) {
         this.amazonSqs = amazonSqs;
         this.queueUrl = queueUrl;
     }
 
+    /**
+     * Configures the system attributes that are received with a message. All attributes are received by default.
+     *
+     * @param attributeNames
+     *         the names of the system attributes to receive, an empty list to receive none
+     * @since 2.1
+     */
+    public void setAttributeNames(List<String> attributeNames) {
+        Assert.notNull(attributeNames, "attributeNames must not be null");
+        this.attributeNames = attributeNames;
+    }
+
+    /**
+     * Configures the message attributes that are received with a message. All message attributes are received by
+     * default.
+     *
+     * @param messageAttributeNames
+     *         the names of the message attributes to receive, an empty list to receive none
+     * @since 2.1
+     */
+    public void setMessageAttributeNames(List<String> messageAttributeNames) {
+        Assert.notNull(messageAttributeNames, "messageAttributeNames must not be null");
+        this.messageAttributeNames = messageAttributeNames;
+    }
+
     @Override
     protected boolean sendInternal(Message<?> message, long timeout) {
         try {
@@ -182,8 +211,8 @@ public class QueueMessageChannel extends AbstractMessageChannel implements Polla
                 new ReceiveMessageRequest(this.queueUrl).
                         withMaxNumberOfMessages(1).
                         withWaitTimeSeconds(Long.valueOf(timeout).intValue()).
-                        withAttributeNames(ATTRIBUTE_NAMES).
-                        withMessageAttributeNames(MESSAGE_ATTRIBUTE_NAMES));
+                        withAttributeNames(this.attributeNames).
+                        withMessageAttributeNames(this.messageAttributeNames));
         if (receiveMessageResult.getMessages().isEmpty()) {
             return null;
         }
@@ -28,6 +28,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author Alain Sahli
@@ -38,6 +39,12 @@ public final class QueueMessageUtils {
     private static final String RECEIPT_HANDLE_MESSAGE_ATTRIBUTE_NAME = "ReceiptHandle";
     private static final String MESSAGE_ID_MESSAGE_ATTRIBUTE_NAME = "MessageId";
 
+    /**
+     * The data type of numeric message attributes is chosen by the producer, hence the cache is bounded.
+     */
+    private static final int MAX_CACHED_NUMBER_TYPE_CLASSES = 64;
+    private static final Map<String, Class<? extends Number>> NUMBER_TYPE_CLASSES = new ConcurrentHashMap<>();
+
     private QueueMessageUtils() {
         // Avoid instantiation
     }
@@ -47,57 +54,69 @@ public final class QueueMessageUtils {
     }
 
     public static Message<String> createMessage(com.amazonaws.services.sqs.model.Message message, Map<String, Object> additionalHeaders) {
-        HashMap<String, Object> messageHeaders = new HashMap<>();
+        Map<String, String> attributes = message.getAttributes();
+        Map<String, MessageAttributeValue> messageAttributes = message.getMessageAttributes();
+
+        // The headers are copied once more by MessageHeaders, hence they are collected in a single, presized map
+        HashMap<String, Object> messageHeaders = new HashMap<>(getInitialCapacity(2 + additionalHeaders.size() + attributes.size() + messageAttributes.size()));
         messageHeaders.put(MESSAGE_ID_MESSAGE_ATTRIBUTE_NAME, message.getMessageId());
         messageHeaders.put(RECEIPT_HANDLE_MESSAGE_ATTRIBUTE_NAME, message.getReceiptHandle());
 
         messageHeaders.putAll(additionalHeaders);
-        messageHeaders.putAll(getAttributesAsMessageHeaders(message));
-        messageHeaders.putAll(getMessageAttributesAsMessageHeaders(message));
+        messageHeaders.putAll(attributes);
+        putMessageAttributesAsMessageHeaders(messageAttributes, messageHeaders);
 
         return new GenericMessage<>(message.getBody(), new SqsMessageHeaders(messageHeaders));
     }
 
-    private static Map<String, Object> getAttributesAsMessageHeaders(com.amazonaws.services.sqs.model.Message message) {
-        Map<String, Object> messageHeaders = new HashMap<>();
-        for (Map.Entry<String, String> attributeKeyValuePair : message.getAttributes().entrySet()) {
-            messageHeaders.put(attributeKeyValuePair.getKey(), attributeKeyValuePair.getValue());
-        }
-
-        return messageHeaders;
+    private static int getInitialCapacity(int expectedSize) {
+        return (int) (expectedSize / 0.75f) + 1;
     }
 
-    private static Map<String, Object> getMessageAttributesAsMessageHeaders(com.amazonaws.services.sqs.model.Message message) {
-        Map<String, Object> messageHeaders = new HashMap<>();
-        for (Map.Entry<String, MessageAttributeValue> messageAttribute : message.getMessageAttributes().entrySet()) {
-            if (MessageHeaders.CONTENT_TYPE.equals(messageAttribute.getKey())) {
-                messageHeaders.put(MessageHeaders.CONTENT_TYPE, MimeType.valueOf(messageAttribute.getValue().getStringValue()));
-            } else if (MessageHeaders.ID.equals(messageAttribute.getKey())) {
-                messageHeaders.put(MessageHeaders.ID, UUID.fromString(messageAttribute.getValue().getStringValue()));
-            } else if (MessageAttributeDataTypes.STRING.equals(messageAttribute.getValue().getDataType())) {
-                messageHeaders.put(messageAttribute.getKey(), messageAttribute.getValue().getStringValue());
-            } else if (messageAttribute.getValue().getDataType().startsWith(MessageAttributeDataTypes.NUMBER)) {
-                Object numberValue = getNumberValue(messageAttribute.getValue());
+    private static void putMessageAttributesAsMessageHeaders(Map<String, MessageAttributeValue> messageAttributes, Map<String, Object> messageHeaders) {
+        for (Map.Entry<String, MessageAttributeValue> messageAttribute : messageAttributes.entrySet()) {
+            String name = messageAttribute.getKey();
+            MessageAttributeValue value = messageAttribute.getValue();
+            if (MessageHeaders.CONTENT_TYPE.equals(name)) {
+                messageHeaders.put(MessageHeaders.CONTENT_TYPE, MimeType.valueOf(value.getStringValue()));
+            } else if (MessageHeaders.ID.equals(name)) {
+                messageHeaders.put(MessageHeaders.ID, UUID.fromString(value.getStringValue()));
+            } else if (MessageAttributeDataTypes.STRING.equals(value.getDataType())) {
+                messageHeaders.put(name, value.getStringValue());
+            } else if (value.getDataType().startsWith(MessageAttributeDataTypes.NUMBER)) {
+                Object numberValue = getNumberValue(value);
                 if (numberValue != null) {
-                    messageHeaders.put(messageAttribute.getKey(), numberValue);
+                    messageHeaders.put(name, numberValue);
                 }
-            } else if (MessageAttributeDataTypes.BINARY.equals(messageAttribute.getValue().getDataType())) {
-                messageHeaders.put(messageAttribute.getKey(), messageAttribute.getValue().getBinaryValue());
+            } else if (MessageAttributeDataTypes.BINARY.equals(value.getDataType())) {
+                messageHeaders.put(name, value.getBinaryValue());
             }
         }
-
-        return messageHeaders;
     }
 
     private static Object getNumberValue(MessageAttributeValue value) {
+        Class<? extends Number> numberTypeClass = getNumberTypeClass(value);
+        return NumberUtils.parseNumber(value.getStringValue(), numberTypeClass);
+    }
+
+    private static Class<? extends Number> getNumberTypeClass(MessageAttributeValue value) {
+        Class<? extends Number> numberTypeClass = NUMBER_TYPE_CLASSES.get(value.getDataType());
+        if (numberTypeClass != null) {
+            return numberTypeClass;
+        }
+
         String numberType = value.getDataType().substring(MessageAttributeDataTypes.NUMBER.length() + 1);
         try {
-            Class<? extends Number> numberTypeClass = Class.forName(numberType).asSubclass(Number.class);
-            return NumberUtils.parseNumber(value.getStringValue(), numberTypeClass);
+            numberTypeClass = Class.forName(numberType).asSubclass(Number.class);
         } catch (ClassNotFoundException e) {
             throw new MessagingException(String.format("Message attribute with value '%s' and data type '%s' could not be converted " +
                     "into a Number because target class was not found.", value.getStringValue(), value.getDataType()), e);
         }
+
+        if (NUMBER_TYPE_CLASSES.size() < MAX_CACHED_NUMBER_TYPE_CLASSES) {
+            NUMBER_TYPE_CLASSES.put(value.getDataType(), numberTypeClass);
+        }
+        return numberTypeClass;
     }
 
 }
@@ -29,6 +29,8 @@ import org.springframework.messaging.converter.StringMessageConverter;
 import org.springframework.messaging.core.DestinationResolver;
 import org.springframework.messaging.core.DestinationResolvingMessageReceivingOperations;
 
+import java.util.List;
+
 /**
  * <b>IMPORTANT</b>: For the message conversion this class always tries to first use the {@link StringMessageConverter}
  * as it fits the underlying message channel type. If a message converter is set through the constructor then it is
@@ -45,6 +47,10 @@ public class QueueMessagingTemplate extends AbstractMessageChannelMessagingSendi
 
     private final AmazonSQSAsync amazonSqs;
 
+    private List<String> attributeNames;
+
+    private List<String> messageAttributeNames;
+
     public QueueMessagingTemplate(AmazonSQSAsync amazonSqs) {
         this(amazonSqs, (ResourceIdResolver) null, null);
     }
@@ -89,9 +95,40 @@ public class QueueMessagingTemplate extends AbstractMessageChannelMessagingSendi
         initMessageConverter(messageConverter);
     }
 
+    /**
+     * Configures the system attributes that are received with a message.
+     *
+     * @param attributeNames
+     *         the names of the system attributes to receive, an empty list to receive none
+     * @see QueueMessageChannel#setAttributeNames(List)
+     * @since 2.1
+     */
+    public void setAttributeNames(List<String> attributeNames) {
+        this.attributeNames = attributeNames;
+    }
+
+    /**
+     * Configures the message attributes that are received with a message.
+     *
+     * @param messageAttributeNames
+     *         the names of the message attributes to receive, an empty list to receive none
+     * @see QueueMessageChannel#setMessageAttributeNames(List)
+     * @since 2.1
+     */
+    public void setMessageAttributeNames(List<String> messageAttributeNames) {
+        this.messageAttributeNames = messageAttributeNames;
+    }
+
     @Override
     protected QueueMessageChannel resolveMessageChannel(String physicalResourceIdentifier) {
-        return new QueueMessageChannel(this.amazonSqs, physicalResourceIdentifier);
+        QueueMessageChannel queueMessageChannel = new QueueMessageChannel(this.amazonSqs, physicalResourceIdentifier);
+        if (this.attributeNames != null) {
+            queueMessageChannel.setAttributeNames(this.attributeNames);
+        }
+        if (this.messageAttributeNames != null) {
+            queueMessageChannel.setMessageAttributeNames(this.messageAttributeNames);
+        }
+        return queueMessageChannel;
     }
 
     @Override
@@ -19,6 +19,7 @@ package org.springframework.cloud.aws.messaging.core;
 import org.springframework.messaging.MessageHeaders;
 
 import java.util.Map;
+import java.util.UUID;
 
 /**
  * Specialization of the {@link MessageHeaders} class that allows to set an ID. This was done to support cases where the
@@ -35,10 +36,17 @@ public class SqsMessageHeaders extends MessageHeaders {
 
 
     public SqsMessageHeaders(Map<String, Object> headers) {
-        super(headers);
+        // Reuses an ID of type UUID directly instead of generating a random one that would be overwritten anyway
+        super(headers, getId(headers), null);
 
-        if (headers.containsKey(ID)) {
-            this.getRawHeaders().put(ID, headers.get(ID));
+        Object id = headers.get(ID);
+        if (id != null && !(id instanceof UUID)) {
+            this.getRawHeaders().put(ID, id);
         }
     }
+
+    private static UUID getId(Map<String, Object> headers) {
+        Object id = headers.get(ID);
+        return id instanceof UUID ? (UUID) id : null;
+    }
 }
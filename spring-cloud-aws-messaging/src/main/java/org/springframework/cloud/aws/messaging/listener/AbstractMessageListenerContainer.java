@@ -34,11 +34,20 @@ import org.springframework.context.SmartLifecycle;
 import org.springframework.messaging.core.CachingDestinationResolverProxy;
 import org.springframework.messaging.core.DestinationResolutionException;
 import org.springframework.messaging.core.DestinationResolver;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.util.Assert;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Abstract base class for message listener containers providing basic lifecycle capabilities and collaborator for the
@@ -51,10 +60,13 @@ import java.util.Map;
  */
 abstract class AbstractMessageListenerContainer implements InitializingBean, DisposableBean, SmartLifecycle, BeanNameAware {
 
-    private static final String RECEIVING_ATTRIBUTES = "All";
-    private static final String RECEIVING_MESSAGE_ATTRIBUTES = "All";
+    private static final List<String> RECEIVING_ATTRIBUTES = Collections.singletonList("All");
+    private static final List<String> RECEIVING_MESSAGE_ATTRIBUTES = Collections.singletonList("All");
+    private static final String MESSAGE_GROUP_ID_ATTRIBUTE = "MessageGroupId";
+    private static final String FIFO_QUEUE_SUFFIX = ".fifo";
     private static final int DEFAULT_MAX_NUMBER_OF_MESSAGES = 10;
     private static final int DEFAULT_WAIT_TIME_IN_SECONDS = 20;
+    private static final int DEFAULT_QUEUE_REGISTRATION_PARALLELISM = 8;
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final Object lifecycleMonitor = new Object();
     @SuppressWarnings("FieldAccessedSynchronizedAndUnsynchronized")
@@ -72,6 +84,8 @@ abstract class AbstractMessageListenerContainer implements InitializingBean, Dis
     private Integer visibilityTimeout;
     @SuppressWarnings("FieldAccessedSynchronizedAndUnsynchronized")
     private ResourceIdResolver resourceIdResolver;
+    private List<String> attributeNames;
+    private List<String> messageAttributeNames;
 
     /**
      * By default sets the maximum value for long polling in SQS.
@@ -81,6 +95,8 @@ abstract class AbstractMessageListenerContainer implements InitializingBean, Dis
     //Optional settings with defaults
     private boolean autoStartup = true;
     private int phase = Integer.MAX_VALUE;
+    private int queueRegistrationParallelism = DEFAULT_QUEUE_REGISTRATION_PARALLELISM;
+    private boolean lazyRedrivePolicyLookup;
     //Settings that are changed at runtime
     private boolean active;
     private boolean running;
@@ -222,6 +238,71 @@ abstract class AbstractMessageListenerContainer implements InitializingBean, Dis
         this.autoStartup = autoStartup;
     }
 
+    public int getQueueRegistrationParallelism() {
+        return this.queueRegistrationParallelism;
+    }
+
+    /**
+     * Configures the maximum number of queues that are resolved concurrently when the container is initialized.
+     * Resolving a queue requires a request for its url and one for its redrive policy. The default value is 8; 1
+     * resolves the queues one after another.
+     *
+     * @param queueRegistrationParallelism
+     *         - the maximum number of concurrent queue resolutions
+     */
+    public void setQueueRegistrationParallelism(int queueRegistrationParallelism) {
+        Assert.isTrue(queueRegistrationParallelism > 0, "queueRegistrationParallelism must be a positive number");
+        this.queueRegistrationParallelism = queueRegistrationParallelism;
+    }
+
+    public List<String> getAttributeNames() {
+        return this.attributeNames;
+    }
+
+    /**
+     * Configures the system attributes (e.g. {@code SentTimestamp} or {@code ApproximateReceiveCount}) that are received
+     * with the messages of all queues whose listener method does not declare its own attribute names. Messages of FIFO
+     * queues are always received with their {@code MessageGroupId}. All attributes are received by default.
+     *
+     * @param attributeNames
+     *         - the names of the system attributes to receive, an empty list to receive none
+     */
+    public void setAttributeNames(List<String> attributeNames) {
+        this.attributeNames = attributeNames;
+    }
+
+    public List<String> getMessageAttributeNames() {
+        return this.messageAttributeNames;
+    }
+
+    /**
+     * Configures the message attributes that are received with the messages of all queues whose listener method does
+     * not declare its own message attribute names. All message attributes are received by default.
+     *
+     * @param messageAttributeNames
+     *         - the names of the message attributes to receive, an empty list to receive none
+     */
+    public void setMessageAttributeNames(List<String> messageAttributeNames) {
+        this.messageAttributeNames = messageAttributeNames;
+    }
+
+    public boolean isLazyRedrivePolicyLookup() {
+        return this.lazyRedrivePolicyLookup;
+    }
+
+    /**
+     * Configures if the redrive policy of a queue is looked up when the container is initialized or only when it is
+     * needed for the first time. The redrive policy is only needed if a message of a queue with the
+     * {@link SqsMessageDeletionPolicy#NO_REDRIVE} deletion policy fails, so a lazy lookup saves one request per queue
+     * at startup. The default value is false.
+     *
+     * @param lazyRedrivePolicyLookup
+     *         - true to look up the redrive policy of a queue when it is needed for the first time
+     */
+    public void setLazyRedrivePolicyLookup(boolean lazyRedrivePolicyLookup) {
+        this.lazyRedrivePolicyLookup = lazyRedrivePolicyLookup;
+    }
+
     @Override
     public void stop(Runnable callback) {
         this.stop();
@@ -271,15 +352,13 @@ abstract class AbstractMessageListenerContainer implements InitializingBean, Dis
                 }
             }
 
+            Map<String, QueueMessageHandler.MappingInformation> mappingInformationByQueue = new LinkedHashMap<>();
             for (QueueMessageHandler.MappingInformation mappingInformation : this.messageHandler.getHandlerMethods().keySet()) {
                 for (String queue : mappingInformation.getLogicalResourceIds()) {
-                    QueueAttributes queueAttributes = queueAttributes(queue, mappingInformation.getDeletionPolicy());
-
-                    if (queueAttributes != null) {
-                        this.registeredQueues.put(queue, queueAttributes);
-                    }
+                    mappingInformationByQueue.put(queue, mappingInformation);
                 }
             }
+            registerQueues(mappingInformationByQueue);
 
             this.active = true;
             this.getLifecycleMonitor().notifyAll();
@@ -296,7 +375,143 @@ abstract class AbstractMessageListenerContainer implements InitializingBean, Dis
         doStart();
     }
 
-    private QueueAttributes queueAttributes(String queue, SqsMessageDeletionPolicy deletionPolicy) {
+    /**
+     * Resolves the queues concurrently with at most {@link #getQueueRegistrationParallelism()} threads and registers
+     * the queues that exist.
+     */
+    private void registerQueues(Map<String, QueueMessageHandler.MappingInformation> mappingInformationByQueue) {
+        int parallelism = Math.min(this.queueRegistrationParallelism, mappingInformationByQueue.size());
+        if (parallelism <= 1) {
+            for (Map.Entry<String, QueueMessageHandler.MappingInformation> queue : mappingInformationByQueue.entrySet()) {
+                registerQueue(queue.getKey(), queueAttributes(queue.getKey(), queue.getValue()));
+            }
+            return;
+        }
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("QueueRegistration-");
+        threadFactory.setDaemon(true);
+        ExecutorService executorService = Executors.newFixedThreadPool(parallelism, threadFactory);
+        try {
+            Map<String, Future<QueueAttributes>> queueAttributesByQueue = new LinkedHashMap<>();
+            for (final Map.Entry<String, QueueMessageHandler.MappingInformation> queue : mappingInformationByQueue.entrySet()) {
+                queueAttributesByQueue.put(queue.getKey(), executorService.submit(new Callable<QueueAttributes>() {
+
+                    @Override
+                    public QueueAttributes call() throws Exception {
+                        return queueAttributes(queue.getKey(), queue.getValue());
+                    }
+                }));
+            }
+
+            for (Map.Entry<String, Future<QueueAttributes>> queueAttributes : queueAttributesByQueue.entrySet()) {
+                registerQueue(queueAttributes.getKey(), getQueueAttributes(queueAttributes.getValue()));
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private void registerQueue(String queue, QueueAttributes queueAttributes) {
+        if (queueAttributes != null) {
+            this.registeredQueues.put(queue, queueAttributes);
+        }
+    }
+
+    private static QueueAttributes getQueueAttributes(Future<QueueAttributes> queueAttributes) {
+        try {
+            return queueAttributes.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while resolving the queues of the container", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException("Error while resolving the queues of the container", e.getCause());
+        }
+    }
+
+    private QueueAttributes queueAttributes(String queue, QueueMessageHandler.MappingInformation mappingInformation) {
+        QueueAttributes queueAttributes = queueAttributes(queue, mappingInformation.getDeletionPolicy(), mappingInformation.isBatch());
+        if (queueAttributes != null) {
+            queueAttributes.setRequiredHeaders(mappingInformation.isAcknowledgmentRequired(), mappingInformation.isVisibilityRequired());
+            queueAttributes.setReceivingAttributeNames(
+                    getReceivingAttributeNames(queueAttributes.getDestinationUrl(), mappingInformation.getAttributeNames()),
+                    getReceivingMessageAttributeNames(mappingInformation.getMessageAttributeNames()));
+            queueAttributes.setQueueSettings(mappingInformation.getMaxNumberOfMessages(), mappingInformation.getVisibilityTimeout(),
+                    mappingInformation.getWaitTimeOut(), mappingInformation.getBackOffTime());
+            queueAttributes.setBatchAggregation(mappingInformation.getMaxBatchSize(), mappingInformation.getBatchWindow());
+            lookUpQueueAttributes(queueAttributes);
+        }
+        return queueAttributes;
+    }
+
+    /**
+     * Looks up the redrive policy of the queue, unless it is looked up lazily, and its visibility timeout if the
+     * container needs it, with a single {@code GetQueueAttributes} request.
+     */
+    private void lookUpQueueAttributes(QueueAttributes queueAttributes) {
+        List<String> attributeNames = new ArrayList<>(2);
+        if (!this.lazyRedrivePolicyLookup) {
+            attributeNames.add(QueueAttributeName.RedrivePolicy.toString());
+        }
+        boolean visibilityTimeoutRequired = queueAttributes.getVisibilityTimeout() == null && isQueueVisibilityTimeoutRequired(queueAttributes);
+        if (visibilityTimeoutRequired) {
+            attributeNames.add(QueueAttributeName.VisibilityTimeout.toString());
+        }
+        if (attributeNames.isEmpty()) {
+            return;
+        }
+
+        Map<String, String> attributes = getAmazonSqs().getQueueAttributes(new GetQueueAttributesRequest(queueAttributes.getDestinationUrl())
+                .withAttributeNames(attributeNames)).getAttributes();
+        if (!this.lazyRedrivePolicyLookup) {
+            queueAttributes.setHasRedrivePolicy(attributes.containsKey(QueueAttributeName.RedrivePolicy.toString()));
+        }
+        String visibilityTimeout = attributes.get(QueueAttributeName.VisibilityTimeout.toString());
+        if (visibilityTimeoutRequired && visibilityTimeout != null) {
+            queueAttributes.setQueueVisibilityTimeout(Integer.valueOf(visibilityTimeout));
+        }
+    }
+
+    /**
+     * Called for every queue while the queues are registered, possibly from several threads at once, to decide if the
+     * visibility timeout of the queue is looked up together with its redrive policy. It is only looked up if neither
+     * the listener method nor the container configure a visibility timeout. Default is {@code false}.
+     *
+     * @param queueAttributes
+     *         the attributes of the queue with the settings of its listener method
+     * @return {@code true} if {@link QueueAttributes#getQueueVisibilityTimeout()} is used by the container
+     */
+    protected boolean isQueueVisibilityTimeoutRequired(QueueAttributes queueAttributes) {
+        return false;
+    }
+
+    private List<String> getReceivingAttributeNames(String destinationUrl, List<String> listenerAttributeNames) {
+        List<String> attributeNames = listenerAttributeNames != null ? listenerAttributeNames : this.attributeNames;
+        if (attributeNames == null) {
+            return RECEIVING_ATTRIBUTES;
+        }
+
+        // Messages of FIFO queues are dispatched by their message group
+        if (destinationUrl.endsWith(FIFO_QUEUE_SUFFIX) && !attributeNames.contains(MESSAGE_GROUP_ID_ATTRIBUTE) &&
+                !attributeNames.contains(RECEIVING_ATTRIBUTES.get(0))) {
+            List<String> fifoAttributeNames = new ArrayList<>(attributeNames);
+            fifoAttributeNames.add(MESSAGE_GROUP_ID_ATTRIBUTE);
+            return Collections.unmodifiableList(fifoAttributeNames);
+        }
+        return attributeNames;
+    }
+
+    private List<String> getReceivingMessageAttributeNames(List<String> listenerMessageAttributeNames) {
+        List<String> messageAttributeNames = listenerMessageAttributeNames != null ? listenerMessageAttributeNames : this.messageAttributeNames;
+        return messageAttributeNames != null ? messageAttributeNames : RECEIVING_MESSAGE_ATTRIBUTES;
+    }
+
+    private QueueAttributes queueAttributes(String queue, SqsMessageDeletionPolicy deletionPolicy, boolean batchListener) {
         String destinationUrl;
         try {
             destinationUrl = getDestinationResolver().resolveDestination(queue);
@@ -309,11 +524,15 @@ abstract class AbstractMessageListenerContainer implements InitializingBean, Dis
             return null;
         }
 
-        GetQueueAttributesResult queueAttributes = getAmazonSqs().getQueueAttributes(new GetQueueAttributesRequest(destinationUrl)
-                .withAttributeNames(QueueAttributeName.RedrivePolicy));
-        boolean hasRedrivePolicy = queueAttributes.getAttributes().containsKey(QueueAttributeName.RedrivePolicy.toString());
+        // The redrive policy is set by lookUpQueueAttributes unless it is looked up lazily
+        return new QueueAttributes(getAmazonSqs(), deletionPolicy, destinationUrl, getMaxNumberOfMessages(), getVisibilityTimeout(),
+                getWaitTimeOut(), batchListener);
+    }
 
-        return new QueueAttributes(hasRedrivePolicy, deletionPolicy, destinationUrl, getMaxNumberOfMessages(), getVisibilityTimeout(), getWaitTimeOut());
+    private static boolean hasRedrivePolicy(AmazonSQS amazonSqs, String destinationUrl) {
+        GetQueueAttributesResult queueAttributes = amazonSqs.getQueueAttributes(new GetQueueAttributesRequest(destinationUrl)
+                .withAttributeNames(QueueAttributeName.RedrivePolicy));
+        return queueAttributes.getAttributes().containsKey(QueueAttributeName.RedrivePolicy.toString());
     }
 
     @Override
@@ -352,31 +571,71 @@ abstract class AbstractMessageListenerContainer implements InitializingBean, Dis
 
     protected static class QueueAttributes {
 
-        private final boolean hasRedrivePolicy;
+        private final AmazonSQS amazonSqs;
+        private volatile Boolean hasRedrivePolicy;
         private final SqsMessageDeletionPolicy deletionPolicy;
         private final String destinationUrl;
-        private final Integer maxNumberOfMessages;
-        private final Integer visibilityTimeout;
-        private final Integer waitTimeOut;
+        private Integer maxNumberOfMessages;
+        private Integer visibilityTimeout;
+        private Integer queueVisibilityTimeout;
+        private Integer waitTimeOut;
+        private Long backOffTime;
+        private Integer maxBatchSize;
+        private Long batchWindow;
+        private final boolean batchListener;
+        private boolean acknowledgmentRequired = true;
+        private boolean visibilityRequired = true;
+        private List<String> attributeNames = RECEIVING_ATTRIBUTES;
+        private List<String> messageAttributeNames = RECEIVING_MESSAGE_ATTRIBUTES;
 
         public QueueAttributes(boolean hasRedrivePolicy, SqsMessageDeletionPolicy deletionPolicy, String destinationUrl,
                                Integer maxNumberOfMessages, Integer visibilityTimeout, Integer waitTimeOut) {
+            this(hasRedrivePolicy, deletionPolicy, destinationUrl, maxNumberOfMessages, visibilityTimeout, waitTimeOut, false);
+        }
+
+        public QueueAttributes(boolean hasRedrivePolicy, SqsMessageDeletionPolicy deletionPolicy, String destinationUrl,
+                               Integer maxNumberOfMessages, Integer visibilityTimeout, Integer waitTimeOut, boolean batchListener) {
+            this(null, hasRedrivePolicy, deletionPolicy, destinationUrl, maxNumberOfMessages, visibilityTimeout, waitTimeOut, batchListener);
+        }
+
+        /**
+         * Creates queue attributes whose redrive policy is looked up with the given client when
+         * {@link #hasRedrivePolicy()} is called for the first time.
+         */
+        public QueueAttributes(AmazonSQS amazonSqs, SqsMessageDeletionPolicy deletionPolicy, String destinationUrl,
+                               Integer maxNumberOfMessages, Integer visibilityTimeout, Integer waitTimeOut, boolean batchListener) {
+            this(amazonSqs, null, deletionPolicy, destinationUrl, maxNumberOfMessages, visibilityTimeout, waitTimeOut, batchListener);
+        }
+
+        private QueueAttributes(AmazonSQS amazonSqs, Boolean hasRedrivePolicy, SqsMessageDeletionPolicy deletionPolicy, String destinationUrl,
+                                Integer maxNumberOfMessages, Integer visibilityTimeout, Integer waitTimeOut, boolean batchListener) {
+            this.amazonSqs = amazonSqs;
             this.hasRedrivePolicy = hasRedrivePolicy;
             this.deletionPolicy = deletionPolicy;
             this.destinationUrl = destinationUrl;
             this.maxNumberOfMessages = maxNumberOfMessages;
             this.visibilityTimeout = visibilityTimeout;
             this.waitTimeOut = waitTimeOut;
+            this.batchListener = batchListener;
         }
 
         public boolean hasRedrivePolicy() {
-            return this.hasRedrivePolicy;
+            Boolean hasRedrivePolicy = this.hasRedrivePolicy;
+            if (hasRedrivePolicy == null) {
+                hasRedrivePolicy = AbstractMessageListenerContainer.hasRedrivePolicy(this.amazonSqs, this.destinationUrl);
+                this.hasRedrivePolicy = hasRedrivePolicy;
+            }
+            return hasRedrivePolicy;
+        }
+
+        void setHasRedrivePolicy(boolean hasRedrivePolicy) {
+            this.hasRedrivePolicy = hasRedrivePolicy;
         }
 
         public ReceiveMessageRequest getReceiveMessageRequest() {
             ReceiveMessageRequest receiveMessageRequest = new ReceiveMessageRequest(this.destinationUrl).
-                    withAttributeNames(RECEIVING_ATTRIBUTES).
-                    withMessageAttributeNames(RECEIVING_MESSAGE_ATTRIBUTES);
+                    withAttributeNames(this.attributeNames).
+                    withMessageAttributeNames(this.messageAttributeNames);
 
             if (this.maxNumberOfMessages != null) {
                 receiveMessageRequest.withMaxNumberOfMessages(this.maxNumberOfMessages);
@@ -395,8 +654,120 @@ abstract class AbstractMessageListenerContainer implements InitializingBean, Dis
             return receiveMessageRequest;
         }
 
+        public String getDestinationUrl() {
+            return this.destinationUrl;
+        }
+
+        public int getMaxNumberOfMessages() {
+            return this.maxNumberOfMessages != null ? this.maxNumberOfMessages : DEFAULT_MAX_NUMBER_OF_MESSAGES;
+        }
+
+        /**
+         * @return the visibility timeout in seconds of the received messages or {@code null} if the visibility timeout
+         * of the queue applies
+         */
+        public Integer getVisibilityTimeout() {
+            return this.visibilityTimeout;
+        }
+
+        /**
+         * @return the visibility timeout in seconds configured on the queue itself, as looked up when the queue was
+         * registered, or {@code null} if the container did not require it or the queue did not return it
+         * @see AbstractMessageListenerContainer#isQueueVisibilityTimeoutRequired(QueueAttributes)
+         */
+        public Integer getQueueVisibilityTimeout() {
+            return this.queueVisibilityTimeout;
+        }
+
+        void setQueueVisibilityTimeout(Integer queueVisibilityTimeout) {
+            this.queueVisibilityTimeout = queueVisibilityTimeout;
+        }
+
+        /**
+         * @return the back off time in milliseconds after a failed receive request or {@code null} if the back off of
+         * the container applies
+         */
+        public Long getBackOffTime() {
+            return this.backOffTime;
+        }
+
         public SqsMessageDeletionPolicy getDeletionPolicy() {
             return this.deletionPolicy;
         }
+
+        /**
+         * @return {@code true} if the listener method of the queue is invoked once per received batch of messages
+         */
+        public boolean isBatchListener() {
+            return this.batchListener;
+        }
+
+        /**
+         * @return {@code false} if the listener method of the queue never accesses the acknowledgment of a message
+         */
+        public boolean isAcknowledgmentRequired() {
+            return this.acknowledgmentRequired;
+        }
+
+        /**
+         * @return {@code false} if the listener method of the queue never accesses the visibility of a message
+         */
+        public boolean isVisibilityRequired() {
+            return this.visibilityRequired;
+        }
+
+        void setRequiredHeaders(boolean acknowledgmentRequired, boolean visibilityRequired) {
+            this.acknowledgmentRequired = acknowledgmentRequired;
+            this.visibilityRequired = visibilityRequired;
+        }
+
+        /**
+         * @return the maximum number of messages accumulated for the batch listener method of the queue or {@code null}
+         * if batches are not limited by size
+         */
+        public Integer getMaxBatchSize() {
+            return this.maxBatchSize;
+        }
+
+        /**
+         * @return the number of milliseconds messages are accumulated for the batch listener method of the queue or
+         * {@code null} if batches are not limited by time
+         */
+        public Long getBatchWindow() {
+            return this.batchWindow;
+        }
+
+        /**
+         * @return {@code true} if messages of successive receive requests are accumulated into larger batches
+         */
+        public boolean isBatchAggregation() {
+            return this.batchListener && (this.maxBatchSize != null || this.batchWindow != null);
+        }
+
+        void setBatchAggregation(Integer maxBatchSize, Long batchWindow) {
+            this.maxBatchSize = maxBatchSize;
+            this.batchWindow = batchWindow;
+        }
+
+        /**
+         * Overrides the settings of the container with the non-null settings of the listener method.
+         */
+        void setQueueSettings(Integer maxNumberOfMessages, Integer visibilityTimeout, Integer waitTimeOut, Long backOffTime) {
+            if (maxNumberOfMessages != null) {
+                this.maxNumberOfMessages = maxNumberOfMessages;
+            }
+            if (visibilityTimeout != null) {
+                this.visibilityTimeout = visibilityTimeout;
+            }
+            if (waitTimeOut != null) {
+                this.waitTimeOut = waitTimeOut;
+            }
+            this.backOffTime = backOffTime;
+        }
+
+        void setReceivingAttributeNames(List<String> attributeNames, List<String> messageAttributeNames) {
+            this.attributeNames = attributeNames;
+            this.messageAttributeNames = messageAttributeNames;
+        }
     }
 }
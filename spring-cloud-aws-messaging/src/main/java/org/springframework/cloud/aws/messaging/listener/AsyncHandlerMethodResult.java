@@ -0,0 +1,40 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.aws.messaging.listener;
+
+import org.springframework.util.concurrent.ListenableFuture;
+
+/**
+ * Holds the asynchronous result of a listener method invocation, so that the
+ * {@link SimpleMessageListenerContainer} can wait for its completion without blocking a thread. Instances are passed
+ * as {@link QueueMessageHandler#ASYNC_RESULT} message header and filled in by the
+ * {@link AsyncResultHandlerMethodReturnValueHandler}.
+ *
+ * @since 2.1
+ */
+final class AsyncHandlerMethodResult {
+
+    private volatile ListenableFuture<?> future;
+
+    ListenableFuture<?> getFuture() {
+        return this.future;
+    }
+
+    void setFuture(ListenableFuture<?> future) {
+        this.future = future;
+    }
+}
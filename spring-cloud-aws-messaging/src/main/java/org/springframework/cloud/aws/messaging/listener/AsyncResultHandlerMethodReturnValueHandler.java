@@ -0,0 +1,65 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.aws.messaging.listener;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.MethodParameter;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.handler.invocation.HandlerMethodReturnValueHandler;
+import org.springframework.util.concurrent.CompletableToListenableFutureAdapter;
+import org.springframework.util.concurrent.ListenableFuture;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Handles the {@link ListenableFuture} and {@link CompletionStage} (e.g. {@link java.util.concurrent.CompletableFuture})
+ * return values of listener methods. The future is handed over to the {@link AsyncHandlerMethodResult} that the
+ * {@link SimpleMessageListenerContainer} passes along with the message, so that the container applies the
+ * {@link SqsMessageDeletionPolicy} once the future has completed instead of when the listener method returns.
+ *
+ * @since 2.1
+ */
+class AsyncResultHandlerMethodReturnValueHandler implements HandlerMethodReturnValueHandler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncResultHandlerMethodReturnValueHandler.class);
+
+    @Override
+    public boolean supportsReturnType(MethodParameter returnType) {
+        Class<?> type = returnType.getParameterType();
+        return ListenableFuture.class.isAssignableFrom(type) || CompletionStage.class.isAssignableFrom(type);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void handleReturnValue(Object returnValue, MethodParameter returnType, Message<?> message) throws Exception {
+        if (returnValue == null) {
+            return;
+        }
+
+        Object asyncResult = message.getHeaders().get(QueueMessageHandler.ASYNC_RESULT);
+        if (!(asyncResult instanceof AsyncHandlerMethodResult)) {
+            LOGGER.warn("The asynchronous result of method '{}' can not be tracked, the message is treated as processed " +
+                    "when the method returns", returnType.getMethod());
+            return;
+        }
+
+        ListenableFuture<?> future = returnValue instanceof ListenableFuture ? (ListenableFuture<?>) returnValue :
+                new CompletableToListenableFutureAdapter<>((CompletionStage<Object>) returnValue);
+        ((AsyncHandlerMethodResult) asyncResult).setFuture(future);
+    }
+}
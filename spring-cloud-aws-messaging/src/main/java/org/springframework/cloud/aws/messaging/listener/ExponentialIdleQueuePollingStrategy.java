@@ -0,0 +1,121 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.aws.messaging.listener;
+
+import org.springframework.util.Assert;
+
+/**
+ * {@link IdleQueuePollingStrategy} that keeps polling immediately for a number of empty receives and then increases the
+ * pause between receives exponentially up to a maximum. With the defaults, a queue is polled without pause for 3
+ * empty receives, then after 1, 2, 4, ... seconds and finally once per minute.
+ *
+ * @since 2.1
+ */
+public class ExponentialIdleQueuePollingStrategy implements IdleQueuePollingStrategy {
+
+    /**
+     * The default number of empty receives before the polling slows down.
+     */
+    public static final int DEFAULT_EMPTY_RECEIVES_THRESHOLD = 3;
+
+    /**
+     * The default initial pause in milliseconds.
+     */
+    public static final long DEFAULT_INITIAL_DELAY = 1000L;
+
+    /**
+     * The default multiplier.
+     */
+    public static final double DEFAULT_MULTIPLIER = 2.0;
+
+    /**
+     * The default maximum pause in milliseconds.
+     */
+    public static final long DEFAULT_MAX_DELAY = 60000L;
+
+    private int emptyReceivesThreshold = DEFAULT_EMPTY_RECEIVES_THRESHOLD;
+    private long initialDelay = DEFAULT_INITIAL_DELAY;
+    private double multiplier = DEFAULT_MULTIPLIER;
+    private long maxDelay = DEFAULT_MAX_DELAY;
+
+    public ExponentialIdleQueuePollingStrategy() {
+    }
+
+    /**
+     * @param emptyReceivesThreshold
+     *         the number of empty receives in a row that are not followed by a pause
+     * @param initialDelay
+     *         the first pause in milliseconds
+     * @param multiplier
+     *         the factor the pause is multiplied with on every further empty receive
+     * @param maxDelay
+     *         the maximum pause in milliseconds
+     */
+    public ExponentialIdleQueuePollingStrategy(int emptyReceivesThreshold, long initialDelay, double multiplier, long maxDelay) {
+        setEmptyReceivesThreshold(emptyReceivesThreshold);
+        setInitialDelay(initialDelay);
+        setMultiplier(multiplier);
+        setMaxDelay(maxDelay);
+    }
+
+    public int getEmptyReceivesThreshold() {
+        return this.emptyReceivesThreshold;
+    }
+
+    public void setEmptyReceivesThreshold(int emptyReceivesThreshold) {
+        Assert.isTrue(emptyReceivesThreshold >= 0, "emptyReceivesThreshold must not be negative");
+        this.emptyReceivesThreshold = emptyReceivesThreshold;
+    }
+
+    public long getInitialDelay() {
+        return this.initialDelay;
+    }
+
+    public void setInitialDelay(long initialDelay) {
+        Assert.isTrue(initialDelay > 0, "initialDelay must be a positive number");
+        this.initialDelay = initialDelay;
+    }
+
+    public double getMultiplier() {
+        return this.multiplier;
+    }
+
+    public void setMultiplier(double multiplier) {
+        Assert.isTrue(multiplier >= 1, "multiplier must be greater than or equal to 1");
+        this.multiplier = multiplier;
+    }
+
+    public long getMaxDelay() {
+        return this.maxDelay;
+    }
+
+    public void setMaxDelay(long maxDelay) {
+        Assert.isTrue(maxDelay > 0, "maxDelay must be a positive number");
+        this.maxDelay = maxDelay;
+    }
+
+    @Override
+    public long getPollingDelay(String logicalQueueName, int consecutiveEmptyReceives) {
+        int slowedDownReceives = consecutiveEmptyReceives - getEmptyReceivesThreshold();
+        if (slowedDownReceives <= 0) {
+            return 0;
+        }
+
+        double delay = getInitialDelay() * Math.pow(getMultiplier(), slowedDownReceives - 1);
+        return (long) Math.min(delay, getMaxDelay());
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.aws.messaging.listener;
+
+/**
+ * Strategy that decides how long the pollers of a queue pause after receive requests that returned no message. Idle
+ * queues are then polled less frequently, which reduces the number of (billed) empty receives. The pause is
+ * interrupted as soon as one poller of the queue receives a message again.
+ * <p>Implementations must be thread-safe because the strategy is shared by all pollers of a container.
+ *
+ * @see ExponentialIdleQueuePollingStrategy
+ * @since 2.1
+ */
+public interface IdleQueuePollingStrategy {
+
+    /**
+     * Returns the pause before the next receive request.
+     *
+     * @param logicalQueueName
+     *         the queue name as defined on the listener method
+     * @param consecutiveEmptyReceives
+     *         the number of receive requests of the queue that returned no message in a row, at least 1
+     * @return the pause in milliseconds or 0 to poll again immediately
+     */
+    long getPollingDelay(String logicalQueueName, int consecutiveEmptyReceives);
+}
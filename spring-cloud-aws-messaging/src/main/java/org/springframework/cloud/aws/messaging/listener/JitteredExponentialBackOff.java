@@ -0,0 +1,122 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.aws.messaging.listener;
+
+import org.springframework.util.Assert;
+import org.springframework.util.backoff.BackOff;
+import org.springframework.util.backoff.BackOffExecution;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * {@link BackOff} that increases the back off period exponentially and picks a random period between zero and the
+ * exponential value ("full jitter"). The randomization spreads the retries of many application instances that failed
+ * at the same time, so that they do not hit the SQS endpoint in synchronized waves.
+ * <p>The n-th back off period of an execution is a random value in {@code [0, min(maxInterval, initialInterval *
+ * multiplier^n)]}. An execution never stops; a new execution is started after a successful poll, which resets the
+ * period to the initial interval.
+ *
+ * @since 2.1
+ */
+public class JitteredExponentialBackOff implements BackOff {
+
+    /**
+     * The default initial interval in milliseconds.
+     */
+    public static final long DEFAULT_INITIAL_INTERVAL = 100L;
+
+    /**
+     * The default multiplier.
+     */
+    public static final double DEFAULT_MULTIPLIER = 2.0;
+
+    /**
+     * The default maximum interval in milliseconds.
+     */
+    public static final long DEFAULT_MAX_INTERVAL = 30000L;
+
+    private long initialInterval = DEFAULT_INITIAL_INTERVAL;
+    private double multiplier = DEFAULT_MULTIPLIER;
+    private long maxInterval = DEFAULT_MAX_INTERVAL;
+
+    public JitteredExponentialBackOff() {
+    }
+
+    /**
+     * @param initialInterval
+     *         the upper bound of the first back off period in milliseconds
+     * @param multiplier
+     *         the factor the upper bound is multiplied with on every attempt
+     * @param maxInterval
+     *         the maximum upper bound of a back off period in milliseconds
+     */
+    public JitteredExponentialBackOff(long initialInterval, double multiplier, long maxInterval) {
+        setInitialInterval(initialInterval);
+        setMultiplier(multiplier);
+        setMaxInterval(maxInterval);
+    }
+
+    public long getInitialInterval() {
+        return this.initialInterval;
+    }
+
+    public void setInitialInterval(long initialInterval) {
+        Assert.isTrue(initialInterval > 0, "initialInterval must be a positive number");
+        this.initialInterval = initialInterval;
+    }
+
+    public double getMultiplier() {
+        return this.multiplier;
+    }
+
+    public void setMultiplier(double multiplier) {
+        Assert.isTrue(multiplier >= 1, "multiplier must be greater than or equal to 1");
+        this.multiplier = multiplier;
+    }
+
+    public long getMaxInterval() {
+        return this.maxInterval;
+    }
+
+    public void setMaxInterval(long maxInterval) {
+        Assert.isTrue(maxInterval > 0, "maxInterval must be a positive number");
+        this.maxInterval = maxInterval;
+    }
+
+    @Override
+    public BackOffExecution start() {
+        return new JitteredExponentialBackOffExecution();
+    }
+
+    private class JitteredExponentialBackOffExecution implements BackOffExecution {
+
+        private long currentInterval = getInitialInterval();
+
+        @Override
+        public long nextBackOff() {
+            long upperBound = Math.min(this.currentInterval, getMaxInterval());
+            this.currentInterval = (long) Math.min(this.currentInterval * getMultiplier(), getMaxInterval());
+            return ThreadLocalRandom.current().nextLong(upperBound + 1);
+        }
+
+        @Override
+        public String toString() {
+            return "JitteredExponentialBackOff{currentInterval=" + this.currentInterval + ", multiplier=" + getMultiplier() +
+                    ", maxInterval=" + getMaxInterval() + "}";
+        }
+    }
+}
@@ -0,0 +1,332 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.cloud.aws.messaging.listener;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.handler.HandlerMethod;
+import org.springframework.messaging.handler.invocation.AsyncHandlerMethodReturnValueHandler;
+import org.springframework.messaging.handler.invocation.HandlerMethodArgumentResolver;
+import org.springframework.messaging.handler.invocation.HandlerMethodReturnValueHandler;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.List;
+
+/**
+ * Invokes a listener method with argument resolvers and a return value handler that are selected once when the invoker
+ * is created. Compared to {@link org.springframework.messaging.handler.invocation.InvocableHandlerMethod} this avoids
+ * the lookup of the resolvers and the creation of a new handler method for every message.
+ * <p>Public methods of public classes with up to {@value #MAX_GENERATED_INVOCATION_PARAMETERS} parameters are called
+ * through a class that {@link LambdaMetafactory} generates for the method, which calls the method directly. Other
+ * methods are called through a {@link MethodHandle}.
+ *
+ * @since 2.1
+ */
+final class ListenerMethodInvoker {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ListenerMethodInvoker.class);
+
+    private static final ParameterNameDiscoverer PARAMETER_NAME_DISCOVERER = new DefaultParameterNameDiscoverer();
+
+    private static final int MAX_GENERATED_INVOCATION_PARAMETERS = 3;
+
+    private static final Class<?>[] INVOCATION_TYPES = {Invocation0.class, Invocation1.class, Invocation2.class, Invocation3.class};
+
+    private static final Class<?>[] VOID_INVOCATION_TYPES = {VoidInvocation0.class, VoidInvocation1.class, VoidInvocation2.class,
+            VoidInvocation3.class};
+
+    private final HandlerMethod handlerMethod;
+    private final MethodInvocation methodInvocation;
+    private final MethodParameter[] parameters;
+    private final HandlerMethodArgumentResolver[] argumentResolvers;
+    private final HandlerMethodReturnValueHandler returnValueHandler;
+    private final BeanFactory beanFactory;
+    private final String beanName;
+    private final Object bean;
+
+    private ListenerMethodInvoker(HandlerMethod handlerMethod, MethodInvocation methodInvocation, HandlerMethodArgumentResolver[] argumentResolvers,
+                                 HandlerMethodReturnValueHandler returnValueHandler, BeanFactory beanFactory, String beanName, Object bean) {
+        this.handlerMethod = handlerMethod;
+        this.methodInvocation = methodInvocation;
+        this.parameters = handlerMethod.getMethodParameters();
+        this.argumentResolvers = argumentResolvers;
+        this.returnValueHandler = returnValueHandler;
+        this.beanFactory = beanFactory;
+        this.beanName = beanName;
+        this.bean = bean;
+    }
+
+    /**
+     * Creates an invoker for the handler method.
+     *
+     * @return the invoker or {@code null} if the handler method has to be invoked by the generic invocation path, e.g.
+     * because a parameter is not supported by any resolver or the return value is handled asynchronously
+     */
+    static ListenerMethodInvoker create(HandlerMethod handlerMethod, List<? extends HandlerMethodArgumentResolver> argumentResolvers,
+                                        List<? extends HandlerMethodReturnValueHandler> returnValueHandlers, BeanFactory beanFactory) {
+        MethodParameter[] parameters = handlerMethod.getMethodParameters();
+        HandlerMethodArgumentResolver[] parameterResolvers = new HandlerMethodArgumentResolver[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            parameters[i].initParameterNameDiscovery(PARAMETER_NAME_DISCOVERER);
+            parameterResolvers[i] = getArgumentResolver(parameters[i], argumentResolvers);
+            if (parameterResolvers[i] == null) {
+                return null;
+            }
+        }
+
+        HandlerMethodReturnValueHandler returnValueHandler = null;
+        if (!handlerMethod.isVoid()) {
+            returnValueHandler = getReturnValueHandler(handlerMethod.getReturnType(), returnValueHandlers);
+            if (returnValueHandler == null || returnValueHandler instanceof AsyncHandlerMethodReturnValueHandler) {
+                return null;
+            }
+        }
+
+        String beanName = null;
+        Object bean = handlerMethod.getBean();
+        if (bean instanceof String) {
+            if (beanFactory == null) {
+                return null;
+            }
+            beanName = (String) bean;
+            bean = beanFactory.isSingleton(beanName) ? beanFactory.getBean(beanName) : null;
+        }
+
+        return new ListenerMethodInvoker(handlerMethod, createMethodInvocation(handlerMethod.getMethod()), parameterResolvers,
+                returnValueHandler, beanFactory, beanName, bean);
+    }
+
+    private static HandlerMethodArgumentResolver getArgumentResolver(MethodParameter parameter,
+                                                                     List<? extends HandlerMethodArgumentResolver> argumentResolvers) {
+        for (HandlerMethodArgumentResolver argumentResolver : argumentResolvers) {
+            if (argumentResolver.supportsParameter(parameter)) {
+                return argumentResolver;
+            }
+        }
+        return null;
+    }
+
+    private static HandlerMethodReturnValueHandler getReturnValueHandler(MethodParameter returnType,
+                                                                         List<? extends HandlerMethodReturnValueHandler> returnValueHandlers) {
+        for (HandlerMethodReturnValueHandler returnValueHandler : returnValueHandlers) {
+            if (returnValueHandler.supportsReturnType(returnType)) {
+                return returnValueHandler;
+            }
+        }
+        return null;
+    }
+
+    private static MethodInvocation createMethodInvocation(Method method) {
+        ReflectionUtils.makeAccessible(method);
+        MethodHandle methodHandle;
+        try {
+            methodHandle = MethodHandles.lookup().unreflect(method);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Could not access listener method '" + method + "'", e);
+        }
+
+        if (isGeneratedInvocationSupported(method)) {
+            try {
+                return generateMethodInvocation(methodHandle, method.getReturnType() == void.class);
+            } catch (Throwable e) {
+                LOGGER.debug("Could not generate an invocation class for listener method '{}', calling it through a method handle", method, e);
+            }
+        }
+
+        return new MethodHandleInvocation(methodHandle.asType(MethodType.genericMethodType(method.getParameterCount() + 1))
+                .asSpreader(Object[].class, method.getParameterCount()));
+    }
+
+    /**
+     * The generated class is defined in the class loader of this class and calls the method like compiled code, so the
+     * method must be accessible from this class and its class must be visible to the class loader of this class.
+     */
+    private static boolean isGeneratedInvocationSupported(Method method) {
+        return method.getParameterCount() <= MAX_GENERATED_INVOCATION_PARAMETERS && Modifier.isPublic(method.getModifiers()) &&
+                !Modifier.isStatic(method.getModifiers()) && Modifier.isPublic(method.getDeclaringClass().getModifiers()) &&
+                ClassUtils.isVisible(method.getDeclaringClass(), ListenerMethodInvoker.class.getClassLoader());
+    }
+
+    /**
+     * Generates an implementation of the invocation interface for the number of parameters whose {@code call} method
+     * calls the method of the handle, boxing and unboxing primitive parameters and return values.
+     */
+    private static MethodInvocation generateMethodInvocation(MethodHandle methodHandle, boolean isVoid) throws Throwable {
+        int parameterCount = methodHandle.type().parameterCount() - 1;
+        MethodType callType = MethodType.genericMethodType(parameterCount + 1);
+        MethodType instantiatedCallType = methodHandle.type().wrap();
+        if (isVoid) {
+            callType = callType.changeReturnType(void.class);
+            instantiatedCallType = instantiatedCallType.changeReturnType(void.class);
+        }
+
+        Class<?> invocationType = isVoid ? VOID_INVOCATION_TYPES[parameterCount] : INVOCATION_TYPES[parameterCount];
+        return (MethodInvocation) LambdaMetafactory.metafactory(MethodHandles.lookup(), "call", MethodType.methodType(invocationType),
+                callType, methodHandle, instantiatedCallType).getTarget().invoke();
+    }
+
+    HandlerMethod getHandlerMethod() {
+        return this.handlerMethod;
+    }
+
+    /**
+     * Resolves the arguments, invokes the listener method and handles its return value.
+     */
+    void invoke(Message<?> message) throws Throwable {
+        Object[] arguments = new Object[this.parameters.length];
+        for (int i = 0; i < this.parameters.length; i++) {
+            arguments[i] = this.argumentResolvers[i].resolveArgument(this.parameters[i], message);
+        }
+
+        Object returnValue = this.methodInvocation.invoke(getBean(), arguments);
+
+        if (this.returnValueHandler != null) {
+            this.returnValueHandler.handleReturnValue(returnValue, this.handlerMethod.getReturnValueType(returnValue), message);
+        }
+    }
+
+    private Object getBean() {
+        return this.bean != null ? this.bean : this.beanFactory.getBean(this.beanName);
+    }
+
+    /**
+     * Calls the listener method on the bean with the resolved arguments.
+     */
+    private interface MethodInvocation {
+
+        /**
+         * @return the return value of the method or {@code null} if the method is void
+         */
+        Object invoke(Object bean, Object[] arguments) throws Throwable;
+    }
+
+    private static final class MethodHandleInvocation implements MethodInvocation {
+
+        private final MethodHandle methodHandle;
+
+        /**
+         * @param methodHandle
+         *         a method handle of type {@code (Object, Object[])Object} that spreads the arguments over the
+         *         parameters of the method
+         */
+        private MethodHandleInvocation(MethodHandle methodHandle) {
+            this.methodHandle = methodHandle;
+        }
+
+        @Override
+        public Object invoke(Object bean, Object[] arguments) throws Throwable {
+            return (Object) this.methodHandle.invokeExact(bean, arguments);
+        }
+    }
+
+    private interface Invocation0 extends MethodInvocation {
+
+        Object call(Object bean) throws Throwable;
+
+        @Override
+        default Object invoke(Object bean, Object[] arguments) throws Throwable {
+            return call(bean);
+        }
+    }
+
+    private interface Invocation1 extends MethodInvocation {
+
+        Object call(Object bean, Object argument) throws Throwable;
+
+        @Override
+        default Object invoke(Object bean, Object[] arguments) throws Throwable {
+            return call(bean, arguments[0]);
+        }
+    }
+
+    private interface Invocation2 extends MethodInvocation {
+
+        Object call(Object bean, Object firstArgument, Object secondArgument) throws Throwable;
+
+        @Override
+        default Object invoke(Object bean, Object[] arguments) throws Throwable {
+            return call(bean, arguments[0], arguments[1]);
+        }
+    }
+
+    private interface Invocation3 extends MethodInvocation {
+
+        Object call(Object bean, Object firstArgument, Object secondArgument, Object thirdArgument) throws Throwable;
+
+        @Override
+        default Object invoke(Object bean, Object[] arguments) throws Throwable {
+            return call(bean, arguments[0], arguments[1], arguments[2]);
+        }
+    }
+
+    private interface VoidInvocation0 extends MethodInvocation {
+
+        void call(Object bean) throws Throwable;
+
+        @Override
+        default Object invoke(Object bean, Object[] arguments) throws Throwable {
+            call(bean);
+            return null;
+        }
+    }
+
+    private interface VoidInvocation1 extends MethodInvocation {
+
+        void call(Object bean, Object argument) throws Throwable;
+
+        @Override
+        default Object invoke(Object bean, Object[] arguments) throws Throwable {
+            call(bean, arguments[0]);
+            return null;
+        }
+    }
+
+    private interface VoidInvocation2 extends MethodInvocation {
+
+        void call(Object bean, Object firstArgument, Object secondArgument) throws Throwable;
+
+        @Override
+        default Object invoke(Object bean, Object[] arguments) throws Throwable {
+            call(bean, arguments[0], arguments[1]);
+            return null;
+        }
+    }
+
+    private interface VoidInvocation3 extends MethodInvocation {
+
+        void call(Object bean, Object firstArgument, Object secondArgument, Object thirdArgument) throws Throwable;
+
+        @Override
+        default Object invoke(Object bean, Object[] arguments) throws Throwable {
+            call(bean, arguments[0], arguments[1], arguments[2]);
+            return null;
+        }
+    }
+}
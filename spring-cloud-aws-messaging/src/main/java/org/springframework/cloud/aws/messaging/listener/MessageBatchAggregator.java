@@ -0,0 +1,235 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.cloud.aws.messaging.listener;
+
+import com.amazonaws.services.sqs.model.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Accumulates the messages of successive receive requests of one queue into batches that are larger than the 10
+ * messages SQS returns per request. A batch is closed when it reaches the maximum batch size or when the batch window,
+ * which starts with the first message of the batch, has elapsed, whatever comes first. Batches that reach the maximum
+ * size are returned to the thread that added the last message, which hands them to the executor and waits for them, so
+ * that the pollers of the queue slow down while the batch is processed. Batches closed by the window are processed by
+ * the given executor without anybody waiting for them. A batch the executor rejects is kept, with the visibility of
+ * its messages still extended by the heartbeat, and handed to the executor again one batch window later, so that the
+ * window thread never processes batches itself.
+ * <p>The visibility of buffered messages is extended by a {@link QueueMessageVisibilityHeartbeat} until their batch is
+ * closed, so that they are not redelivered while they wait for the batch to fill up.
+ *
+ * @since 2.1
+ */
+class MessageBatchAggregator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MessageBatchAggregator.class);
+
+    private final String queueUrl;
+    private final int maxBatchSize;
+    private final long batchWindow;
+    private final ScheduledExecutorService windowScheduler;
+    private final Executor executor;
+    private final QueueMessageVisibilityHeartbeat visibilityHeartbeat;
+    private final Consumer<List<Message>> batchConsumer;
+    private final Set<List<Message>> rejectedBatches = Collections.newSetFromMap(new IdentityHashMap<List<Message>, Boolean>());
+    private List<Message> bufferedMessages = new ArrayList<>();
+    private long window;
+
+    /**
+     * @param queueUrl
+     *         the url of the queue the messages are received from
+     * @param maxBatchSize
+     *         the maximum number of messages per batch
+     * @param batchWindow
+     *         the maximum number of milliseconds between the first message of a batch and the processing of the batch
+     * @param windowScheduler
+     *         the scheduler that closes the batch windows
+     * @param executor
+     *         the executor that processes the batches closed by the window
+     * @param visibilityHeartbeat
+     *         the heartbeat that extends the visibility of buffered messages
+     * @param batchConsumer
+     *         processes a batch of messages closed by the window on a thread of the executor
+     */
+    MessageBatchAggregator(String queueUrl, int maxBatchSize, long batchWindow, ScheduledExecutorService windowScheduler, Executor executor,
+                           QueueMessageVisibilityHeartbeat visibilityHeartbeat, Consumer<List<Message>> batchConsumer) {
+        Assert.isTrue(maxBatchSize > 0, "maxBatchSize must be a positive number");
+        Assert.isTrue(batchWindow > 0, "batchWindow must be a positive number");
+        this.queueUrl = queueUrl;
+        this.maxBatchSize = maxBatchSize;
+        this.batchWindow = batchWindow;
+        this.windowScheduler = windowScheduler;
+        this.executor = executor;
+        this.visibilityHeartbeat = visibilityHeartbeat;
+        this.batchConsumer = batchConsumer;
+    }
+
+    /**
+     * Adds received messages to the current batch.
+     *
+     * @return the batches that reached the maximum batch size and have to be processed by the caller
+     */
+    List<List<Message>> add(List<Message> messages) {
+        List<List<Message>> closedBatches = new ArrayList<>(1);
+        synchronized (this) {
+            for (Message message : messages) {
+                if (this.bufferedMessages.isEmpty()) {
+                    scheduleWindowClose(++this.window);
+                }
+
+                this.bufferedMessages.add(message);
+                this.visibilityHeartbeat.register(this.queueUrl, message.getReceiptHandle());
+                if (this.bufferedMessages.size() >= this.maxBatchSize) {
+                    closedBatches.add(closeBatch());
+                }
+            }
+        }
+        return closedBatches;
+    }
+
+    /**
+     * Closes the current batch immediately and takes back the batches waiting to be handed to the executor again.
+     *
+     * @return the batches that have to be processed by the caller
+     */
+    List<List<Message>> flush() {
+        List<List<Message>> closedBatches = new ArrayList<>();
+        synchronized (this) {
+            for (List<Message> rejectedBatch : this.rejectedBatches) {
+                unregister(rejectedBatch);
+                closedBatches.add(rejectedBatch);
+            }
+            this.rejectedBatches.clear();
+            if (!this.bufferedMessages.isEmpty()) {
+                closedBatches.add(closeBatch());
+            }
+        }
+        return closedBatches;
+    }
+
+    /**
+     * @return the number of messages waiting for their batch to be closed
+     */
+    synchronized int getBufferedMessageCount() {
+        return this.bufferedMessages.size();
+    }
+
+    private void scheduleWindowClose(final long window) {
+        this.windowScheduler.schedule(new Runnable() {
+
+            @Override
+            public void run() {
+                closeWindow(window);
+            }
+        }, this.batchWindow, TimeUnit.MILLISECONDS);
+    }
+
+    private void closeWindow(long window) {
+        final List<Message> closedBatch;
+        synchronized (this) {
+            // The batch of this window may already have been closed because it reached the maximum size
+            if (window != this.window || this.bufferedMessages.isEmpty()) {
+                return;
+            }
+            closedBatch = closeBatch();
+        }
+
+        submit(closedBatch);
+    }
+
+    private void submit(final List<Message> closedBatch) {
+        try {
+            this.executor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    MessageBatchAggregator.this.batchConsumer.accept(closedBatch);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            LOGGER.debug("The executor rejected a batch of {} messages from queue '{}', retrying in {} ms",
+                    closedBatch.size(), this.queueUrl, this.batchWindow, e);
+            scheduleRetry(closedBatch);
+        }
+    }
+
+    private void scheduleRetry(final List<Message> rejectedBatch) {
+        synchronized (this) {
+            this.rejectedBatches.add(rejectedBatch);
+            for (Message message : rejectedBatch) {
+                this.visibilityHeartbeat.register(this.queueUrl, message.getReceiptHandle());
+            }
+        }
+
+        try {
+            this.windowScheduler.schedule(new Runnable() {
+
+                @Override
+                public void run() {
+                    retry(rejectedBatch);
+                }
+            }, this.batchWindow, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            synchronized (this) {
+                if (this.rejectedBatches.remove(rejectedBatch)) {
+                    unregister(rejectedBatch);
+                }
+            }
+            LOGGER.warn("Could not schedule a retry for a batch of {} messages from queue '{}', the messages will be " +
+                    "redelivered after their visibility timeout", rejectedBatch.size(), this.queueUrl, e);
+        }
+    }
+
+    private void retry(List<Message> rejectedBatch) {
+        synchronized (this) {
+            // The batch may already have been processed by a flush
+            if (!this.rejectedBatches.remove(rejectedBatch)) {
+                return;
+            }
+            unregister(rejectedBatch);
+        }
+
+        submit(rejectedBatch);
+    }
+
+    private List<Message> closeBatch() {
+        List<Message> closedBatch = this.bufferedMessages;
+        this.bufferedMessages = new ArrayList<>();
+        this.window++;
+        unregister(closedBatch);
+        return closedBatch;
+    }
+
+    private void unregister(List<Message> messages) {
+        for (Message message : messages) {
+            this.visibilityHeartbeat.unregister(this.queueUrl, message.getReceiptHandle());
+        }
+    }
+}
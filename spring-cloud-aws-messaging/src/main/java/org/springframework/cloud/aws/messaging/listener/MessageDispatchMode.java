@@ -0,0 +1,48 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.aws.messaging.listener;
+
+/**
+ * Defines how a {@link SimpleMessageListenerContainer} hands received messages over to the task executor and when the
+ * polling thread of a queue issues the next receive request.
+ * <p>The following dispatch modes are available:
+ * <ul>
+ * <li><b>BATCH</b>: The polling thread waits until every message of the received batch has been processed before it
+ * receives the next batch.</li>
+ * <li><b>CONTINUOUS</b>: The polling thread receives the next batch as soon as there is enough free capacity for the
+ * queue. The capacity is limited by the maximum number of in-flight messages of the queue.</li>
+ * </ul>
+ *
+ * @since 2.1
+ */
+public enum MessageDispatchMode {
+
+    /**
+     * Waits until every message of a batch has been processed before the next receive request is issued. One slow
+     * message delays the whole queue.
+     */
+    BATCH,
+
+    /**
+     * Issues the next receive request as soon as the queue has free capacity, so that receiving messages overlaps with
+     * the processing of previously received ones.
+     *
+     * @see SimpleMessageListenerContainer#setMaxInFlightMessages(Integer)
+     */
+    CONTINUOUS
+
+}
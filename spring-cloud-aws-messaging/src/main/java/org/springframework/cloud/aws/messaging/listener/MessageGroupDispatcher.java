@@ -0,0 +1,169 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.aws.messaging.listener;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+/**
+ * Dispatches tasks of FIFO queue message groups to an executor. Tasks of the same message group are queued in a
+ * mailbox and executed one after the other in the order they were dispatched, while tasks of different message groups
+ * are executed in parallel. Every message group occupies at most one thread of the executor at a time and releases it
+ * as soon as its mailbox is empty.
+ * <p>If the executor rejects the mailbox of a message group, all tasks of the mailbox are rejected, including the tasks
+ * other callers added while the mailbox was being submitted. Tasks that hold resources implement {@link RejectableTask}
+ * to release them.
+ *
+ * @since 2.1
+ */
+class MessageGroupDispatcher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MessageGroupDispatcher.class);
+
+    private final Executor executor;
+    private final Map<String, MessageGroupMailbox> mailboxesByMessageGroupId = new HashMap<>();
+
+    MessageGroupDispatcher(Executor executor) {
+        Assert.notNull(executor, "executor must not be null");
+        this.executor = executor;
+    }
+
+    /**
+     * Executes the task after all previously dispatched tasks of the same message group have completed.
+     *
+     * @param messageGroupId
+     *         the message group of the task
+     * @param task
+     *         the task to execute
+     * @return {@code false} if the executor rejected the mailbox of the message group, in which case the task and all
+     * other tasks of the mailbox have been rejected
+     */
+    boolean dispatch(String messageGroupId, Runnable task) {
+        MessageGroupMailbox newMailbox;
+        synchronized (this.mailboxesByMessageGroupId) {
+            MessageGroupMailbox mailbox = this.mailboxesByMessageGroupId.get(messageGroupId);
+            if (mailbox != null) {
+                mailbox.add(task);
+                return true;
+            }
+
+            newMailbox = new MessageGroupMailbox(messageGroupId);
+            newMailbox.add(task);
+            this.mailboxesByMessageGroupId.put(messageGroupId, newMailbox);
+        }
+
+        try {
+            this.executor.execute(newMailbox);
+            return true;
+        } catch (RuntimeException e) {
+            List<Runnable> rejectedTasks;
+            synchronized (this.mailboxesByMessageGroupId) {
+                // Other callers may have added tasks since the mailbox was registered
+                this.mailboxesByMessageGroupId.remove(messageGroupId, newMailbox);
+                rejectedTasks = newMailbox.removeAll();
+            }
+
+            LOGGER.debug("The executor rejected {} tasks of message group '{}'", rejectedTasks.size(), messageGroupId, e);
+            for (Runnable rejectedTask : rejectedTasks) {
+                reject(messageGroupId, rejectedTask);
+            }
+            return false;
+        }
+    }
+
+    private static void reject(String messageGroupId, Runnable task) {
+        if (!(task instanceof RejectableTask)) {
+            LOGGER.error("Discarded a task of message group '{}' because the executor rejected it", messageGroupId);
+            return;
+        }
+
+        try {
+            ((RejectableTask) task).reject();
+        } catch (RuntimeException e) {
+            LOGGER.error("An exception occurred while rejecting a task of message group '{}'", messageGroupId, e);
+        }
+    }
+
+    /**
+     * @return the number of message groups that have tasks being executed or waiting for execution
+     */
+    int getActiveMessageGroupCount() {
+        synchronized (this.mailboxesByMessageGroupId) {
+            return this.mailboxesByMessageGroupId.size();
+        }
+    }
+
+    private final class MessageGroupMailbox implements Runnable {
+
+        private final String messageGroupId;
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        private MessageGroupMailbox(String messageGroupId) {
+            this.messageGroupId = messageGroupId;
+        }
+
+        private void add(Runnable task) {
+            this.tasks.add(task);
+        }
+
+        private List<Runnable> removeAll() {
+            List<Runnable> removedTasks = new ArrayList<>(this.tasks);
+            this.tasks.clear();
+            return removedTasks;
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Runnable task;
+                synchronized (MessageGroupDispatcher.this.mailboxesByMessageGroupId) {
+                    task = this.tasks.poll();
+                    if (task == null) {
+                        MessageGroupDispatcher.this.mailboxesByMessageGroupId.remove(this.messageGroupId);
+                        return;
+                    }
+                }
+
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    LOGGER.error("An exception occurred while executing a task of message group '{}'", this.messageGroupId, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * A task that holds resources, which have to be released if the task is rejected instead of being executed.
+     */
+    interface RejectableTask extends Runnable {
+
+        /**
+         * Called instead of {@link #run()} if the executor rejected the task.
+         */
+        void reject();
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.aws.messaging.listener;
+
+import org.springframework.core.task.AsyncTaskExecutor;
+
+/**
+ * Callback interface through which the {@link SimpleMessageListenerContainer} reports what happens inside the
+ * container, e.g. to record metrics. All durations are reported in nanoseconds. Implementations are called from the
+ * polling and worker threads and must therefore be thread-safe and fast.
+ *
+ * @see org.springframework.cloud.aws.messaging.listener.metrics.MicrometerMessageListenerContainerMetrics
+ * @since 2.1
+ */
+public interface MessageListenerContainerMetrics {
+
+    /**
+     * Called once the container created or received its task executor.
+     *
+     * @param taskExecutor
+     *         the executor that runs the pollers and the message executions
+     */
+    void bindTaskExecutor(AsyncTaskExecutor taskExecutor);
+
+    /**
+     * Called once for every queue that has a rate limiter.
+     *
+     * @param logicalQueueName
+     *         the queue name as defined on the listener method
+     * @param rateLimiter
+     *         the rate limiter of the queue
+     */
+    void bindRateLimiter(String logicalQueueName, TokenBucketRateLimiter rateLimiter);
+
+    /**
+     * Called after a receive request completed successfully.
+     *
+     * @param logicalQueueName
+     *         the queue name as defined on the listener method
+     * @param duration
+     *         the duration of the receive request
+     * @param numberOfMessages
+     *         the number of received messages, 0 for an empty receive
+     */
+    void receiveCompleted(String logicalQueueName, long duration, int numberOfMessages);
+
+    /**
+     * Called after a receive request failed.
+     *
+     * @param logicalQueueName
+     *         the queue name as defined on the listener method
+     */
+    void receiveFailed(String logicalQueueName);
+
+    /**
+     * Called before the listener method is invoked.
+     *
+     * @param logicalQueueName
+     *         the queue name as defined on the listener method
+     * @param numberOfMessages
+     *         the number of messages passed to the listener method, more than one for batch listener methods
+     */
+    void processingStarted(String logicalQueueName, int numberOfMessages);
+
+    /**
+     * Called when the processing of messages completed, including the completion of an asynchronous result.
+     *
+     * @param logicalQueueName
+     *         the queue name as defined on the listener method
+     * @param numberOfMessages
+     *         the number of messages passed to the listener method
+     * @param duration
+     *         the processing duration
+     * @param successful
+     *         {@code false} if the listener method threw an exception or its asynchronous result failed
+     */
+    void processingCompleted(String logicalQueueName, int numberOfMessages, long duration, boolean successful);
+
+    /**
+     * Called when the processing of messages exceeded the processing timeout of the queue. The messages are not
+     * deleted and {@link #processingCompleted(String, int, long, boolean)} is called as unsuccessful as well.
+     *
+     * @param logicalQueueName
+     *         the queue name as defined on the listener method
+     * @param numberOfMessages
+     *         the number of messages passed to the listener method
+     */
+    void processingTimedOut(String logicalQueueName, int numberOfMessages);
+
+    /**
+     * Called when the deletion of a message failed.
+     *
+     * @param logicalQueueName
+     *         the queue name as defined on the listener method
+     */
+    void deleteFailed(String logicalQueueName);
+
+    /**
+     * Called when the task executor rejected the execution of received messages.
+     *
+     * @param logicalQueueName
+     *         the queue name as defined on the listener method
+     */
+    void executionRejected(String logicalQueueName);
+}
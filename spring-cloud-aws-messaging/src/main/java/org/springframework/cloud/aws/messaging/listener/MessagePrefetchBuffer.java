@@ -0,0 +1,166 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.aws.messaging.listener;
+
+import com.amazonaws.services.sqs.model.Message;
+import org.springframework.util.Assert;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Holds messages of one queue that were received ahead of demand, so that a worker that completes a message can
+ * continue with the next one without waiting for a receive request. Every message expires a fixed delay after it was
+ * received; expired messages are handed out by {@link #poll(List, long)} and {@link #removeExpired(long)} to be returned
+ * to the queue instead of being processed, because SQS could already redeliver them to another consumer before their
+ * processing completes.
+ *
+ * @since 2.1
+ */
+class MessagePrefetchBuffer {
+
+    private final int capacity;
+    private final long expiryDelay;
+    private final Deque<PrefetchedMessage> prefetchedMessages = new ArrayDeque<>();
+    private int reservedCapacity;
+
+    /**
+     * @param capacity
+     *         the maximum number of buffered messages
+     * @param expiryDelay
+     *         the number of milliseconds after its reception a message must not be dispatched anymore
+     */
+    MessagePrefetchBuffer(int capacity, long expiryDelay) {
+        Assert.isTrue(capacity > 0, "capacity must be a positive number");
+        Assert.isTrue(expiryDelay > 0, "expiryDelay must be a positive number");
+        this.capacity = capacity;
+        this.expiryDelay = expiryDelay;
+    }
+
+    /**
+     * Waits until at least one message can be added to the buffer and reserves the capacity for the messages of a
+     * receive request, so that concurrent pollers of the queue never receive more messages than the buffer can take.
+     * The reservation is given back by {@link #add(List, long, int)} or {@link #releaseReservation(int)}.
+     *
+     * @param maxCount
+     *         the maximum number of messages to reserve capacity for
+     * @param timeout
+     *         the maximum number of milliseconds to wait
+     * @return the number of reserved messages, 0 if the buffer is still full after the timeout
+     */
+    synchronized int reserveCapacity(int maxCount, long timeout) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout;
+        long remainingTime = timeout;
+        while (getFreeCapacity() == 0 && remainingTime > 0) {
+            wait(remainingTime);
+            remainingTime = deadline - System.currentTimeMillis();
+        }
+        int reservation = Math.min(maxCount, getFreeCapacity());
+        this.reservedCapacity += reservation;
+        return reservation;
+    }
+
+    /**
+     * Adds received messages, which expire relative to the given receive time, and releases the reservation of the
+     * receive request, including the part that was not used.
+     */
+    synchronized void add(List<Message> messages, long receiveTime, int reservation) {
+        this.reservedCapacity -= reservation;
+        for (Message message : messages) {
+            this.prefetchedMessages.add(new PrefetchedMessage(message, receiveTime + this.expiryDelay));
+        }
+        notifyAll();
+    }
+
+    /**
+     * Releases the reservation of a receive request that did not return any messages.
+     */
+    synchronized void releaseReservation(int reservation) {
+        this.reservedCapacity -= reservation;
+        notifyAll();
+    }
+
+    /**
+     * Removes the next message that has not expired yet.
+     *
+     * @param expiredMessages
+     *         receives the expired messages that were removed on the way
+     * @param now
+     *         the current time in milliseconds
+     * @return the next message or {@code null} if the buffer does not contain any message that has not expired
+     */
+    synchronized Message poll(List<Message> expiredMessages, long now) {
+        PrefetchedMessage prefetchedMessage;
+        while ((prefetchedMessage = this.prefetchedMessages.poll()) != null) {
+            notifyAll();
+            if (prefetchedMessage.expiryTime > now) {
+                return prefetchedMessage.message;
+            }
+            expiredMessages.add(prefetchedMessage.message);
+        }
+        return null;
+    }
+
+    /**
+     * Removes the expired messages. Messages are buffered in the order of their reception, therefore only the oldest
+     * messages have to be checked.
+     */
+    synchronized List<Message> removeExpired(long now) {
+        List<Message> expiredMessages = new ArrayList<>();
+        while (!this.prefetchedMessages.isEmpty() && this.prefetchedMessages.peek().expiryTime <= now) {
+            expiredMessages.add(this.prefetchedMessages.poll().message);
+        }
+        if (!expiredMessages.isEmpty()) {
+            notifyAll();
+        }
+        return expiredMessages;
+    }
+
+    /**
+     * Removes all buffered messages.
+     */
+    synchronized List<Message> removeAll() {
+        List<Message> messages = new ArrayList<>(this.prefetchedMessages.size());
+        for (PrefetchedMessage prefetchedMessage : this.prefetchedMessages) {
+            messages.add(prefetchedMessage.message);
+        }
+        this.prefetchedMessages.clear();
+        notifyAll();
+        return messages;
+    }
+
+    synchronized int size() {
+        return this.prefetchedMessages.size();
+    }
+
+    private int getFreeCapacity() {
+        return Math.max(0, this.capacity - this.prefetchedMessages.size() - this.reservedCapacity);
+    }
+
+    private static final class PrefetchedMessage {
+
+        private final Message message;
+        private final long expiryTime;
+
+        private PrefetchedMessage(Message message, long expiryTime) {
+            this.message = message;
+            this.expiryTime = expiryTime;
+        }
+    }
+}
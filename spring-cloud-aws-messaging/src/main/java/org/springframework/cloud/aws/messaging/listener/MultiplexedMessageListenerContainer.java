@@ -0,0 +1,945 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.aws.messaging.listener;
+
+import com.amazonaws.handlers.AsyncHandler;
+import com.amazonaws.services.sqs.AmazonSQSAsyncClient;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import com.amazonaws.services.sqs.model.Message;
+import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
+import com.amazonaws.services.sqs.model.ReceiveMessageResult;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.support.GenericMessage;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.ListenableFutureCallback;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.springframework.cloud.aws.messaging.core.QueueMessageUtils.createMessage;
+
+/**
+ * Message listener container that drives all registered queues from a fixed number of threads instead of dedicating a
+ * polling thread to every queue like the {@link SimpleMessageListenerContainer}. Every queue runs a receive cycle: a
+ * receive request is sent with {@code receiveMessageAsync}, its callback hands the received messages to the worker
+ * threads, and the next receive request of the queue is sent once all messages of the batch have been processed. No
+ * thread waits for a receive request, so the number of threads of the container does not depend on the number of
+ * queues.
+ * <p>The Amazon SQS async client executes its requests on its own executor service. With long polling, every pending
+ * receive request occupies a thread of that executor for up to the wait time of the queue. The container therefore
+ * never runs more than {@link #getMaxConcurrentReceives()} receive requests at once; queues that are due for a receive
+ * request while all slots are taken wait in a round-robin queue and are served in turn as soon as a slot is released.
+ * If the client is an {@link AmazonSQSAsyncClient} with a bounded thread pool, the limit is additionally reduced to
+ * leave at least one thread of the client for the deletion and visibility requests.
+ * <p>Messages of FIFO queues are processed in the order of the received batch. If a listener method returns an
+ * asynchronous result, the deletion policy is applied once the result completed and the next message of a FIFO batch
+ * is processed only afterwards, without blocking a worker thread in the meantime. Messages are deleted, acknowledged
+ * and kept invisible like in the {@link SimpleMessageListenerContainer}: through a
+ * {@link QueueMessageDeletionAggregator} if {@link #setDeleteMessageBatchMaxDelay(Long)} is set, with
+ * {@code DeleteMessageBatch} requests for batch listener methods, which can report failed messages with a
+ * {@link PartialBatchFailureException}, and with the {@link QueueMessageVisibilityHeartbeat} if
+ * {@link #setVisibilityHeartbeatInterval(Integer)} is set. Messages the task executor rejects are made visible again.
+ *
+ * @since 2.1
+ */
+public class MultiplexedMessageListenerContainer extends AbstractMessageListenerContainer {
+
+    private static final int DEFAULT_WORKER_THREADS = 10;
+    private static final int DEFAULT_MAX_CONCURRENT_RECEIVES = 10;
+    private static final int MAX_MESSAGES_PER_RECEIVE = 10;
+    private static final String FIFO_QUEUE_SUFFIX = ".fifo";
+    private static final String DEFAULT_THREAD_NAME_PREFIX =
+            ClassUtils.getShortName(MultiplexedMessageListenerContainer.class) + "-";
+
+    private int workerThreads = DEFAULT_WORKER_THREADS;
+    private int maxConcurrentReceives = DEFAULT_MAX_CONCURRENT_RECEIVES;
+    private long backOffTime = 10000;
+    private long queueStopTimeout = 10000;
+    private Long deleteMessageBatchMaxDelay;
+    private Integer visibilityHeartbeatInterval;
+    private MessageListenerContainerMetrics metrics;
+
+    private AsyncTaskExecutor taskExecutor;
+    private boolean defaultTaskExecutor;
+    private ScheduledExecutorService scheduler;
+    private QueueMessageDeletionAggregator deletionAggregator;
+    private QueueMessageDeleter messageDeleter;
+    private QueueMessageVisibilityHeartbeat visibilityHeartbeat;
+    private ConcurrentHashMap<String, Boolean> runningStateByQueue;
+    private ConcurrentHashMap<String, ReceiveCycle> receiveCyclesByQueue;
+    private final AtomicInteger activeReceiveCycles = new AtomicInteger();
+    private final Object receiveCycleMonitor = new Object();
+    private final Deque<ReceiveCycle> pendingReceives = new ArrayDeque<>();
+    private int runningReceives;
+    private int receiveSlots;
+
+    protected AsyncTaskExecutor getTaskExecutor() {
+        return this.taskExecutor;
+    }
+
+    /**
+     * Configures the executor that runs the listener methods. The executor must not block the calling thread when it is
+     * saturated, because tasks are submitted from the callbacks of the Amazon SQS async client; messages it rejects are
+     * made visible again and the receive cycle of the queue backs off. If no executor is configured, a
+     * {@link ThreadPoolTaskExecutor} with {@link #getWorkerThreads()} threads and a queue for the messages of one
+     * receive request per thread is created.
+     *
+     * @param taskExecutor
+     *         the executor of the listener methods
+     */
+    public void setTaskExecutor(AsyncTaskExecutor taskExecutor) {
+        this.taskExecutor = taskExecutor;
+    }
+
+    /**
+     * @return The number of threads of the default task executor.
+     */
+    public int getWorkerThreads() {
+        return this.workerThreads;
+    }
+
+    /**
+     * The number of threads of the default task executor, independent of the number of queues. Default is 10.
+     *
+     * @param workerThreads
+     *         the number of threads that execute listener methods
+     */
+    public void setWorkerThreads(int workerThreads) {
+        Assert.isTrue(workerThreads > 0, "workerThreads must be a positive number");
+        this.workerThreads = workerThreads;
+    }
+
+    /**
+     * @return The maximum number of receive requests that are in progress at the same time.
+     */
+    public int getMaxConcurrentReceives() {
+        return this.maxConcurrentReceives;
+    }
+
+    /**
+     * The maximum number of receive requests that are in progress at the same time, independent of the number of
+     * queues. Queues are served round-robin if more queues than this number are registered. If the Amazon SQS client is
+     * an {@link AmazonSQSAsyncClient} whose thread pool has fewer threads, the limit is reduced to the size of that pool
+     * minus one. Default is 10.
+     *
+     * @param maxConcurrentReceives
+     *         the maximum number of concurrent receive requests
+     */
+    public void setMaxConcurrentReceives(int maxConcurrentReceives) {
+        Assert.isTrue(maxConcurrentReceives > 0, "maxConcurrentReceives must be a positive number");
+        this.maxConcurrentReceives = maxConcurrentReceives;
+    }
+
+    /**
+     * @return The number of milliseconds the next receive request of a queue is delayed after a failed one.
+     */
+    public long getBackOffTime() {
+        return this.backOffTime;
+    }
+
+    /**
+     * The number of milliseconds the next receive request of a queue is delayed after a failed one. Default is 10000
+     * milliseconds.
+     *
+     * @param backOffTime
+     *         in milliseconds
+     */
+    public void setBackOffTime(long backOffTime) {
+        this.backOffTime = backOffTime;
+    }
+
+    /**
+     * @return The number of milliseconds {@link #stop()} waits for the receive cycles of all queues to end.
+     */
+    public long getQueueStopTimeout() {
+        return this.queueStopTimeout;
+    }
+
+    /**
+     * The number of milliseconds {@link #stop()} waits for the pending receive requests and the message processing of
+     * all queues to end. Default is 10000 milliseconds.
+     *
+     * @param queueStopTimeout
+     *         in milliseconds
+     */
+    public void setQueueStopTimeout(long queueStopTimeout) {
+        this.queueStopTimeout = queueStopTimeout;
+    }
+
+    /**
+     * @return The maximum number of milliseconds a message deletion is delayed to be sent as part of a
+     * {@code DeleteMessageBatch} request or {@code null} if messages are deleted one by one.
+     */
+    public Long getDeleteMessageBatchMaxDelay() {
+        return this.deleteMessageBatchMaxDelay;
+    }
+
+    /**
+     * Enables the aggregation of message deletions into {@code DeleteMessageBatch} requests, see
+     * {@link SimpleMessageListenerContainer#setDeleteMessageBatchMaxDelay(Long)}. Default is {@code null}, which deletes
+     * every message with its own request.
+     *
+     * @param deleteMessageBatchMaxDelay
+     *         in milliseconds or {@code null} to disable the aggregation
+     */
+    public void setDeleteMessageBatchMaxDelay(Long deleteMessageBatchMaxDelay) {
+        this.deleteMessageBatchMaxDelay = deleteMessageBatchMaxDelay;
+    }
+
+    /**
+     * @return The number of seconds between two visibility timeout extensions of the messages that are being processed
+     * or {@code null} if the visibility timeout is not extended automatically.
+     */
+    public Integer getVisibilityHeartbeatInterval() {
+        return this.visibilityHeartbeatInterval;
+    }
+
+    /**
+     * Enables a heartbeat that extends the visibility timeout of all messages that are still being processed every
+     * given number of seconds, see {@link SimpleMessageListenerContainer#setVisibilityHeartbeatInterval(Integer)}.
+     * Default is {@code null}, which does not extend the visibility timeout.
+     *
+     * @param visibilityHeartbeatInterval
+     *         in seconds or {@code null} to disable the heartbeat
+     */
+    public void setVisibilityHeartbeatInterval(Integer visibilityHeartbeatInterval) {
+        this.visibilityHeartbeatInterval = visibilityHeartbeatInterval;
+    }
+
+    /**
+     * @return the callback through which the container reports receives, message processing and errors or
+     * {@code null} if the container is not instrumented.
+     */
+    public MessageListenerContainerMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * Configures a callback through which the container reports the duration of receive requests, the processing of
+     * messages, failed deletions and rejected executions. Default is {@code null}, which disables the instrumentation.
+     *
+     * @param metrics
+     *         the callback or {@code null} to disable the instrumentation
+     */
+    public void setMetrics(MessageListenerContainerMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    protected void initialize() {
+        super.initialize();
+
+        if (this.taskExecutor == null) {
+            this.defaultTaskExecutor = true;
+            this.taskExecutor = createDefaultTaskExecutor();
+        }
+
+        if (this.metrics != null) {
+            this.metrics.bindTaskExecutor(this.taskExecutor);
+        }
+
+        if (this.deleteMessageBatchMaxDelay != null && this.deletionAggregator == null) {
+            this.deletionAggregator = new QueueMessageDeletionAggregator(getAmazonSqs(), this.deleteMessageBatchMaxDelay);
+        }
+        this.messageDeleter = new QueueMessageDeleter(getAmazonSqs(), this.deletionAggregator, this.metrics);
+
+        if (this.visibilityHeartbeatInterval != null && this.visibilityHeartbeat == null) {
+            int heartbeatVisibilityTimeout = 2 * this.visibilityHeartbeatInterval;
+            this.visibilityHeartbeat = new QueueMessageVisibilityHeartbeat(getAmazonSqs(), this.visibilityHeartbeatInterval, heartbeatVisibilityTimeout);
+            for (QueueAttributes queueAttributes : getRegisteredQueues().values()) {
+                if (queueAttributes.getVisibilityTimeout() != null && queueAttributes.getVisibilityTimeout() > heartbeatVisibilityTimeout) {
+                    this.visibilityHeartbeat.setVisibilityTimeout(queueAttributes.getDestinationUrl(), queueAttributes.getVisibilityTimeout());
+                }
+            }
+        }
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(getThreadNamePrefix() + "scheduler-");
+        threadFactory.setDaemon(true);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+
+        this.runningStateByQueue = new ConcurrentHashMap<>(getRegisteredQueues().size());
+        for (String queueName : getRegisteredQueues().keySet()) {
+            this.runningStateByQueue.put(queueName, false);
+        }
+        this.receiveCyclesByQueue = new ConcurrentHashMap<>(getRegisteredQueues().size());
+        this.receiveSlots = getReceiveSlots();
+    }
+
+    /**
+     * @return the configured maximum number of concurrent receives, reduced to the thread pool of the client if it is
+     * smaller, so that receive requests never occupy all threads of the client
+     */
+    private int getReceiveSlots() {
+        if (!(getAmazonSqs() instanceof AmazonSQSAsyncClient)) {
+            return getMaxConcurrentReceives();
+        }
+
+        ExecutorService clientExecutor = ((AmazonSQSAsyncClient) getAmazonSqs()).getExecutorService();
+        if (!(clientExecutor instanceof ThreadPoolExecutor)) {
+            return getMaxConcurrentReceives();
+        }
+
+        int clientThreads = ((ThreadPoolExecutor) clientExecutor).getMaximumPoolSize();
+        if (clientThreads > getMaxConcurrentReceives()) {
+            return getMaxConcurrentReceives();
+        }
+
+        int receiveSlots = Math.max(1, clientThreads - 1);
+        getLogger().warn("The Amazon SQS client has only {} threads, the number of concurrent receives is reduced from {} to {}",
+                clientThreads, getMaxConcurrentReceives(), receiveSlots);
+        return receiveSlots;
+    }
+
+    /**
+     * Create a default TaskExecutor. Called if no explicit TaskExecutor has been specified.
+     *
+     * @return a {@link ThreadPoolTaskExecutor} with a fixed number of threads and a queue that holds the messages of
+     * one receive request per thread
+     */
+    protected AsyncTaskExecutor createDefaultTaskExecutor() {
+        ThreadPoolTaskExecutor threadPoolTaskExecutor = new ThreadPoolTaskExecutor();
+        threadPoolTaskExecutor.setThreadNamePrefix(getThreadNamePrefix());
+        threadPoolTaskExecutor.setCorePoolSize(getWorkerThreads());
+        threadPoolTaskExecutor.setMaxPoolSize(getWorkerThreads());
+        threadPoolTaskExecutor.setQueueCapacity(getWorkerThreads() * MAX_MESSAGES_PER_RECEIVE);
+        threadPoolTaskExecutor.afterPropertiesSet();
+        return threadPoolTaskExecutor;
+    }
+
+    private String getThreadNamePrefix() {
+        return getBeanName() != null ? getBeanName() + "-" : DEFAULT_THREAD_NAME_PREFIX;
+    }
+
+    @Override
+    protected void doStart() {
+        synchronized (this.getLifecycleMonitor()) {
+            for (Map.Entry<String, QueueAttributes> registeredQueue : getRegisteredQueues().entrySet()) {
+                start(registeredQueue.getKey());
+            }
+        }
+    }
+
+    /**
+     * Starts the receive cycle of the specified queue if it is not already running. The receive cycle of a previous
+     * start, which may still wait for its last receive request after the queue has been stopped, is replaced and does
+     * not send any further receive request.
+     *
+     * @param logicalQueueName
+     *         the name as defined on the listener method
+     */
+    public void start(String logicalQueueName) {
+        Assert.isTrue(this.runningStateByQueue.containsKey(logicalQueueName), "Queue with name '" + logicalQueueName + "' does not exist");
+        if (this.runningStateByQueue.replace(logicalQueueName, false, true)) {
+            this.activeReceiveCycles.incrementAndGet();
+            ReceiveCycle receiveCycle = new ReceiveCycle(logicalQueueName, getRegisteredQueues().get(logicalQueueName));
+            this.receiveCyclesByQueue.put(logicalQueueName, receiveCycle);
+            receiveCycle.receive();
+        }
+    }
+
+    /**
+     * Stops the receive cycle of the specified queue. The pending receive request and the processing of received
+     * messages are completed, but no further receive request is sent.
+     *
+     * @param logicalQueueName
+     *         the name as defined on the listener method
+     */
+    public void stop(String logicalQueueName) {
+        Assert.isTrue(this.runningStateByQueue.containsKey(logicalQueueName), "Queue with name '" + logicalQueueName + "' does not exist");
+        this.runningStateByQueue.put(logicalQueueName, false);
+
+        // A receive cycle that waits for a receive slot ends immediately instead of when its turn comes
+        ReceiveCycle receiveCycle = this.receiveCyclesByQueue.get(logicalQueueName);
+        boolean pending;
+        synchronized (this.pendingReceives) {
+            pending = receiveCycle != null && this.pendingReceives.remove(receiveCycle);
+        }
+        if (pending) {
+            receiveCycleEnded();
+        }
+    }
+
+    /**
+     * @param logicalQueueName
+     *         the name as defined on the listener method
+     * @return {@code true} if the receive cycle of the specified queue is running
+     */
+    public boolean isRunning(String logicalQueueName) {
+        return Boolean.TRUE.equals(this.runningStateByQueue.get(logicalQueueName));
+    }
+
+    @Override
+    protected void doStop() {
+        for (String queueName : this.runningStateByQueue.keySet()) {
+            stop(queueName);
+        }
+
+        long deadline = System.currentTimeMillis() + getQueueStopTimeout();
+        synchronized (this.receiveCycleMonitor) {
+            long remainingTime = getQueueStopTimeout();
+            while (this.activeReceiveCycles.get() > 0 && remainingTime > 0) {
+                try {
+                    this.receiveCycleMonitor.wait(remainingTime);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                remainingTime = deadline - System.currentTimeMillis();
+            }
+        }
+
+        if (this.activeReceiveCycles.get() > 0) {
+            getLogger().warn("{} queues did not stop within {} milliseconds", this.activeReceiveCycles.get(), getQueueStopTimeout());
+        }
+
+        if (this.deletionAggregator != null) {
+            this.deletionAggregator.flush();
+        }
+    }
+
+    @Override
+    protected void doDestroy() {
+        if (this.scheduler != null) {
+            this.scheduler.shutdownNow();
+        }
+
+        if (this.deletionAggregator != null) {
+            this.deletionAggregator.destroy();
+            this.deletionAggregator = null;
+        }
+
+        if (this.visibilityHeartbeat != null) {
+            this.visibilityHeartbeat.destroy();
+            this.visibilityHeartbeat = null;
+        }
+
+        if (this.defaultTaskExecutor && this.taskExecutor instanceof ThreadPoolTaskExecutor) {
+            ((ThreadPoolTaskExecutor) this.taskExecutor).destroy();
+        }
+    }
+
+    protected void executeMessage(org.springframework.messaging.Message<String> stringMessage) {
+        getMessageHandler().handleMessage(stringMessage);
+    }
+
+    protected void executeMessageBatch(org.springframework.messaging.Message<List<org.springframework.messaging.Message<String>>> batchMessage) {
+        getMessageHandler().handleMessage(batchMessage);
+    }
+
+    private void registerInFlightMessage(String queueUrl, String receiptHandle) {
+        if (this.visibilityHeartbeat != null) {
+            this.visibilityHeartbeat.register(queueUrl, receiptHandle);
+        }
+    }
+
+    private void unregisterInFlightMessage(String queueUrl, String receiptHandle) {
+        if (this.visibilityHeartbeat != null) {
+            this.visibilityHeartbeat.unregister(queueUrl, receiptHandle);
+        }
+    }
+
+    /**
+     * @return the start of the processing as returned by {@link System#nanoTime()} or 0 if the container is not
+     * instrumented
+     */
+    private long processingStarted(String logicalQueueName, int numberOfMessages) {
+        if (this.metrics == null) {
+            return 0;
+        }
+
+        this.metrics.processingStarted(logicalQueueName, numberOfMessages);
+        return System.nanoTime();
+    }
+
+    private void processingCompleted(String logicalQueueName, int numberOfMessages, long processingStart, boolean successful) {
+        if (this.metrics != null) {
+            this.metrics.processingCompleted(logicalQueueName, numberOfMessages, System.nanoTime() - processingStart, successful);
+        }
+    }
+
+    /**
+     * @return {@code true} if the receive cycle got a receive slot, {@code false} if it has been queued and will be
+     * called once a slot is released
+     */
+    private boolean acquireReceiveSlot(ReceiveCycle receiveCycle) {
+        synchronized (this.pendingReceives) {
+            if (this.runningReceives < this.receiveSlots) {
+                this.runningReceives++;
+                return true;
+            }
+
+            this.pendingReceives.addLast(receiveCycle);
+            return false;
+        }
+    }
+
+    /**
+     * Hands the receive slot of a completed receive request over to the receive cycle that waits longest, or frees it
+     * if no receive cycle waits.
+     */
+    private void releaseReceiveSlot() {
+        while (true) {
+            ReceiveCycle nextReceiveCycle;
+            synchronized (this.pendingReceives) {
+                nextReceiveCycle = this.pendingReceives.pollFirst();
+                if (nextReceiveCycle == null) {
+                    this.runningReceives--;
+                    return;
+                }
+            }
+
+            if (nextReceiveCycle.isCurrent()) {
+                nextReceiveCycle.sendReceiveRequest();
+                return;
+            }
+            receiveCycleEnded();
+        }
+    }
+
+    private void receiveCycleEnded() {
+        if (this.activeReceiveCycles.decrementAndGet() == 0) {
+            synchronized (this.receiveCycleMonitor) {
+                this.receiveCycleMonitor.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * The receive cycle of one queue. At most one receive request or one batch of messages of a queue is in progress
+     * at any time.
+     */
+    private class ReceiveCycle implements AsyncHandler<ReceiveMessageRequest, ReceiveMessageResult> {
+
+        private final String logicalQueueName;
+        private final QueueAttributes queueAttributes;
+        private final String queueUrl;
+        private final boolean fifoQueue;
+        private final AtomicLong receiveStart = new AtomicLong();
+
+        private ReceiveCycle(String logicalQueueName, QueueAttributes queueAttributes) {
+            this.logicalQueueName = logicalQueueName;
+            this.queueAttributes = queueAttributes;
+            this.queueUrl = queueAttributes.getDestinationUrl();
+            this.fifoQueue = this.queueUrl.endsWith(FIFO_QUEUE_SUFFIX);
+        }
+
+        private void receive() {
+            if (!isCurrent()) {
+                receiveCycleEnded();
+                return;
+            }
+
+            if (acquireReceiveSlot(this)) {
+                sendReceiveRequest();
+            }
+        }
+
+        private void sendReceiveRequest() {
+            this.receiveStart.set(System.nanoTime());
+            try {
+                getAmazonSqs().receiveMessageAsync(this.queueAttributes.getReceiveMessageRequest(), this);
+            } catch (RuntimeException e) {
+                onError(e);
+            }
+        }
+
+        /**
+         * @return {@code true} if the queue is running and has not been restarted with a new receive cycle since this
+         * receive cycle was started
+         */
+        private boolean isCurrent() {
+            return isRunning(this.logicalQueueName) && MultiplexedMessageListenerContainer.this.receiveCyclesByQueue.get(this.logicalQueueName) == this;
+        }
+
+        private void receiveLater(long delay) {
+            try {
+                MultiplexedMessageListenerContainer.this.scheduler.schedule(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        receive();
+                    }
+                }, delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // The container has been destroyed
+                receiveCycleEnded();
+            }
+        }
+
+        @Override
+        public void onError(Exception exception) {
+            releaseReceiveSlot();
+            if (getMetrics() != null) {
+                getMetrics().receiveFailed(this.logicalQueueName);
+            }
+            getLogger().warn("An Exception occurred while polling queue '{}'. The failing operation will be " +
+                    "retried in {} milliseconds", this.logicalQueueName, getBackOffTime(), exception);
+            receiveLater(getBackOffTime());
+        }
+
+        @Override
+        public void onSuccess(ReceiveMessageRequest request, ReceiveMessageResult result) {
+            releaseReceiveSlot();
+            List<Message> messages = result.getMessages();
+            if (getMetrics() != null) {
+                getMetrics().receiveCompleted(this.logicalQueueName, System.nanoTime() - this.receiveStart.get(), messages.size());
+            }
+
+            if (messages.isEmpty()) {
+                receive();
+                return;
+            }
+
+            if (this.queueAttributes.isBatchListener() || this.fifoQueue) {
+                execute(Collections.singletonList(messages));
+                return;
+            }
+
+            List<List<Message>> messageSequences = new ArrayList<>(messages.size());
+            for (Message message : messages) {
+                messageSequences.add(Collections.singletonList(message));
+            }
+            execute(messageSequences);
+        }
+
+        /**
+         * Submits a task for every message sequence and sends the next receive request once the last one completed.
+         */
+        private void execute(List<List<Message>> messageSequences) {
+            ReceiveCompletion receiveCompletion = new ReceiveCompletion(this, messageSequences.size());
+            for (List<Message> messages : messageSequences) {
+                try {
+                    getTaskExecutor().execute(new BatchTask(this, messages, receiveCompletion));
+                } catch (RejectedExecutionException e) {
+                    receiveCompletion.taskRejected(messages);
+                }
+            }
+        }
+
+        /**
+         * Makes messages the task executor rejected visible again, so that they are redelivered immediately instead of
+         * after their visibility timeout.
+         */
+        private void returnRejectedMessages(List<Message> messages) {
+            if (getMetrics() != null) {
+                getMetrics().executionRejected(this.logicalQueueName);
+            }
+            getLogger().warn("The task executor rejected {} messages of queue '{}', the messages are made visible again",
+                    messages.size(), this.logicalQueueName);
+            for (ChangeMessageVisibilityBatchRequest changeMessageVisibilityBatchRequest :
+                    SimpleMessageListenerContainer.createReturnMessagesBatchRequests(this.queueUrl, messages)) {
+                getAmazonSqs().changeMessageVisibilityBatchAsync(changeMessageVisibilityBatchRequest);
+            }
+        }
+
+        private org.springframework.messaging.Message<String> getMessageForExecution(Message message, AsyncHandlerMethodResult asyncResult) {
+            HashMap<String, Object> additionalHeaders = new HashMap<>(8);
+            additionalHeaders.put(QueueMessageHandler.LOGICAL_RESOURCE_ID, this.logicalQueueName);
+            if (asyncResult != null) {
+                additionalHeaders.put(QueueMessageHandler.ASYNC_RESULT, asyncResult);
+            }
+            if (this.queueAttributes.getDeletionPolicy() == SqsMessageDeletionPolicy.NEVER && this.queueAttributes.isAcknowledgmentRequired()) {
+                additionalHeaders.put(QueueMessageHandler.ACKNOWLEDGMENT, new QueueMessageAcknowledgment(getAmazonSqs(),
+                        MultiplexedMessageListenerContainer.this.deletionAggregator, this.queueUrl, message.getReceiptHandle()));
+            }
+            if (this.queueAttributes.isVisibilityRequired()) {
+                additionalHeaders.put(QueueMessageHandler.VISIBILITY, new QueueMessageVisibility(getAmazonSqs(), this.queueUrl,
+                        message.getReceiptHandle()));
+            }
+
+            return createMessage(message, additionalHeaders);
+        }
+
+        /**
+         * Executes a single message. If the listener method returns an asynchronous result, the deletion policy is
+         * applied when the result completes.
+         *
+         * @return a future that completes with {@code true} once the message has been processed or deleted and will not
+         * be redelivered, it is never completed exceptionally
+         */
+        private ListenableFuture<Boolean> executeAsync(Message message) {
+            final String receiptHandle = message.getReceiptHandle();
+            AsyncHandlerMethodResult asyncResult = new AsyncHandlerMethodResult();
+            final org.springframework.messaging.Message<String> queueMessage = getMessageForExecution(message, asyncResult);
+            registerInFlightMessage(this.queueUrl, receiptHandle);
+            final long processingStart = processingStarted(this.logicalQueueName, 1);
+
+            ListenableFuture<?> asyncResultFuture;
+            try {
+                executeMessage(queueMessage);
+                asyncResultFuture = asyncResult.getFuture();
+            } catch (RuntimeException e) {
+                return SimpleMessageListenerContainer.completedFuture(messageCompleted(receiptHandle, processingStart,
+                        toMessagingException(queueMessage, e)));
+            }
+
+            if (asyncResultFuture == null) {
+                return SimpleMessageListenerContainer.completedFuture(messageCompleted(receiptHandle, processingStart, null));
+            }
+
+            final SettableListenableFuture<Boolean> completion = new SettableListenableFuture<>();
+            asyncResultFuture.addCallback(new ListenableFutureCallback<Object>() {
+
+                @Override
+                public void onSuccess(Object result) {
+                    boolean processed = false;
+                    try {
+                        processed = messageCompleted(receiptHandle, processingStart, null);
+                    } finally {
+                        completion.set(processed);
+                    }
+                }
+
+                @Override
+                public void onFailure(Throwable ex) {
+                    boolean processed = false;
+                    try {
+                        processed = messageCompleted(receiptHandle, processingStart,
+                                new MessagingException(queueMessage, "The asynchronous result of the handler method completed exceptionally", ex));
+                    } finally {
+                        completion.set(processed);
+                    }
+                }
+            });
+            return completion;
+        }
+
+        /**
+         * @return {@code true} if the message has been processed or deleted and will not be redelivered
+         */
+        private boolean messageCompleted(String receiptHandle, long processingStart, MessagingException messagingException) {
+            try {
+                processingCompleted(this.logicalQueueName, 1, processingStart, messagingException == null);
+                if (isDeleted(messagingException)) {
+                    MultiplexedMessageListenerContainer.this.messageDeleter.deleteMessage(this.logicalQueueName, this.queueUrl, receiptHandle);
+                    return true;
+                }
+
+                logProcessingError(messagingException);
+                return messagingException == null;
+            } finally {
+                unregisterInFlightMessage(this.queueUrl, receiptHandle);
+            }
+        }
+
+        /**
+         * Executes all messages with one call of a batch listener method.
+         */
+        private void executeBatch(List<Message> messages) {
+            List<org.springframework.messaging.Message<String>> queueMessages = new ArrayList<>(messages.size());
+            for (Message message : messages) {
+                queueMessages.add(getMessageForExecution(message, null));
+                registerInFlightMessage(this.queueUrl, message.getReceiptHandle());
+            }
+            long processingStart = processingStarted(this.logicalQueueName, messages.size());
+
+            try {
+                org.springframework.messaging.Message<List<org.springframework.messaging.Message<String>>> batchMessage =
+                        new GenericMessage<>(queueMessages, Collections.<String, Object>singletonMap(QueueMessageHandler.LOGICAL_RESOURCE_ID, this.logicalQueueName));
+                MessagingException messagingException = null;
+                try {
+                    executeMessageBatch(batchMessage);
+                } catch (RuntimeException e) {
+                    messagingException = toMessagingException(batchMessage, e);
+                }
+                processingCompleted(this.logicalQueueName, messages.size(), processingStart, messagingException == null);
+
+                PartialBatchFailureException partialBatchFailure = SimpleMessageListenerContainer.findPartialBatchFailure(messagingException);
+                List<String> receiptHandles = new ArrayList<>(messages.size());
+                for (int i = 0; i < messages.size(); i++) {
+                    boolean failed = messagingException != null && (partialBatchFailure == null || partialBatchFailure.getFailedIndexes().contains(i));
+                    if (isDeleted(failed ? messagingException : null)) {
+                        receiptHandles.add(messages.get(i).getReceiptHandle());
+                    }
+                }
+
+                logProcessingError(messagingException);
+                MultiplexedMessageListenerContainer.this.messageDeleter.deleteMessages(this.logicalQueueName, this.queueUrl, receiptHandles);
+            } finally {
+                for (Message message : messages) {
+                    unregisterInFlightMessage(this.queueUrl, message.getReceiptHandle());
+                }
+            }
+        }
+
+        private boolean isDeleted(MessagingException messagingException) {
+            SqsMessageDeletionPolicy deletionPolicy = this.queueAttributes.getDeletionPolicy();
+            return messagingException == null ? SimpleMessageListenerContainer.isDeletedOnSuccess(deletionPolicy) :
+                    SimpleMessageListenerContainer.isDeletedOnError(deletionPolicy, this.queueAttributes);
+        }
+
+        private void logProcessingError(MessagingException messagingException) {
+            if (messagingException != null && this.queueAttributes.getDeletionPolicy() == SqsMessageDeletionPolicy.ON_SUCCESS) {
+                getLogger().error("Exception encountered while processing message.", messagingException);
+            }
+        }
+    }
+
+    /**
+     * Treats any exception of a listener method like a {@link MessagingException}, so that the deletion policy, the
+     * heartbeat and the metrics are applied to the message in any case.
+     */
+    private static MessagingException toMessagingException(org.springframework.messaging.Message<?> message, RuntimeException exception) {
+        if (exception instanceof MessagingException) {
+            return (MessagingException) exception;
+        }
+        return new MessagingException(message, exception);
+    }
+
+    /**
+     * Counts the tasks of one receive request and continues the receive cycle once all of them completed. The next
+     * receive request is delayed by the back off time if the task executor rejected a task.
+     */
+    private class ReceiveCompletion {
+
+        private final ReceiveCycle receiveCycle;
+        private final AtomicInteger remainingTasks;
+        private volatile boolean rejected;
+
+        private ReceiveCompletion(ReceiveCycle receiveCycle, int numberOfTasks) {
+            this.receiveCycle = receiveCycle;
+            this.remainingTasks = new AtomicInteger(numberOfTasks);
+        }
+
+        private void taskRejected(List<Message> messages) {
+            this.rejected = true;
+            try {
+                this.receiveCycle.returnRejectedMessages(messages);
+            } finally {
+                taskCompleted();
+            }
+        }
+
+        private void taskCompleted() {
+            if (this.remainingTasks.decrementAndGet() > 0) {
+                return;
+            }
+
+            if (this.rejected) {
+                this.receiveCycle.receiveLater(getBackOffTime());
+            } else {
+                this.receiveCycle.receive();
+            }
+        }
+    }
+
+    /**
+     * Processes messages of one receive cycle. Batch listener methods receive all messages at once; otherwise the
+     * messages are executed one after another and the remaining messages are skipped after a message that will be
+     * redelivered, which preserves the order of FIFO queues. A message with an asynchronous result does not occupy a
+     * worker thread until the result completes, the remaining messages are submitted to the task executor again.
+     */
+    private class BatchTask implements Runnable {
+
+        private final ReceiveCycle receiveCycle;
+        private final List<Message> messages;
+        private final ReceiveCompletion receiveCompletion;
+        private int nextMessage;
+
+        private BatchTask(ReceiveCycle receiveCycle, List<Message> messages, ReceiveCompletion receiveCompletion) {
+            this.receiveCycle = receiveCycle;
+            this.messages = messages;
+            this.receiveCompletion = receiveCompletion;
+        }
+
+        @Override
+        public void run() {
+            if (this.receiveCycle.queueAttributes.isBatchListener()) {
+                try {
+                    this.receiveCycle.executeBatch(this.messages);
+                } finally {
+                    this.receiveCompletion.taskCompleted();
+                }
+                return;
+            }
+
+            executeNextMessage();
+        }
+
+        private void executeNextMessage() {
+            if (this.nextMessage == this.messages.size()) {
+                this.receiveCompletion.taskCompleted();
+                return;
+            }
+
+            ListenableFuture<Boolean> processing = this.receiveCycle.executeAsync(this.messages.get(this.nextMessage++));
+            final boolean asynchronous = !processing.isDone();
+            processing.addCallback(new ListenableFutureCallback<Boolean>() {
+
+                @Override
+                public void onSuccess(Boolean processed) {
+                    if (!processed) {
+                        BatchTask.this.receiveCompletion.taskCompleted();
+                    } else if (asynchronous) {
+                        continueOnWorkerThread();
+                    } else {
+                        executeNextMessage();
+                    }
+                }
+
+                @Override
+                public void onFailure(Throwable ex) {
+                    // The processing future is never completed exceptionally
+                    BatchTask.this.receiveCompletion.taskCompleted();
+                }
+            });
+        }
+
+        /**
+         * Continues with the next message on a worker thread instead of the thread that completed the asynchronous
+         * result of the previous message.
+         */
+        private void continueOnWorkerThread() {
+            if (this.nextMessage == this.messages.size()) {
+                this.receiveCompletion.taskCompleted();
+                return;
+            }
+
+            try {
+                getTaskExecutor().execute(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        executeNextMessage();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                this.receiveCompletion.taskRejected(this.messages.subList(this.nextMessage, this.messages.size()));
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.aws.messaging.listener;
+
+import org.springframework.messaging.MessagingException;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Exception that can be thrown by batch listener methods (see
+ * {@link org.springframework.cloud.aws.messaging.listener.annotation.SqsListener#batch()}) to report that only some
+ * messages of a batch could not be processed. The failed messages are identified by their index in the list passed to
+ * the listener method. The container applies the error behaviour of the {@link SqsMessageDeletionPolicy} to the failed
+ * messages and the success behaviour to all other messages of the batch.
+ *
+ * @since 2.1
+ */
+public class PartialBatchFailureException extends MessagingException {
+
+    private final Set<Integer> failedIndexes;
+
+    public PartialBatchFailureException(String description, Collection<Integer> failedIndexes) {
+        super(description);
+        this.failedIndexes = Collections.unmodifiableSet(new LinkedHashSet<>(failedIndexes));
+    }
+
+    /**
+     * @return the indexes of the messages that could not be processed by the listener method
+     */
+    public Set<Integer> getFailedIndexes() {
+        return this.failedIndexes;
+    }
+}
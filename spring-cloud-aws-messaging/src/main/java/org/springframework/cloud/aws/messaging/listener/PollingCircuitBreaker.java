@@ -0,0 +1,121 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.aws.messaging.listener;
+
+import org.springframework.util.Assert;
+
+/**
+ * Circuit breaker that suspends the polling of a queue after a number of consecutive failed polls. While the circuit
+ * is open, no poller of the queue sends requests to SQS. After the open timeout has elapsed a single poller is allowed
+ * to probe the queue: if the probe succeeds the circuit is closed again, otherwise it stays open for another timeout.
+ *
+ * @since 2.1
+ */
+class PollingCircuitBreaker {
+
+    enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openTimeout;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+
+    /**
+     * @param failureThreshold
+     *         the number of consecutive failures that open the circuit
+     * @param openTimeout
+     *         the number of milliseconds the circuit stays open before a probe is allowed
+     */
+    PollingCircuitBreaker(int failureThreshold, long openTimeout) {
+        Assert.isTrue(failureThreshold > 0, "failureThreshold must be a positive number");
+        Assert.isTrue(openTimeout >= 0, "openTimeout must not be negative");
+        this.failureThreshold = failureThreshold;
+        this.openTimeout = openTimeout;
+    }
+
+    /**
+     * @return {@code true} if the caller may poll the queue, {@code false} if the circuit is open or another poller is
+     * currently probing the queue
+     */
+    synchronized boolean allowRequest() {
+        if (this.state == State.CLOSED) {
+            return true;
+        }
+
+        if (this.state == State.OPEN && getRemainingOpenTime() == 0) {
+            this.state = State.HALF_OPEN;
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * @return {@code true} if the circuit was not closed before
+     */
+    synchronized boolean recordSuccess() {
+        boolean closedCircuit = this.state != State.CLOSED;
+        this.state = State.CLOSED;
+        this.consecutiveFailures = 0;
+        return closedCircuit;
+    }
+
+    /**
+     * @return {@code true} if this failure opened the circuit
+     */
+    synchronized boolean recordFailure() {
+        this.consecutiveFailures++;
+        if (this.state == State.HALF_OPEN || (this.state == State.CLOSED && this.consecutiveFailures >= this.failureThreshold)) {
+            this.state = State.OPEN;
+            this.openedAt = System.currentTimeMillis();
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Records a poll that failed for a local reason, such as a rejected task, which says nothing about the availability
+     * of SQS. The consecutive failures are left unchanged, but a probe in progress is ended so that the next poller
+     * probes the queue again.
+     */
+    synchronized void recordIgnoredFailure() {
+        if (this.state == State.HALF_OPEN) {
+            this.state = State.OPEN;
+            this.openedAt = System.currentTimeMillis() - this.openTimeout;
+        }
+    }
+
+    /**
+     * @return the number of milliseconds until a probe is allowed, 0 if the circuit is not open or the timeout elapsed
+     */
+    synchronized long getRemainingOpenTime() {
+        if (this.state != State.OPEN) {
+            return 0;
+        }
+
+        return Math.max(0, this.openedAt + this.openTimeout - System.currentTimeMillis());
+    }
+
+    synchronized State getState() {
+        return this.state;
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.cloud.aws.messaging.listener;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cancels listener method executions that exceed their processing timeout. The thread that invokes the listener method
+ * is interrupted when the timeout expires and an asynchronous result that is still pending afterwards is cancelled.
+ * Listener methods that do not react to interruption keep running, but their outcome is reported as timed out, so that
+ * the container does not delete a message that may already have been redelivered.
+ *
+ * @since 2.1
+ */
+class ProcessingTimeoutWatchdog implements DisposableBean {
+
+    private final ScheduledExecutorService timeoutScheduler;
+
+    ProcessingTimeoutWatchdog() {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(ProcessingTimeoutWatchdog.class.getSimpleName() + "-");
+        threadFactory.setDaemon(true);
+        this.timeoutScheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+    }
+
+    /**
+     * Starts to watch the processing that is executed by the current thread.
+     *
+     * @param timeout
+     *         the processing timeout in milliseconds
+     * @return the watch that has to be completed when the processing ends
+     */
+    Watch watch(long timeout) {
+        final Watch watch = new Watch(Thread.currentThread());
+        watch.timeoutFuture = this.timeoutScheduler.schedule(new Runnable() {
+
+            @Override
+            public void run() {
+                watch.timeout();
+            }
+        }, timeout, TimeUnit.MILLISECONDS);
+        return watch;
+    }
+
+    @Override
+    public void destroy() {
+        this.timeoutScheduler.shutdownNow();
+    }
+
+    /**
+     * The watch of one processing. The state transitions are synchronized, so that a processing either completes or
+     * times out, but never both.
+     */
+    static final class Watch {
+
+        private Thread thread;
+        private Future<?> asyncResult;
+        private volatile Future<?> timeoutFuture;
+        private boolean completed;
+        private boolean timedOut;
+
+        private Watch(Thread thread) {
+            this.thread = thread;
+        }
+
+        /**
+         * Continues to watch the asynchronous result of the listener method after the listener method returned. The
+         * result is cancelled immediately if the timeout already expired.
+         */
+        synchronized void continueWith(Future<?> asyncResult) {
+            clearInterruption();
+            this.thread = null;
+            this.asyncResult = asyncResult;
+            if (this.timedOut) {
+                asyncResult.cancel(true);
+            }
+        }
+
+        /**
+         * Completes the watch. A pending interruption of the current thread caused by the timeout is cleared.
+         *
+         * @return {@code true} if the processing timed out
+         */
+        synchronized boolean complete() {
+            if (!this.timedOut && !this.completed) {
+                this.completed = true;
+                if (this.timeoutFuture != null) {
+                    this.timeoutFuture.cancel(false);
+                }
+            }
+            clearInterruption();
+            return this.timedOut;
+        }
+
+        private synchronized void timeout() {
+            if (this.completed || this.timedOut) {
+                return;
+            }
+
+            this.timedOut = true;
+            if (this.thread != null) {
+                this.thread.interrupt();
+            } else if (this.asyncResult != null) {
+                this.asyncResult.cancel(true);
+            }
+        }
+
+        private void clearInterruption() {
+            if (this.timedOut && this.thread == Thread.currentThread()) {
+                Thread.interrupted();
+            }
+        }
+    }
+}
@@ -28,17 +28,39 @@ import java.util.concurrent.Future;
 public class QueueMessageAcknowledgment implements Acknowledgment {
 
     private final AmazonSQSAsync amazonSqsAsync;
+    private final QueueMessageDeletionAggregator deletionAggregator;
     private final String queueUrl;
     private final String receiptHandle;
 
     public QueueMessageAcknowledgment(AmazonSQSAsync amazonSqsAsync, String queueUrl, String receiptHandle) {
+        this(amazonSqsAsync, null, queueUrl, receiptHandle);
+    }
+
+    /**
+     * @param amazonSqsAsync
+     *         the client used to delete the message if no deletion aggregator is set
+     * @param deletionAggregator
+     *         the aggregator used to delete the message as part of a {@code DeleteMessageBatch} request, may be null
+     * @param queueUrl
+     *         the url of the queue that contains the message
+     * @param receiptHandle
+     *         the receipt handle of the message
+     * @since 2.1
+     */
+    public QueueMessageAcknowledgment(AmazonSQSAsync amazonSqsAsync, QueueMessageDeletionAggregator deletionAggregator,
+                                      String queueUrl, String receiptHandle) {
         this.amazonSqsAsync = amazonSqsAsync;
+        this.deletionAggregator = deletionAggregator;
         this.queueUrl = queueUrl;
         this.receiptHandle = receiptHandle;
     }
 
     @Override
     public Future<?> acknowledge() {
+        if (this.deletionAggregator != null) {
+            return this.deletionAggregator.deleteMessage(this.queueUrl, this.receiptHandle);
+        }
+
         return this.amazonSqsAsync.deleteMessageAsync(new DeleteMessageRequest(this.queueUrl, this.receiptHandle));
     }
 }
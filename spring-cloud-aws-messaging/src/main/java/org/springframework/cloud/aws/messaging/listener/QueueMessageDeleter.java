@@ -0,0 +1,139 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.cloud.aws.messaging.listener;
+
+import com.amazonaws.handlers.AsyncHandler;
+import com.amazonaws.services.sqs.AmazonSQSAsync;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequest;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchResult;
+import com.amazonaws.services.sqs.model.DeleteMessageRequest;
+import com.amazonaws.services.sqs.model.DeleteMessageResult;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+
+/**
+ * Deletes processed messages on behalf of the message listener containers. Single messages are deleted through the
+ * {@link QueueMessageDeletionAggregator} if the container has one, otherwise with their own request; the messages of
+ * a batch listener method are deleted with {@code DeleteMessageBatch} requests. Failed deletions are reported to the
+ * metrics of the container.
+ *
+ * @since 2.1
+ */
+class QueueMessageDeleter {
+
+    private final AmazonSQSAsync amazonSqs;
+    private final QueueMessageDeletionAggregator deletionAggregator;
+    private final MessageListenerContainerMetrics metrics;
+
+    /**
+     * @param amazonSqs
+     *         the client used to delete the messages
+     * @param deletionAggregator
+     *         the aggregator used to delete single messages, may be null
+     * @param metrics
+     *         the metrics of the container, may be null
+     */
+    QueueMessageDeleter(AmazonSQSAsync amazonSqs, QueueMessageDeletionAggregator deletionAggregator, MessageListenerContainerMetrics metrics) {
+        this.amazonSqs = amazonSqs;
+        this.deletionAggregator = deletionAggregator;
+        this.metrics = metrics;
+    }
+
+    QueueMessageDeletionAggregator getDeletionAggregator() {
+        return this.deletionAggregator;
+    }
+
+    void deleteMessage(final String logicalQueueName, String queueUrl, String receiptHandle) {
+        if (this.deletionAggregator != null) {
+            CompletableFuture<Void> deletion = this.deletionAggregator.deleteMessage(queueUrl, receiptHandle);
+            if (this.metrics != null) {
+                deletion.whenComplete(new BiConsumer<Void, Throwable>() {
+
+                    @Override
+                    public void accept(Void result, Throwable exception) {
+                        if (exception != null) {
+                            QueueMessageDeleter.this.metrics.deleteFailed(logicalQueueName);
+                        }
+                    }
+                });
+            }
+            return;
+        }
+
+        if (this.metrics == null) {
+            this.amazonSqs.deleteMessageAsync(new DeleteMessageRequest(queueUrl, receiptHandle));
+            return;
+        }
+
+        this.amazonSqs.deleteMessageAsync(new DeleteMessageRequest(queueUrl, receiptHandle),
+                new AsyncHandler<DeleteMessageRequest, DeleteMessageResult>() {
+
+                    @Override
+                    public void onError(Exception exception) {
+                        QueueMessageDeleter.this.metrics.deleteFailed(logicalQueueName);
+                    }
+
+                    @Override
+                    public void onSuccess(DeleteMessageRequest request, DeleteMessageResult result) {
+                    }
+                });
+    }
+
+    void deleteMessages(String logicalQueueName, String queueUrl, List<String> receiptHandles) {
+        for (DeleteMessageBatchRequest deleteMessageBatchRequest : SimpleMessageListenerContainer.createDeleteMessageBatchRequests(queueUrl, receiptHandles)) {
+            if (this.metrics == null) {
+                this.amazonSqs.deleteMessageBatchAsync(deleteMessageBatchRequest);
+            } else {
+                this.amazonSqs.deleteMessageBatchAsync(deleteMessageBatchRequest,
+                        new DeleteMessageBatchFailureRecorder(logicalQueueName, deleteMessageBatchRequest.getEntries().size()));
+            }
+        }
+    }
+
+    /**
+     * Reports every entry of a failed or partially failed delete message batch request to the metrics.
+     */
+    private class DeleteMessageBatchFailureRecorder implements AsyncHandler<DeleteMessageBatchRequest, DeleteMessageBatchResult> {
+
+        private final String logicalQueueName;
+        private final int numberOfEntries;
+
+        private DeleteMessageBatchFailureRecorder(String logicalQueueName, int numberOfEntries) {
+            this.logicalQueueName = logicalQueueName;
+            this.numberOfEntries = numberOfEntries;
+        }
+
+        @Override
+        public void onError(Exception exception) {
+            recordDeleteFailures(this.numberOfEntries);
+        }
+
+        @Override
+        public void onSuccess(DeleteMessageBatchRequest request, DeleteMessageBatchResult result) {
+            recordDeleteFailures(result.getFailed().size());
+        }
+
+        private void recordDeleteFailures(int numberOfFailures) {
+            for (int i = 0; i < numberOfFailures; i++) {
+                QueueMessageDeleter.this.metrics.deleteFailed(this.logicalQueueName);
+            }
+        }
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.aws.messaging.listener;
+
+import com.amazonaws.handlers.AsyncHandler;
+import com.amazonaws.services.sqs.AmazonSQSAsync;
+import com.amazonaws.services.sqs.model.AmazonSQSException;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequest;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchResult;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchResultEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces message deletions into {@code DeleteMessageBatch} requests. Deletions are collected per queue url and sent
+ * as soon as a batch contains the maximum number of 10 entries or the configured max delay has elapsed since the first
+ * deletion of the batch has been requested, whatever comes first.
+ * <p>Every deletion returns its own future, which completes when the batch entry of the message has been processed
+ * by SQS. Entries that fail are completed exceptionally with an {@link AmazonSQSException} that contains the error code
+ * and message returned by SQS. The aggregator only relies on {@link AmazonSQSAsync#deleteMessageBatchAsync(DeleteMessageBatchRequest, AsyncHandler)}
+ * and therefore works with any client, including a buffered one.
+ *
+ * @since 2.1
+ */
+public class QueueMessageDeletionAggregator implements DisposableBean {
+
+    /**
+     * The maximum number of entries SQS accepts in one {@code DeleteMessageBatch} request.
+     */
+    public static final int MAX_BATCH_ENTRIES = 10;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(QueueMessageDeletionAggregator.class);
+
+    private final AmazonSQSAsync amazonSqs;
+    private final long maxDelay;
+    private final ScheduledExecutorService flushScheduler;
+    private final Map<String, List<PendingDeletion>> pendingDeletionsByQueueUrl = new ConcurrentHashMap<>();
+
+    /**
+     * @param amazonSqs
+     *         the client used to send the batch requests
+     * @param maxDelay
+     *         the maximum number of milliseconds a deletion is kept before its batch is sent
+     */
+    public QueueMessageDeletionAggregator(AmazonSQSAsync amazonSqs, long maxDelay) {
+        Assert.notNull(amazonSqs, "amazonSqs must not be null");
+        Assert.isTrue(maxDelay >= 0, "maxDelay must not be negative");
+        this.amazonSqs = amazonSqs;
+        this.maxDelay = maxDelay;
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(QueueMessageDeletionAggregator.class.getSimpleName() + "-");
+        threadFactory.setDaemon(true);
+        this.flushScheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+    }
+
+    /**
+     * Adds the message to the pending deletions of the queue.
+     *
+     * @param queueUrl
+     *         the url of the queue that contains the message
+     * @param receiptHandle
+     *         the receipt handle of the message to delete
+     * @return a future that completes when SQS processed the deletion of this message
+     */
+    public CompletableFuture<Void> deleteMessage(String queueUrl, String receiptHandle) {
+        PendingDeletion pendingDeletion = new PendingDeletion(receiptHandle);
+        List<PendingDeletion> batchToSend = null;
+
+        synchronized (this.pendingDeletionsByQueueUrl) {
+            List<PendingDeletion> pendingDeletions = this.pendingDeletionsByQueueUrl.get(queueUrl);
+            if (pendingDeletions == null) {
+                pendingDeletions = new ArrayList<>(MAX_BATCH_ENTRIES);
+                this.pendingDeletionsByQueueUrl.put(queueUrl, pendingDeletions);
+                scheduleFlush(queueUrl, pendingDeletions);
+            }
+
+            pendingDeletions.add(pendingDeletion);
+            if (pendingDeletions.size() >= MAX_BATCH_ENTRIES) {
+                this.pendingDeletionsByQueueUrl.remove(queueUrl);
+                batchToSend = pendingDeletions;
+            }
+        }
+
+        if (batchToSend != null) {
+            sendBatch(queueUrl, batchToSend);
+        }
+
+        return pendingDeletion.getFuture();
+    }
+
+    /**
+     * Immediately sends all pending deletions of all queues.
+     */
+    public void flush() {
+        List<Map.Entry<String, List<PendingDeletion>>> batchesToSend;
+        synchronized (this.pendingDeletionsByQueueUrl) {
+            batchesToSend = new ArrayList<>(this.pendingDeletionsByQueueUrl.entrySet());
+            this.pendingDeletionsByQueueUrl.clear();
+        }
+
+        for (Map.Entry<String, List<PendingDeletion>> batchToSend : batchesToSend) {
+            sendBatch(batchToSend.getKey(), batchToSend.getValue());
+        }
+    }
+
+    /**
+     * Sends all pending deletions and stops the scheduler used for the time based flushes.
+     */
+    @Override
+    public void destroy() {
+        this.flushScheduler.shutdownNow();
+        flush();
+    }
+
+    private void scheduleFlush(final String queueUrl, final List<PendingDeletion> pendingDeletions) {
+        this.flushScheduler.schedule(new Runnable() {
+
+            @Override
+            public void run() {
+                flush(queueUrl, pendingDeletions);
+            }
+        }, this.maxDelay, TimeUnit.MILLISECONDS);
+    }
+
+    private void flush(String queueUrl, List<PendingDeletion> pendingDeletions) {
+        synchronized (this.pendingDeletionsByQueueUrl) {
+            // The batch may already have been sent because it was full or flushed explicitly
+            if (!this.pendingDeletionsByQueueUrl.remove(queueUrl, pendingDeletions)) {
+                return;
+            }
+        }
+
+        sendBatch(queueUrl, pendingDeletions);
+    }
+
+    private void sendBatch(String queueUrl, List<PendingDeletion> pendingDeletions) {
+        List<DeleteMessageBatchRequestEntry> entries = new ArrayList<>(pendingDeletions.size());
+        for (int i = 0; i < pendingDeletions.size(); i++) {
+            entries.add(new DeleteMessageBatchRequestEntry(Integer.toString(i), pendingDeletions.get(i).getReceiptHandle()));
+        }
+
+        try {
+            this.amazonSqs.deleteMessageBatchAsync(new DeleteMessageBatchRequest(queueUrl, entries), new DeletionResultHandler(queueUrl, pendingDeletions));
+        } catch (RuntimeException e) {
+            completeExceptionally(pendingDeletions, e);
+        }
+    }
+
+    private static void completeExceptionally(List<PendingDeletion> pendingDeletions, Exception exception) {
+        for (PendingDeletion pendingDeletion : pendingDeletions) {
+            pendingDeletion.getFuture().completeExceptionally(exception);
+        }
+    }
+
+    private static final class PendingDeletion {
+
+        private final String receiptHandle;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private PendingDeletion(String receiptHandle) {
+            this.receiptHandle = receiptHandle;
+        }
+
+        private String getReceiptHandle() {
+            return this.receiptHandle;
+        }
+
+        private CompletableFuture<Void> getFuture() {
+            return this.future;
+        }
+    }
+
+    private static final class DeletionResultHandler implements AsyncHandler<DeleteMessageBatchRequest, DeleteMessageBatchResult> {
+
+        private final String queueUrl;
+        private final List<PendingDeletion> pendingDeletions;
+
+        private DeletionResultHandler(String queueUrl, List<PendingDeletion> pendingDeletions) {
+            this.queueUrl = queueUrl;
+            this.pendingDeletions = pendingDeletions;
+        }
+
+        @Override
+        public void onError(Exception exception) {
+            LOGGER.warn("Deleting a batch of {} messages from queue '{}' failed", this.pendingDeletions.size(), this.queueUrl, exception);
+            completeExceptionally(this.pendingDeletions, exception);
+        }
+
+        @Override
+        public void onSuccess(DeleteMessageBatchRequest request, DeleteMessageBatchResult result) {
+            for (DeleteMessageBatchResultEntry successfulEntry : result.getSuccessful()) {
+                this.pendingDeletions.get(Integer.parseInt(successfulEntry.getId())).getFuture().complete(null);
+            }
+
+            for (BatchResultErrorEntry failedEntry : result.getFailed()) {
+                LOGGER.warn("Deleting a message from queue '{}' failed with error code '{}': {}", this.queueUrl,
+                        failedEntry.getCode(), failedEntry.getMessage());
+
+                AmazonSQSException exception = new AmazonSQSException(failedEntry.getMessage());
+                exception.setErrorCode(failedEntry.getCode());
+                this.pendingDeletions.get(Integer.parseInt(failedEntry.getId())).getFuture().completeExceptionally(exception);
+            }
+        }
+    }
+}
@@ -21,20 +21,27 @@ import org.springframework.beans.factory.config.BeanExpressionResolver;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.cloud.aws.messaging.listener.annotation.SqsListener;
 import org.springframework.cloud.aws.messaging.listener.support.AcknowledgmentHandlerMethodArgumentResolver;
+import org.springframework.cloud.aws.messaging.listener.support.BatchMessageArgumentResolver;
 import org.springframework.cloud.aws.messaging.listener.support.VisibilityHandlerMethodArgumentResolver;
 import org.springframework.cloud.aws.messaging.support.NotificationMessageArgumentResolver;
 import org.springframework.cloud.aws.messaging.support.NotificationSubjectArgumentResolver;
 import org.springframework.cloud.aws.messaging.support.converter.ObjectMessageConverter;
 import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.MethodParameter;
 import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandlingException;
+import org.springframework.messaging.MessageHeaders;
 import org.springframework.messaging.MessagingException;
 import org.springframework.messaging.converter.CompositeMessageConverter;
 import org.springframework.messaging.converter.MessageConverter;
 import org.springframework.messaging.converter.SimpleMessageConverter;
 import org.springframework.messaging.handler.HandlerMethod;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.messaging.handler.annotation.Headers;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.support.AnnotationExceptionHandlerMethodResolver;
+import org.springframework.messaging.handler.annotation.support.DestinationPatternsMessageCondition;
 import org.springframework.messaging.handler.annotation.support.HeaderMethodArgumentResolver;
 import org.springframework.messaging.handler.annotation.support.HeadersMethodArgumentResolver;
 import org.springframework.messaging.handler.annotation.support.PayloadArgumentResolver;
@@ -42,7 +49,11 @@ import org.springframework.messaging.handler.invocation.AbstractExceptionHandler
 import org.springframework.messaging.handler.invocation.AbstractMethodMessageHandler;
 import org.springframework.messaging.handler.invocation.HandlerMethodArgumentResolver;
 import org.springframework.messaging.handler.invocation.HandlerMethodReturnValueHandler;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
 import org.springframework.util.comparator.ComparableComparator;
 import org.springframework.validation.Errors;
 import org.springframework.validation.Validator;
@@ -50,10 +61,13 @@ import org.springframework.validation.Validator;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -67,9 +81,15 @@ public class QueueMessageHandler extends AbstractMethodMessageHandler<QueueMessa
     static final String LOGICAL_RESOURCE_ID = "LogicalResourceId";
     static final String ACKNOWLEDGMENT = "Acknowledgment";
     static final String VISIBILITY = "Visibility";
+    static final String ASYNC_RESULT = "AsyncResult";
+    private static final String NO_ATTRIBUTES = "None";
 
     private final List<MessageConverter> messageConverters;
 
+    private volatile Map<String, HandlerMethodMatch> dispatchTable;
+
+    private boolean methodHandleInvocation;
+
     public QueueMessageHandler(List<MessageConverter> messageConverters) {
         this.messageConverters = messageConverters;
     }
@@ -90,6 +110,7 @@ public class QueueMessageHandler extends AbstractMethodMessageHandler<QueueMessa
         resolvers.add(new VisibilityHandlerMethodArgumentResolver(VISIBILITY));
 
         CompositeMessageConverter compositeMessageConverter = createPayloadArgumentCompositeConverter();
+        resolvers.add(new BatchMessageArgumentResolver(compositeMessageConverter));
         resolvers.add(new NotificationMessageArgumentResolver(compositeMessageConverter));
         resolvers.add(new PayloadArgumentResolver(compositeMessageConverter, new NoOpValidator()));
 
@@ -98,8 +119,10 @@ public class QueueMessageHandler extends AbstractMethodMessageHandler<QueueMessa
 
     @Override
     protected List<? extends HandlerMethodReturnValueHandler> initReturnValueHandlers() {
+        List<HandlerMethodReturnValueHandler> handlers = new ArrayList<>(this.getCustomReturnValueHandlers());
+        handlers.add(new AsyncResultHandlerMethodReturnValueHandler());
 
-        return new ArrayList<>(this.getCustomReturnValueHandlers());
+        return handlers;
     }
 
     @Override
@@ -111,16 +134,30 @@ public class QueueMessageHandler extends AbstractMethodMessageHandler<QueueMessa
     protected MappingInformation getMappingForMethod(Method method, Class<?> handlerType) {
         SqsListener sqsListenerAnnotation = AnnotationUtils.findAnnotation(method, SqsListener.class);
         if (sqsListenerAnnotation != null && sqsListenerAnnotation.value().length > 0) {
-            if (sqsListenerAnnotation.deletionPolicy() == SqsMessageDeletionPolicy.NEVER && hasNoAcknowledgmentParameter(method.getParameterTypes())) {
+            if (sqsListenerAnnotation.deletionPolicy() == SqsMessageDeletionPolicy.NEVER && !sqsListenerAnnotation.batch() &&
+                    hasNoAcknowledgmentParameter(method.getParameterTypes())) {
                 this.logger.warn("Listener method '" + method.getName() + "' in type '" + method.getDeclaringClass().getName() +
                         "' has deletion policy 'NEVER' but does not have a parameter of type Acknowledgment.");
             }
-            return new MappingInformation(resolveDestinationNames(sqsListenerAnnotation.value()), sqsListenerAnnotation.deletionPolicy());
+            MappingInformation mappingInformation = new MappingInformation(resolveDestinationNames(sqsListenerAnnotation.value()),
+                    sqsListenerAnnotation.deletionPolicy(), sqsListenerAnnotation.batch(), requiresHeader(method, Acknowledgment.class),
+                    requiresHeader(method, Visibility.class), getReceivingAttributeNames(sqsListenerAnnotation.attributeNames()),
+                    getReceivingAttributeNames(sqsListenerAnnotation.messageAttributeNames()));
+            mappingInformation.setQueueSettings(resolveInteger(sqsListenerAnnotation.maxNumberOfMessages(), "maxNumberOfMessages", 1, 10),
+                    resolveInteger(sqsListenerAnnotation.visibilityTimeout(), "visibilityTimeout", 0, 43200),
+                    resolveInteger(sqsListenerAnnotation.waitTimeOut(), "waitTimeOut", 0, 20),
+                    resolveLong(sqsListenerAnnotation.backOffTime(), "backOffTime"));
+            if (sqsListenerAnnotation.batch()) {
+                mappingInformation.setBatchAggregation(resolveInteger(sqsListenerAnnotation.maxBatchSize(), "maxBatchSize", 1, Integer.MAX_VALUE),
+                        resolveLong(sqsListenerAnnotation.batchWindow(), "batchWindow"));
+            }
+            return mappingInformation;
         }
 
         MessageMapping messageMappingAnnotation = AnnotationUtils.findAnnotation(method, MessageMapping.class);
         if (messageMappingAnnotation != null && messageMappingAnnotation.value().length > 0) {
-            return new MappingInformation(resolveDestinationNames(messageMappingAnnotation.value()), SqsMessageDeletionPolicy.ALWAYS);
+            return new MappingInformation(resolveDestinationNames(messageMappingAnnotation.value()), SqsMessageDeletionPolicy.ALWAYS,
+                    false, requiresHeader(method, Acknowledgment.class), requiresHeader(method, Visibility.class));
         }
 
         return null;
@@ -136,6 +173,81 @@ public class QueueMessageHandler extends AbstractMethodMessageHandler<QueueMessa
         return true;
     }
 
+    /**
+     * Maps an empty array of attribute names to {@code null}, which means that the names configured on the container
+     * are used. The name {@code "None"} maps to an empty list, which means that no attribute is received.
+     */
+    private static List<String> getReceivingAttributeNames(String[] attributeNames) {
+        if (attributeNames.length == 0) {
+            return null;
+        }
+        if (attributeNames.length == 1 && NO_ATTRIBUTES.equals(attributeNames[0])) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(Arrays.asList(attributeNames));
+    }
+
+    /**
+     * Checks if a handler method may access a header of the given type. This is the case if the method declares a parameter
+     * of that type or a parameter that gives access to arbitrary headers. Custom argument resolvers and batch listeners
+     * could access any header, therefore the header is always considered to be required for them.
+     */
+    private boolean requiresHeader(Method method, Class<?> headerType) {
+        if (!getCustomArgumentResolvers().isEmpty()) {
+            return true;
+        }
+
+        for (int i = 0; i < method.getParameterCount(); i++) {
+            MethodParameter methodParameter = new MethodParameter(method, i);
+            Class<?> parameterType = methodParameter.getParameterType();
+            if (ClassUtils.isAssignable(headerType, parameterType) || ClassUtils.isAssignable(parameterType, headerType) ||
+                    Message.class.isAssignableFrom(parameterType) || MessageHeaders.class.isAssignableFrom(parameterType) ||
+                    Collection.class.isAssignableFrom(parameterType) || methodParameter.hasParameterAnnotation(Header.class) ||
+                    methodParameter.hasParameterAnnotation(Headers.class)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Resolves placeholders and expressions of a numeric annotation attribute and checks that the number is within the
+     * range SQS accepts for the attribute, so that an invalid value fails when the listener method is registered and
+     * not with the first receive request.
+     *
+     * @return the number or {@code null} if the attribute is empty
+     */
+    private Integer resolveInteger(String value, String attributeName, int minValue, int maxValue) {
+        Long resolvedValue = resolveLong(value, attributeName);
+        if (resolvedValue == null) {
+            return null;
+        }
+
+        Assert.isTrue(resolvedValue >= minValue && resolvedValue <= maxValue,
+                "The value of attribute '" + attributeName + "' must be between " + minValue + " and " + maxValue + " but was " + resolvedValue);
+        return resolvedValue.intValue();
+    }
+
+    /**
+     * Resolves placeholders and expressions of a numeric annotation attribute.
+     *
+     * @return the number or {@code null} if the attribute is empty
+     */
+    private Long resolveLong(String value, String attributeName) {
+        if (!StringUtils.hasText(value)) {
+            return null;
+        }
+
+        String[] resolvedValues = resolveName(value);
+        Assert.isTrue(resolvedValues.length == 1, "The value of attribute '" + attributeName + "' must resolve to a single number");
+        try {
+            return Long.valueOf(resolvedValues[0].trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("The value '" + resolvedValues[0] + "' of attribute '" + attributeName + "' is not a number", e);
+        }
+    }
+
     private Set<String> resolveDestinationNames(String[] destinationNames) {
         Set<String> result = new HashSet<>(destinationNames.length);
 
@@ -174,6 +286,105 @@ public class QueueMessageHandler extends AbstractMethodMessageHandler<QueueMessa
     }
 
 
+    /**
+     * Configures if the listener methods are invoked with argument resolvers that are selected once at startup instead
+     * of a reflective invocation that selects them for every message. Public methods of public classes with up to three
+     * parameters are called through a class generated by {@link java.lang.invoke.LambdaMetafactory}, other methods
+     * through a {@link java.lang.invoke.MethodHandle}. Listener methods whose parameters or return value can not be
+     * handled this way are still invoked reflectively.
+     *
+     * @param methodHandleInvocation
+     *         {@code true} to invoke the listener methods through method handles, {@code false} by default
+     * @since 2.1
+     */
+    public void setMethodHandleInvocation(boolean methodHandleInvocation) {
+        this.methodHandleInvocation = methodHandleInvocation;
+        this.dispatchTable = null;
+    }
+
+    public boolean isMethodHandleInvocation() {
+        return this.methodHandleInvocation;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        super.afterPropertiesSet();
+        this.dispatchTable = createDispatchTable();
+    }
+
+    @Override
+    protected void registerHandlerMethod(Object handler, Method method, MappingInformation mapping) {
+        super.registerHandlerMethod(handler, method, mapping);
+        this.dispatchTable = null;
+    }
+
+    /**
+     * Dispatches the message directly to the handler method of its logical queue. This avoids the generic matching of
+     * the superclass, whose cost grows with the number of listener methods, while the handler method receives the same
+     * headers as with the superclass. Messages of queues that are not mapped to exactly one handler method are
+     * dispatched by the superclass.
+     */
+    @Override
+    public void handleMessage(Message<?> message) throws MessagingException {
+        Object logicalResourceId = message.getHeaders().get(LOGICAL_RESOURCE_ID);
+        String lookupDestination = logicalResourceId != null ? getLookupDestination(logicalResourceId.toString()) : null;
+        HandlerMethodMatch handlerMethodMatch = lookupDestination != null ? getDispatchTable().get(lookupDestination) : null;
+        if (handlerMethodMatch == null) {
+            super.handleMessage(message);
+            return;
+        }
+
+        MessageHeaderAccessor headerAccessor = MessageHeaderAccessor.getMutableAccessor(message);
+        headerAccessor.setHeader(DestinationPatternsMessageCondition.LOOKUP_DESTINATION_HEADER, lookupDestination);
+        headerAccessor.setLeaveMutable(true);
+        message = MessageBuilder.createMessage(message.getPayload(), headerAccessor.getMessageHeaders());
+
+        if (handlerMethodMatch.getInvoker() != null) {
+            invoke(handlerMethodMatch.getInvoker(), message);
+        } else {
+            handleMatch(handlerMethodMatch.getMapping(), handlerMethodMatch.getHandlerMethod(), lookupDestination, message);
+        }
+        headerAccessor.setImmutable();
+    }
+
+    private void invoke(ListenerMethodInvoker invoker, Message<?> message) {
+        try {
+            invoker.invoke(message);
+        } catch (Exception e) {
+            processHandlerMethodException(invoker.getHandlerMethod(), e, message);
+        } catch (Throwable e) {
+            processHandlerMethodException(invoker.getHandlerMethod(),
+                    new MessageHandlingException(message, "Unexpected handler method invocation error", e), message);
+        }
+    }
+
+    private Map<String, HandlerMethodMatch> getDispatchTable() {
+        Map<String, HandlerMethodMatch> dispatchTable = this.dispatchTable;
+        if (dispatchTable == null) {
+            dispatchTable = createDispatchTable();
+            this.dispatchTable = dispatchTable;
+        }
+        return dispatchTable;
+    }
+
+    private Map<String, HandlerMethodMatch> createDispatchTable() {
+        Map<String, HandlerMethodMatch> dispatchTable = new HashMap<>();
+        Set<String> ambiguousLogicalResourceIds = new HashSet<>();
+        for (Map.Entry<MappingInformation, HandlerMethod> handlerMethod : getHandlerMethods().entrySet()) {
+            ListenerMethodInvoker invoker = this.methodHandleInvocation ? ListenerMethodInvoker.create(handlerMethod.getValue(),
+                    getArgumentResolvers(), getReturnValueHandlers(), getApplicationContext()) : null;
+            for (String logicalResourceId : handlerMethod.getKey().getLogicalResourceIds()) {
+                if (dispatchTable.put(logicalResourceId, new HandlerMethodMatch(handlerMethod.getKey(), handlerMethod.getValue(), invoker)) != null) {
+                    ambiguousLogicalResourceIds.add(logicalResourceId);
+                }
+            }
+        }
+
+        // The superclass reports ambiguous mappings
+        dispatchTable.keySet().removeAll(ambiguousLogicalResourceIds);
+        return Collections.unmodifiableMap(dispatchTable);
+    }
+
     @Override
     protected Set<String> getDirectLookupDestinations(MappingInformation mapping) {
         return mapping.getLogicalResourceIds();
@@ -233,9 +444,65 @@ public class QueueMessageHandler extends AbstractMethodMessageHandler<QueueMessa
 
         private final SqsMessageDeletionPolicy deletionPolicy;
 
+        private final boolean batch;
+
+        private final boolean acknowledgmentRequired;
+
+        private final boolean visibilityRequired;
+
+        private final List<String> attributeNames;
+
+        private final List<String> messageAttributeNames;
+
+        private Integer maxNumberOfMessages;
+
+        private Integer visibilityTimeout;
+
+        private Integer waitTimeOut;
+
+        private Long backOffTime;
+
+        private Integer maxBatchSize;
+
+        private Long batchWindow;
+
         public MappingInformation(Set<String> logicalResourceIds, SqsMessageDeletionPolicy deletionPolicy) {
+            this(logicalResourceIds, deletionPolicy, false);
+        }
+
+        public MappingInformation(Set<String> logicalResourceIds, SqsMessageDeletionPolicy deletionPolicy, boolean batch) {
+            this(logicalResourceIds, deletionPolicy, batch, true, true);
+        }
+
+        /**
+         * @param acknowledgmentRequired
+         *         {@code false} if the handler method never accesses the {@link Acknowledgment} of a message
+         * @param visibilityRequired
+         *         {@code false} if the handler method never accesses the {@link Visibility} of a message
+         * @since 2.1
+         */
+        public MappingInformation(Set<String> logicalResourceIds, SqsMessageDeletionPolicy deletionPolicy, boolean batch,
+                                  boolean acknowledgmentRequired, boolean visibilityRequired) {
+            this(logicalResourceIds, deletionPolicy, batch, acknowledgmentRequired, visibilityRequired, null, null);
+        }
+
+        /**
+         * @param attributeNames
+         *         the system attributes to receive or {@code null} to use the ones configured on the container
+         * @param messageAttributeNames
+         *         the message attributes to receive or {@code null} to use the ones configured on the container
+         * @since 2.1
+         */
+        public MappingInformation(Set<String> logicalResourceIds, SqsMessageDeletionPolicy deletionPolicy, boolean batch,
+                                  boolean acknowledgmentRequired, boolean visibilityRequired, List<String> attributeNames,
+                                  List<String> messageAttributeNames) {
             this.logicalResourceIds = Collections.unmodifiableSet(logicalResourceIds);
             this.deletionPolicy = deletionPolicy;
+            this.batch = batch;
+            this.acknowledgmentRequired = acknowledgmentRequired;
+            this.visibilityRequired = visibilityRequired;
+            this.attributeNames = attributeNames;
+            this.messageAttributeNames = messageAttributeNames;
         }
 
         public Set<String> getLogicalResourceIds() {
@@ -246,6 +513,83 @@ public class QueueMessageHandler extends AbstractMethodMessageHandler<QueueMessa
             return this.deletionPolicy;
         }
 
+        public boolean isBatch() {
+            return this.batch;
+        }
+
+        public boolean isAcknowledgmentRequired() {
+            return this.acknowledgmentRequired;
+        }
+
+        public boolean isVisibilityRequired() {
+            return this.visibilityRequired;
+        }
+
+        public List<String> getAttributeNames() {
+            return this.attributeNames;
+        }
+
+        public List<String> getMessageAttributeNames() {
+            return this.messageAttributeNames;
+        }
+
+        /**
+         * @return the maximum number of messages per receive request or {@code null} to use the container setting
+         */
+        public Integer getMaxNumberOfMessages() {
+            return this.maxNumberOfMessages;
+        }
+
+        /**
+         * @return the visibility timeout in seconds or {@code null} to use the container setting
+         */
+        public Integer getVisibilityTimeout() {
+            return this.visibilityTimeout;
+        }
+
+        /**
+         * @return the wait time of receive requests in seconds or {@code null} to use the container setting
+         */
+        public Integer getWaitTimeOut() {
+            return this.waitTimeOut;
+        }
+
+        /**
+         * @return the back off time in milliseconds after a failed receive request or {@code null} to use the
+         * container setting
+         */
+        public Long getBackOffTime() {
+            return this.backOffTime;
+        }
+
+        /**
+         * @return the maximum number of messages accumulated for a batch listener method or {@code null} if batches
+         * are not limited by size
+         */
+        public Integer getMaxBatchSize() {
+            return this.maxBatchSize;
+        }
+
+        /**
+         * @return the number of milliseconds messages are accumulated for a batch listener method or {@code null} if
+         * batches are not limited by time
+         */
+        public Long getBatchWindow() {
+            return this.batchWindow;
+        }
+
+        void setQueueSettings(Integer maxNumberOfMessages, Integer visibilityTimeout, Integer waitTimeOut, Long backOffTime) {
+            this.maxNumberOfMessages = maxNumberOfMessages;
+            this.visibilityTimeout = visibilityTimeout;
+            this.waitTimeOut = waitTimeOut;
+            this.backOffTime = backOffTime;
+        }
+
+        void setBatchAggregation(Integer maxBatchSize, Long batchWindow) {
+            this.maxBatchSize = maxBatchSize;
+            this.batchWindow = batchWindow;
+        }
+
         @SuppressWarnings("NullableProblems")
         @Override
         public int compareTo(MappingInformation o) {
@@ -253,6 +597,31 @@ public class QueueMessageHandler extends AbstractMethodMessageHandler<QueueMessa
         }
     }
 
+    private static final class HandlerMethodMatch {
+
+        private final MappingInformation mapping;
+        private final HandlerMethod handlerMethod;
+        private final ListenerMethodInvoker invoker;
+
+        private HandlerMethodMatch(MappingInformation mapping, HandlerMethod handlerMethod, ListenerMethodInvoker invoker) {
+            this.mapping = mapping;
+            this.handlerMethod = handlerMethod;
+            this.invoker = invoker;
+        }
+
+        private MappingInformation getMapping() {
+            return this.mapping;
+        }
+
+        private HandlerMethod getHandlerMethod() {
+            return this.handlerMethod;
+        }
+
+        private ListenerMethodInvoker getInvoker() {
+            return this.invoker;
+        }
+    }
+
     private static final class NoOpValidator implements Validator {
 
         @Override
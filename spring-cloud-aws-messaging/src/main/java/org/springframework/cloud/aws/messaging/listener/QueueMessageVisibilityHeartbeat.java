@@ -0,0 +1,199 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.aws.messaging.listener;
+
+import com.amazonaws.handlers.AsyncHandler;
+import com.amazonaws.services.sqs.AmazonSQSAsync;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequestEntry;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically extends the visibility timeout of messages that are still being processed, so that long-running
+ * listener methods do not have to call {@link Visibility#extend(int)} themselves. The receipt handles of the in-flight
+ * messages are tracked per queue url and extended with {@code ChangeMessageVisibilityBatch} requests of up to 10
+ * entries on every heartbeat.
+ *
+ * @since 2.1
+ */
+public class QueueMessageVisibilityHeartbeat implements DisposableBean {
+
+    /**
+     * The maximum number of entries SQS accepts in one {@code ChangeMessageVisibilityBatch} request.
+     */
+    public static final int MAX_BATCH_ENTRIES = 10;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(QueueMessageVisibilityHeartbeat.class);
+
+    private final AmazonSQSAsync amazonSqs;
+    private final int interval;
+    private final int visibilityTimeout;
+    private final ScheduledExecutorService heartbeatScheduler;
+    private final ConcurrentHashMap<String, Set<String>> inFlightReceiptHandlesByQueueUrl = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Integer> visibilityTimeoutsByQueueUrl = new ConcurrentHashMap<>();
+
+    /**
+     * @param amazonSqs
+     *         the client used to send the batch requests
+     * @param interval
+     *         the number of seconds between two heartbeats
+     * @param visibilityTimeout
+     *         the visibility timeout in seconds that is set on every heartbeat unless the queue has its own
+     *         visibility timeout, must be greater than the interval
+     */
+    public QueueMessageVisibilityHeartbeat(AmazonSQSAsync amazonSqs, int interval, int visibilityTimeout) {
+        Assert.notNull(amazonSqs, "amazonSqs must not be null");
+        Assert.isTrue(interval > 0, "interval must be a positive number");
+        Assert.isTrue(visibilityTimeout > interval, "visibilityTimeout must be greater than the interval");
+        this.amazonSqs = amazonSqs;
+        this.interval = interval;
+        this.visibilityTimeout = visibilityTimeout;
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(QueueMessageVisibilityHeartbeat.class.getSimpleName() + "-");
+        threadFactory.setDaemon(true);
+        this.heartbeatScheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        this.heartbeatScheduler.scheduleAtFixedRate(new Runnable() {
+
+            @Override
+            public void run() {
+                extendVisibilityOfInFlightMessages();
+            }
+        }, interval, interval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Sets the visibility timeout that is set on every heartbeat for the messages of the queue instead of the default
+     * visibility timeout of the heartbeat.
+     *
+     * @param queueUrl
+     *         the url of the queue
+     * @param visibilityTimeout
+     *         the visibility timeout in seconds, must be greater than the interval
+     */
+    public void setVisibilityTimeout(String queueUrl, int visibilityTimeout) {
+        Assert.isTrue(visibilityTimeout > this.interval, "visibilityTimeout must be greater than the interval");
+        this.visibilityTimeoutsByQueueUrl.put(queueUrl, visibilityTimeout);
+    }
+
+    /**
+     * Starts extending the visibility of the message until {@link #unregister(String, String)} is called.
+     *
+     * @param queueUrl
+     *         the url of the queue that contains the message
+     * @param receiptHandle
+     *         the receipt handle of the message
+     */
+    public void register(String queueUrl, String receiptHandle) {
+        Set<String> receiptHandles = this.inFlightReceiptHandlesByQueueUrl.get(queueUrl);
+        if (receiptHandles == null) {
+            Set<String> newReceiptHandles = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+            receiptHandles = this.inFlightReceiptHandlesByQueueUrl.putIfAbsent(queueUrl, newReceiptHandles);
+            if (receiptHandles == null) {
+                receiptHandles = newReceiptHandles;
+            }
+        }
+
+        receiptHandles.add(receiptHandle);
+    }
+
+    /**
+     * Stops extending the visibility of the message.
+     *
+     * @param queueUrl
+     *         the url of the queue that contains the message
+     * @param receiptHandle
+     *         the receipt handle of the message
+     */
+    public void unregister(String queueUrl, String receiptHandle) {
+        Set<String> receiptHandles = this.inFlightReceiptHandlesByQueueUrl.get(queueUrl);
+        if (receiptHandles != null) {
+            receiptHandles.remove(receiptHandle);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        this.heartbeatScheduler.shutdownNow();
+        this.inFlightReceiptHandlesByQueueUrl.clear();
+    }
+
+    void extendVisibilityOfInFlightMessages() {
+        for (Map.Entry<String, Set<String>> inFlightReceiptHandles : this.inFlightReceiptHandlesByQueueUrl.entrySet()) {
+            List<String> receiptHandles = new ArrayList<>(inFlightReceiptHandles.getValue());
+            Integer queueVisibilityTimeout = this.visibilityTimeoutsByQueueUrl.get(inFlightReceiptHandles.getKey());
+            int visibilityTimeout = queueVisibilityTimeout != null ? queueVisibilityTimeout : this.visibilityTimeout;
+            for (int start = 0; start < receiptHandles.size(); start += MAX_BATCH_ENTRIES) {
+                int end = Math.min(start + MAX_BATCH_ENTRIES, receiptHandles.size());
+                List<ChangeMessageVisibilityBatchRequestEntry> entries = new ArrayList<>(end - start);
+                for (int i = start; i < end; i++) {
+                    entries.add(new ChangeMessageVisibilityBatchRequestEntry(Integer.toString(i - start), receiptHandles.get(i))
+                            .withVisibilityTimeout(visibilityTimeout));
+                }
+
+                sendBatch(inFlightReceiptHandles.getKey(), entries);
+            }
+        }
+    }
+
+    private void sendBatch(String queueUrl, List<ChangeMessageVisibilityBatchRequestEntry> entries) {
+        try {
+            this.amazonSqs.changeMessageVisibilityBatchAsync(new ChangeMessageVisibilityBatchRequest(queueUrl, entries),
+                    new HeartbeatResultHandler(queueUrl));
+        } catch (RuntimeException e) {
+            LOGGER.warn("Extending the visibility of {} messages from queue '{}' failed", entries.size(), queueUrl, e);
+        }
+    }
+
+    private static final class HeartbeatResultHandler implements AsyncHandler<ChangeMessageVisibilityBatchRequest, ChangeMessageVisibilityBatchResult> {
+
+        private final String queueUrl;
+
+        private HeartbeatResultHandler(String queueUrl) {
+            this.queueUrl = queueUrl;
+        }
+
+        @Override
+        public void onError(Exception exception) {
+            LOGGER.warn("Extending the visibility of messages from queue '{}' failed", this.queueUrl, exception);
+        }
+
+        @Override
+        public void onSuccess(ChangeMessageVisibilityBatchRequest request, ChangeMessageVisibilityBatchResult result) {
+            // Entries fail regularly when a message has been deleted after the heartbeat collected its receipt handle
+            for (BatchResultErrorEntry failedEntry : result.getFailed()) {
+                LOGGER.debug("Extending the visibility of a message from queue '{}' failed with error code '{}': {}", this.queueUrl,
+                        failedEntry.getCode(), failedEntry.getMessage());
+            }
+        }
+    }
+}
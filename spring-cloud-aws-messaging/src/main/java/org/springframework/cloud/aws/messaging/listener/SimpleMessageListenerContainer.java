@@ -16,23 +16,53 @@
 
 package org.springframework.cloud.aws.messaging.listener;
 
-import com.amazonaws.services.sqs.model.DeleteMessageRequest;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequestEntry;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequest;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequestEntry;
 import com.amazonaws.services.sqs.model.Message;
+import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
 import com.amazonaws.services.sqs.model.ReceiveMessageResult;
 import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.support.GenericMessage;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.util.backoff.BackOff;
+import org.springframework.util.backoff.BackOffExecution;
+import org.springframework.util.backoff.FixedBackOff;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.ListenableFutureCallback;
+import org.springframework.util.concurrent.SettableListenableFuture;
 
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 import static org.springframework.cloud.aws.messaging.core.QueueMessageUtils.createMessage;
 
@@ -44,16 +74,59 @@ import static org.springframework.cloud.aws.messaging.core.QueueMessageUtils.cre
 public class SimpleMessageListenerContainer extends AbstractMessageListenerContainer {
 
     private static final int DEFAULT_WORKER_THREADS = 2;
+    private static final int DEFAULT_POLLER_COUNT = 1;
+    private static final int MAX_DELETE_MESSAGE_BATCH_ENTRIES = 10;
+    private static final String FIFO_QUEUE_SUFFIX = ".fifo";
+    private static final String MESSAGE_GROUP_ID_ATTRIBUTE = "MessageGroupId";
+    private static final long DEFAULT_BATCH_WINDOW = 1000;
+    private static final int BUFFERED_MESSAGE_HEARTBEATS_PER_VISIBILITY_TIMEOUT = 3;
+    private static final int DEFAULT_QUEUE_VISIBILITY_TIMEOUT = 30;
+    private static final double DEFAULT_PREFETCH_EXPIRY_FRACTION = 0.5;
     private static final String DEFAULT_THREAD_NAME_PREFIX =
             ClassUtils.getShortName(SimpleMessageListenerContainer.class) + "-";
 
     private boolean defaultTaskExecutor;
     private long backOffTime = 10000;
+    private BackOff backOff;
+    private Integer circuitBreakerFailureThreshold;
+    private long circuitBreakerOpenTimeout = 60000;
     private long queueStopTimeout = 10000;
+    private int pollerCount = DEFAULT_POLLER_COUNT;
+    private MessageDispatchMode messageDispatchMode = MessageDispatchMode.BATCH;
+    private Integer maxInFlightMessages;
+    private boolean virtualThreads;
+    private Long deleteMessageBatchMaxDelay;
+    private Integer visibilityHeartbeatInterval;
+    private MessageListenerContainerMetrics metrics;
+    private IdleQueuePollingStrategy idleQueuePollingStrategy;
+    private Map<String, TokenBucketRateLimiter> rateLimiters = Collections.emptyMap();
+    private Long drainTimeout;
+    private Map<String, Integer> queueWeights = Collections.emptyMap();
+    private Integer maxConcurrentMessages;
+    private Long processingTimeout;
+    private boolean visibilityTimeoutAsProcessingTimeout;
+    private Integer prefetchSize;
+    private double prefetchExpiryFraction = DEFAULT_PREFETCH_EXPIRY_FRACTION;
 
     private AsyncTaskExecutor taskExecutor;
-    private ConcurrentHashMap<String, Future<?>> scheduledFutureByQueue;
+    private QueueMessageDeletionAggregator deletionAggregator;
+    private QueueMessageDeleter messageDeleter;
+    private QueueMessageVisibilityHeartbeat visibilityHeartbeat;
+    private WeightedFairTaskScheduler weightedFairTaskScheduler;
+    private ProcessingTimeoutWatchdog processingTimeoutWatchdog;
+    private ScheduledExecutorService batchWindowScheduler;
+    private QueueMessageVisibilityHeartbeat bufferedMessageHeartbeat;
+    private ConcurrentHashMap<String, List<Future<?>>> scheduledFuturesByQueue;
     private ConcurrentHashMap<String, Boolean> runningStateByQueue;
+    private ConcurrentHashMap<String, Semaphore> inFlightPermitsByQueue;
+    private ConcurrentHashMap<String, MessageGroupDispatcher> messageGroupDispatchersByQueue;
+    private ConcurrentHashMap<String, PollingCircuitBreaker> circuitBreakersByQueue;
+    private ConcurrentHashMap<String, AtomicInteger> consecutiveEmptyReceivesByQueue;
+    private ConcurrentHashMap<String, Long> processingTimeoutsByQueue;
+    private ConcurrentHashMap<String, MessageBatchAggregator> messageBatchAggregatorsByQueue;
+    private ConcurrentHashMap<String, MessagePrefetchBuffer> prefetchBuffersByQueue;
+    private final AtomicInteger inFlightMessageCount = new AtomicInteger();
+    private final Object inFlightMessageMonitor = new Object();
 
     protected AsyncTaskExecutor getTaskExecutor() {
         return this.taskExecutor;
@@ -82,6 +155,68 @@ public class SimpleMessageListenerContainer extends AbstractMessageListenerConta
         this.backOffTime = backOffTime;
     }
 
+    /**
+     * @return The back off used by the polling threads after an error occurred or {@code null} if a fixed back off of
+     * {@link #getBackOffTime()} milliseconds is used.
+     */
+    public BackOff getBackOff() {
+        return this.backOff;
+    }
+
+    /**
+     * Configures the back off used by the polling threads after an error occurred (e.g. connection timeout). Every
+     * poller starts a new {@link BackOffExecution} after a successful poll, so that consecutive errors increase the
+     * back off period and a success resets it. A {@link JitteredExponentialBackOff} recovers quickly from transient
+     * errors while spreading the retries of many application instances during longer outages. If the execution
+     * returns {@link BackOffExecution#STOP}, the queue is stopped. If not set, a fixed back off of
+     * {@link #setBackOffTime(long) backOffTime} milliseconds is used.
+     *
+     * @param backOff
+     *         the back off or {@code null} to use the fixed back off time
+     */
+    public void setBackOff(BackOff backOff) {
+        this.backOff = backOff;
+    }
+
+    /**
+     * @return The number of consecutive polling errors after which the polling of a queue is suspended or {@code null}
+     * if the circuit breaker is disabled.
+     */
+    public Integer getCircuitBreakerFailureThreshold() {
+        return this.circuitBreakerFailureThreshold;
+    }
+
+    /**
+     * Enables a circuit breaker per queue that suspends the polling of all pollers of the queue after the given number
+     * of consecutive polling errors. After the {@link #setCircuitBreakerOpenTimeout(long) open timeout} a single
+     * poller probes the queue and resumes the polling of all pollers if it succeeds. Default is {@code null}, which
+     * disables the circuit breaker.
+     *
+     * @param circuitBreakerFailureThreshold
+     *         the number of consecutive errors or {@code null} to disable the circuit breaker
+     */
+    public void setCircuitBreakerFailureThreshold(Integer circuitBreakerFailureThreshold) {
+        this.circuitBreakerFailureThreshold = circuitBreakerFailureThreshold;
+    }
+
+    /**
+     * @return The number of milliseconds the polling of a queue is suspended once its circuit breaker opened.
+     */
+    public long getCircuitBreakerOpenTimeout() {
+        return this.circuitBreakerOpenTimeout;
+    }
+
+    /**
+     * The number of milliseconds the polling of a queue is suspended once its circuit breaker opened, before a single
+     * poller probes the queue again. Default is 60000 milliseconds.
+     *
+     * @param circuitBreakerOpenTimeout
+     *         in milliseconds
+     */
+    public void setCircuitBreakerOpenTimeout(long circuitBreakerOpenTimeout) {
+        this.circuitBreakerOpenTimeout = circuitBreakerOpenTimeout;
+    }
+
     /**
      * @return The number of milliseconds the {@link SimpleMessageListenerContainer#stop(String)} method waits for a queue
      * to stop before interrupting the current thread. Default value is 10000 milliseconds (10 seconds).
@@ -101,6 +236,350 @@ public class SimpleMessageListenerContainer extends AbstractMessageListenerConta
         this.queueStopTimeout = queueStopTimeout;
     }
 
+    /**
+     * @return The number of polling threads that are started for each queue. Default value is 1.
+     */
+    public int getPollerCount() {
+        return this.pollerCount;
+    }
+
+    /**
+     * Configures the number of independent polling threads that receive messages for each queue. Every poller
+     * issues its own receive requests against the same queue url, so increasing this value raises the maximum
+     * receive throughput of a queue beyond one batch of {@code maxNumberOfMessages} per handler round-trip.
+     * Default value is 1.
+     *
+     * @param pollerCount
+     *         the number of pollers per queue, must be a positive number
+     */
+    public void setPollerCount(int pollerCount) {
+        Assert.isTrue(pollerCount > 0, "pollerCount must be a positive number");
+        this.pollerCount = pollerCount;
+    }
+
+    /**
+     * @return The mode used to dispatch received messages to the task executor. Default is
+     * {@link MessageDispatchMode#BATCH}.
+     */
+    public MessageDispatchMode getMessageDispatchMode() {
+        return this.messageDispatchMode;
+    }
+
+    /**
+     * Configures how received messages are dispatched to the task executor. With {@link MessageDispatchMode#BATCH}
+     * (the default) a poller waits until all messages of a batch have been processed before it receives the next
+     * batch. With {@link MessageDispatchMode#CONTINUOUS} a poller receives the next batch as soon as the queue has
+     * enough free capacity, as defined by {@link #setMaxInFlightMessages(Integer)}.
+     *
+     * @param messageDispatchMode
+     *         the dispatch mode, must not be null
+     */
+    public void setMessageDispatchMode(MessageDispatchMode messageDispatchMode) {
+        Assert.notNull(messageDispatchMode, "messageDispatchMode must not be null");
+        this.messageDispatchMode = messageDispatchMode;
+    }
+
+    /**
+     * @return The maximum number of messages per queue that are received but not yet completely processed.
+     */
+    public Integer getMaxInFlightMessages() {
+        return this.maxInFlightMessages;
+    }
+
+    /**
+     * Configures the maximum number of messages per queue that can be received but not yet completely processed. All
+     * pollers of a queue share this limit and a poller only requests as many messages as the limit of its queue still
+     * allows, so that a busy queue can not occupy all threads of a shared task executor. With the
+     * {@link MessageDispatchMode#CONTINUOUS} dispatch mode twice the number of messages requested by all pollers of a
+     * queue during one poll is used if not set, so that the next receive request can overlap with the processing of
+     * the previous batch. With the {@link MessageDispatchMode#BATCH} dispatch mode there is no limit if not set. If
+     * the task executor is a {@link ThreadPoolTaskExecutor}, the limit is lowered to the number of tasks it can accept
+     * besides the pollers. Messages the task executor rejects nonetheless are made visible again immediately.
+     *
+     * @param maxInFlightMessages
+     *         the maximum number of in-flight messages per queue
+     */
+    public void setMaxInFlightMessages(Integer maxInFlightMessages) {
+        this.maxInFlightMessages = maxInFlightMessages;
+    }
+
+    public boolean isVirtualThreads() {
+        return this.virtualThreads;
+    }
+
+    /**
+     * Configures the default task executor to run the pollers and the message executions on virtual threads. This
+     * setting is only used if no custom task executor has been set and the JVM supports virtual threads, otherwise the
+     * default thread pool is created. Default value is {@code false}.
+     *
+     * @param virtualThreads
+     *         {@code true} to use virtual threads if they are available
+     */
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    /**
+     * @return The maximum number of milliseconds a message deletion is delayed to be sent as part of a
+     * {@code DeleteMessageBatch} request or {@code null} if messages are deleted one by one.
+     */
+    public Long getDeleteMessageBatchMaxDelay() {
+        return this.deleteMessageBatchMaxDelay;
+    }
+
+    /**
+     * Enables the aggregation of message deletions into {@code DeleteMessageBatch} requests, which reduces the number
+     * of calls to SQS by up to a factor of 10. Deletions of the same queue are sent as soon as 10 of them are pending or
+     * the specified number of milliseconds has elapsed since the first one was requested. This applies to the deletions
+     * triggered by the {@link SqsMessageDeletionPolicy} as well as to {@link Acknowledgment#acknowledge()}. Pending
+     * deletions are sent when the container is stopped. Default is {@code null}, which deletes every message with its
+     * own request.
+     *
+     * @param deleteMessageBatchMaxDelay
+     *         in milliseconds or {@code null} to disable the aggregation
+     */
+    public void setDeleteMessageBatchMaxDelay(Long deleteMessageBatchMaxDelay) {
+        this.deleteMessageBatchMaxDelay = deleteMessageBatchMaxDelay;
+    }
+
+    /**
+     * @return The number of seconds between two visibility timeout extensions of the messages that are being processed
+     * or {@code null} if the visibility timeout is not extended automatically.
+     */
+    public Integer getVisibilityHeartbeatInterval() {
+        return this.visibilityHeartbeatInterval;
+    }
+
+    /**
+     * Enables a heartbeat that extends the visibility timeout of all messages that are still being processed every
+     * given number of seconds. This allows a short visibility timeout on the queue, so that messages of a crashed
+     * application are redelivered quickly, while listener methods can still run longer than the visibility timeout.
+     * On every heartbeat the visibility timeout is set to twice the interval or to the visibility timeout of the queue
+     * if it is greater, which is configured on the listener method or with {@link #setVisibilityTimeout(Integer)}.
+     * Default is {@code null}, which does not extend the visibility timeout.
+     *
+     * @param visibilityHeartbeatInterval
+     *         in seconds or {@code null} to disable the heartbeat
+     */
+    public void setVisibilityHeartbeatInterval(Integer visibilityHeartbeatInterval) {
+        this.visibilityHeartbeatInterval = visibilityHeartbeatInterval;
+    }
+
+    /**
+     * @return the callback through which the container reports receives, message processing and errors or
+     * {@code null} if the container is not instrumented.
+     */
+    public MessageListenerContainerMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * Configures a callback through which the container reports the duration of receive requests, the processing of
+     * messages, failed deletions and rejected executions, e.g. a
+     * {@link org.springframework.cloud.aws.messaging.listener.metrics.MicrometerMessageListenerContainerMetrics}.
+     * Default is {@code null}, which disables the instrumentation.
+     *
+     * @param metrics
+     *         the callback or {@code null} to disable the instrumentation
+     */
+    public void setMetrics(MessageListenerContainerMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return the strategy that slows down the polling of idle queues or {@code null} if idle queues are polled
+     * continuously.
+     */
+    public IdleQueuePollingStrategy getIdleQueuePollingStrategy() {
+        return this.idleQueuePollingStrategy;
+    }
+
+    /**
+     * Configures a strategy that pauses the pollers of a queue after consecutive empty receives, e.g. an
+     * {@link ExponentialIdleQueuePollingStrategy}. The pause ends as soon as a poller of the queue receives a message
+     * again. Default is {@code null}, which polls every queue continuously.
+     *
+     * @param idleQueuePollingStrategy
+     *         the strategy or {@code null} to poll continuously
+     */
+    public void setIdleQueuePollingStrategy(IdleQueuePollingStrategy idleQueuePollingStrategy) {
+        this.idleQueuePollingStrategy = idleQueuePollingStrategy;
+    }
+
+    /**
+     * @return the rate limiters by logical queue name
+     */
+    public Map<String, TokenBucketRateLimiter> getRateLimiters() {
+        return this.rateLimiters;
+    }
+
+    /**
+     * Configures rate limiters by logical queue name, i.e. the queue name as defined on the listener method. The
+     * pollers of a rate limited queue request only as many messages as the limiter permits, so that messages beyond
+     * the rate stay in the queue. Queues without a rate limiter are not limited.
+     *
+     * @param rateLimiters
+     *         the rate limiters keyed by logical queue name
+     */
+    public void setRateLimiters(Map<String, TokenBucketRateLimiter> rateLimiters) {
+        Assert.notNull(rateLimiters, "rateLimiters must not be null");
+        this.rateLimiters = rateLimiters;
+    }
+
+    /**
+     * @return the number of milliseconds the container waits for in-flight messages when it is stopped or {@code null}
+     * if the drain mode is disabled.
+     */
+    public Long getDrainTimeout() {
+        return this.drainTimeout;
+    }
+
+    /**
+     * Enables the drain mode. In drain mode, stopping the container waits up to the drain timeout for the listener
+     * methods that are already executing once the pollers stopped. Messages that were received but not yet dispatched
+     * when the container or a queue is stopped are made visible again immediately, so that another instance can
+     * process them without waiting for the visibility timeout to expire. Default is {@code null}, which does not wait
+     * for in-flight messages and leaves undispatched messages invisible.
+     *
+     * @param drainTimeout
+     *         in milliseconds or {@code null} to disable the drain mode
+     */
+    public void setDrainTimeout(Long drainTimeout) {
+        this.drainTimeout = drainTimeout;
+    }
+
+    /**
+     * @return the weights by logical queue name
+     */
+    public Map<String, Integer> getQueueWeights() {
+        return this.queueWeights;
+    }
+
+    /**
+     * Enables the weighted fair scheduling of the message executions of all queues. The received messages of a queue
+     * wait in a work queue of their own and the executions are shared between the queues that have messages waiting
+     * in proportion to their weights, so that a queue with a high load can not occupy all workers and delay the
+     * messages of the other queues. Queues without a weight have the weight 1. Default is an empty map, which executes
+     * every message as soon as it is received.
+     *
+     * @param queueWeights
+     *         the positive weights keyed by logical queue name
+     */
+    public void setQueueWeights(Map<String, Integer> queueWeights) {
+        Assert.notNull(queueWeights, "queueWeights must not be null");
+        this.queueWeights = queueWeights;
+    }
+
+    /**
+     * @return the maximum number of messages of all queues that are executed at the same time when weighted fair
+     * scheduling is enabled or {@code null} if the number is derived from the queue configuration.
+     */
+    public Integer getMaxConcurrentMessages() {
+        return this.maxConcurrentMessages;
+    }
+
+    /**
+     * Configures the maximum number of messages of all queues that are executed at the same time if weighted fair
+     * scheduling has been enabled with {@link #setQueueWeights(Map)}. Messages beyond this number wait in the work
+     * queue of their queue until the scheduler selects them. Default is {@code null}, which uses the number of messages
+     * all pollers of all queues can have in flight, i.e. the number of worker threads of the default task executor.
+     *
+     * @param maxConcurrentMessages
+     *         the maximum number of concurrently executed messages
+     */
+    public void setMaxConcurrentMessages(Integer maxConcurrentMessages) {
+        this.maxConcurrentMessages = maxConcurrentMessages;
+    }
+
+    /**
+     * @return the processing timeout in milliseconds or {@code null} if the processing time is not limited
+     * explicitly.
+     */
+    public Long getProcessingTimeout() {
+        return this.processingTimeout;
+    }
+
+    /**
+     * Configures the maximum number of milliseconds a listener method may process a message or a batch of messages.
+     * When the timeout expires, the thread that invokes the listener method is interrupted and a pending asynchronous
+     * result is cancelled. The messages are not deleted regardless of the deletion policy, because SQS may already
+     * have delivered them to another consumer, and the timeout is reported to the
+     * {@link MessageListenerContainerMetrics}. Default is {@code null}, which does not limit the processing time.
+     *
+     * @param processingTimeout
+     *         in milliseconds or {@code null} to not limit the processing time
+     * @see #setVisibilityTimeoutAsProcessingTimeout(boolean)
+     */
+    public void setProcessingTimeout(Long processingTimeout) {
+        this.processingTimeout = processingTimeout;
+    }
+
+    public boolean isVisibilityTimeoutAsProcessingTimeout() {
+        return this.visibilityTimeoutAsProcessingTimeout;
+    }
+
+    /**
+     * Configures the visibility timeout of every queue as its processing timeout if no explicit
+     * {@link #setProcessingTimeout(Long) processing timeout} is set, so that a message is not processed any more once
+     * SQS may redeliver it. The visibility timeout configured on the listener method or the container is used if it is
+     * set, otherwise the visibility timeout of the queue is looked up when the container is initialized. The timeout
+     * starts when the processing of a message starts and not when it is received. This setting has no effect if the
+     * {@link #setVisibilityHeartbeatInterval(Integer) visibility heartbeat} is enabled, which keeps extending the
+     * visibility of messages being processed. Default is {@code false}.
+     *
+     * @param visibilityTimeoutAsProcessingTimeout
+     *         {@code true} to limit the processing time by the visibility timeout
+     */
+    public void setVisibilityTimeoutAsProcessingTimeout(boolean visibilityTimeoutAsProcessingTimeout) {
+        this.visibilityTimeoutAsProcessingTimeout = visibilityTimeoutAsProcessingTimeout;
+    }
+
+    /**
+     * @return the maximum number of messages per queue that are received ahead of demand or {@code null} if messages
+     * are only received when they can be dispatched.
+     */
+    public Integer getPrefetchSize() {
+        return this.prefetchSize;
+    }
+
+    /**
+     * Enables a prefetch buffer per queue with the {@link MessageDispatchMode#CONTINUOUS} dispatch mode. The pollers
+     * keep up to the given number of messages received ahead of demand and a completing message execution dispatches
+     * the next buffered message immediately, so that the latency of the receive requests is not on the path between two
+     * executions. Buffered messages that were not dispatched within the
+     * {@link #setPrefetchExpiryFraction(double) expiry fraction} of their visibility timeout are returned to the queue,
+     * as are the buffered messages of a stopped queue. Queues of batch listener methods and FIFO queues are not
+     * prefetched. Default is {@code null}, which disables the prefetching.
+     *
+     * @param prefetchSize
+     *         the maximum number of buffered messages per queue or {@code null} to disable the prefetching
+     */
+    public void setPrefetchSize(Integer prefetchSize) {
+        this.prefetchSize = prefetchSize;
+    }
+
+    public double getPrefetchExpiryFraction() {
+        return this.prefetchExpiryFraction;
+    }
+
+    /**
+     * Configures the fraction of the visibility timeout after which a prefetched message that has not been dispatched
+     * is returned to the queue instead, leaving the rest of the visibility timeout for its processing. The visibility
+     * timeout configured on the listener method or the container is used if it is set, otherwise the visibility timeout
+     * of the queue is looked up when the container is initialized. Default is {@code 0.5}.
+     *
+     * @param prefetchExpiryFraction
+     *         a fraction greater than 0 and at most 1
+     */
+    public void setPrefetchExpiryFraction(double prefetchExpiryFraction) {
+        Assert.isTrue(prefetchExpiryFraction > 0 && prefetchExpiryFraction <= 1, "prefetchExpiryFraction must be greater than 0 and at most 1");
+        this.prefetchExpiryFraction = prefetchExpiryFraction;
+    }
+
+    private TokenBucketRateLimiter getRateLimiter(String logicalQueueName) {
+        return this.rateLimiters.get(logicalQueueName);
+    }
+
     @Override
     protected void initialize() {
         super.initialize();
@@ -110,278 +589,1742 @@ public class SimpleMessageListenerContainer extends AbstractMessageListenerConta
             this.taskExecutor = createDefaultTaskExecutor();
         }
 
+        if (this.metrics != null) {
+            this.metrics.bindTaskExecutor(this.taskExecutor);
+            for (Map.Entry<String, TokenBucketRateLimiter> rateLimiter : this.rateLimiters.entrySet()) {
+                this.metrics.bindRateLimiter(rateLimiter.getKey(), rateLimiter.getValue());
+            }
+        }
+
+        if (this.deleteMessageBatchMaxDelay != null && this.deletionAggregator == null) {
+            this.deletionAggregator = new QueueMessageDeletionAggregator(getAmazonSqs(), this.deleteMessageBatchMaxDelay);
+        }
+        this.messageDeleter = new QueueMessageDeleter(getAmazonSqs(), this.deletionAggregator, this.metrics);
+
+        if (this.visibilityHeartbeatInterval != null && this.visibilityHeartbeat == null) {
+            int heartbeatVisibilityTimeout = 2 * this.visibilityHeartbeatInterval;
+            this.visibilityHeartbeat = new QueueMessageVisibilityHeartbeat(getAmazonSqs(), this.visibilityHeartbeatInterval, heartbeatVisibilityTimeout);
+            for (QueueAttributes queueAttributes : getRegisteredQueues().values()) {
+                if (queueAttributes.getVisibilityTimeout() != null && queueAttributes.getVisibilityTimeout() > heartbeatVisibilityTimeout) {
+                    this.visibilityHeartbeat.setVisibilityTimeout(queueAttributes.getDestinationUrl(), queueAttributes.getVisibilityTimeout());
+                }
+            }
+        }
+
         initializeRunningStateByQueue();
-        this.scheduledFutureByQueue = new ConcurrentHashMap<>(getRegisteredQueues().size());
+        initializeInFlightPermitsByQueue();
+        initializeWeightedFairTaskScheduler();
+        initializeMessageGroupDispatchersByQueue();
+        initializeMessageBatchAggregatorsByQueue();
+        initializePrefetchBuffersByQueue();
+        initializeCircuitBreakersByQueue();
+        initializeConsecutiveEmptyReceivesByQueue();
+        initializeProcessingTimeoutsByQueue();
+        this.scheduledFuturesByQueue = new ConcurrentHashMap<>(getRegisteredQueues().size());
     }
 
-    private void initializeRunningStateByQueue() {
-        this.runningStateByQueue = new ConcurrentHashMap<>(getRegisteredQueues().size());
+    private void initializeConsecutiveEmptyReceivesByQueue() {
+        this.consecutiveEmptyReceivesByQueue = new ConcurrentHashMap<>(getRegisteredQueues().size());
         for (String queueName : getRegisteredQueues().keySet()) {
-            this.runningStateByQueue.put(queueName, false);
+            this.consecutiveEmptyReceivesByQueue.put(queueName, new AtomicInteger());
         }
     }
 
-    @Override
-    protected void doStart() {
-        synchronized (this.getLifecycleMonitor()) {
-            scheduleMessageListeners();
+    private void initializeProcessingTimeoutsByQueue() {
+        this.processingTimeoutsByQueue = new ConcurrentHashMap<>(getRegisteredQueues().size());
+        for (Map.Entry<String, QueueAttributes> registeredQueue : getRegisteredQueues().entrySet()) {
+            Long queueProcessingTimeout = getProcessingTimeout(registeredQueue.getValue());
+            if (queueProcessingTimeout != null) {
+                this.processingTimeoutsByQueue.put(registeredQueue.getKey(), queueProcessingTimeout);
+            }
+        }
+
+        if (!this.processingTimeoutsByQueue.isEmpty() && this.processingTimeoutWatchdog == null) {
+            this.processingTimeoutWatchdog = new ProcessingTimeoutWatchdog();
+        }
+    }
+
+    private Long getProcessingTimeout(QueueAttributes queueAttributes) {
+        if (this.processingTimeout != null) {
+            return this.processingTimeout;
+        }
+
+        if (!this.visibilityTimeoutAsProcessingTimeout || this.visibilityHeartbeatInterval != null) {
+            return null;
         }
+
+        return getVisibilityTimeoutMillis(queueAttributes);
+    }
+
+    /**
+     * @return the visibility timeout of the received messages in milliseconds as configured on the listener method or
+     * the container, otherwise as looked up from the queue when it was registered, or {@code null} if the queue did not
+     * return it
+     */
+    private static Long getVisibilityTimeoutMillis(QueueAttributes queueAttributes) {
+        Integer visibilityTimeout = queueAttributes.getVisibilityTimeout() != null ? queueAttributes.getVisibilityTimeout() :
+                queueAttributes.getQueueVisibilityTimeout();
+        return visibilityTimeout != null ? TimeUnit.SECONDS.toMillis(visibilityTimeout) : null;
     }
 
+    /**
+     * The visibility timeout of a queue is used as processing timeout, as expiry delay of prefetched messages and to
+     * derive the heartbeat interval of messages buffered for a batch listener method.
+     */
     @Override
-    protected void doStop() {
-        notifyRunningQueuesToStop();
-        waitForRunningQueuesToStop();
+    protected boolean isQueueVisibilityTimeoutRequired(QueueAttributes queueAttributes) {
+        if (this.visibilityHeartbeatInterval == null &&
+                ((this.processingTimeout == null && this.visibilityTimeoutAsProcessingTimeout) || queueAttributes.isBatchAggregation())) {
+            return true;
+        }
+
+        return this.prefetchSize != null && getMessageDispatchMode() == MessageDispatchMode.CONTINUOUS &&
+                !queueAttributes.isBatchListener() && !isFifoQueue(queueAttributes);
     }
 
-    private void notifyRunningQueuesToStop() {
-        for (Map.Entry<String, Boolean> runningStateByQueue : this.runningStateByQueue.entrySet()) {
-            if (runningStateByQueue.getValue()) {
-                stopQueue(runningStateByQueue.getKey());
+    private void initializePrefetchBuffersByQueue() {
+        this.prefetchBuffersByQueue = new ConcurrentHashMap<>();
+        if (this.prefetchSize == null || getMessageDispatchMode() != MessageDispatchMode.CONTINUOUS) {
+            return;
+        }
+
+        for (Map.Entry<String, QueueAttributes> registeredQueue : getRegisteredQueues().entrySet()) {
+            QueueAttributes queueAttributes = registeredQueue.getValue();
+            if (queueAttributes.isBatchListener() || isFifoQueue(queueAttributes)) {
+                continue;
+            }
+
+            Long visibilityTimeout = getVisibilityTimeoutMillis(queueAttributes);
+            if (visibilityTimeout == null) {
+                visibilityTimeout = TimeUnit.SECONDS.toMillis(DEFAULT_QUEUE_VISIBILITY_TIMEOUT);
+            }
+            long expiryDelay = Math.max(1, (long) (visibilityTimeout * this.prefetchExpiryFraction));
+            this.prefetchBuffersByQueue.put(registeredQueue.getKey(), new MessagePrefetchBuffer(this.prefetchSize, expiryDelay));
+        }
+    }
+
+    /**
+     * Dispatches buffered messages as long as the queue has free in-flight permits. Every dispatched message dispatches
+     * the next buffered message when its execution completes. Expired messages are returned to the queue.
+     */
+    private void dispatchPrefetchedMessages(final String logicalQueueName) {
+        MessagePrefetchBuffer prefetchBuffer = this.prefetchBuffersByQueue.get(logicalQueueName);
+        Semaphore inFlightPermits = this.inFlightPermitsByQueue.get(logicalQueueName);
+        QueueAttributes queueAttributes = getRegisteredQueues().get(logicalQueueName);
+        List<Message> expiredMessages = new ArrayList<>();
+        List<Message> rejectedMessages = new ArrayList<>();
+        try {
+            while (Boolean.TRUE.equals(this.runningStateByQueue.get(logicalQueueName)) && inFlightPermits.tryAcquire()) {
+                Message message = prefetchBuffer.poll(expiredMessages, System.currentTimeMillis());
+                if (message == null) {
+                    inFlightPermits.release();
+                    return;
+                }
+
+                MessageExecutor messageExecutor = new MessageExecutor(logicalQueueName, message, queueAttributes);
+                try {
+                    getMessageExecutor(logicalQueueName).execute(new PermitReleasingRunnable(inFlightPermits, 1, messageExecutor, new Runnable() {
+
+                        @Override
+                        public void run() {
+                            dispatchPrefetchedMessagesAfterCompletion(logicalQueueName);
+                        }
+                    }));
+                } catch (RejectedExecutionException e) {
+                    // The remaining messages stay buffered until a running execution completes
+                    inFlightPermits.release();
+                    rejectedMessages.add(message);
+                    return;
+                } catch (RuntimeException e) {
+                    inFlightPermits.release();
+                    expiredMessages.add(message);
+                    throw e;
+                }
+            }
+        } finally {
+            returnMessagesToQueue(logicalQueueName, queueAttributes.getDestinationUrl(), expiredMessages);
+            returnRejectedMessages(logicalQueueName, queueAttributes.getDestinationUrl(), rejectedMessages);
+        }
+    }
+
+    private void dispatchPrefetchedMessagesAfterCompletion(String logicalQueueName) {
+        try {
+            dispatchPrefetchedMessages(logicalQueueName);
+        } catch (RuntimeException e) {
+            // The pollers of the queue dispatch the remaining messages
+            getLogger().debug("Dispatching the next prefetched message of queue '{}' failed", logicalQueueName, e);
+        }
+    }
+
+    /**
+     * Returns all buffered messages of the queue to the queue.
+     */
+    private void releasePrefetchedMessages(String logicalQueueName) {
+        MessagePrefetchBuffer prefetchBuffer = this.prefetchBuffersByQueue.get(logicalQueueName);
+        if (prefetchBuffer != null) {
+            returnMessagesToQueue(logicalQueueName, getRegisteredQueues().get(logicalQueueName).getDestinationUrl(), prefetchBuffer.removeAll());
+        }
+    }
+
+    private void initializeInFlightPermitsByQueue() {
+        this.inFlightPermitsByQueue = new ConcurrentHashMap<>(getRegisteredQueues().size());
+        if (getMessageDispatchMode() == MessageDispatchMode.BATCH && this.maxInFlightMessages == null) {
+            return;
+        }
+
+        Integer taskExecutorCapacity = getTaskExecutorCapacity();
+        for (Map.Entry<String, QueueAttributes> registeredQueue : getRegisteredQueues().entrySet()) {
+            int maxInFlightMessages = getMaxInFlightMessages(registeredQueue.getValue());
+            if (taskExecutorCapacity != null && taskExecutorCapacity < maxInFlightMessages) {
+                getLogger().debug("Limited the in-flight messages of queue '{}' to the {} message executions the task executor can accept",
+                        registeredQueue.getKey(), taskExecutorCapacity);
+                maxInFlightMessages = taskExecutorCapacity;
+            }
+            this.inFlightPermitsByQueue.put(registeredQueue.getKey(), new Semaphore(maxInFlightMessages));
+        }
+    }
+
+    /**
+     * @return the number of message executions a {@link ThreadPoolTaskExecutor} can accept besides the pollers of all
+     * queues, or {@code null} if the capacity of the task executor is not known
+     */
+    private Integer getTaskExecutorCapacity() {
+        if (!(this.taskExecutor instanceof ThreadPoolTaskExecutor)) {
+            return null;
+        }
+
+        ThreadPoolExecutor threadPoolExecutor;
+        try {
+            threadPoolExecutor = ((ThreadPoolTaskExecutor) this.taskExecutor).getThreadPoolExecutor();
+        } catch (IllegalStateException e) {
+            // The task executor has not been initialized yet
+            return null;
+        }
+
+        long capacity = (long) threadPoolExecutor.getMaximumPoolSize() + threadPoolExecutor.getQueue().remainingCapacity()
+                - (long) getPollerCount() * getRegisteredQueues().size();
+        return (int) Math.max(1, Math.min(capacity, Integer.MAX_VALUE));
+    }
+
+    private void initializeWeightedFairTaskScheduler() {
+        if (this.weightedFairTaskScheduler != null) {
+            this.weightedFairTaskScheduler.destroy();
+        }
+
+        if (this.queueWeights.isEmpty()) {
+            this.weightedFairTaskScheduler = null;
+            return;
+        }
+
+        int maxConcurrentTasks;
+        if (this.maxConcurrentMessages != null) {
+            maxConcurrentTasks = this.maxConcurrentMessages;
+        } else {
+            maxConcurrentTasks = 0;
+            for (QueueAttributes queueAttributes : getRegisteredQueues().values()) {
+                maxConcurrentTasks += this.maxInFlightMessages != null ? this.maxInFlightMessages : getPollerCount() * queueAttributes.getMaxNumberOfMessages();
+            }
+        }
+        this.weightedFairTaskScheduler = new WeightedFairTaskScheduler(this.taskExecutor, Math.max(maxConcurrentTasks, 1), this.queueWeights);
+    }
+
+    /**
+     * @return the executor for the message executions of the queue, which is the task executor or the work queue of
+     * the queue if weighted fair scheduling is enabled.
+     */
+    private Executor getMessageExecutor(String logicalQueueName) {
+        if (this.weightedFairTaskScheduler != null) {
+            return this.weightedFairTaskScheduler.getExecutor(logicalQueueName);
+        }
+
+        return getTaskExecutor();
+    }
+
+    /**
+     * Creates a {@link MessageGroupDispatcher} for every FIFO queue, so that messages of the same message group are
+     * processed in order while different message groups are processed in parallel. Batch listener methods process the
+     * messages of a batch in order anyway and do not need a dispatcher.
+     */
+    private void initializeMessageGroupDispatchersByQueue() {
+        this.messageGroupDispatchersByQueue = new ConcurrentHashMap<>();
+        for (Map.Entry<String, QueueAttributes> registeredQueue : getRegisteredQueues().entrySet()) {
+            QueueAttributes queueAttributes = registeredQueue.getValue();
+            if (isFifoQueue(queueAttributes) && !queueAttributes.isBatchListener()) {
+                this.messageGroupDispatchersByQueue.put(registeredQueue.getKey(), new MessageGroupDispatcher(getMessageExecutor(registeredQueue.getKey())));
+            }
+        }
+    }
+
+    /**
+     * Creates a {@link MessageBatchAggregator} for every batch listener method with a maximum batch size or a batch
+     * window. Without a maximum batch size a batch is limited to the in-flight messages of the queue, so that a full
+     * batch blocks the pollers of the queue. The visibility of buffered messages is extended by the visibility
+     * heartbeat of the container if it is enabled, otherwise by a heartbeat that only extends the visibility of buffered
+     * messages several times within the shortest visibility timeout of the queues.
+     */
+    private void initializeMessageBatchAggregatorsByQueue() {
+        this.messageBatchAggregatorsByQueue = new ConcurrentHashMap<>();
+        Map<String, Integer> bufferedMessageVisibilityTimeouts = new HashMap<>();
+        int bufferedMessageHeartbeatInterval = Integer.MAX_VALUE;
+        for (QueueAttributes queueAttributes : getRegisteredQueues().values()) {
+            if (queueAttributes.isBatchAggregation() && this.visibilityHeartbeat == null) {
+                Long visibilityTimeoutMillis = getVisibilityTimeoutMillis(queueAttributes);
+                int visibilityTimeout = visibilityTimeoutMillis != null ? (int) TimeUnit.MILLISECONDS.toSeconds(visibilityTimeoutMillis) : DEFAULT_QUEUE_VISIBILITY_TIMEOUT;
+                bufferedMessageVisibilityTimeouts.put(queueAttributes.getDestinationUrl(), visibilityTimeout);
+                bufferedMessageHeartbeatInterval = Math.min(bufferedMessageHeartbeatInterval,
+                        Math.max(1, visibilityTimeout / BUFFERED_MESSAGE_HEARTBEATS_PER_VISIBILITY_TIMEOUT));
+            }
+        }
+
+        if (!bufferedMessageVisibilityTimeouts.isEmpty() && this.bufferedMessageHeartbeat == null) {
+            this.bufferedMessageHeartbeat = new QueueMessageVisibilityHeartbeat(getAmazonSqs(), bufferedMessageHeartbeatInterval,
+                    2 * bufferedMessageHeartbeatInterval);
+            for (Map.Entry<String, Integer> visibilityTimeout : bufferedMessageVisibilityTimeouts.entrySet()) {
+                if (visibilityTimeout.getValue() > 2 * bufferedMessageHeartbeatInterval) {
+                    this.bufferedMessageHeartbeat.setVisibilityTimeout(visibilityTimeout.getKey(), visibilityTimeout.getValue());
+                }
+            }
+        }
+
+        for (Map.Entry<String, QueueAttributes> registeredQueue : getRegisteredQueues().entrySet()) {
+            final String logicalQueueName = registeredQueue.getKey();
+            final QueueAttributes queueAttributes = registeredQueue.getValue();
+            if (!queueAttributes.isBatchAggregation()) {
+                continue;
+            }
+
+            if (this.batchWindowScheduler == null) {
+                CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(MessageBatchAggregator.class.getSimpleName() + "-");
+                threadFactory.setDaemon(true);
+                this.batchWindowScheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+            }
+            QueueMessageVisibilityHeartbeat heartbeat = this.visibilityHeartbeat != null ? this.visibilityHeartbeat : this.bufferedMessageHeartbeat;
+
+            int maxBatchSize = queueAttributes.getMaxBatchSize() != null ? queueAttributes.getMaxBatchSize() : getMaxInFlightMessages(queueAttributes);
+            long batchWindow = queueAttributes.getBatchWindow() != null ? queueAttributes.getBatchWindow() : DEFAULT_BATCH_WINDOW;
+            this.messageBatchAggregatorsByQueue.put(logicalQueueName, new MessageBatchAggregator(queueAttributes.getDestinationUrl(),
+                    maxBatchSize, batchWindow, this.batchWindowScheduler, getMessageExecutor(logicalQueueName), heartbeat,
+                    new Consumer<List<Message>>() {
+
+                        @Override
+                        public void accept(List<Message> messages) {
+                            // Batches closed by the window are already processed on a thread of the message executor
+                            new BatchMessageExecutor(logicalQueueName, messages, queueAttributes).run();
+                        }
+                    }));
+        }
+    }
+
+    /**
+     * Processes the messages that are still buffered for the batch listener method of the queue.
+     */
+    private void flushMessageBatchAggregator(String logicalQueueName) {
+        MessageBatchAggregator messageBatchAggregator = this.messageBatchAggregatorsByQueue.get(logicalQueueName);
+        if (messageBatchAggregator != null) {
+            executeMessageBatchesAndWait(logicalQueueName, getRegisteredQueues().get(logicalQueueName), messageBatchAggregator.flush());
+        }
+    }
+
+    /**
+     * Executes the message batches on the executor of the queue and waits until they have been processed, so that a
+     * processing timeout never interrupts the calling thread. The messages of rejected batches are made visible again.
+     */
+    private void executeMessageBatchesAndWait(String logicalQueueName, QueueAttributes queueAttributes, List<List<Message>> messageBatches) {
+        if (messageBatches.isEmpty()) {
+            return;
+        }
+
+        CountDownLatch messageBatchLatch = new CountDownLatch(messageBatches.size());
+        List<Message> rejectedMessages = new ArrayList<>();
+        for (List<Message> messageBatch : messageBatches) {
+            if (rejectedMessages.isEmpty()) {
+                try {
+                    getMessageExecutor(logicalQueueName).execute(new SignalExecutingRunnable(messageBatchLatch,
+                            new BatchMessageExecutor(logicalQueueName, messageBatch, queueAttributes)));
+                    continue;
+                } catch (RejectedExecutionException e) {
+                    // The task executor has no capacity for the remaining batches either
+                }
+            }
+            rejectedMessages.addAll(messageBatch);
+            messageBatchLatch.countDown();
+        }
+        returnRejectedMessages(logicalQueueName, queueAttributes.getDestinationUrl(), rejectedMessages);
+        try {
+            messageBatchLatch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void initializeCircuitBreakersByQueue() {
+        this.circuitBreakersByQueue = new ConcurrentHashMap<>();
+        if (this.circuitBreakerFailureThreshold != null) {
+            for (String queueName : getRegisteredQueues().keySet()) {
+                this.circuitBreakersByQueue.put(queueName, new PollingCircuitBreaker(this.circuitBreakerFailureThreshold, this.circuitBreakerOpenTimeout));
+            }
+        }
+    }
+
+    private BackOffExecution startBackOff(QueueAttributes queueAttributes) {
+        if (queueAttributes.getBackOffTime() != null) {
+            return new FixedBackOff(queueAttributes.getBackOffTime(), FixedBackOff.UNLIMITED_ATTEMPTS).start();
+        }
+
+        return this.backOff != null ? this.backOff.start() : new FixedBackOff(this.backOffTime, FixedBackOff.UNLIMITED_ATTEMPTS).start();
+    }
+
+    private static boolean isFifoQueue(QueueAttributes queueAttributes) {
+        String queueUrl = queueAttributes.getDestinationUrl();
+        return queueUrl != null && queueUrl.endsWith(FIFO_QUEUE_SUFFIX);
+    }
+
+    private int getMaxInFlightMessages(QueueAttributes queueAttributes) {
+        if (this.maxInFlightMessages != null) {
+            return this.maxInFlightMessages;
+        }
+
+        return 2 * getPollerCount() * queueAttributes.getMaxNumberOfMessages();
+    }
+
+    /**
+     * @return the number of threads the default task executor needs for the message executions of the queue, which
+     * matches the number of messages the pollers of the queue can dispatch at the same time
+     */
+    private int getWorkerThreads(QueueAttributes queueAttributes) {
+        if (getMessageDispatchMode() == MessageDispatchMode.BATCH && this.maxInFlightMessages == null) {
+            return getPollerCount() * queueAttributes.getMaxNumberOfMessages();
+        }
+
+        return getMaxInFlightMessages(queueAttributes);
+    }
+
+    private void initializeRunningStateByQueue() {
+        this.runningStateByQueue = new ConcurrentHashMap<>(getRegisteredQueues().size());
+        for (String queueName : getRegisteredQueues().keySet()) {
+            this.runningStateByQueue.put(queueName, false);
+        }
+    }
+
+    @Override
+    protected void doStart() {
+        synchronized (this.getLifecycleMonitor()) {
+            scheduleMessageListeners();
+        }
+    }
+
+    @Override
+    protected void doStop() {
+        long drainDeadline = this.drainTimeout != null ? System.currentTimeMillis() + this.drainTimeout : 0;
+        notifyRunningQueuesToStop();
+        waitForRunningQueuesToStop();
+        for (String logicalQueueName : this.messageBatchAggregatorsByQueue.keySet()) {
+            flushMessageBatchAggregator(logicalQueueName);
+        }
+        for (String logicalQueueName : this.prefetchBuffersByQueue.keySet()) {
+            releasePrefetchedMessages(logicalQueueName);
+        }
+
+        if (this.drainTimeout != null) {
+            waitForInFlightMessages(drainDeadline);
+        }
+
+        if (this.deletionAggregator != null) {
+            this.deletionAggregator.flush();
+        }
+    }
+
+    private void notifyRunningQueuesToStop() {
+        for (Map.Entry<String, Boolean> runningStateByQueue : this.runningStateByQueue.entrySet()) {
+            if (runningStateByQueue.getValue()) {
+                stopQueue(runningStateByQueue.getKey());
+            }
+        }
+    }
+
+    private void waitForRunningQueuesToStop() {
+        for (Map.Entry<String, Boolean> queueRunningState : this.runningStateByQueue.entrySet()) {
+            String logicalQueueName = queueRunningState.getKey();
+            List<Future<?>> queueSpinningThreads = this.scheduledFuturesByQueue.get(logicalQueueName);
+
+            if (queueSpinningThreads != null) {
+                for (Future<?> queueSpinningThread : queueSpinningThreads) {
+                    try {
+                        queueSpinningThread.get(getQueueStopTimeout(), TimeUnit.MILLISECONDS);
+                    } catch (ExecutionException | TimeoutException e) {
+                        getLogger().warn("An exception occurred while stopping queue '" + logicalQueueName + "'", e);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        }
+    }
+
+    private void waitForInFlightMessages(long deadline) {
+        synchronized (this.inFlightMessageMonitor) {
+            long remainingTime = deadline - System.currentTimeMillis();
+            while (this.inFlightMessageCount.get() > 0 && remainingTime > 0) {
+                try {
+                    this.inFlightMessageMonitor.wait(remainingTime);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                remainingTime = deadline - System.currentTimeMillis();
+            }
+        }
+
+        if (this.inFlightMessageCount.get() > 0) {
+            getLogger().warn("Stopped container with {} messages still in flight after the drain timeout of {} milliseconds",
+                    this.inFlightMessageCount.get(), this.drainTimeout);
+        }
+    }
+
+    private boolean isDraining(String logicalQueueName) {
+        return this.drainTimeout != null && !this.runningStateByQueue.get(logicalQueueName);
+    }
+
+    /**
+     * Makes messages that were received but will not be processed visible again, so that they are redelivered
+     * immediately. Only used in drain mode; otherwise the messages become visible once their visibility timeout expires.
+     */
+    private void releaseMessages(String logicalQueueName, String queueUrl, List<Message> messages) {
+        if (this.drainTimeout == null) {
+            return;
+        }
+
+        returnMessagesToQueue(logicalQueueName, queueUrl, messages);
+    }
+
+    /**
+     * Makes messages the task executor rejected visible again, so that they are redelivered immediately instead of
+     * after their visibility timeout. A rejection is not a polling error and does not back off the poller, the
+     * in-flight permits of the rejected messages are available for the next receive request.
+     */
+    private void returnRejectedMessages(String logicalQueueName, String queueUrl, List<Message> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        if (this.metrics != null) {
+            this.metrics.executionRejected(logicalQueueName);
+        }
+        getLogger().warn("The task executor rejected {} messages of queue '{}', the messages are made visible again",
+                messages.size(), logicalQueueName);
+        returnMessagesToQueue(logicalQueueName, queueUrl, messages);
+    }
+
+    /**
+     * Makes the messages visible again by setting their visibility timeout to 0.
+     */
+    private void returnMessagesToQueue(String logicalQueueName, String queueUrl, List<Message> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        getLogger().debug("Releasing {} undispatched messages of queue '{}'", messages.size(), logicalQueueName);
+        for (ChangeMessageVisibilityBatchRequest changeMessageVisibilityBatchRequest : createReturnMessagesBatchRequests(queueUrl, messages)) {
+            getAmazonSqs().changeMessageVisibilityBatchAsync(changeMessageVisibilityBatchRequest);
+        }
+    }
+
+    /**
+     * @return the requests that set the visibility timeout of the messages to 0 in batches of at most 10 entries
+     */
+    static List<ChangeMessageVisibilityBatchRequest> createReturnMessagesBatchRequests(String queueUrl, List<Message> messages) {
+        List<ChangeMessageVisibilityBatchRequest> changeMessageVisibilityBatchRequests = new ArrayList<>();
+        for (int start = 0; start < messages.size(); start += MAX_DELETE_MESSAGE_BATCH_ENTRIES) {
+            int end = Math.min(start + MAX_DELETE_MESSAGE_BATCH_ENTRIES, messages.size());
+            List<ChangeMessageVisibilityBatchRequestEntry> entries = new ArrayList<>(end - start);
+            for (int i = start; i < end; i++) {
+                entries.add(new ChangeMessageVisibilityBatchRequestEntry(Integer.toString(i), messages.get(i).getReceiptHandle())
+                        .withVisibilityTimeout(0));
+            }
+            changeMessageVisibilityBatchRequests.add(new ChangeMessageVisibilityBatchRequest(queueUrl, entries));
+        }
+        return changeMessageVisibilityBatchRequests;
+    }
+
+    @Override
+    protected void doDestroy() {
+        if (this.defaultTaskExecutor && this.taskExecutor instanceof ThreadPoolTaskExecutor) {
+            ((ThreadPoolTaskExecutor) this.taskExecutor).destroy();
+        }
+
+        if (this.deletionAggregator != null) {
+            this.deletionAggregator.destroy();
+            this.deletionAggregator = null;
+        }
+
+        if (this.visibilityHeartbeat != null) {
+            this.visibilityHeartbeat.destroy();
+            this.visibilityHeartbeat = null;
+        }
+
+        if (this.processingTimeoutWatchdog != null) {
+            this.processingTimeoutWatchdog.destroy();
+            this.processingTimeoutWatchdog = null;
+        }
+
+        if (this.weightedFairTaskScheduler != null) {
+            this.weightedFairTaskScheduler.destroy();
+            this.weightedFairTaskScheduler = null;
+        }
+
+        if (this.batchWindowScheduler != null) {
+            this.batchWindowScheduler.shutdownNow();
+            this.batchWindowScheduler = null;
+        }
+
+        if (this.bufferedMessageHeartbeat != null) {
+            this.bufferedMessageHeartbeat.destroy();
+            this.bufferedMessageHeartbeat = null;
+        }
+    }
+
+    /**
+     * Create a default TaskExecutor. Called if no explicit TaskExecutor has been specified.
+     * <p>The default implementation builds a {@link ThreadPoolTaskExecutor} with the specified bean name (or the class
+     * name, if no bean name specified) as thread name prefix. If {@link #setVirtualThreads(boolean) virtual threads}
+     * are enabled and supported by the JVM, a {@link SimpleAsyncTaskExecutor} that starts a new virtual thread for
+     * every task is returned instead.
+     *
+     * @return a {@link ThreadPoolTaskExecutor} or a virtual thread based {@link SimpleAsyncTaskExecutor} configured
+     * with the thread name prefix
+     */
+    protected AsyncTaskExecutor createDefaultTaskExecutor() {
+        String beanName = getBeanName();
+        String threadNamePrefix = beanName != null ? beanName + "-" : DEFAULT_THREAD_NAME_PREFIX;
+
+        if (isVirtualThreads()) {
+            ThreadFactory virtualThreadFactory = createVirtualThreadFactory(threadNamePrefix);
+            if (virtualThreadFactory != null) {
+                return new SimpleAsyncTaskExecutor(virtualThreadFactory);
+            }
+            getLogger().warn("Virtual threads are not supported by the current JVM, falling back to a thread pool for container '{}'", beanName);
+        }
+
+        ThreadPoolTaskExecutor threadPoolTaskExecutor = new ThreadPoolTaskExecutor();
+        threadPoolTaskExecutor.setThreadNamePrefix(threadNamePrefix);
+        int spinningThreads = this.getRegisteredQueues().size();
+
+        if (spinningThreads > 0) {
+            threadPoolTaskExecutor.setCorePoolSize(spinningThreads * DEFAULT_WORKER_THREADS);
+
+            int maxPoolSize = 0;
+            for (QueueAttributes queueAttributes : getRegisteredQueues().values()) {
+                maxPoolSize += getPollerCount() + getWorkerThreads(queueAttributes);
+            }
+            threadPoolTaskExecutor.setMaxPoolSize(maxPoolSize);
+        }
+
+        // No use of a thread pool executor queue to avoid retaining message to long in memory
+        threadPoolTaskExecutor.setQueueCapacity(0);
+        threadPoolTaskExecutor.afterPropertiesSet();
+
+        return threadPoolTaskExecutor;
+
+    }
+
+    /**
+     * Creates a thread factory for virtual threads through reflection as the virtual thread API
+     * ({@code Thread.ofVirtual()}) is not available on all supported Java versions.
+     *
+     * @param threadNamePrefix
+     *         the prefix of the thread names, a sequence number is appended
+     * @return the virtual thread factory or {@code null} if the JVM does not support virtual threads
+     */
+    private static ThreadFactory createVirtualThreadFactory(String threadNamePrefix) {
+        Method ofVirtualMethod = ReflectionUtils.findMethod(Thread.class, "ofVirtual");
+        if (ofVirtualMethod == null) {
+            return null;
+        }
+
+        try {
+            Class<?> builderClass = ClassUtils.forName("java.lang.Thread$Builder", Thread.class.getClassLoader());
+            Method nameMethod = builderClass.getMethod("name", String.class, long.class);
+            Method factoryMethod = builderClass.getMethod("factory");
+
+            Object builder = nameMethod.invoke(ofVirtualMethod.invoke(null), threadNamePrefix, 0L);
+            return (ThreadFactory) factoryMethod.invoke(builder);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    private void scheduleMessageListeners() {
+        for (Map.Entry<String, QueueAttributes> registeredQueue : getRegisteredQueues().entrySet()) {
+            startQueue(registeredQueue.getKey(), registeredQueue.getValue());
+        }
+    }
+
+    protected void executeMessage(org.springframework.messaging.Message<String> stringMessage) {
+        getMessageHandler().handleMessage(stringMessage);
+    }
+
+    /**
+     * Executes a batch listener method (see {@link org.springframework.cloud.aws.messaging.listener.annotation.SqsListener#batch()})
+     * with all messages of a received batch.
+     *
+     * @param batchMessage
+     *         the message that contains all received messages as payload
+     */
+    protected void executeMessageBatch(org.springframework.messaging.Message<List<org.springframework.messaging.Message<String>>> batchMessage) {
+        getMessageHandler().handleMessage(batchMessage);
+    }
+
+    private org.springframework.messaging.Message<String> getMessageForExecution(String logicalQueueName, Message message,
+                                                                                 QueueAttributes queueAttributes,
+                                                                                 AsyncHandlerMethodResult asyncResult) {
+        HashMap<String, Object> additionalHeaders = new HashMap<>(8);
+        additionalHeaders.put(QueueMessageHandler.LOGICAL_RESOURCE_ID, logicalQueueName);
+        if (asyncResult != null) {
+            additionalHeaders.put(QueueMessageHandler.ASYNC_RESULT, asyncResult);
+        }
+        // The acknowledgment and visibility are only created for listener methods that can access them
+        if (queueAttributes.getDeletionPolicy() == SqsMessageDeletionPolicy.NEVER && queueAttributes.isAcknowledgmentRequired()) {
+            QueueMessageAcknowledgment acknowledgment = new QueueMessageAcknowledgment(getAmazonSqs(), this.deletionAggregator,
+                    queueAttributes.getDestinationUrl(), message.getReceiptHandle());
+            additionalHeaders.put(QueueMessageHandler.ACKNOWLEDGMENT, acknowledgment);
+        }
+        if (queueAttributes.isVisibilityRequired()) {
+            additionalHeaders.put(QueueMessageHandler.VISIBILITY, new QueueMessageVisibility(getAmazonSqs(), queueAttributes.getDestinationUrl(),
+                    message.getReceiptHandle()));
+        }
+
+        return createMessage(message, additionalHeaders);
+    }
+
+    static boolean isDeletedOnSuccess(SqsMessageDeletionPolicy deletionPolicy) {
+        return deletionPolicy == SqsMessageDeletionPolicy.ON_SUCCESS ||
+                deletionPolicy == SqsMessageDeletionPolicy.ALWAYS ||
+                deletionPolicy == SqsMessageDeletionPolicy.NO_REDRIVE;
+    }
+
+    static boolean isDeletedOnError(SqsMessageDeletionPolicy deletionPolicy, QueueAttributes queueAttributes) {
+        return deletionPolicy == SqsMessageDeletionPolicy.ALWAYS ||
+                (deletionPolicy == SqsMessageDeletionPolicy.NO_REDRIVE && !queueAttributes.hasRedrivePolicy());
+    }
+
+    /**
+     * @return the {@link PartialBatchFailureException} in the cause chain of the exception or {@code null} if the whole
+     * batch failed
+     */
+    static PartialBatchFailureException findPartialBatchFailure(Throwable exception) {
+        Throwable current = exception;
+        while (current != null) {
+            if (current instanceof PartialBatchFailureException) {
+                return (PartialBatchFailureException) current;
+            }
+            current = current.getCause();
+        }
+        return null;
+    }
+
+    /**
+     * @return the requests that delete the messages in batches of at most 10 entries
+     */
+    static List<DeleteMessageBatchRequest> createDeleteMessageBatchRequests(String queueUrl, List<String> receiptHandles) {
+        List<DeleteMessageBatchRequest> deleteMessageBatchRequests = new ArrayList<>();
+        for (int start = 0; start < receiptHandles.size(); start += MAX_DELETE_MESSAGE_BATCH_ENTRIES) {
+            int end = Math.min(start + MAX_DELETE_MESSAGE_BATCH_ENTRIES, receiptHandles.size());
+            List<DeleteMessageBatchRequestEntry> entries = new ArrayList<>(end - start);
+            for (int i = start; i < end; i++) {
+                entries.add(new DeleteMessageBatchRequestEntry(Integer.toString(i), receiptHandles.get(i)));
+            }
+            deleteMessageBatchRequests.add(new DeleteMessageBatchRequest(queueUrl, entries));
+        }
+        return deleteMessageBatchRequests;
+    }
+
+    private void registerInFlightMessage(String queueUrl, String receiptHandle) {
+        if (this.visibilityHeartbeat != null) {
+            this.visibilityHeartbeat.register(queueUrl, receiptHandle);
+        }
+    }
+
+    private void unregisterInFlightMessage(String queueUrl, String receiptHandle) {
+        if (this.visibilityHeartbeat != null) {
+            this.visibilityHeartbeat.unregister(queueUrl, receiptHandle);
+        }
+    }
+
+    /**
+     * Starts to watch the processing time of the current thread if the queue has a processing timeout.
+     *
+     * @return the watch or {@code null} if the processing time of the queue is not limited
+     */
+    private ProcessingTimeoutWatchdog.Watch watchProcessing(String logicalQueueName) {
+        Long queueProcessingTimeout = this.processingTimeoutsByQueue.get(logicalQueueName);
+        if (queueProcessingTimeout == null || this.processingTimeoutWatchdog == null) {
+            return null;
+        }
+
+        return this.processingTimeoutWatchdog.watch(queueProcessingTimeout);
+    }
+
+    /**
+     * Completes the watch and reports a timeout. Messages whose processing timed out are neither deleted nor released,
+     * they become visible again when their visibility timeout expires.
+     *
+     * @return {@code true} if the processing timed out
+     */
+    private boolean completeProcessing(ProcessingTimeoutWatchdog.Watch watch, String logicalQueueName, int numberOfMessages, long processingStart) {
+        if (watch == null || !watch.complete()) {
+            return false;
+        }
+
+        getLogger().warn("Processing of {} messages from queue '{}' exceeded the processing timeout of {} ms, the messages are not deleted",
+                numberOfMessages, logicalQueueName, this.processingTimeoutsByQueue.get(logicalQueueName));
+        processingCompleted(logicalQueueName, numberOfMessages, processingStart, false);
+        if (this.metrics != null) {
+            this.metrics.processingTimedOut(logicalQueueName, numberOfMessages);
+        }
+        return true;
+    }
+
+    /**
+     * Stops and waits until all pollers of the specified queue have stopped. If the wait timeout specified by
+     * {@link SimpleMessageListenerContainer#getQueueStopTimeout()} is reached, the current thread is interrupted.
+     *
+     * @param logicalQueueName
+     *         the name as defined on the listener method
+     */
+    public void stop(String logicalQueueName) {
+        stopQueue(logicalQueueName);
+
+        try {
+            if (isRunning(logicalQueueName)) {
+                List<Future<?>> futures = this.scheduledFuturesByQueue.remove(logicalQueueName);
+                if (futures != null) {
+                    long deadline = System.currentTimeMillis() + this.queueStopTimeout;
+                    for (Future<?> future : futures) {
+                        future.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                    }
+                }
+            }
+            flushMessageBatchAggregator(logicalQueueName);
+            releasePrefetchedMessages(logicalQueueName);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            getLogger().warn("Error stopping queue with name: '" + logicalQueueName + "'", e);
+        }
+    }
+
+    protected void stopQueue(String logicalQueueName) {
+        Assert.isTrue(this.runningStateByQueue.containsKey(logicalQueueName), "Queue with name '" + logicalQueueName + "' does not exist");
+        this.runningStateByQueue.put(logicalQueueName, false);
+    }
+
+    public void start(String logicalQueueName) {
+        Assert.isTrue(this.runningStateByQueue.containsKey(logicalQueueName), "Queue with name '" + logicalQueueName + "' does not exist");
+
+        QueueAttributes queueAttributes = this.getRegisteredQueues().get(logicalQueueName);
+        startQueue(logicalQueueName, queueAttributes);
+    }
+
+    /**
+     * Checks if at least one spinning thread for the specified queue {@code logicalQueueName} is still running (polling
+     * for new messages) or not.
+     *
+     * @param logicalQueueName
+     *         the name as defined on the listener method
+     * @return {@code true} if a spinning thread for the specified queue is running otherwise {@code false}.
+     */
+    public boolean isRunning(String logicalQueueName) {
+        List<Future<?>> futures = this.scheduledFuturesByQueue.get(logicalQueueName);
+        if (futures == null) {
+            return false;
+        }
+
+        for (Future<?> future : futures) {
+            if (!future.isCancelled() && !future.isDone()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    protected void startQueue(String queueName, QueueAttributes queueAttributes) {
+        if (this.runningStateByQueue.containsKey(queueName) && this.runningStateByQueue.get(queueName)) {
+            return;
+        }
+
+        this.runningStateByQueue.put(queueName, true);
+        List<Future<?>> futures = new ArrayList<>(getPollerCount());
+        for (int i = 0; i < getPollerCount(); i++) {
+            futures.add(getTaskExecutor().submit(new AsynchronousMessageListener(queueName, queueAttributes)));
+        }
+        this.scheduledFuturesByQueue.put(queueName, futures);
+    }
+
+    private class AsynchronousMessageListener implements Runnable {
+
+        private final QueueAttributes queueAttributes;
+        private final String logicalQueueName;
+
+        private AsynchronousMessageListener(String logicalQueueName, QueueAttributes queueAttributes) {
+            this.logicalQueueName = logicalQueueName;
+            this.queueAttributes = queueAttributes;
+        }
+
+        private long getProbeWaitTime() {
+            Integer waitTimeSeconds = this.queueAttributes.getReceiveMessageRequest().getWaitTimeSeconds();
+            if (waitTimeSeconds == null) {
+                return 1000;
+            }
+
+            return Math.max(100, waitTimeSeconds * 1000L);
+        }
+
+        @Override
+        public void run() {
+            PollingCircuitBreaker circuitBreaker = SimpleMessageListenerContainer.this.circuitBreakersByQueue.get(this.logicalQueueName);
+            BackOffExecution backOffExecution = null;
+            while (isQueueRunning()) {
+                if (SimpleMessageListenerContainer.this.weightedFairTaskScheduler != null) {
+                    // Retries message executions the task executor rejected while no other execution was running
+                    SimpleMessageListenerContainer.this.weightedFairTaskScheduler.executePendingTasks();
+                }
+
+                if (circuitBreaker != null && !circuitBreaker.allowRequest()) {
+                    long remainingOpenTime = circuitBreaker.getRemainingOpenTime();
+                    if (remainingOpenTime == 0) {
+                        // Another poller is probing the queue, its receive request takes up to the wait time out
+                        remainingOpenTime = getProbeWaitTime();
+                    }
+                    // Sleep in short intervals to notice a stopped queue while the circuit is open
+                    sleep(Math.max(1, Math.min(remainingOpenTime, 1000)));
+                    continue;
+                }
+
+                try {
+                    if (getMessageDispatchMode() == MessageDispatchMode.CONTINUOUS) {
+                        receiveAndDispatchContinuously();
+                    } else {
+                        receiveAndDispatchBatch();
+                    }
+                    backOffExecution = null;
+                    if (circuitBreaker != null && circuitBreaker.recordSuccess()) {
+                        getLogger().info("Resumed polling of queue '{}' after a successful probe", this.logicalQueueName);
+                    }
+                    pauseIfIdle();
+                } catch (Exception e) {
+                    boolean rejected = e instanceof RejectedExecutionException;
+                    if (rejected && getMetrics() != null) {
+                        getMetrics().executionRejected(this.logicalQueueName);
+                    }
+
+                    if (circuitBreaker != null && rejected) {
+                        // A rejected task is a local failure that must not open the circuit of the queue
+                        circuitBreaker.recordIgnoredFailure();
+                    } else if (circuitBreaker != null && circuitBreaker.recordFailure()) {
+                        getLogger().error("Suspended polling of queue '{}' for {} milliseconds after {} consecutive errors",
+                                this.logicalQueueName, getCircuitBreakerOpenTimeout(), getCircuitBreakerFailureThreshold(), e);
+                        continue;
+                    }
+
+                    if (backOffExecution == null) {
+                        backOffExecution = startBackOff(this.queueAttributes);
+                    }
+                    long backOffPeriod = backOffExecution.nextBackOff();
+                    if (backOffPeriod == BackOffExecution.STOP) {
+                        getLogger().error("Stopped queue '{}' because the back off {} does not allow further attempts",
+                                this.logicalQueueName, backOffExecution, e);
+                        stopQueue(this.logicalQueueName);
+                        return;
+                    }
+
+                    getLogger().warn("An Exception occurred while polling queue '{}'. The failing operation will be " +
+                            "retried in {} milliseconds", this.logicalQueueName, backOffPeriod, e);
+                    sleep(backOffPeriod);
+                }
+            }
+        }
+
+        /**
+         * Pauses as long as the idle queue polling strategy demands, but resumes immediately once another poller of the
+         * queue received messages or the queue is stopped.
+         */
+        private void pauseIfIdle() {
+            IdleQueuePollingStrategy idleQueuePollingStrategy = getIdleQueuePollingStrategy();
+            if (idleQueuePollingStrategy == null) {
+                return;
+            }
+
+            AtomicInteger consecutiveEmptyReceives = SimpleMessageListenerContainer.this.consecutiveEmptyReceivesByQueue.get(this.logicalQueueName);
+            int emptyReceives = consecutiveEmptyReceives.get();
+            if (emptyReceives == 0) {
+                return;
+            }
+
+            long pauseEnd = System.currentTimeMillis() + idleQueuePollingStrategy.getPollingDelay(this.logicalQueueName, emptyReceives);
+            long remainingPause = pauseEnd - System.currentTimeMillis();
+            while (remainingPause > 0 && consecutiveEmptyReceives.get() != 0 && isQueueRunning()) {
+                sleep(Math.min(remainingPause, 100));
+                remainingPause = pauseEnd - System.currentTimeMillis();
+            }
+        }
+
+        private void sleep(long millis) {
+            try {
+                //noinspection BusyWait
+                Thread.sleep(millis);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void receiveAndDispatchBatch() {
+            Semaphore inFlightPermits = SimpleMessageListenerContainer.this.inFlightPermitsByQueue.get(this.logicalQueueName);
+            if (inFlightPermits == null) {
+                receiveAndDispatchBatch(this.queueAttributes.getReceiveMessageRequest());
+                return;
+            }
+
+            int acquiredPermits = acquireInFlightPermits(inFlightPermits, this.queueAttributes.getMaxNumberOfMessages());
+            if (acquiredPermits == 0) {
+                return;
+            }
+
+            try {
+                receiveAndDispatchBatch(this.queueAttributes.getReceiveMessageRequest().withMaxNumberOfMessages(acquiredPermits));
+            } finally {
+                inFlightPermits.release(acquiredPermits);
+            }
+        }
+
+        private void receiveAndDispatchBatch(ReceiveMessageRequest receiveMessageRequest) {
+            ReceiveMessageResult receiveMessageResult = receiveMessages(receiveMessageRequest);
+            if (this.queueAttributes.isBatchListener()) {
+                MessageBatchAggregator messageBatchAggregator = SimpleMessageListenerContainer.this.messageBatchAggregatorsByQueue.get(this.logicalQueueName);
+                if (!receiveMessageResult.getMessages().isEmpty() && isQueueRunning() && messageBatchAggregator != null) {
+                    executeMessageBatchesAndWait(messageBatchAggregator.add(receiveMessageResult.getMessages()));
+                } else if (!receiveMessageResult.getMessages().isEmpty() && isQueueRunning()) {
+                    executeMessageBatchesAndWait(Collections.singletonList(receiveMessageResult.getMessages()));
+                } else {
+                    releaseUndispatchedMessages(receiveMessageResult.getMessages());
+                }
+                return;
+            }
+
+            MessageGroupDispatcher messageGroupDispatcher = SimpleMessageListenerContainer.this.messageGroupDispatchersByQueue.get(this.logicalQueueName);
+            if (messageGroupDispatcher != null) {
+                dispatchMessageGroupsAndWait(messageGroupDispatcher, receiveMessageResult.getMessages());
+                return;
+            }
+
+            CountDownLatch messageBatchLatch = new CountDownLatch(receiveMessageResult.getMessages().size());
+            List<Message> undispatchedMessages = new ArrayList<>();
+            List<Message> rejectedMessages = new ArrayList<>();
+            for (Message message : receiveMessageResult.getMessages()) {
+                if (!isQueueRunning()) {
+                    undispatchedMessages.add(message);
+                    messageBatchLatch.countDown();
+                } else if (!rejectedMessages.isEmpty() || !tryExecute(new SignalExecutingRunnable(messageBatchLatch,
+                        new MessageExecutor(this.logicalQueueName, message, this.queueAttributes)))) {
+                    // The task executor has no capacity for the remaining messages either
+                    rejectedMessages.add(message);
+                    messageBatchLatch.countDown();
+                }
+            }
+            releaseUndispatchedMessages(undispatchedMessages);
+            returnRejectedMessages(rejectedMessages);
+            try {
+                messageBatchLatch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void dispatchMessageGroupsAndWait(MessageGroupDispatcher messageGroupDispatcher, List<Message> messages) {
+            Map<String, List<Message>> messagesByGroup = groupByMessageGroupId(messages);
+            CountDownLatch messageGroupLatch = new CountDownLatch(messagesByGroup.size());
+            List<Message> undispatchedMessages = new ArrayList<>();
+            List<Message> rejectedMessages = new ArrayList<>();
+            boolean rejected = false;
+            for (Map.Entry<String, List<Message>> messageGroup : messagesByGroup.entrySet()) {
+                if (!isQueueRunning()) {
+                    undispatchedMessages.addAll(messageGroup.getValue());
+                    messageGroupLatch.countDown();
+                } else if (rejected) {
+                    rejectedMessages.addAll(messageGroup.getValue());
+                    messageGroupLatch.countDown();
+                } else {
+                    MessageGroupExecutor messageGroupExecutor = new MessageGroupExecutor(this.logicalQueueName, messageGroup.getKey(),
+                            messageGroup.getValue(), this.queueAttributes);
+                    // A rejected task counts down the latch and makes its messages visible again itself
+                    rejected = !messageGroupDispatcher.dispatch(messageGroup.getKey(), new SignalExecutingRunnable(messageGroupLatch, messageGroupExecutor));
+                }
+            }
+            releaseUndispatchedMessages(undispatchedMessages);
+            returnRejectedMessages(rejectedMessages);
+            try {
+                messageGroupLatch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void receiveAndDispatchContinuously() {
+            MessagePrefetchBuffer prefetchBuffer = SimpleMessageListenerContainer.this.prefetchBuffersByQueue.get(this.logicalQueueName);
+            if (prefetchBuffer != null) {
+                receiveAndPrefetch(prefetchBuffer);
+                return;
+            }
+
+            Semaphore inFlightPermits = SimpleMessageListenerContainer.this.inFlightPermitsByQueue.get(this.logicalQueueName);
+            int requestedMessages = acquireInFlightPermits(inFlightPermits, this.queueAttributes.getMaxNumberOfMessages());
+            if (requestedMessages == 0) {
+                return;
+            }
+
+            int unusedPermits = requestedMessages;
+            try {
+                ReceiveMessageResult receiveMessageResult = receiveMessages(this.queueAttributes.getReceiveMessageRequest()
+                        .withMaxNumberOfMessages(requestedMessages));
+                List<Message> messages = receiveMessageResult.getMessages();
+                if (this.queueAttributes.isBatchListener()) {
+                    MessageBatchAggregator messageBatchAggregator = SimpleMessageListenerContainer.this.messageBatchAggregatorsByQueue.get(this.logicalQueueName);
+                    if (!messages.isEmpty() && isQueueRunning() && messageBatchAggregator != null) {
+                        // Buffered messages do not hold in-flight permits, waiting for full batches slows down the pollers
+                        executeMessageBatchesAndWait(messageBatchAggregator.add(messages));
+                    } else if (!messages.isEmpty() && isQueueRunning()) {
+                        BatchMessageExecutor batchMessageExecutor = new BatchMessageExecutor(this.logicalQueueName, messages, this.queueAttributes);
+                        if (tryExecute(new PermitReleasingRunnable(inFlightPermits, messages.size(), batchMessageExecutor))) {
+                            unusedPermits -= messages.size();
+                        } else {
+                            returnRejectedMessages(messages);
+                        }
+                    } else {
+                        releaseUndispatchedMessages(messages);
+                    }
+                    return;
+                }
+
+                MessageGroupDispatcher messageGroupDispatcher = SimpleMessageListenerContainer.this.messageGroupDispatchersByQueue.get(this.logicalQueueName);
+                List<Message> undispatchedMessages = new ArrayList<>();
+                if (messageGroupDispatcher != null) {
+                    List<Message> rejectedMessages = new ArrayList<>();
+                    boolean rejected = false;
+                    for (Map.Entry<String, List<Message>> messageGroup : groupByMessageGroupId(messages).entrySet()) {
+                        if (!isQueueRunning()) {
+                            undispatchedMessages.addAll(messageGroup.getValue());
+                        } else if (rejected) {
+                            rejectedMessages.addAll(messageGroup.getValue());
+                        } else {
+                            MessageGroupExecutor messageGroupExecutor = new MessageGroupExecutor(this.logicalQueueName, messageGroup.getKey(),
+                                    messageGroup.getValue(), this.queueAttributes);
+                            int messageGroupSize = messageGroup.getValue().size();
+                            // A rejected task releases its permits and makes its messages visible again itself
+                            unusedPermits -= messageGroupSize;
+                            rejected = !messageGroupDispatcher.dispatch(messageGroup.getKey(),
+                                    new PermitReleasingRunnable(inFlightPermits, messageGroupSize, messageGroupExecutor));
+                        }
+                    }
+                    releaseUndispatchedMessages(undispatchedMessages);
+                    returnRejectedMessages(rejectedMessages);
+                    return;
+                }
+
+                List<Message> rejectedMessages = new ArrayList<>();
+                for (Message message : messages) {
+                    if (!isQueueRunning()) {
+                        undispatchedMessages.add(message);
+                    } else if (rejectedMessages.isEmpty() && tryExecute(new PermitReleasingRunnable(inFlightPermits, 1,
+                            new MessageExecutor(this.logicalQueueName, message, this.queueAttributes)))) {
+                        unusedPermits--;
+                    } else {
+                        // The task executor has no capacity for the remaining messages either
+                        rejectedMessages.add(message);
+                    }
+                }
+                releaseUndispatchedMessages(undispatchedMessages);
+                returnRejectedMessages(rejectedMessages);
+            } finally {
+                inFlightPermits.release(unusedPermits);
+            }
+        }
+
+        /**
+         * Receives as many messages as the prefetch buffer of the queue can take and dispatches buffered messages to
+         * the free in-flight permits. The receive time is taken before the request is sent, so that a message never
+         * expires later than its visibility timeout allows.
+         */
+        private void receiveAndPrefetch(MessagePrefetchBuffer prefetchBuffer) {
+            long now = System.currentTimeMillis();
+            returnMessagesToQueue(this.logicalQueueName, this.queueAttributes.getDestinationUrl(), prefetchBuffer.removeExpired(now));
+            dispatchPrefetchedMessages(this.logicalQueueName);
+
+            int reservation;
+            try {
+                reservation = prefetchBuffer.reserveCapacity(this.queueAttributes.getMaxNumberOfMessages(), 1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (reservation == 0) {
+                return;
+            }
+
+            long receiveTime = System.currentTimeMillis();
+            ReceiveMessageResult receiveMessageResult;
+            try {
+                if (!isQueueRunning()) {
+                    prefetchBuffer.releaseReservation(reservation);
+                    return;
+                }
+                receiveMessageResult = receiveMessages(this.queueAttributes.getReceiveMessageRequest()
+                        .withMaxNumberOfMessages(reservation));
+            } catch (RuntimeException e) {
+                prefetchBuffer.releaseReservation(reservation);
+                throw e;
+            }
+            prefetchBuffer.add(receiveMessageResult.getMessages(), receiveTime, reservation);
+            dispatchPrefetchedMessages(this.logicalQueueName);
+        }
+
+        /**
+         * Acquires at least one and at most the requested number of in-flight permits of the queue. Waits in short
+         * intervals to notice a stopped queue even if all permits are held by long running messages.
+         *
+         * @return the number of acquired permits or 0 if no permit became available within the interval
+         */
+        private int acquireInFlightPermits(Semaphore inFlightPermits, int requestedPermits) {
+            try {
+                if (!inFlightPermits.tryAcquire(1, TimeUnit.SECONDS)) {
+                    return 0;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return 0;
+            }
+
+            int acquiredPermits = 1;
+            while (acquiredPermits < requestedPermits && inFlightPermits.tryAcquire()) {
+                acquiredPermits++;
+            }
+            return acquiredPermits;
+        }
+
+        private ReceiveMessageResult receiveMessages(ReceiveMessageRequest receiveMessageRequest) {
+            TokenBucketRateLimiter rateLimiter = getRateLimiter(this.logicalQueueName);
+            int ratePermits = 0;
+            if (rateLimiter != null) {
+                ratePermits = acquireRatePermits(rateLimiter, receiveMessageRequest.getMaxNumberOfMessages());
+                if (ratePermits == 0) {
+                    return new ReceiveMessageResult();
+                }
+                receiveMessageRequest.withMaxNumberOfMessages(ratePermits);
+            }
+
+            MessageListenerContainerMetrics metrics = getMetrics();
+            long start = metrics != null ? System.nanoTime() : 0;
+            ReceiveMessageResult receiveMessageResult;
+            try {
+                receiveMessageResult = getAmazonSqs().receiveMessage(receiveMessageRequest);
+            } catch (RuntimeException e) {
+                if (rateLimiter != null) {
+                    rateLimiter.release(ratePermits);
+                }
+                if (metrics != null) {
+                    metrics.receiveFailed(this.logicalQueueName);
+                }
+                throw e;
+            }
+
+            if (rateLimiter != null) {
+                rateLimiter.release(ratePermits - receiveMessageResult.getMessages().size());
+            }
+
+            int numberOfMessages = receiveMessageResult.getMessages().size();
+            if (metrics != null) {
+                metrics.receiveCompleted(this.logicalQueueName, System.nanoTime() - start, numberOfMessages);
+            }
+
+            AtomicInteger consecutiveEmptyReceives = SimpleMessageListenerContainer.this.consecutiveEmptyReceivesByQueue.get(this.logicalQueueName);
+            if (numberOfMessages == 0) {
+                consecutiveEmptyReceives.incrementAndGet();
+            } else {
+                consecutiveEmptyReceives.set(0);
+            }
+            return receiveMessageResult;
+        }
+
+        /**
+         * Waits until the rate limiter grants at least one permit. Waits in short intervals to notice a stopped queue.
+         *
+         * @return the number of granted permits or 0 if the queue was stopped while waiting
+         */
+        private int acquireRatePermits(TokenBucketRateLimiter rateLimiter, int requestedMessages) {
+            while (isQueueRunning()) {
+                int ratePermits = rateLimiter.tryAcquire(requestedMessages);
+                if (ratePermits > 0) {
+                    return ratePermits;
+                }
+                sleep(Math.max(1, Math.min(rateLimiter.getWaitTimeForPermit(), 1000)));
+            }
+            return 0;
+        }
+
+        private Map<String, List<Message>> groupByMessageGroupId(List<Message> messages) {
+            Map<String, List<Message>> messagesByGroup = new LinkedHashMap<>();
+            for (Message message : messages) {
+                String messageGroupId = message.getAttributes().get(MESSAGE_GROUP_ID_ATTRIBUTE);
+                List<Message> messageGroup = messagesByGroup.get(messageGroupId);
+                if (messageGroup == null) {
+                    messageGroup = new ArrayList<>();
+                    messagesByGroup.put(messageGroupId, messageGroup);
+                }
+                messageGroup.add(message);
             }
+            return messagesByGroup;
         }
-    }
 
-    private void waitForRunningQueuesToStop() {
-        for (Map.Entry<String, Boolean> queueRunningState : this.runningStateByQueue.entrySet()) {
-            String logicalQueueName = queueRunningState.getKey();
-            Future<?> queueSpinningThread = this.scheduledFutureByQueue.get(logicalQueueName);
+        private void releaseUndispatchedMessages(List<Message> messages) {
+            releaseMessages(this.logicalQueueName, this.queueAttributes.getDestinationUrl(), messages);
+        }
 
-            if (queueSpinningThread != null) {
-                try {
-                    queueSpinningThread.get(getQueueStopTimeout(), TimeUnit.SECONDS);
-                } catch (ExecutionException | TimeoutException e) {
-                    getLogger().warn("An exception occurred while stopping queue '" + logicalQueueName + "'", e);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                }
+        private void executeMessageBatchesAndWait(List<List<Message>> messageBatches) {
+            SimpleMessageListenerContainer.this.executeMessageBatchesAndWait(this.logicalQueueName, this.queueAttributes, messageBatches);
+        }
+
+        /**
+         * Executes the runnable on the executor of the queue.
+         *
+         * @return {@code false} if the executor rejected the runnable
+         */
+        private boolean tryExecute(Runnable runnable) {
+            try {
+                getMessageExecutor(this.logicalQueueName).execute(runnable);
+                return true;
+            } catch (RejectedExecutionException e) {
+                return false;
             }
         }
-    }
 
-    @Override
-    protected void doDestroy() {
-        if (this.defaultTaskExecutor) {
-            ((ThreadPoolTaskExecutor) this.taskExecutor).destroy();
+        private void returnRejectedMessages(List<Message> messages) {
+            SimpleMessageListenerContainer.this.returnRejectedMessages(this.logicalQueueName, this.queueAttributes.getDestinationUrl(), messages);
+        }
+
+        private boolean isQueueRunning() {
+            if (SimpleMessageListenerContainer.this.runningStateByQueue.containsKey(this.logicalQueueName)) {
+                return SimpleMessageListenerContainer.this.runningStateByQueue.get(this.logicalQueueName);
+            } else {
+                getLogger().warn("Stopped queue '" + this.logicalQueueName + "' because it was not listed as running queue.");
+                return false;
+            }
         }
     }
 
     /**
-     * Create a default TaskExecutor. Called if no explicit TaskExecutor has been specified.
-     * <p>The default implementation builds a {@link org.springframework.core.task.SimpleAsyncTaskExecutor}
-     * with the specified bean name (or the class name, if no bean name specified) as thread name prefix.
-     *
-     * @return a {@link org.springframework.core.task.SimpleAsyncTaskExecutor} configured with the thread name prefix
-     * @see org.springframework.core.task.SimpleAsyncTaskExecutor#SimpleAsyncTaskExecutor(String)
+     * A message execution that can complete after {@link #run()} returned, if the listener method returns an
+     * asynchronous result.
      */
-    protected AsyncTaskExecutor createDefaultTaskExecutor() {
-        String beanName = getBeanName();
-        ThreadPoolTaskExecutor threadPoolTaskExecutor = new ThreadPoolTaskExecutor();
-        threadPoolTaskExecutor.setThreadNamePrefix(beanName != null ? beanName + "-" : DEFAULT_THREAD_NAME_PREFIX);
-        int spinningThreads = this.getRegisteredQueues().size();
-
-        if (spinningThreads > 0) {
-            threadPoolTaskExecutor.setCorePoolSize(spinningThreads * DEFAULT_WORKER_THREADS);
+    private interface AsyncMessageExecution extends Runnable {
 
-            int maxNumberOfMessagePerBatch = getMaxNumberOfMessages() != null ? getMaxNumberOfMessages() : DEFAULT_WORKER_THREADS;
-            threadPoolTaskExecutor.setMaxPoolSize(spinningThreads * (maxNumberOfMessagePerBatch + 1));
-        }
+        /**
+         * @return a future that completes with {@code false} if messages could not be processed and will be
+         * redelivered, {@code true} otherwise
+         */
+        ListenableFuture<Boolean> executeAsync();
+    }
 
-        // No use of a thread pool executor queue to avoid retaining message to long in memory
-        threadPoolTaskExecutor.setQueueCapacity(0);
-        threadPoolTaskExecutor.afterPropertiesSet();
+    private class MessageExecutor implements AsyncMessageExecution {
 
-        return threadPoolTaskExecutor;
+        private final Message message;
+        private final String logicalQueueName;
+        private final String queueUrl;
+        private final QueueAttributes queueAttributes;
+        private final SqsMessageDeletionPolicy deletionPolicy;
 
-    }
+        private MessageExecutor(String logicalQueueName, Message message, QueueAttributes queueAttributes) {
+            this.logicalQueueName = logicalQueueName;
+            this.message = message;
+            this.queueUrl = queueAttributes.getDestinationUrl();
+            this.queueAttributes = queueAttributes;
+            this.deletionPolicy = queueAttributes.getDeletionPolicy();
+        }
 
-    private void scheduleMessageListeners() {
-        for (Map.Entry<String, QueueAttributes> registeredQueue : getRegisteredQueues().entrySet()) {
-            startQueue(registeredQueue.getKey(), registeredQueue.getValue());
+        @Override
+        public void run() {
+            execute();
         }
-    }
 
-    protected void executeMessage(org.springframework.messaging.Message<String> stringMessage) {
-        getMessageHandler().handleMessage(stringMessage);
-    }
+        /**
+         * Executes the message and waits until an asynchronous result of the listener method has completed.
+         *
+         * @return {@code false} if the message could not be processed and will be redelivered, {@code true} otherwise
+         */
+        private boolean execute() {
+            try {
+                return executeAsync().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } catch (ExecutionException e) {
+                // The completion future is never completed exceptionally
+                return false;
+            }
+        }
 
-    /**
-     * Stops and waits until the specified queue has stopped. If the wait timeout specified by {@link SimpleMessageListenerContainer#getQueueStopTimeout()}
-     * is reached, the current thread is interrupted.
-     *
-     * @param logicalQueueName
-     *         the name as defined on the listener method
-     */
-    public void stop(String logicalQueueName) {
-        stopQueue(logicalQueueName);
+        /**
+         * Executes the message. If the listener method returns an asynchronous result, the deletion policy is applied
+         * when the result completes and not when this method returns.
+         *
+         * @return a future that completes with the same value as {@link #execute()} once the message has been processed
+         */
+        @Override
+        public ListenableFuture<Boolean> executeAsync() {
+            final String receiptHandle = this.message.getReceiptHandle();
+            AsyncHandlerMethodResult asyncResult = new AsyncHandlerMethodResult();
+            final org.springframework.messaging.Message<String> queueMessage = getMessageForExecution(asyncResult);
+            registerInFlightMessage(this.queueUrl, receiptHandle);
+            final long processingStart = processingStarted(this.logicalQueueName, 1);
+            final ProcessingTimeoutWatchdog.Watch watch = watchProcessing(this.logicalQueueName);
 
-        try {
-            if (isRunning(logicalQueueName)) {
-                Future<?> future = this.scheduledFutureByQueue.remove(logicalQueueName);
-                if (future != null) {
-                    future.get(this.queueStopTimeout, TimeUnit.MILLISECONDS);
+            ListenableFuture<?> asyncResultFuture = null;
+            boolean executed = false;
+            try {
+                executeMessage(queueMessage);
+                executed = true;
+                if (asyncResult.getFuture() == null) {
+                    if (completeProcessing(watch, this.logicalQueueName, 1, processingStart)) {
+                        return completedFuture(false);
+                    }
+                    processingCompleted(this.logicalQueueName, 1, processingStart, true);
+                    applyDeletionPolicyOnSuccess(receiptHandle);
+                    return completedFuture(true);
+                }
+                asyncResultFuture = asyncResult.getFuture();
+                if (watch != null) {
+                    watch.continueWith(asyncResultFuture);
+                }
+            } catch (MessagingException messagingException) {
+                if (completeProcessing(watch, this.logicalQueueName, 1, processingStart)) {
+                    return completedFuture(false);
+                }
+                processingCompleted(this.logicalQueueName, 1, processingStart, false);
+                return completedFuture(applyDeletionPolicyOnError(receiptHandle, messagingException));
+            } catch (RuntimeException | Error e) {
+                // Overridden executeMessage methods may throw other exceptions, which are passed on to the caller
+                if (!executed && !completeProcessing(watch, this.logicalQueueName, 1, processingStart)) {
+                    processingCompleted(this.logicalQueueName, 1, processingStart, false);
+                }
+                throw e;
+            } finally {
+                if (asyncResultFuture == null) {
+                    // Nobody waits for an asynchronous result, so the message is completed here in any case
+                    if (watch != null) {
+                        watch.complete();
+                    }
+                    unregisterInFlightMessage(this.queueUrl, receiptHandle);
+                    inFlightMessagesCompleted(1);
                 }
             }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        } catch (ExecutionException | TimeoutException e) {
-            getLogger().warn("Error stopping queue with name: '" + logicalQueueName + "'", e);
-        }
-    }
 
-    protected void stopQueue(String logicalQueueName) {
-        Assert.isTrue(this.runningStateByQueue.containsKey(logicalQueueName), "Queue with name '" + logicalQueueName + "' does not exist");
-        this.runningStateByQueue.put(logicalQueueName, false);
-    }
+            final SettableListenableFuture<Boolean> completion = new SettableListenableFuture<>();
+            asyncResultFuture.addCallback(new ListenableFutureCallback<Object>() {
 
-    public void start(String logicalQueueName) {
-        Assert.isTrue(this.runningStateByQueue.containsKey(logicalQueueName), "Queue with name '" + logicalQueueName + "' does not exist");
+                @Override
+                public void onSuccess(Object result) {
+                    if (completeProcessing(watch, MessageExecutor.this.logicalQueueName, 1, processingStart)) {
+                        asyncProcessingTimedOut();
+                        return;
+                    }
+                    processingCompleted(MessageExecutor.this.logicalQueueName, 1, processingStart, true);
+                    try {
+                        applyDeletionPolicyOnSuccess(receiptHandle);
+                    } finally {
+                        unregisterInFlightMessage(MessageExecutor.this.queueUrl, receiptHandle);
+                        inFlightMessagesCompleted(1);
+                        completion.set(true);
+                    }
+                }
 
-        QueueAttributes queueAttributes = this.getRegisteredQueues().get(logicalQueueName);
-        startQueue(logicalQueueName, queueAttributes);
-    }
+                @Override
+                public void onFailure(Throwable ex) {
+                    if (completeProcessing(watch, MessageExecutor.this.logicalQueueName, 1, processingStart)) {
+                        asyncProcessingTimedOut();
+                        return;
+                    }
+                    processingCompleted(MessageExecutor.this.logicalQueueName, 1, processingStart, false);
+                    boolean processed = false;
+                    try {
+                        processed = applyDeletionPolicyOnError(receiptHandle,
+                                new MessagingException(queueMessage, "The asynchronous result of the handler method completed exceptionally", ex));
+                    } finally {
+                        unregisterInFlightMessage(MessageExecutor.this.queueUrl, receiptHandle);
+                        inFlightMessagesCompleted(1);
+                        completion.set(processed);
+                    }
+                }
 
-    /**
-     * Checks if the spinning thread for the specified queue {@code logicalQueueName} is still running (polling for new
-     * messages) or not.
-     *
-     * @param logicalQueueName
-     *         the name as defined on the listener method
-     * @return {@code true} if the spinning thread for the specified queue is running otherwise {@code false}.
-     */
-    public boolean isRunning(String logicalQueueName) {
-        Future<?> future = this.scheduledFutureByQueue.get(logicalQueueName);
-        return future != null && !future.isCancelled() && !future.isDone();
-    }
+                private void asyncProcessingTimedOut() {
+                    unregisterInFlightMessage(MessageExecutor.this.queueUrl, receiptHandle);
+                    inFlightMessagesCompleted(1);
+                    completion.set(false);
+                }
+            });
+            return completion;
+        }
 
-    protected void startQueue(String queueName, QueueAttributes queueAttributes) {
-        if (this.runningStateByQueue.containsKey(queueName) && this.runningStateByQueue.get(queueName)) {
-            return;
+        private void applyDeletionPolicyOnSuccess(String receiptHandle) {
+            if (isDeletedOnSuccess(this.deletionPolicy)) {
+                deleteMessage(receiptHandle);
+            }
         }
 
-        this.runningStateByQueue.put(queueName, true);
-        Future<?> future = getTaskExecutor().submit(new AsynchronousMessageListener(queueName, queueAttributes));
-        this.scheduledFutureByQueue.put(queueName, future);
+        private boolean applyDeletionPolicyOnError(String receiptHandle, MessagingException messagingException) {
+            if (isDeletedOnError(this.deletionPolicy, this.queueAttributes)) {
+                deleteMessage(receiptHandle);
+                return true;
+            } else if (this.deletionPolicy == SqsMessageDeletionPolicy.ON_SUCCESS) {
+                getLogger().error("Exception encountered while processing message.", messagingException);
+            }
+            return false;
+        }
+
+        private void deleteMessage(String receiptHandle) {
+            SimpleMessageListenerContainer.this.messageDeleter.deleteMessage(this.logicalQueueName, this.queueUrl, receiptHandle);
+        }
+
+        private org.springframework.messaging.Message<String> getMessageForExecution(AsyncHandlerMethodResult asyncResult) {
+            return SimpleMessageListenerContainer.this.getMessageForExecution(this.logicalQueueName, this.message, this.queueAttributes,
+                    asyncResult);
+        }
     }
 
-    private class AsynchronousMessageListener implements Runnable {
+    /**
+     * Processes the messages of one FIFO queue message group in order. If a message fails and will be redelivered, the
+     * remaining messages of the group are not processed either, so that they are redelivered after it.
+     */
+    private class MessageGroupExecutor implements MessageGroupDispatcher.RejectableTask {
 
-        private final QueueAttributes queueAttributes;
         private final String logicalQueueName;
+        private final String messageGroupId;
+        private final List<Message> messages;
+        private final QueueAttributes queueAttributes;
 
-        private AsynchronousMessageListener(String logicalQueueName, QueueAttributes queueAttributes) {
+        private MessageGroupExecutor(String logicalQueueName, String messageGroupId, List<Message> messages, QueueAttributes queueAttributes) {
             this.logicalQueueName = logicalQueueName;
+            this.messageGroupId = messageGroupId;
+            this.messages = messages;
             this.queueAttributes = queueAttributes;
         }
 
         @Override
         public void run() {
-            while (isQueueRunning()) {
-                try {
-                    ReceiveMessageResult receiveMessageResult = getAmazonSqs().receiveMessage(this.queueAttributes.getReceiveMessageRequest());
-                    CountDownLatch messageBatchLatch = new CountDownLatch(receiveMessageResult.getMessages().size());
-                    for (Message message : receiveMessageResult.getMessages()) {
-                        if (isQueueRunning()) {
-                            MessageExecutor messageExecutor = new MessageExecutor(this.logicalQueueName, message, this.queueAttributes);
-                            getTaskExecutor().execute(new SignalExecutingRunnable(messageBatchLatch, messageExecutor));
-                        } else {
-                            messageBatchLatch.countDown();
-                        }
-                    }
-                    try {
-                        messageBatchLatch.await();
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                    }
-                } catch (Exception e) {
-                    getLogger().warn("An Exception occurred while polling queue '{}'. The failing operation will be " +
-                            "retried in {} milliseconds", this.logicalQueueName, getBackOffTime(), e);
-                    try {
-                        //noinspection BusyWait
-                        Thread.sleep(getBackOffTime());
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
+            for (int i = 0; i < this.messages.size(); i++) {
+                if (isDraining(this.logicalQueueName)) {
+                    releaseMessages(this.logicalQueueName, this.queueAttributes.getDestinationUrl(),
+                            this.messages.subList(i, this.messages.size()));
+                    return;
+                }
+
+                if (!new MessageExecutor(this.logicalQueueName, this.messages.get(i), this.queueAttributes).execute()) {
+                    int skippedMessages = this.messages.size() - i - 1;
+                    if (skippedMessages > 0) {
+                        getLogger().debug("Skipped {} messages of message group '{}' on queue '{}' to preserve the message order",
+                                skippedMessages, this.messageGroupId, this.logicalQueueName);
                     }
+                    return;
                 }
             }
-
-            SimpleMessageListenerContainer.this.scheduledFutureByQueue.remove(this.logicalQueueName);
         }
 
-        private boolean isQueueRunning() {
-            if (SimpleMessageListenerContainer.this.runningStateByQueue.containsKey(this.logicalQueueName)) {
-                return SimpleMessageListenerContainer.this.runningStateByQueue.get(this.logicalQueueName);
-            } else {
-                getLogger().warn("Stopped queue '" + this.logicalQueueName + "' because it was not listed as running queue.");
-                return false;
-            }
+        @Override
+        public void reject() {
+            returnRejectedMessages(this.logicalQueueName, this.queueAttributes.getDestinationUrl(), this.messages);
         }
     }
 
-    private class MessageExecutor implements Runnable {
+    private class BatchMessageExecutor implements AsyncMessageExecution {
 
-        private final Message message;
+        private final List<Message> messages;
         private final String logicalQueueName;
         private final String queueUrl;
-        private final boolean hasRedrivePolicy;
+        private final QueueAttributes queueAttributes;
         private final SqsMessageDeletionPolicy deletionPolicy;
 
-        private MessageExecutor(String logicalQueueName, Message message, QueueAttributes queueAttributes) {
+        private BatchMessageExecutor(String logicalQueueName, List<Message> messages, QueueAttributes queueAttributes) {
             this.logicalQueueName = logicalQueueName;
-            this.message = message;
-            this.queueUrl = queueAttributes.getReceiveMessageRequest().getQueueUrl();
-            this.hasRedrivePolicy = queueAttributes.hasRedrivePolicy();
+            this.messages = messages;
+            this.queueUrl = queueAttributes.getDestinationUrl();
+            this.queueAttributes = queueAttributes;
             this.deletionPolicy = queueAttributes.getDeletionPolicy();
         }
 
         @Override
         public void run() {
-            String receiptHandle = this.message.getReceiptHandle();
-            org.springframework.messaging.Message<String> queueMessage = getMessageForExecution();
+            execute();
+        }
+
+        /**
+         * Batch listener methods have no asynchronous results, so the returned future is already completed.
+         */
+        @Override
+        public ListenableFuture<Boolean> executeAsync() {
+            return completedFuture(execute());
+        }
+
+        /**
+         * @return {@code false} if any message of the batch could not be processed, {@code true} otherwise
+         */
+        private boolean execute() {
+            List<org.springframework.messaging.Message<String>> queueMessages = new ArrayList<>(this.messages.size());
+            for (Message message : this.messages) {
+                queueMessages.add(getMessageForExecution(this.logicalQueueName, message, this.queueAttributes, null));
+                registerInFlightMessage(this.queueUrl, message.getReceiptHandle());
+            }
+            long processingStart = processingStarted(this.logicalQueueName, this.messages.size());
+            ProcessingTimeoutWatchdog.Watch watch = watchProcessing(this.logicalQueueName);
+
+            boolean executed = false;
             try {
-                executeMessage(queueMessage);
-                applyDeletionPolicyOnSuccess(receiptHandle);
+                executeMessageBatch(new GenericMessage<>(queueMessages,
+                        Collections.<String, Object>singletonMap(QueueMessageHandler.LOGICAL_RESOURCE_ID, this.logicalQueueName)));
+                executed = true;
+                if (completeProcessing(watch, this.logicalQueueName, this.messages.size(), processingStart)) {
+                    return false;
+                }
+                processingCompleted(this.logicalQueueName, this.messages.size(), processingStart, true);
+                applyDeletionPolicy(Collections.emptySet());
+                return true;
             } catch (MessagingException messagingException) {
-                applyDeletionPolicyOnError(receiptHandle, messagingException);
+                if (completeProcessing(watch, this.logicalQueueName, this.messages.size(), processingStart)) {
+                    return false;
+                }
+                processingCompleted(this.logicalQueueName, this.messages.size(), processingStart, false);
+                PartialBatchFailureException partialBatchFailure = findPartialBatchFailure(messagingException);
+                applyDeletionPolicy(partialBatchFailure != null ? partialBatchFailure.getFailedIndexes() : allIndexes());
+                if (this.deletionPolicy == SqsMessageDeletionPolicy.ON_SUCCESS) {
+                    getLogger().error("Exception encountered while processing message batch.", messagingException);
+                }
+                return false;
+            } catch (RuntimeException | Error e) {
+                if (!executed && !completeProcessing(watch, this.logicalQueueName, this.messages.size(), processingStart)) {
+                    processingCompleted(this.logicalQueueName, this.messages.size(), processingStart, false);
+                }
+                throw e;
+            } finally {
+                if (watch != null) {
+                    watch.complete();
+                }
+                for (Message message : this.messages) {
+                    unregisterInFlightMessage(this.queueUrl, message.getReceiptHandle());
+                }
+                inFlightMessagesCompleted(this.messages.size());
             }
         }
 
-        private void applyDeletionPolicyOnSuccess(String receiptHandle) {
-            if (this.deletionPolicy == SqsMessageDeletionPolicy.ON_SUCCESS ||
-                    this.deletionPolicy == SqsMessageDeletionPolicy.ALWAYS ||
-                    this.deletionPolicy == SqsMessageDeletionPolicy.NO_REDRIVE) {
-                deleteMessage(receiptHandle);
+        private void applyDeletionPolicy(Set<Integer> failedIndexes) {
+            List<String> receiptHandles = new ArrayList<>(this.messages.size());
+            for (int i = 0; i < this.messages.size(); i++) {
+                boolean deleted = failedIndexes.contains(i) ? isDeletedOnError(this.deletionPolicy, this.queueAttributes) :
+                        isDeletedOnSuccess(this.deletionPolicy);
+                if (deleted) {
+                    receiptHandles.add(this.messages.get(i).getReceiptHandle());
+                }
             }
+
+            SimpleMessageListenerContainer.this.messageDeleter.deleteMessages(this.logicalQueueName, this.queueUrl, receiptHandles);
         }
 
-        private void applyDeletionPolicyOnError(String receiptHandle, MessagingException messagingException) {
-            if (this.deletionPolicy == SqsMessageDeletionPolicy.ALWAYS ||
-                    (this.deletionPolicy == SqsMessageDeletionPolicy.NO_REDRIVE && !this.hasRedrivePolicy)) {
-                deleteMessage(receiptHandle);
-            } else if (this.deletionPolicy == SqsMessageDeletionPolicy.ON_SUCCESS) {
-                getLogger().error("Exception encountered while processing message.", messagingException);
+        private Set<Integer> allIndexes() {
+            Set<Integer> indexes = new HashSet<>(this.messages.size());
+            for (int i = 0; i < this.messages.size(); i++) {
+                indexes.add(i);
             }
+            return indexes;
         }
+    }
 
-        private void deleteMessage(String receiptHandle) {
-            getAmazonSqs().deleteMessageAsync(new DeleteMessageRequest(this.queueUrl, receiptHandle));
+    /**
+     * @return the start of the processing as returned by {@link System#nanoTime()} or 0 if the container is not
+     * instrumented
+     */
+    private long processingStarted(String logicalQueueName, int numberOfMessages) {
+        this.inFlightMessageCount.addAndGet(numberOfMessages);
+        if (this.metrics == null) {
+            return 0;
+        }
+
+        this.metrics.processingStarted(logicalQueueName, numberOfMessages);
+        return System.nanoTime();
+    }
+
+    private void processingCompleted(String logicalQueueName, int numberOfMessages, long processingStart, boolean successful) {
+        if (this.metrics != null) {
+            this.metrics.processingCompleted(logicalQueueName, numberOfMessages, System.nanoTime() - processingStart, successful);
+        }
+    }
+
+    /**
+     * Called once the deletion policy has been applied to messages, so that a draining container stops only after
+     * the deletions of completed messages were issued.
+     */
+    private void inFlightMessagesCompleted(int numberOfMessages) {
+        if (this.inFlightMessageCount.addAndGet(-numberOfMessages) == 0) {
+            synchronized (this.inFlightMessageMonitor) {
+                this.inFlightMessageMonitor.notifyAll();
+            }
+        }
+    }
+
+    static ListenableFuture<Boolean> completedFuture(boolean value) {
+        SettableListenableFuture<Boolean> future = new SettableListenableFuture<>();
+        future.set(value);
+        return future;
+    }
+
+    /**
+     * Runs the runnable and invokes the completion callback afterwards. An {@link AsyncMessageExecution} is executed
+     * without blocking the current thread, so the callback is invoked when an asynchronous result of the listener
+     * method has completed.
+     */
+    private static void runAndThen(Runnable runnable, final Runnable completionCallback) {
+        if (!(runnable instanceof AsyncMessageExecution)) {
+            try {
+                runnable.run();
+            } finally {
+                completionCallback.run();
+            }
+            return;
+        }
+
+        ListenableFuture<Boolean> completion;
+        try {
+            completion = ((AsyncMessageExecution) runnable).executeAsync();
+        } catch (RuntimeException | Error e) {
+            completionCallback.run();
+            throw e;
         }
 
-        private org.springframework.messaging.Message<String> getMessageForExecution() {
-            HashMap<String, Object> additionalHeaders = new HashMap<>();
-            additionalHeaders.put(QueueMessageHandler.LOGICAL_RESOURCE_ID, this.logicalQueueName);
-            if (this.deletionPolicy == SqsMessageDeletionPolicy.NEVER) {
-                String receiptHandle = this.message.getReceiptHandle();
-                QueueMessageAcknowledgment acknowledgment = new QueueMessageAcknowledgment(SimpleMessageListenerContainer.this.getAmazonSqs(), this.queueUrl, receiptHandle);
-                additionalHeaders.put(QueueMessageHandler.ACKNOWLEDGMENT, acknowledgment);
+        completion.addCallback(new ListenableFutureCallback<Boolean>() {
+
+            @Override
+            public void onSuccess(Boolean result) {
+                completionCallback.run();
+            }
+
+            @Override
+            public void onFailure(Throwable ex) {
+                completionCallback.run();
             }
-            additionalHeaders.put(QueueMessageHandler.VISIBILITY, new QueueMessageVisibility(SimpleMessageListenerContainer.this.getAmazonSqs(), this.queueUrl, this.message.getReceiptHandle()));
+        });
+    }
 
-            return createMessage(this.message, additionalHeaders);
+    private static void rejectTask(Runnable runnable) {
+        if (runnable instanceof MessageGroupDispatcher.RejectableTask) {
+            ((MessageGroupDispatcher.RejectableTask) runnable).reject();
         }
     }
 
-    private static class SignalExecutingRunnable implements Runnable {
+    private static class SignalExecutingRunnable implements MessageGroupDispatcher.RejectableTask {
 
         private final CountDownLatch countDownLatch;
         private final Runnable runnable;
@@ -393,11 +2336,68 @@ public class SimpleMessageListenerContainer extends AbstractMessageListenerConta
 
         @Override
         public void run() {
+            runAndThen(this.runnable, new Runnable() {
+
+                @Override
+                public void run() {
+                    SignalExecutingRunnable.this.countDownLatch.countDown();
+                }
+            });
+        }
+
+        @Override
+        public void reject() {
             try {
-                this.runnable.run();
+                rejectTask(this.runnable);
             } finally {
                 this.countDownLatch.countDown();
             }
         }
     }
+
+    private static class PermitReleasingRunnable implements MessageGroupDispatcher.RejectableTask {
+
+        private final Semaphore permits;
+        private final int acquiredPermits;
+        private final Runnable runnable;
+        private final Runnable releaseCallback;
+
+        private PermitReleasingRunnable(Semaphore permits, int acquiredPermits, Runnable runnable) {
+            this(permits, acquiredPermits, runnable, null);
+        }
+
+        /**
+         * @param releaseCallback
+         *         invoked after the permits have been released
+         */
+        private PermitReleasingRunnable(Semaphore permits, int acquiredPermits, Runnable runnable, Runnable releaseCallback) {
+            this.permits = permits;
+            this.acquiredPermits = acquiredPermits;
+            this.runnable = runnable;
+            this.releaseCallback = releaseCallback;
+        }
+
+        @Override
+        public void run() {
+            runAndThen(this.runnable, new Runnable() {
+
+                @Override
+                public void run() {
+                    PermitReleasingRunnable.this.permits.release(PermitReleasingRunnable.this.acquiredPermits);
+                    if (PermitReleasingRunnable.this.releaseCallback != null) {
+                        PermitReleasingRunnable.this.releaseCallback.run();
+                    }
+                }
+            });
+        }
+
+        @Override
+        public void reject() {
+            try {
+                rejectTask(this.runnable);
+            } finally {
+                this.permits.release(this.acquiredPermits);
+            }
+        }
+    }
 }
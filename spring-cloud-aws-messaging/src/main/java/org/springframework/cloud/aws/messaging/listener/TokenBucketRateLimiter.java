@@ -0,0 +1,118 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.aws.messaging.listener;
+
+import org.springframework.util.Assert;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket that limits the rate at which the {@link SimpleMessageListenerContainer} receives messages from a
+ * queue. The bucket holds up to {@code burst} permits and is refilled with {@code permitsPerSecond} permits per second.
+ * A poller takes one permit for every message it requests and returns the permits of messages it requested but did
+ * not receive. Messages beyond the rate therefore stay in the queue instead of waiting in memory until their
+ * visibility timeout expires.
+ * <p>The bucket starts full, so the first {@code burst} messages are received without delay.
+ *
+ * @since 2.1
+ */
+public class TokenBucketRateLimiter {
+
+    private final double permitsPerSecond;
+    private final int burst;
+
+    private double availablePermits;
+    private long lastRefillTime;
+
+    /**
+     * @param permitsPerSecond
+     *         the number of messages per second that may be received on average
+     * @param burst
+     *         the maximum number of messages that may be received at once after an idle period
+     */
+    public TokenBucketRateLimiter(double permitsPerSecond, int burst) {
+        Assert.isTrue(permitsPerSecond > 0, "permitsPerSecond must be a positive number");
+        Assert.isTrue(burst > 0, "burst must be a positive number");
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+        this.availablePermits = burst;
+        this.lastRefillTime = System.nanoTime();
+    }
+
+    public double getPermitsPerSecond() {
+        return this.permitsPerSecond;
+    }
+
+    public int getBurst() {
+        return this.burst;
+    }
+
+    /**
+     * Takes as many whole permits as available, but not more than requested.
+     *
+     * @param maxPermits
+     *         the maximum number of permits to take
+     * @return the number of permits taken, 0 if no permit is available
+     */
+    public synchronized int tryAcquire(int maxPermits) {
+        refill();
+        int acquiredPermits = (int) Math.min(Math.floor(this.availablePermits), maxPermits);
+        this.availablePermits -= acquiredPermits;
+        return acquiredPermits;
+    }
+
+    /**
+     * Returns permits that were acquired but not used, e.g. because a receive request returned fewer messages than
+     * requested. The bucket never holds more than {@code burst} permits.
+     *
+     * @param permits
+     *         the number of unused permits
+     */
+    public synchronized void release(int permits) {
+        if (permits <= 0) {
+            return;
+        }
+        refill();
+        this.availablePermits = Math.min(this.availablePermits + permits, this.burst);
+    }
+
+    /**
+     * @return the number of milliseconds until the next whole permit is available, 0 if a permit is available now
+     */
+    public synchronized long getWaitTimeForPermit() {
+        refill();
+        if (this.availablePermits >= 1) {
+            return 0;
+        }
+        return (long) Math.ceil((1 - this.availablePermits) * TimeUnit.SECONDS.toMillis(1) / this.permitsPerSecond);
+    }
+
+    /**
+     * @return the number of currently available permits including fractions of permits
+     */
+    public synchronized double getAvailablePermits() {
+        refill();
+        return this.availablePermits;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        double refilledPermits = (now - this.lastRefillTime) * this.permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.availablePermits = Math.min(this.availablePermits + refilledPermits, this.burst);
+        this.lastRefillTime = now;
+    }
+}
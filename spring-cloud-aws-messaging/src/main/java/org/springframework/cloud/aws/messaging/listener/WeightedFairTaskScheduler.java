@@ -0,0 +1,278 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.aws.messaging.listener;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shares a limited number of concurrently executed tasks between the queues of a container according to their weights.
+ * Every queue has its own work queue and the next task to execute is selected with deficit round-robin: the queue at
+ * the head of the round executes as many tasks as its weight before the next queue gets its turn. A queue with weight 3
+ * therefore gets three times as many of the executions as a queue with weight 1 as long as both have tasks waiting,
+ * while an idle queue does not hold back the others.
+ * <p>If the executor rejects a task, the task stays the next one to execute and is retried when another task completes,
+ * is submitted or {@link #executePendingTasks()} is called, but at the latest after the retry delay. The delayed retry
+ * makes sure that rejected tasks are executed even if no task is running and all pollers wait for their tasks. Rejected
+ * tasks are never executed by the submitting thread, so that a poller is not kept from polling by the processing of
+ * messages.
+ *
+ * @since 2.1
+ */
+class WeightedFairTaskScheduler implements DisposableBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WeightedFairTaskScheduler.class);
+    private static final int DEFAULT_WEIGHT = 1;
+    private static final long DEFAULT_RETRY_DELAY = 100;
+
+    private final Executor executor;
+    private final int maxConcurrentTasks;
+    private final Map<String, Integer> weightsByQueue;
+    private final long retryDelay;
+    private final ScheduledExecutorService retryScheduler;
+    private final Map<String, WorkQueue> workQueuesByQueue = new HashMap<>();
+    private final Queue<WorkQueue> activeWorkQueues = new ArrayDeque<>();
+    private final Deque<Runnable> rejectedTasks = new ArrayDeque<>();
+    private int runningTasks;
+    private boolean retryScheduled;
+
+    /**
+     * @param executor
+     *         the executor that runs the tasks
+     * @param maxConcurrentTasks
+     *         the maximum number of tasks of all queues that are executed at the same time
+     * @param weightsByQueue
+     *         the weights by logical queue name, queues without a weight have the weight 1
+     */
+    WeightedFairTaskScheduler(Executor executor, int maxConcurrentTasks, Map<String, Integer> weightsByQueue) {
+        this(executor, maxConcurrentTasks, weightsByQueue, DEFAULT_RETRY_DELAY);
+    }
+
+    /**
+     * @param executor
+     *         the executor that runs the tasks
+     * @param maxConcurrentTasks
+     *         the maximum number of tasks of all queues that are executed at the same time
+     * @param weightsByQueue
+     *         the weights by logical queue name, queues without a weight have the weight 1
+     * @param retryDelay
+     *         the delay in milliseconds after which tasks the executor rejected are retried
+     */
+    WeightedFairTaskScheduler(Executor executor, int maxConcurrentTasks, Map<String, Integer> weightsByQueue, long retryDelay) {
+        Assert.notNull(executor, "executor must not be null");
+        Assert.isTrue(maxConcurrentTasks > 0, "maxConcurrentTasks must be a positive number");
+        Assert.isTrue(retryDelay >= 0, "retryDelay must not be negative");
+        for (Map.Entry<String, Integer> weight : weightsByQueue.entrySet()) {
+            Assert.isTrue(weight.getValue() != null && weight.getValue() > 0, "The weight of queue '" + weight.getKey() + "' must be a positive number");
+        }
+        this.executor = executor;
+        this.maxConcurrentTasks = maxConcurrentTasks;
+        this.weightsByQueue = new HashMap<>(weightsByQueue);
+        this.retryDelay = retryDelay;
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(WeightedFairTaskScheduler.class.getSimpleName() + "-");
+        threadFactory.setDaemon(true);
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+    }
+
+    /**
+     * @return an executor that submits the tasks to the work queue of the given queue
+     */
+    Executor getExecutor(final String logicalQueueName) {
+        return new Executor() {
+
+            @Override
+            public void execute(Runnable task) {
+                submit(logicalQueueName, task);
+            }
+        };
+    }
+
+    /**
+     * Adds the task to the work queue of the queue and executes it as soon as it is selected.
+     */
+    void submit(String logicalQueueName, Runnable task) {
+        synchronized (this.activeWorkQueues) {
+            WorkQueue workQueue = this.workQueuesByQueue.get(logicalQueueName);
+            if (workQueue == null) {
+                Integer weight = this.weightsByQueue.get(logicalQueueName);
+                workQueue = new WorkQueue(weight != null ? weight : DEFAULT_WEIGHT);
+                this.workQueuesByQueue.put(logicalQueueName, workQueue);
+            }
+
+            workQueue.tasks.add(task);
+            if (!workQueue.active) {
+                workQueue.active = true;
+                this.activeWorkQueues.add(workQueue);
+            }
+        }
+
+        executeNextTasks();
+    }
+
+    /**
+     * Executes waiting tasks as far as the maximum number of concurrent tasks allows. Used to retry tasks the executor
+     * rejected while no other task of the scheduler was running.
+     */
+    void executePendingTasks() {
+        executeNextTasks();
+    }
+
+    /**
+     * @return the number of tasks that are executed at the moment
+     */
+    int getRunningTaskCount() {
+        synchronized (this.activeWorkQueues) {
+            return this.runningTasks;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        this.retryScheduler.shutdownNow();
+    }
+
+    private void executeNextTasks() {
+        while (true) {
+            Runnable task;
+            synchronized (this.activeWorkQueues) {
+                if (this.runningTasks >= this.maxConcurrentTasks) {
+                    return;
+                }
+                task = this.rejectedTasks.isEmpty() ? pollNextTask() : this.rejectedTasks.poll();
+                if (task == null) {
+                    return;
+                }
+                this.runningTasks++;
+            }
+
+            try {
+                this.executor.execute(new CompletionSignallingRunnable(task));
+            } catch (RuntimeException e) {
+                synchronized (this.activeWorkQueues) {
+                    this.runningTasks--;
+                    this.rejectedTasks.addFirst(task);
+                }
+                LOGGER.debug("The task executor rejected a task, the task is retried when the next task completes or after {} ms", this.retryDelay);
+                scheduleRetry();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Schedules the execution of the rejected tasks after the retry delay unless a retry is already scheduled.
+     */
+    private void scheduleRetry() {
+        synchronized (this.activeWorkQueues) {
+            if (this.retryScheduled) {
+                return;
+            }
+            this.retryScheduled = true;
+        }
+
+        try {
+            this.retryScheduler.schedule(new Runnable() {
+
+                @Override
+                public void run() {
+                    synchronized (WeightedFairTaskScheduler.this.activeWorkQueues) {
+                        WeightedFairTaskScheduler.this.retryScheduled = false;
+                    }
+                    executeNextTasks();
+                }
+            }, this.retryDelay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            synchronized (this.activeWorkQueues) {
+                this.retryScheduled = false;
+            }
+            LOGGER.debug("The retry of the rejected tasks could not be scheduled because the scheduler is destroyed");
+        }
+    }
+
+    /**
+     * Selects the next task with deficit round-robin. Every task costs one unit and the work queue at the head of the
+     * round receives its weight as quantum when its deficit is used up.
+     */
+    private Runnable pollNextTask() {
+        WorkQueue workQueue = this.activeWorkQueues.peek();
+        if (workQueue == null) {
+            return null;
+        }
+
+        if (workQueue.deficit == 0) {
+            workQueue.deficit = workQueue.weight;
+        }
+        Runnable task = workQueue.tasks.poll();
+        workQueue.deficit--;
+
+        if (workQueue.tasks.isEmpty()) {
+            this.activeWorkQueues.poll();
+            workQueue.active = false;
+            workQueue.deficit = 0;
+        } else if (workQueue.deficit == 0) {
+            this.activeWorkQueues.add(this.activeWorkQueues.poll());
+        }
+        return task;
+    }
+
+    private static final class WorkQueue {
+
+        private final int weight;
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+        private int deficit;
+        private boolean active;
+
+        private WorkQueue(int weight) {
+            this.weight = weight;
+        }
+    }
+
+    private final class CompletionSignallingRunnable implements Runnable {
+
+        private final Runnable task;
+
+        private CompletionSignallingRunnable(Runnable task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            try {
+                this.task.run();
+            } finally {
+                synchronized (WeightedFairTaskScheduler.this.activeWorkQueues) {
+                    WeightedFairTaskScheduler.this.runningTasks--;
+                }
+                executeNextTasks();
+            }
+        }
+    }
+}
@@ -53,6 +53,12 @@ import java.lang.annotation.Target;
  * </ul>
  * <p>Additionally a deletion policy can be chosen to define when a message must be deleted once the listener method
  * has been called. To get an overview of the available deletion policies read the {@link SqsMessageDeletionPolicy} documentation.</p>
+ * <p>Listener methods with {@link #batch()} enabled are invoked once per received batch of messages and take a
+ * {@code List<T>} or {@code List<Message<T>>} argument instead of a single payload.</p>
+ * <p>Listener methods that process a single message may return a {@link java.util.concurrent.CompletableFuture}
+ * (or any other {@link java.util.concurrent.CompletionStage}) or a
+ * {@link org.springframework.util.concurrent.ListenableFuture}. The message is then considered processed, and the
+ * deletion policy is applied, when the returned future completes.</p>
  * <p>By default the return value is wrapped as a message and sent to the destination
  * specified with an {@link org.springframework.messaging.handler.annotation.SendTo @SendTo} method-level annotation.
  *
@@ -75,4 +81,86 @@ public @interface SqsListener {
      */
     SqsMessageDeletionPolicy deletionPolicy() default SqsMessageDeletionPolicy.NO_REDRIVE;
 
+    /**
+     * Defines if the listener method must be invoked once with all messages of a received batch. Batch listener
+     * methods take a {@code List<T>} or {@code List<Message<T>>} argument and the deletion policy is applied to the
+     * whole batch. Failures of individual messages can be reported by throwing a
+     * {@link org.springframework.cloud.aws.messaging.listener.PartialBatchFailureException}.
+     *
+     * @since 2.1
+     */
+    boolean batch() default false;
+
+    /**
+     * Defines the system attributes (e.g. {@code SentTimestamp} or {@code ApproximateReceiveCount}) that are received
+     * with the messages and made available as headers. If empty, the attribute names configured on the container are
+     * used, which are all attributes by default. Use {@code "None"} to receive no attributes.
+     *
+     * @since 2.1
+     */
+    String[] attributeNames() default {};
+
+    /**
+     * Defines the message attributes that are received with the messages and made available as headers. If empty,
+     * the message attribute names configured on the container are used, which are all message attributes by default.
+     * Use {@code "None"} to receive no message attributes.
+     *
+     * @since 2.1
+     */
+    String[] messageAttributeNames() default {};
+
+    /**
+     * Defines the maximum number of messages (1 to 10) received with one request from the queues of this listener,
+     * overriding the value configured on the container. Supports placeholders and SpEL expressions.
+     *
+     * @since 2.1
+     */
+    String maxNumberOfMessages() default "";
+
+    /**
+     * Defines the visibility timeout in seconds of the messages received from the queues of this listener, overriding
+     * the value configured on the container. Supports placeholders and SpEL expressions.
+     *
+     * @since 2.1
+     */
+    String visibilityTimeout() default "";
+
+    /**
+     * Defines the number of seconds a receive request of the queues of this listener waits for messages, overriding
+     * the value configured on the container. Supports placeholders and SpEL expressions.
+     *
+     * @since 2.1
+     */
+    String waitTimeOut() default "";
+
+    /**
+     * Defines the number of milliseconds the pollers of the queues of this listener wait after a failed receive
+     * request, overriding the back off configured on the container. Supports placeholders and SpEL expressions.
+     *
+     * @since 2.1
+     */
+    String backOffTime() default "";
+
+    /**
+     * Defines the maximum number of messages passed to a {@link #batch()} listener method. Messages of successive
+     * receive requests are accumulated until the batch is full or the {@link #batchWindow()} has elapsed. A full batch is
+     * processed by the poller that completed it, which stops receiving messages meanwhile. If empty, the messages of
+     * every receive request are passed to the listener method as they are, unless a batch window is set, which limits
+     * the batch to the maximum number of in-flight messages of the container. Supports placeholders and SpEL
+     * expressions.
+     *
+     * @since 2.1
+     */
+    String maxBatchSize() default "";
+
+    /**
+     * Defines the maximum number of milliseconds messages are accumulated for a {@link #batch()} listener method,
+     * starting with the first message of a batch. The visibility of accumulated messages is extended while they wait.
+     * If empty and a {@link #maxBatchSize()} is set, a window of one second is used. Supports placeholders and SpEL
+     * expressions.
+     *
+     * @since 2.1
+     */
+    String batchWindow() default "";
+
 }
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.aws.messaging.listener.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.cloud.aws.messaging.listener.MessageListenerContainerMetrics;
+import org.springframework.cloud.aws.messaging.listener.TokenBucketRateLimiter;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.util.Assert;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * {@link MessageListenerContainerMetrics} that records Micrometer meters. All meters are tagged with the name of the
+ * container ({@value #CONTAINER_TAG}) and, except for the executor meters, with the logical queue name
+ * ({@value #QUEUE_TAG}).
+ * <ul>
+ * <li>{@code sqs.listener.receive}: timer of the receive requests</li>
+ * <li>{@code sqs.listener.receive.empty}: counter of the receive requests that returned no message</li>
+ * <li>{@code sqs.listener.receive.messages}: distribution of the number of messages per receive request</li>
+ * <li>{@code sqs.listener.receive.errors}: counter of the failed receive requests</li>
+ * <li>{@code sqs.listener.processing}: timer of the listener method executions, tagged with the outcome</li>
+ * <li>{@code sqs.listener.processing.timeouts}: counter of the messages whose processing exceeded the processing
+ * timeout</li>
+ * <li>{@code sqs.listener.in.flight}: gauge of the messages being processed</li>
+ * <li>{@code sqs.listener.delete.errors}: counter of the failed message deletions</li>
+ * <li>{@code sqs.listener.executor.rejections}: counter of the executions rejected by the task executor</li>
+ * <li>{@code sqs.listener.rate.limit.permits}: gauge of the available permits of a {@link TokenBucketRateLimiter}</li>
+ * <li>{@code sqs.listener.executor.active}, {@code sqs.listener.executor.pool.size} and
+ * {@code sqs.listener.executor.pool.max}: gauges of a {@link ThreadPoolTaskExecutor}</li>
+ * </ul>
+ *
+ * @since 2.1
+ */
+public class MicrometerMessageListenerContainerMetrics implements MessageListenerContainerMetrics {
+
+    public static final String CONTAINER_TAG = "container";
+    public static final String QUEUE_TAG = "queue";
+
+    private final MeterRegistry meterRegistry;
+    private final Tags containerTags;
+    private final ConcurrentHashMap<String, QueueMeters> queueMetersByQueue = new ConcurrentHashMap<>();
+
+    /**
+     * @param meterRegistry
+     *         the registry the meters are registered in
+     * @param containerName
+     *         the name of the container, usually its bean name
+     */
+    public MicrometerMessageListenerContainerMetrics(MeterRegistry meterRegistry, String containerName) {
+        Assert.notNull(meterRegistry, "meterRegistry must not be null");
+        Assert.notNull(containerName, "containerName must not be null");
+        this.meterRegistry = meterRegistry;
+        this.containerTags = Tags.of(CONTAINER_TAG, containerName);
+    }
+
+    @Override
+    public void bindTaskExecutor(AsyncTaskExecutor taskExecutor) {
+        if (!(taskExecutor instanceof ThreadPoolTaskExecutor)) {
+            return;
+        }
+
+        ThreadPoolTaskExecutor threadPoolTaskExecutor = (ThreadPoolTaskExecutor) taskExecutor;
+        Gauge.builder("sqs.listener.executor.active", threadPoolTaskExecutor, new ToDoubleFunction<ThreadPoolTaskExecutor>() {
+
+            @Override
+            public double applyAsDouble(ThreadPoolTaskExecutor executor) {
+                return executor.getActiveCount();
+            }
+        }).tags(this.containerTags).register(this.meterRegistry);
+        Gauge.builder("sqs.listener.executor.pool.size", threadPoolTaskExecutor, new ToDoubleFunction<ThreadPoolTaskExecutor>() {
+
+            @Override
+            public double applyAsDouble(ThreadPoolTaskExecutor executor) {
+                return executor.getPoolSize();
+            }
+        }).tags(this.containerTags).register(this.meterRegistry);
+        Gauge.builder("sqs.listener.executor.pool.max", threadPoolTaskExecutor, new ToDoubleFunction<ThreadPoolTaskExecutor>() {
+
+            @Override
+            public double applyAsDouble(ThreadPoolTaskExecutor executor) {
+                return executor.getMaxPoolSize();
+            }
+        }).tags(this.containerTags).register(this.meterRegistry);
+    }
+
+    @Override
+    public void bindRateLimiter(String logicalQueueName, TokenBucketRateLimiter rateLimiter) {
+        Gauge.builder("sqs.listener.rate.limit.permits", rateLimiter, new ToDoubleFunction<TokenBucketRateLimiter>() {
+
+            @Override
+            public double applyAsDouble(TokenBucketRateLimiter limiter) {
+                return limiter.getAvailablePermits();
+            }
+        }).tags(this.containerTags.and(QUEUE_TAG, logicalQueueName)).register(this.meterRegistry);
+    }
+
+    @Override
+    public void receiveCompleted(String logicalQueueName, long duration, int numberOfMessages) {
+        QueueMeters queueMeters = getQueueMeters(logicalQueueName);
+        queueMeters.receiveTimer.record(duration, TimeUnit.NANOSECONDS);
+        queueMeters.receivedMessages.record(numberOfMessages);
+        if (numberOfMessages == 0) {
+            queueMeters.emptyReceives.increment();
+        }
+    }
+
+    @Override
+    public void receiveFailed(String logicalQueueName) {
+        getQueueMeters(logicalQueueName).receiveErrors.increment();
+    }
+
+    @Override
+    public void processingStarted(String logicalQueueName, int numberOfMessages) {
+        getQueueMeters(logicalQueueName).inFlightMessages.addAndGet(numberOfMessages);
+    }
+
+    @Override
+    public void processingCompleted(String logicalQueueName, int numberOfMessages, long duration, boolean successful) {
+        QueueMeters queueMeters = getQueueMeters(logicalQueueName);
+        queueMeters.inFlightMessages.addAndGet(-numberOfMessages);
+        Timer processingTimer = successful ? queueMeters.successfulProcessingTimer : queueMeters.failedProcessingTimer;
+        processingTimer.record(duration, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void processingTimedOut(String logicalQueueName, int numberOfMessages) {
+        getQueueMeters(logicalQueueName).processingTimeouts.increment(numberOfMessages);
+    }
+
+    @Override
+    public void deleteFailed(String logicalQueueName) {
+        getQueueMeters(logicalQueueName).deleteErrors.increment();
+    }
+
+    @Override
+    public void executionRejected(String logicalQueueName) {
+        getQueueMeters(logicalQueueName).executionRejections.increment();
+    }
+
+    private QueueMeters getQueueMeters(String logicalQueueName) {
+        QueueMeters queueMeters = this.queueMetersByQueue.get(logicalQueueName);
+        if (queueMeters == null) {
+            QueueMeters newQueueMeters = new QueueMeters(this.meterRegistry, this.containerTags.and(QUEUE_TAG, logicalQueueName));
+            queueMeters = this.queueMetersByQueue.putIfAbsent(logicalQueueName, newQueueMeters);
+            if (queueMeters == null) {
+                queueMeters = newQueueMeters;
+            }
+        }
+        return queueMeters;
+    }
+
+    private static final class QueueMeters {
+
+        private final Timer receiveTimer;
+        private final Counter emptyReceives;
+        private final DistributionSummary receivedMessages;
+        private final Counter receiveErrors;
+        private final Timer successfulProcessingTimer;
+        private final Timer failedProcessingTimer;
+        private final Counter processingTimeouts;
+        private final AtomicInteger inFlightMessages;
+        private final Counter deleteErrors;
+        private final Counter executionRejections;
+
+        private QueueMeters(MeterRegistry meterRegistry, Tags queueTags) {
+            this.receiveTimer = Timer.builder("sqs.listener.receive").tags(queueTags).register(meterRegistry);
+            this.emptyReceives = Counter.builder("sqs.listener.receive.empty").tags(queueTags).register(meterRegistry);
+            this.receivedMessages = DistributionSummary.builder("sqs.listener.receive.messages").tags(queueTags).register(meterRegistry);
+            this.receiveErrors = Counter.builder("sqs.listener.receive.errors").tags(queueTags).register(meterRegistry);
+            this.successfulProcessingTimer = Timer.builder("sqs.listener.processing").tags(queueTags.and(Tag.of("outcome", "success")))
+                    .register(meterRegistry);
+            this.failedProcessingTimer = Timer.builder("sqs.listener.processing").tags(queueTags.and(Tag.of("outcome", "failure")))
+                    .register(meterRegistry);
+            this.processingTimeouts = Counter.builder("sqs.listener.processing.timeouts").tags(queueTags).register(meterRegistry);
+            this.inFlightMessages = meterRegistry.gauge("sqs.listener.in.flight", queueTags, new AtomicInteger());
+            this.deleteErrors = Counter.builder("sqs.listener.delete.errors").tags(queueTags).register(meterRegistry);
+            this.executionRejections = Counter.builder("sqs.listener.executor.rejections").tags(queueTags).register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.aws.messaging.listener.support;
+
+import org.springframework.cloud.aws.messaging.listener.annotation.SqsListener;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.ResolvableType;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.converter.MessageConversionException;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.handler.invocation.HandlerMethodArgumentResolver;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resolves the {@link List} parameter of batch listener methods (see {@link SqsListener#batch()}). The payload of the
+ * batch message is a list of the received messages, which are converted into the element type of the parameter. Both
+ * {@code List<T>} and {@code List<Message<T>>} parameters are supported.
+ *
+ * @since 2.1
+ */
+public class BatchMessageArgumentResolver implements HandlerMethodArgumentResolver {
+
+    private final MessageConverter converter;
+
+    public BatchMessageArgumentResolver(MessageConverter converter) {
+        this.converter = converter;
+    }
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        SqsListener sqsListener = parameter.getMethodAnnotation(SqsListener.class);
+        return sqsListener != null && sqsListener.batch() && List.class.isAssignableFrom(parameter.getParameterType());
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, Message<?> message) throws Exception {
+        if (!(message.getPayload() instanceof List)) {
+            throw new MessageConversionException(message, "Batch listener method '" + parameter.getMethod() +
+                    "' can only be invoked with a list of messages");
+        }
+
+        List<?> messages = (List<?>) message.getPayload();
+        ResolvableType elementType = ResolvableType.forMethodParameter(parameter).asCollection().getGeneric(0);
+        boolean messageElements = Message.class.isAssignableFrom(elementType.resolve(Object.class));
+        Class<?> payloadType = messageElements ? elementType.getGeneric(0).resolve(Object.class) : elementType.resolve(Object.class);
+
+        List<Object> arguments = new ArrayList<>(messages.size());
+        for (Object element : messages) {
+            Message<?> elementMessage = (Message<?>) element;
+            Object payload = convertPayload(elementMessage, payloadType);
+            if (messageElements) {
+                arguments.add(payload == elementMessage.getPayload() ? elementMessage : MessageBuilder.createMessage(payload, elementMessage.getHeaders()));
+            } else {
+                arguments.add(payload);
+            }
+        }
+
+        return arguments;
+    }
+
+    private Object convertPayload(Message<?> message, Class<?> payloadType) {
+        if (payloadType.isInstance(message.getPayload())) {
+            return message.getPayload();
+        }
+
+        Object payload = this.converter.fromMessage(message, payloadType);
+        if (payload == null) {
+            throw new MessageConversionException(message, "Cannot convert from [" + message.getPayload().getClass().getName() +
+                    "] to [" + payloadType.getName() + "] for " + message);
+        }
+
+        return payload;
+    }
+}
@@ -31,8 +31,14 @@ import org.springframework.cloud.aws.core.env.ResourceIdResolver;
 import org.springframework.cloud.aws.messaging.config.QueueMessageHandlerFactory;
 import org.springframework.cloud.aws.messaging.config.SimpleMessageListenerContainerFactory;
 import org.springframework.cloud.aws.messaging.core.QueueMessagingTemplate;
+import org.springframework.cloud.aws.messaging.listener.ExponentialIdleQueuePollingStrategy;
+import org.springframework.cloud.aws.messaging.listener.IdleQueuePollingStrategy;
+import org.springframework.cloud.aws.messaging.listener.JitteredExponentialBackOff;
+import org.springframework.cloud.aws.messaging.listener.MessageDispatchMode;
+import org.springframework.cloud.aws.messaging.listener.MessageListenerContainerMetrics;
 import org.springframework.cloud.aws.messaging.listener.QueueMessageHandler;
 import org.springframework.cloud.aws.messaging.listener.SimpleMessageListenerContainer;
+import org.springframework.cloud.aws.messaging.listener.TokenBucketRateLimiter;
 import org.springframework.cloud.aws.messaging.support.destination.DynamicQueueUrlDestinationResolver;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
 import org.springframework.context.annotation.Bean;
@@ -44,8 +50,12 @@ import org.springframework.messaging.core.DestinationResolvingMessageSendingOper
 import org.springframework.messaging.handler.invocation.HandlerMethodArgumentResolver;
 import org.springframework.messaging.handler.invocation.HandlerMethodReturnValueHandler;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.backoff.BackOff;
 
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
@@ -108,6 +118,7 @@ public class SqsConfigurationTest {
         Object destinationResolver = ReflectionTestUtils.getField(sendToMessageTemplate, "destinationResolver");
         Object targetDestinationResolver = ReflectionTestUtils.getField(destinationResolver, "targetDestinationResolver");
         assertEquals(ConfigurationWithCustomizedMessageHandler.CUSTOM_RESOURCE_ID_RESOLVER, ReflectionTestUtils.getField(targetDestinationResolver, "resourceIdResolver"));
+        assertTrue(messageHandler.isMethodHandleInvocation());
     }
 
     @Test
@@ -127,6 +138,28 @@ public class SqsConfigurationTest {
         assertEquals(ConfigurationWithCustomContainerFactory.WAIT_TIME_OUT, ReflectionTestUtils.getField(container, "waitTimeOut"));
         assertTrue(ConfigurationWithCustomContainerFactory.DESTINATION_RESOLVER == ReflectionTestUtils.getField(container, "destinationResolver"));
         assertEquals(ConfigurationWithCustomContainerFactory.BACK_OFF_TIME, container.getBackOffTime());
+        assertEquals(ConfigurationWithCustomContainerFactory.POLLER_COUNT, container.getPollerCount());
+        assertEquals(ConfigurationWithCustomContainerFactory.MESSAGE_DISPATCH_MODE, container.getMessageDispatchMode());
+        assertEquals(ConfigurationWithCustomContainerFactory.MAX_IN_FLIGHT_MESSAGES, container.getMaxInFlightMessages());
+        assertEquals(ConfigurationWithCustomContainerFactory.DELETE_MESSAGE_BATCH_MAX_DELAY, container.getDeleteMessageBatchMaxDelay());
+        assertEquals(ConfigurationWithCustomContainerFactory.VISIBILITY_HEARTBEAT_INTERVAL, container.getVisibilityHeartbeatInterval());
+        assertEquals(ConfigurationWithCustomContainerFactory.BACK_OFF, container.getBackOff());
+        assertEquals(ConfigurationWithCustomContainerFactory.CIRCUIT_BREAKER_FAILURE_THRESHOLD, container.getCircuitBreakerFailureThreshold());
+        assertEquals(ConfigurationWithCustomContainerFactory.CIRCUIT_BREAKER_OPEN_TIMEOUT.longValue(), container.getCircuitBreakerOpenTimeout());
+        assertEquals(ConfigurationWithCustomContainerFactory.METRICS, container.getMetrics());
+        assertEquals(ConfigurationWithCustomContainerFactory.IDLE_QUEUE_POLLING_STRATEGY, container.getIdleQueuePollingStrategy());
+        assertEquals(ConfigurationWithCustomContainerFactory.RATE_LIMITERS, container.getRateLimiters());
+        assertEquals(ConfigurationWithCustomContainerFactory.DRAIN_TIMEOUT, container.getDrainTimeout());
+        assertEquals(ConfigurationWithCustomContainerFactory.QUEUE_REGISTRATION_PARALLELISM.intValue(), container.getQueueRegistrationParallelism());
+        assertEquals(ConfigurationWithCustomContainerFactory.LAZY_REDRIVE_POLICY_LOOKUP, container.isLazyRedrivePolicyLookup());
+        assertEquals(ConfigurationWithCustomContainerFactory.ATTRIBUTE_NAMES, container.getAttributeNames());
+        assertEquals(ConfigurationWithCustomContainerFactory.MESSAGE_ATTRIBUTE_NAMES, container.getMessageAttributeNames());
+        assertEquals(ConfigurationWithCustomContainerFactory.QUEUE_WEIGHTS, container.getQueueWeights());
+        assertEquals(ConfigurationWithCustomContainerFactory.MAX_CONCURRENT_MESSAGES, container.getMaxConcurrentMessages());
+        assertEquals(ConfigurationWithCustomContainerFactory.PROCESSING_TIMEOUT, container.getProcessingTimeout());
+        assertEquals(ConfigurationWithCustomContainerFactory.PREFETCH_SIZE, container.getPrefetchSize());
+        assertEquals(ConfigurationWithCustomContainerFactory.PREFETCH_EXPIRY_FRACTION, container.getPrefetchExpiryFraction(), 0);
+        assertTrue(container.isVisibilityTimeoutAsProcessingTimeout());
     }
 
     @Test
@@ -136,7 +169,7 @@ public class SqsConfigurationTest {
         QueueMessageHandler queueMessageHandler = applicationContext.getBean(QueueMessageHandler.class);
 
         // Assert
-        assertEquals(1, queueMessageHandler.getReturnValueHandlers().size());
+        assertEquals(2, queueMessageHandler.getReturnValueHandlers().size());
         assertTrue(ConfigurationWithCustomSendToMessageTemplate.SEND_TO_MESSAGE_TEMPLATE ==
                 ReflectionTestUtils.getField(queueMessageHandler.getReturnValueHandlers().get(0), "messageTemplate"));
     }
@@ -219,6 +252,7 @@ public class SqsConfigurationTest {
             factory.setReturnValueHandlers(Collections.singletonList(CUSTOM_RETURN_VALUE_HANDLER));
             factory.setAmazonSqs(CUSTOM_AMAZON_SQS);
             factory.setResourceIdResolver(CUSTOM_RESOURCE_ID_RESOLVER);
+            factory.setMethodHandleInvocation(true);
 
             return factory;
         }
@@ -239,6 +273,27 @@ public class SqsConfigurationTest {
         public static final int WAIT_TIME_OUT = 12;
         public static final DestinationResolver<String> DESTINATION_RESOLVER = new DynamicQueueUrlDestinationResolver(mock(AmazonSQSAsync.class, withSettings().stubOnly()));
         public static final long BACK_OFF_TIME = 5000;
+        public static final int POLLER_COUNT = 3;
+        public static final MessageDispatchMode MESSAGE_DISPATCH_MODE = MessageDispatchMode.CONTINUOUS;
+        public static final Integer MAX_IN_FLIGHT_MESSAGES = 42;
+        public static final Long DELETE_MESSAGE_BATCH_MAX_DELAY = 250L;
+        public static final Integer VISIBILITY_HEARTBEAT_INTERVAL = 15;
+        public static final BackOff BACK_OFF = new JitteredExponentialBackOff(50, 3, 5000);
+        public static final Integer CIRCUIT_BREAKER_FAILURE_THRESHOLD = 7;
+        public static final Long CIRCUIT_BREAKER_OPEN_TIMEOUT = 45000L;
+        public static final MessageListenerContainerMetrics METRICS = mock(MessageListenerContainerMetrics.class);
+        public static final IdleQueuePollingStrategy IDLE_QUEUE_POLLING_STRATEGY = new ExponentialIdleQueuePollingStrategy();
+        public static final Long DRAIN_TIMEOUT = 30000L;
+        public static final Integer QUEUE_REGISTRATION_PARALLELISM = 4;
+        public static final boolean LAZY_REDRIVE_POLICY_LOOKUP = true;
+        public static final List<String> ATTRIBUTE_NAMES = Collections.singletonList("SentTimestamp");
+        public static final List<String> MESSAGE_ATTRIBUTE_NAMES = Arrays.asList("contentType", "traceId");
+        public static final Map<String, Integer> QUEUE_WEIGHTS = Collections.singletonMap("testQueue", 3);
+        public static final Integer MAX_CONCURRENT_MESSAGES = 8;
+        public static final Long PROCESSING_TIMEOUT = 25000L;
+        public static final Integer PREFETCH_SIZE = 20;
+        public static final Double PREFETCH_EXPIRY_FRACTION = 0.4;
+        public static final Map<String, TokenBucketRateLimiter> RATE_LIMITERS = Collections.singletonMap("testQueue", new TokenBucketRateLimiter(5, 10));
 
         static {
             QueueMessageHandler queueMessageHandler = new QueueMessageHandler();
@@ -259,6 +314,28 @@ public class SqsConfigurationTest {
             factory.setWaitTimeOut(WAIT_TIME_OUT);
             factory.setDestinationResolver(DESTINATION_RESOLVER);
             factory.setBackOffTime(BACK_OFF_TIME);
+            factory.setPollerCount(POLLER_COUNT);
+            factory.setMessageDispatchMode(MESSAGE_DISPATCH_MODE);
+            factory.setMaxInFlightMessages(MAX_IN_FLIGHT_MESSAGES);
+            factory.setDeleteMessageBatchMaxDelay(DELETE_MESSAGE_BATCH_MAX_DELAY);
+            factory.setVisibilityHeartbeatInterval(VISIBILITY_HEARTBEAT_INTERVAL);
+            factory.setBackOff(BACK_OFF);
+            factory.setCircuitBreakerFailureThreshold(CIRCUIT_BREAKER_FAILURE_THRESHOLD);
+            factory.setCircuitBreakerOpenTimeout(CIRCUIT_BREAKER_OPEN_TIMEOUT);
+            factory.setMetrics(METRICS);
+            factory.setIdleQueuePollingStrategy(IDLE_QUEUE_POLLING_STRATEGY);
+            factory.setRateLimiters(RATE_LIMITERS);
+            factory.setDrainTimeout(DRAIN_TIMEOUT);
+            factory.setQueueRegistrationParallelism(QUEUE_REGISTRATION_PARALLELISM);
+            factory.setLazyRedrivePolicyLookup(LAZY_REDRIVE_POLICY_LOOKUP);
+            factory.setAttributeNames(ATTRIBUTE_NAMES);
+            factory.setMessageAttributeNames(MESSAGE_ATTRIBUTE_NAMES);
+            factory.setQueueWeights(QUEUE_WEIGHTS);
+            factory.setMaxConcurrentMessages(MAX_CONCURRENT_MESSAGES);
+            factory.setProcessingTimeout(PROCESSING_TIMEOUT);
+            factory.setPrefetchSize(PREFETCH_SIZE);
+            factory.setPrefetchExpiryFraction(PREFETCH_EXPIRY_FRACTION);
+            factory.setVisibilityTimeoutAsProcessingTimeout(true);
 
             return factory;
         }
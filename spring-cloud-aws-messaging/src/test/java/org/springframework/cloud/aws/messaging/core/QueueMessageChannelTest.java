@@ -170,6 +170,30 @@ public class QueueMessageChannelTest {
         assertEquals("content", receivedMessage.getPayload());
     }
 
+    @Test
+    public void receiveMessage_withAttributeNames_requestsOnlyTheseAttributes() throws Exception {
+        // Arrange
+        AmazonSQSAsync amazonSqs = mock(AmazonSQSAsync.class);
+        when(amazonSqs.receiveMessage(new ReceiveMessageRequest("http://testQueue").
+                withWaitTimeSeconds(0).
+                withMaxNumberOfMessages(1).
+                withAttributeNames("SentTimestamp").
+                withMessageAttributeNames(Collections.<String>emptyList()))).
+                thenReturn(new ReceiveMessageResult().withMessages(
+                        Collections.singleton(new com.amazonaws.services.sqs.model.Message().withBody("content"))));
+
+        QueueMessageChannel messageChannel = new QueueMessageChannel(amazonSqs, "http://testQueue");
+        messageChannel.setAttributeNames(Collections.singletonList("SentTimestamp"));
+        messageChannel.setMessageAttributeNames(Collections.emptyList());
+
+        //Act
+        Message<?> receivedMessage = messageChannel.receive();
+
+        //Assert
+        assertNotNull(receivedMessage);
+        assertEquals("content", receivedMessage.getPayload());
+    }
+
     @Test
     public void receiveMessage_withSpecifiedTimeout_returnsTextMessage() throws Exception {
         // Arrange
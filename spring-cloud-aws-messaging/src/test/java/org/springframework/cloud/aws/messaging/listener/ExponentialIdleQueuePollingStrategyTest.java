@@ -0,0 +1,67 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.aws.messaging.listener;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ExponentialIdleQueuePollingStrategyTest {
+
+    @Test
+    public void getPollingDelay_belowThreshold_shouldPollImmediately() throws Exception {
+        // Arrange
+        ExponentialIdleQueuePollingStrategy strategy = new ExponentialIdleQueuePollingStrategy(3, 1000, 2, 60000);
+
+        // Act
+        long firstDelay = strategy.getPollingDelay("testQueue", 1);
+        long thirdDelay = strategy.getPollingDelay("testQueue", 3);
+
+        // Assert
+        assertEquals(0, firstDelay);
+        assertEquals(0, thirdDelay);
+    }
+
+    @Test
+    public void getPollingDelay_aboveThreshold_shouldIncreaseDelayExponentiallyUpToMaxDelay() throws Exception {
+        // Arrange
+        ExponentialIdleQueuePollingStrategy strategy = new ExponentialIdleQueuePollingStrategy(3, 1000, 2, 5000);
+
+        // Act
+        long fourthDelay = strategy.getPollingDelay("testQueue", 4);
+        long fifthDelay = strategy.getPollingDelay("testQueue", 5);
+        long sixthDelay = strategy.getPollingDelay("testQueue", 6);
+        long seventhDelay = strategy.getPollingDelay("testQueue", 7);
+        long hundredthDelay = strategy.getPollingDelay("testQueue", 100);
+
+        // Assert
+        assertEquals(1000, fourthDelay);
+        assertEquals(2000, fifthDelay);
+        assertEquals(4000, sixthDelay);
+        assertEquals(5000, seventhDelay);
+        assertEquals(5000, hundredthDelay);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setEmptyReceivesThreshold_negativeValue_shouldThrowException() throws Exception {
+        // Arrange
+        ExponentialIdleQueuePollingStrategy strategy = new ExponentialIdleQueuePollingStrategy();
+
+        // Act
+        strategy.setEmptyReceivesThreshold(-1);
+    }
+}
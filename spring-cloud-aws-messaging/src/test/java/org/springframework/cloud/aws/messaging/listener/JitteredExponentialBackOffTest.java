@@ -0,0 +1,65 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.aws.messaging.listener;
+
+import org.junit.Test;
+import org.springframework.util.backoff.BackOffExecution;
+
+import static org.junit.Assert.assertTrue;
+
+public class JitteredExponentialBackOffTest {
+
+    @Test
+    public void nextBackOff_withConsecutiveCalls_shouldStayWithinExponentialBounds() throws Exception {
+        // Arrange
+        JitteredExponentialBackOff backOff = new JitteredExponentialBackOff(100, 2, 1000);
+        BackOffExecution backOffExecution = backOff.start();
+        long[] upperBounds = {100, 200, 400, 800, 1000, 1000};
+
+        // Act & Assert
+        for (long upperBound : upperBounds) {
+            long nextBackOff = backOffExecution.nextBackOff();
+            assertTrue(nextBackOff >= 0);
+            assertTrue(nextBackOff <= upperBound);
+        }
+    }
+
+    @Test
+    public void start_afterPreviousExecution_shouldResetToInitialInterval() throws Exception {
+        // Arrange
+        JitteredExponentialBackOff backOff = new JitteredExponentialBackOff(10, 10, 100000);
+        BackOffExecution previousExecution = backOff.start();
+        for (int i = 0; i < 5; i++) {
+            previousExecution.nextBackOff();
+        }
+
+        // Act
+        BackOffExecution backOffExecution = backOff.start();
+
+        // Assert
+        assertTrue(backOffExecution.nextBackOff() <= 10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setMultiplier_lowerThanOne_shouldThrowException() throws Exception {
+        // Arrange
+        JitteredExponentialBackOff backOff = new JitteredExponentialBackOff();
+
+        // Act
+        backOff.setMultiplier(0.5);
+    }
+}
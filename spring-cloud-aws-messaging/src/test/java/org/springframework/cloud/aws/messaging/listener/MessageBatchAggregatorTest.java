@@ -0,0 +1,168 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.aws.messaging.listener;
+
+import com.amazonaws.services.sqs.model.Message;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class MessageBatchAggregatorTest {
+
+    private final ScheduledExecutorService windowScheduler = Executors.newSingleThreadScheduledExecutor();
+
+    @After
+    public void tearDown() throws Exception {
+        this.windowScheduler.shutdownNow();
+    }
+
+    @Test
+    public void add_messagesReachingMaxBatchSize_shouldReturnFullBatchAndBufferRemainingMessages() throws Exception {
+        // Arrange
+        QueueMessageVisibilityHeartbeat heartbeat = mock(QueueMessageVisibilityHeartbeat.class);
+        List<List<Message>> processedBatches = new CopyOnWriteArrayList<>();
+        MessageBatchAggregator aggregator = new MessageBatchAggregator("http://queue", 3, 60000, this.windowScheduler, Runnable::run,
+                heartbeat, processedBatches::add);
+
+        // Act
+        List<List<Message>> firstBatches = aggregator.add(Arrays.asList(message("1"), message("2")));
+        List<List<Message>> secondBatches = aggregator.add(Arrays.asList(message("3"), message("4")));
+
+        // Assert
+        assertTrue(firstBatches.isEmpty());
+        assertEquals(Collections.singletonList(Arrays.asList(message("1"), message("2"), message("3"))), secondBatches);
+        assertTrue(processedBatches.isEmpty());
+        assertEquals(1, aggregator.getBufferedMessageCount());
+        verify(heartbeat).register("http://queue", "4");
+        verify(heartbeat).unregister("http://queue", "3");
+    }
+
+    @Test
+    public void add_batchWindowElapsed_shouldProcessBufferedMessagesWithExecutor() throws Exception {
+        // Arrange
+        CountDownLatch batchProcessed = new CountDownLatch(1);
+        List<List<Message>> processedBatches = new CopyOnWriteArrayList<>();
+        MessageBatchAggregator aggregator = new MessageBatchAggregator("http://queue", 500, 50, this.windowScheduler, Runnable::run,
+                mock(QueueMessageVisibilityHeartbeat.class), messages -> {
+                    processedBatches.add(messages);
+                    batchProcessed.countDown();
+                });
+
+        // Act
+        aggregator.add(Arrays.asList(message("1"), message("2")));
+
+        // Assert
+        assertTrue(batchProcessed.await(1, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList(Arrays.asList(message("1"), message("2"))), processedBatches);
+        assertEquals(0, aggregator.getBufferedMessageCount());
+    }
+
+    @Test
+    public void add_executorRejectingWindowBatch_shouldRetryBatchWithExecutorAndKeepVisibilityExtended() throws Exception {
+        // Arrange
+        QueueMessageVisibilityHeartbeat heartbeat = mock(QueueMessageVisibilityHeartbeat.class);
+        CountDownLatch batchProcessed = new CountDownLatch(1);
+        AtomicInteger executions = new AtomicInteger();
+        Executor executor = task -> {
+            if (executions.incrementAndGet() == 1) {
+                throw new RejectedExecutionException("full");
+            }
+            task.run();
+        };
+        List<String> processingThreads = new CopyOnWriteArrayList<>();
+        MessageBatchAggregator aggregator = new MessageBatchAggregator("http://queue", 500, 50, this.windowScheduler, executor,
+                heartbeat, messages -> {
+                    processingThreads.add(Thread.currentThread().getName());
+                    batchProcessed.countDown();
+                });
+
+        // Act
+        aggregator.add(Collections.singletonList(message("1")));
+
+        // Assert
+        assertTrue(batchProcessed.await(1, TimeUnit.SECONDS));
+        assertEquals(2, executions.get());
+        assertEquals(1, processingThreads.size());
+        verify(heartbeat, times(2)).register("http://queue", "1");
+        verify(heartbeat, times(2)).unregister("http://queue", "1");
+    }
+
+    @Test
+    public void flush_withRejectedWindowBatch_shouldReturnRejectedBatch() throws Exception {
+        // Arrange
+        QueueMessageVisibilityHeartbeat heartbeat = mock(QueueMessageVisibilityHeartbeat.class);
+        CountDownLatch batchRejected = new CountDownLatch(2);
+        doAnswer(invocation -> {
+            batchRejected.countDown();
+            return null;
+        }).when(heartbeat).register("http://queue", "1");
+        Executor rejectingExecutor = task -> {
+            throw new RejectedExecutionException("full");
+        };
+        List<String> processingThreads = new CopyOnWriteArrayList<>();
+        MessageBatchAggregator aggregator = new MessageBatchAggregator("http://queue", 500, 50, this.windowScheduler, rejectingExecutor,
+                heartbeat, messages -> processingThreads.add(Thread.currentThread().getName()));
+        aggregator.add(Collections.singletonList(message("1")));
+        assertTrue(batchRejected.await(1, TimeUnit.SECONDS));
+
+        // Act
+        List<List<Message>> flushedBatches = aggregator.flush();
+        Thread.sleep(200);
+
+        // Assert
+        assertEquals(Collections.singletonList(Collections.singletonList(message("1"))), flushedBatches);
+        assertTrue(processingThreads.isEmpty());
+    }
+
+    @Test
+    public void flush_withBufferedMessages_shouldReturnThemImmediately() throws Exception {
+        // Arrange
+        MessageBatchAggregator aggregator = new MessageBatchAggregator("http://queue", 500, 60000, this.windowScheduler, Runnable::run,
+                mock(QueueMessageVisibilityHeartbeat.class), messages -> { });
+        aggregator.add(Collections.singletonList(message("1")));
+
+        // Act
+        List<List<Message>> firstFlush = aggregator.flush();
+        List<List<Message>> secondFlush = aggregator.flush();
+
+        // Assert
+        assertEquals(Collections.singletonList(Collections.singletonList(message("1"))), firstFlush);
+        assertTrue(secondFlush.isEmpty());
+    }
+
+    private static Message message(String receiptHandle) {
+        return new Message().withBody(receiptHandle).withReceiptHandle(receiptHandle);
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.aws.messaging.listener;
+
+import org.junit.Test;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MessageGroupDispatcherTest {
+
+    @Test
+    public void dispatch_tasksOfSameMessageGroup_shouldBeExecutedInOrder() throws Exception {
+        // Arrange
+        MessageGroupDispatcher messageGroupDispatcher = new MessageGroupDispatcher(new SimpleAsyncTaskExecutor());
+        List<Integer> executedTasks = Collections.synchronizedList(new ArrayList<Integer>());
+        CountDownLatch allTasksExecuted = new CountDownLatch(5);
+
+        // Act
+        for (int i = 0; i < 5; i++) {
+            messageGroupDispatcher.dispatch("group", new RecordingTask(i, executedTasks, allTasksExecuted));
+        }
+
+        // Assert
+        assertTrue(allTasksExecuted.await(1, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), executedTasks);
+    }
+
+    @Test
+    public void dispatch_tasksOfDifferentMessageGroups_shouldBeExecutedInParallel() throws Exception {
+        // Arrange
+        MessageGroupDispatcher messageGroupDispatcher = new MessageGroupDispatcher(new SimpleAsyncTaskExecutor());
+        final CountDownLatch secondGroupExecuted = new CountDownLatch(1);
+        final CountDownLatch firstGroupExecuted = new CountDownLatch(1);
+
+        // Act
+        messageGroupDispatcher.dispatch("first", new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    if (secondGroupExecuted.await(1, TimeUnit.SECONDS)) {
+                        firstGroupExecuted.countDown();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        messageGroupDispatcher.dispatch("second", new Runnable() {
+
+            @Override
+            public void run() {
+                secondGroupExecuted.countDown();
+            }
+        });
+
+        // Assert
+        assertTrue(firstGroupExecuted.await(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void dispatch_failingTask_shouldNotBlockMessageGroup() throws Exception {
+        // Arrange
+        MessageGroupDispatcher messageGroupDispatcher = new MessageGroupDispatcher(new SimpleAsyncTaskExecutor());
+        List<Integer> executedTasks = Collections.synchronizedList(new ArrayList<Integer>());
+        CountDownLatch allTasksExecuted = new CountDownLatch(1);
+
+        // Act
+        messageGroupDispatcher.dispatch("group", new Runnable() {
+
+            @Override
+            public void run() {
+                throw new IllegalStateException("Task failed");
+            }
+        });
+        messageGroupDispatcher.dispatch("group", new RecordingTask(1, executedTasks, allTasksExecuted));
+
+        // Assert
+        assertTrue(allTasksExecuted.await(1, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList(1), executedTasks);
+    }
+
+    @Test
+    public void dispatch_executorRejectingMailboxWithTwoQueuedTasks_shouldRejectBothTasks() throws Exception {
+        // Arrange
+        List<String> events = Collections.synchronizedList(new ArrayList<String>());
+        MessageGroupDispatcher[] messageGroupDispatcher = new MessageGroupDispatcher[1];
+        boolean[] secondTaskDispatched = new boolean[1];
+        messageGroupDispatcher[0] = new MessageGroupDispatcher(command -> {
+            // Another caller adds a task to the mailbox before the executor rejects it
+            secondTaskDispatched[0] = messageGroupDispatcher[0].dispatch("group", new RejectableRecordingTask("second", events));
+            throw new RejectedExecutionException("No capacity");
+        });
+
+        // Act
+        boolean dispatched = messageGroupDispatcher[0].dispatch("group", new RejectableRecordingTask("first", events));
+
+        // Assert
+        assertFalse(dispatched);
+        assertTrue(secondTaskDispatched[0]);
+        assertEquals(Arrays.asList("first rejected", "second rejected"), events);
+        assertEquals(0, messageGroupDispatcher[0].getActiveMessageGroupCount());
+    }
+
+    private static final class RecordingTask implements Runnable {
+
+        private final int id;
+        private final List<Integer> executedTasks;
+        private final CountDownLatch countDownLatch;
+
+        private RecordingTask(int id, List<Integer> executedTasks, CountDownLatch countDownLatch) {
+            this.id = id;
+            this.executedTasks = executedTasks;
+            this.countDownLatch = countDownLatch;
+        }
+
+        @Override
+        public void run() {
+            this.executedTasks.add(this.id);
+            this.countDownLatch.countDown();
+        }
+    }
+
+    private static final class RejectableRecordingTask implements MessageGroupDispatcher.RejectableTask {
+
+        private final String name;
+        private final List<String> events;
+
+        private RejectableRecordingTask(String name, List<String> events) {
+            this.name = name;
+            this.events = events;
+        }
+
+        @Override
+        public void run() {
+            this.events.add(this.name + " executed");
+        }
+
+        @Override
+        public void reject() {
+            this.events.add(this.name + " rejected");
+        }
+    }
+}
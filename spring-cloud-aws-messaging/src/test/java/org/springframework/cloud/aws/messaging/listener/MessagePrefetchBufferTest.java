@@ -0,0 +1,187 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.cloud.aws.messaging.listener;
+
+import com.amazonaws.services.sqs.model.Message;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MessagePrefetchBufferTest {
+
+    @Test
+    public void poll_messagesNotExpired_shouldReturnMessagesInReceiveOrder() throws Exception {
+        // Arrange
+        MessagePrefetchBuffer prefetchBuffer = new MessagePrefetchBuffer(10, 1000);
+        prefetchBuffer.add(Arrays.asList(message("1"), message("2")), 0, 0);
+        List<Message> expiredMessages = new ArrayList<>();
+
+        // Act
+        Message first = prefetchBuffer.poll(expiredMessages, 999);
+        Message second = prefetchBuffer.poll(expiredMessages, 999);
+        Message third = prefetchBuffer.poll(expiredMessages, 999);
+
+        // Assert
+        assertEquals(message("1"), first);
+        assertEquals(message("2"), second);
+        assertNull(third);
+        assertTrue(expiredMessages.isEmpty());
+    }
+
+    @Test
+    public void poll_oldestMessagesExpired_shouldSkipExpiredMessagesAndReturnNextMessage() throws Exception {
+        // Arrange
+        MessagePrefetchBuffer prefetchBuffer = new MessagePrefetchBuffer(10, 1000);
+        prefetchBuffer.add(Arrays.asList(message("1"), message("2")), 0, 0);
+        prefetchBuffer.add(Collections.singletonList(message("3")), 500, 0);
+        List<Message> expiredMessages = new ArrayList<>();
+
+        // Act
+        Message message = prefetchBuffer.poll(expiredMessages, 1000);
+
+        // Assert
+        assertEquals(message("3"), message);
+        assertEquals(Arrays.asList(message("1"), message("2")), expiredMessages);
+        assertEquals(0, prefetchBuffer.size());
+    }
+
+    @Test
+    public void removeExpired_someMessagesExpired_shouldOnlyRemoveExpiredMessages() throws Exception {
+        // Arrange
+        MessagePrefetchBuffer prefetchBuffer = new MessagePrefetchBuffer(10, 1000);
+        prefetchBuffer.add(Collections.singletonList(message("1")), 0, 0);
+        prefetchBuffer.add(Collections.singletonList(message("2")), 500, 0);
+
+        // Act
+        List<Message> expiredMessages = prefetchBuffer.removeExpired(1200);
+
+        // Assert
+        assertEquals(Collections.singletonList(message("1")), expiredMessages);
+        assertEquals(1, prefetchBuffer.size());
+    }
+
+    @Test
+    public void removeAll_bufferedMessages_shouldReturnAllMessagesAndFreeCapacity() throws Exception {
+        // Arrange
+        MessagePrefetchBuffer prefetchBuffer = new MessagePrefetchBuffer(2, 1000);
+        prefetchBuffer.add(Arrays.asList(message("1"), message("2")), 0, 0);
+
+        // Act
+        List<Message> messages = prefetchBuffer.removeAll();
+
+        // Assert
+        assertEquals(Arrays.asList(message("1"), message("2")), messages);
+        assertEquals(2, prefetchBuffer.reserveCapacity(10, 0));
+    }
+
+    @Test
+    public void reserveCapacity_fullBuffer_shouldReturnZeroAfterTimeout() throws Exception {
+        // Arrange
+        MessagePrefetchBuffer prefetchBuffer = new MessagePrefetchBuffer(2, 1000);
+        prefetchBuffer.add(Arrays.asList(message("1"), message("2")), System.currentTimeMillis(), 0);
+
+        // Act
+        int freeCapacity = prefetchBuffer.reserveCapacity(10, 10);
+
+        // Assert
+        assertEquals(0, freeCapacity);
+    }
+
+    @Test
+    public void reserveCapacity_messagePolledWhileWaiting_shouldReserveFreedCapacity() throws Exception {
+        // Arrange
+        MessagePrefetchBuffer prefetchBuffer = new MessagePrefetchBuffer(2, 60000);
+        prefetchBuffer.add(Arrays.asList(message("1"), message("2")), System.currentTimeMillis(), 0);
+        CountDownLatch waitingStarted = new CountDownLatch(1);
+        AtomicInteger freeCapacity = new AtomicInteger(-1);
+        Thread waitingThread = new Thread(() -> {
+            waitingStarted.countDown();
+            try {
+                freeCapacity.set(prefetchBuffer.reserveCapacity(10, 10000));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waitingThread.start();
+        assertTrue(waitingStarted.await(1, TimeUnit.SECONDS));
+
+        // Act
+        prefetchBuffer.poll(new ArrayList<>(), System.currentTimeMillis());
+        waitingThread.join(5000);
+
+        // Assert
+        assertEquals(1, freeCapacity.get());
+    }
+
+    @Test
+    public void reserveCapacity_capacityReservedByAnotherPoller_shouldOnlyReserveRemainingCapacity() throws Exception {
+        // Arrange
+        MessagePrefetchBuffer prefetchBuffer = new MessagePrefetchBuffer(15, 60000);
+        int firstReservation = prefetchBuffer.reserveCapacity(10, 0);
+
+        // Act
+        int secondReservation = prefetchBuffer.reserveCapacity(10, 0);
+        int thirdReservation = prefetchBuffer.reserveCapacity(10, 10);
+
+        // Assert
+        assertEquals(10, firstReservation);
+        assertEquals(5, secondReservation);
+        assertEquals(0, thirdReservation);
+    }
+
+    @Test
+    public void add_lessMessagesThanReserved_shouldReleaseUnusedReservation() throws Exception {
+        // Arrange
+        MessagePrefetchBuffer prefetchBuffer = new MessagePrefetchBuffer(10, 60000);
+        int reservation = prefetchBuffer.reserveCapacity(10, 0);
+
+        // Act
+        prefetchBuffer.add(Arrays.asList(message("1"), message("2")), System.currentTimeMillis(), reservation);
+
+        // Assert
+        assertEquals(2, prefetchBuffer.size());
+        assertEquals(8, prefetchBuffer.reserveCapacity(10, 0));
+    }
+
+    @Test
+    public void releaseReservation_failedReceive_shouldFreeReservedCapacity() throws Exception {
+        // Arrange
+        MessagePrefetchBuffer prefetchBuffer = new MessagePrefetchBuffer(10, 60000);
+        int reservation = prefetchBuffer.reserveCapacity(10, 0);
+
+        // Act
+        prefetchBuffer.releaseReservation(reservation);
+
+        // Assert
+        assertEquals(10, prefetchBuffer.reserveCapacity(10, 0));
+    }
+
+    private static Message message(String receiptHandle) {
+        return new Message().withBody(receiptHandle).withReceiptHandle(receiptHandle);
+    }
+}
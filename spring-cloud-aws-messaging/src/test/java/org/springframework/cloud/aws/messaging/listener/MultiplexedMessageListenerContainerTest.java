@@ -0,0 +1,510 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.aws.messaging.listener;
+
+import com.amazonaws.handlers.AsyncHandler;
+import com.amazonaws.services.sqs.AmazonSQSAsync;
+import com.amazonaws.services.sqs.AmazonSQSAsyncClient;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequestEntry;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequest;
+import com.amazonaws.services.sqs.model.DeleteMessageRequest;
+import com.amazonaws.services.sqs.model.GetQueueAttributesRequest;
+import com.amazonaws.services.sqs.model.GetQueueAttributesResult;
+import com.amazonaws.services.sqs.model.GetQueueUrlRequest;
+import com.amazonaws.services.sqs.model.GetQueueUrlResult;
+import com.amazonaws.services.sqs.model.Message;
+import com.amazonaws.services.sqs.model.OverLimitException;
+import com.amazonaws.services.sqs.model.QueueAttributeName;
+import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
+import com.amazonaws.services.sqs.model.ReceiveMessageResult;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.cloud.aws.core.support.documentation.RuntimeUse;
+import org.springframework.cloud.aws.messaging.listener.annotation.SqsListener;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class MultiplexedMessageListenerContainerTest {
+
+    @Test
+    public void start_withMultipleQueues_shouldProcessMessagesOfAllQueuesWithFixedNumberOfThreads() throws Exception {
+        // Arrange
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.registerSingleton("testMessageListener", TestMessageListener.class);
+
+        MultiplexedMessageListenerContainer container = new MultiplexedMessageListenerContainer();
+        AmazonSQSAsync sqs = mock(AmazonSQSAsync.class);
+        container.setAmazonSqs(sqs);
+        container.setWorkerThreads(1);
+
+        QueueMessageHandler messageHandler = new QueueMessageHandler();
+        messageHandler.setApplicationContext(applicationContext);
+        container.setMessageHandler(messageHandler);
+
+        mockQueue(sqs, "firstQueue", "http://firstQueue.amazonaws.com");
+        mockQueue(sqs, "secondQueue", "http://secondQueue.amazonaws.com");
+        mockReceiveMessageAsync(sqs, new AtomicInteger());
+
+        messageHandler.afterPropertiesSet();
+        container.afterPropertiesSet();
+
+        // Act
+        container.start();
+
+        // Assert
+        TestMessageListener listener = applicationContext.getBean(TestMessageListener.class);
+        assertTrue(listener.getCountDownLatch().await(2, TimeUnit.SECONDS));
+        verify(sqs, timeout(1000)).deleteMessageAsync(new DeleteMessageRequest("http://firstQueue.amazonaws.com", "http://firstQueue.amazonaws.com-handle"));
+        verify(sqs, timeout(1000)).deleteMessageAsync(new DeleteMessageRequest("http://secondQueue.amazonaws.com", "http://secondQueue.amazonaws.com-handle"));
+        AsyncTaskExecutor taskExecutor = container.getTaskExecutor();
+        assertEquals(1, ((ThreadPoolTaskExecutor) taskExecutor).getMaxPoolSize());
+
+        container.stop();
+        assertFalse(container.isRunning("firstQueue"));
+        container.destroy();
+    }
+
+    @Test
+    public void start_withFailingReceive_shouldRetryAfterBackOffTime() throws Exception {
+        // Arrange
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.registerSingleton("testMessageListener", TestMessageListener.class);
+
+        MultiplexedMessageListenerContainer container = new MultiplexedMessageListenerContainer();
+        AmazonSQSAsync sqs = mock(AmazonSQSAsync.class);
+        container.setAmazonSqs(sqs);
+        container.setBackOffTime(10);
+
+        QueueMessageHandler messageHandler = new QueueMessageHandler();
+        messageHandler.setApplicationContext(applicationContext);
+        container.setMessageHandler(messageHandler);
+
+        mockQueue(sqs, "firstQueue", "http://firstQueue.amazonaws.com");
+        CountDownLatch receives = new CountDownLatch(3);
+        when(sqs.receiveMessageAsync(any(ReceiveMessageRequest.class), any())).thenAnswer(invocation -> {
+            receives.countDown();
+            @SuppressWarnings("unchecked")
+            AsyncHandler<ReceiveMessageRequest, ReceiveMessageResult> asyncHandler = invocation.getArgument(1);
+            CompletableFuture.runAsync(() -> asyncHandler.onError(new OverLimitException("Boom")));
+            return null;
+        });
+
+        messageHandler.afterPropertiesSet();
+        container.afterPropertiesSet();
+
+        // Act
+        container.start();
+
+        // Assert
+        assertTrue(receives.await(1, TimeUnit.SECONDS));
+        container.stop();
+        container.destroy();
+    }
+
+    @Test
+    public void start_withBatchListenerReportingPartialFailure_shouldDeleteOnlySuccessfulMessagesInBatch() throws Exception {
+        // Arrange
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.registerSingleton("batchMessageListener", BatchMessageListener.class);
+
+        MultiplexedMessageListenerContainer container = new MultiplexedMessageListenerContainer();
+        AmazonSQSAsync sqs = mock(AmazonSQSAsync.class);
+        container.setAmazonSqs(sqs);
+
+        QueueMessageHandler messageHandler = new QueueMessageHandler();
+        messageHandler.setApplicationContext(applicationContext);
+        container.setMessageHandler(messageHandler);
+
+        mockQueue(sqs, "batchQueue", "http://batchQueue.amazonaws.com");
+        AtomicInteger receiveCount = new AtomicInteger();
+        when(sqs.receiveMessageAsync(any(ReceiveMessageRequest.class), any())).thenAnswer(invocation -> {
+            ReceiveMessageRequest request = invocation.getArgument(0);
+            @SuppressWarnings("unchecked")
+            AsyncHandler<ReceiveMessageRequest, ReceiveMessageResult> asyncHandler = invocation.getArgument(1);
+            ReceiveMessageResult result = new ReceiveMessageResult();
+            if (receiveCount.incrementAndGet() == 1) {
+                result.withMessages(new Message().withBody("first").withReceiptHandle("first"),
+                        new Message().withBody("fail").withReceiptHandle("fail"),
+                        new Message().withBody("third").withReceiptHandle("third"));
+            }
+            CompletableFuture.runAsync(() -> asyncHandler.onSuccess(request, result));
+            return null;
+        });
+
+        messageHandler.afterPropertiesSet();
+        container.afterPropertiesSet();
+
+        // Act
+        container.start();
+
+        // Assert
+        ArgumentCaptor<DeleteMessageBatchRequest> requestCaptor = ArgumentCaptor.forClass(DeleteMessageBatchRequest.class);
+        verify(sqs, timeout(1000)).deleteMessageBatchAsync(requestCaptor.capture());
+        DeleteMessageBatchRequest request = requestCaptor.getValue();
+        assertEquals("http://batchQueue.amazonaws.com", request.getQueueUrl());
+        assertEquals(2, request.getEntries().size());
+        assertEquals("first", request.getEntries().get(0).getReceiptHandle());
+        assertEquals("third", request.getEntries().get(1).getReceiptHandle());
+        verify(sqs, never()).deleteMessageAsync(any(DeleteMessageRequest.class));
+
+        container.stop();
+        container.destroy();
+    }
+
+    @Test
+    public void start_afterStopWithPendingReceiveRequest_shouldNotContinuePreviousReceiveCycle() throws Exception {
+        // Arrange
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.registerSingleton("batchMessageListener", BatchMessageListener.class);
+
+        MultiplexedMessageListenerContainer container = new MultiplexedMessageListenerContainer();
+        AmazonSQSAsync sqs = mock(AmazonSQSAsync.class);
+        container.setAmazonSqs(sqs);
+
+        QueueMessageHandler messageHandler = new QueueMessageHandler();
+        messageHandler.setApplicationContext(applicationContext);
+        container.setMessageHandler(messageHandler);
+
+        mockQueue(sqs, "batchQueue", "http://batchQueue.amazonaws.com");
+        List<AsyncHandler<ReceiveMessageRequest, ReceiveMessageResult>> pendingReceives = new CopyOnWriteArrayList<>();
+        when(sqs.receiveMessageAsync(any(ReceiveMessageRequest.class), any())).thenAnswer(invocation -> {
+            // Keeps the receive requests pending until the test completes them
+            pendingReceives.add(invocation.getArgument(1));
+            return null;
+        });
+
+        messageHandler.afterPropertiesSet();
+        container.afterPropertiesSet();
+        container.start();
+        container.stop("batchQueue");
+
+        // Act
+        container.start("batchQueue");
+        pendingReceives.get(0).onSuccess(new ReceiveMessageRequest(), new ReceiveMessageResult());
+
+        // Assert
+        assertEquals(2, pendingReceives.size());
+
+        container.stop("batchQueue");
+        pendingReceives.get(1).onSuccess(new ReceiveMessageRequest(), new ReceiveMessageResult());
+        assertEquals(2, pendingReceives.size());
+        container.stop();
+        container.destroy();
+    }
+
+    @Test
+    public void start_withMoreQueuesThanConcurrentReceives_shouldReceiveFromQueuesRoundRobin() throws Exception {
+        // Arrange
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.registerSingleton("testMessageListener", TestMessageListener.class);
+
+        MultiplexedMessageListenerContainer container = new MultiplexedMessageListenerContainer();
+        AmazonSQSAsync sqs = mock(AmazonSQSAsync.class);
+        container.setAmazonSqs(sqs);
+        container.setMaxConcurrentReceives(1);
+
+        QueueMessageHandler messageHandler = new QueueMessageHandler();
+        messageHandler.setApplicationContext(applicationContext);
+        container.setMessageHandler(messageHandler);
+
+        mockQueue(sqs, "firstQueue", "http://firstQueue.amazonaws.com");
+        mockQueue(sqs, "secondQueue", "http://secondQueue.amazonaws.com");
+        List<ReceiveMessageRequest> receiveRequests = new CopyOnWriteArrayList<>();
+        List<AsyncHandler<ReceiveMessageRequest, ReceiveMessageResult>> pendingReceives = new CopyOnWriteArrayList<>();
+        when(sqs.receiveMessageAsync(any(ReceiveMessageRequest.class), any())).thenAnswer(invocation -> {
+            receiveRequests.add(invocation.getArgument(0));
+            pendingReceives.add(invocation.getArgument(1));
+            return null;
+        });
+
+        messageHandler.afterPropertiesSet();
+        container.afterPropertiesSet();
+
+        // Act
+        container.start();
+        int receivesAfterStart = receiveRequests.size();
+        pendingReceives.get(0).onSuccess(receiveRequests.get(0), new ReceiveMessageResult());
+        pendingReceives.get(1).onSuccess(receiveRequests.get(1), new ReceiveMessageResult());
+
+        // Assert
+        assertEquals(1, receivesAfterStart);
+        assertEquals(3, receiveRequests.size());
+        assertFalse(receiveRequests.get(0).getQueueUrl().equals(receiveRequests.get(1).getQueueUrl()));
+        assertEquals(receiveRequests.get(0).getQueueUrl(), receiveRequests.get(2).getQueueUrl());
+
+        container.stop("firstQueue");
+        container.stop("secondQueue");
+        pendingReceives.get(2).onSuccess(receiveRequests.get(2), new ReceiveMessageResult());
+        assertEquals(3, receiveRequests.size());
+        container.stop();
+        container.destroy();
+    }
+
+    @Test
+    public void start_withClientThreadPoolSmallerThanConcurrentReceives_shouldLeaveOneClientThreadForOtherRequests() throws Exception {
+        // Arrange
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.registerSingleton("testMessageListener", TestMessageListener.class);
+
+        MultiplexedMessageListenerContainer container = new MultiplexedMessageListenerContainer();
+        AmazonSQSAsyncClient sqs = mock(AmazonSQSAsyncClient.class);
+        ExecutorService clientExecutor = Executors.newFixedThreadPool(2);
+        when(sqs.getExecutorService()).thenReturn(clientExecutor);
+        container.setAmazonSqs(sqs);
+        container.setQueueStopTimeout(10);
+
+        QueueMessageHandler messageHandler = new QueueMessageHandler();
+        messageHandler.setApplicationContext(applicationContext);
+        container.setMessageHandler(messageHandler);
+
+        mockQueue(sqs, "firstQueue", "http://firstQueue.amazonaws.com");
+        mockQueue(sqs, "secondQueue", "http://secondQueue.amazonaws.com");
+        AtomicInteger receiveCount = new AtomicInteger();
+        when(sqs.receiveMessageAsync(any(ReceiveMessageRequest.class), any())).thenAnswer(invocation -> {
+            // Keeps the receive request pending like a long poll
+            receiveCount.incrementAndGet();
+            return null;
+        });
+
+        messageHandler.afterPropertiesSet();
+        container.afterPropertiesSet();
+
+        // Act
+        container.start();
+
+        // Assert
+        assertEquals(10, container.getMaxConcurrentReceives());
+        assertEquals(1, receiveCount.get());
+
+        container.stop();
+        container.destroy();
+        clientExecutor.shutdown();
+    }
+
+    @Test
+    public void start_withDeleteMessageBatchMaxDelay_shouldDeleteMessagesOfAllQueuesWithBatchRequests() throws Exception {
+        // Arrange
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.registerSingleton("testMessageListener", TestMessageListener.class);
+
+        MultiplexedMessageListenerContainer container = new MultiplexedMessageListenerContainer();
+        AmazonSQSAsync sqs = mock(AmazonSQSAsync.class);
+        container.setAmazonSqs(sqs);
+        container.setDeleteMessageBatchMaxDelay(10L);
+
+        QueueMessageHandler messageHandler = new QueueMessageHandler();
+        messageHandler.setApplicationContext(applicationContext);
+        container.setMessageHandler(messageHandler);
+
+        mockQueue(sqs, "firstQueue", "http://firstQueue.amazonaws.com");
+        mockQueue(sqs, "secondQueue", "http://secondQueue.amazonaws.com");
+        mockReceiveMessageAsync(sqs, new AtomicInteger());
+
+        messageHandler.afterPropertiesSet();
+        container.afterPropertiesSet();
+
+        // Act
+        container.start();
+
+        // Assert
+        ArgumentCaptor<DeleteMessageBatchRequest> requestCaptor = ArgumentCaptor.forClass(DeleteMessageBatchRequest.class);
+        verify(sqs, timeout(1000).times(2)).deleteMessageBatchAsync(requestCaptor.capture(), any());
+        for (DeleteMessageBatchRequest request : requestCaptor.getAllValues()) {
+            assertEquals(1, request.getEntries().size());
+            assertEquals(request.getQueueUrl() + "-handle", request.getEntries().get(0).getReceiptHandle());
+        }
+        verify(sqs, never()).deleteMessageAsync(any(DeleteMessageRequest.class));
+
+        container.stop();
+        container.destroy();
+    }
+
+    @Test
+    public void start_withAsynchronousResult_shouldDeleteMessageWhenResultCompleted() throws Exception {
+        // Arrange
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.registerSingleton("asyncMessageListener", AsyncMessageListener.class);
+
+        MultiplexedMessageListenerContainer container = new MultiplexedMessageListenerContainer();
+        AmazonSQSAsync sqs = mock(AmazonSQSAsync.class);
+        container.setAmazonSqs(sqs);
+
+        QueueMessageHandler messageHandler = new QueueMessageHandler();
+        messageHandler.setApplicationContext(applicationContext);
+        container.setMessageHandler(messageHandler);
+
+        mockQueue(sqs, "asyncQueue", "http://asyncQueue.amazonaws.com");
+        mockReceiveMessageAsync(sqs, new AtomicInteger(1));
+
+        messageHandler.afterPropertiesSet();
+        container.afterPropertiesSet();
+        container.start();
+        AsyncMessageListener listener = applicationContext.getBean(AsyncMessageListener.class);
+        assertTrue(listener.getCountDownLatch().await(1, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        verify(sqs, never()).deleteMessageAsync(any(DeleteMessageRequest.class));
+
+        // Act
+        listener.getResult().complete(null);
+
+        // Assert
+        verify(sqs, timeout(1000)).deleteMessageAsync(new DeleteMessageRequest("http://asyncQueue.amazonaws.com", "http://asyncQueue.amazonaws.com-handle"));
+
+        container.stop();
+        container.destroy();
+    }
+
+    @Test
+    public void start_withRejectingTaskExecutor_shouldMakeMessagesVisibleAgain() throws Exception {
+        // Arrange
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.registerSingleton("testMessageListener", TestMessageListener.class);
+
+        MultiplexedMessageListenerContainer container = new MultiplexedMessageListenerContainer();
+        AmazonSQSAsync sqs = mock(AmazonSQSAsync.class);
+        container.setAmazonSqs(sqs);
+        container.setBackOffTime(10);
+        AsyncTaskExecutor taskExecutor = mock(AsyncTaskExecutor.class);
+        doThrow(new TaskRejectedException("Saturated")).when(taskExecutor).execute(any(Runnable.class));
+        container.setTaskExecutor(taskExecutor);
+
+        QueueMessageHandler messageHandler = new QueueMessageHandler();
+        messageHandler.setApplicationContext(applicationContext);
+        container.setMessageHandler(messageHandler);
+
+        mockQueue(sqs, "firstQueue", "http://firstQueue.amazonaws.com");
+        mockQueue(sqs, "secondQueue", "http://secondQueue.amazonaws.com");
+        mockReceiveMessageAsync(sqs, new AtomicInteger(1));
+
+        messageHandler.afterPropertiesSet();
+        container.afterPropertiesSet();
+
+        // Act
+        container.start();
+
+        // Assert
+        ArgumentCaptor<ChangeMessageVisibilityBatchRequest> requestCaptor = ArgumentCaptor.forClass(ChangeMessageVisibilityBatchRequest.class);
+        verify(sqs, timeout(1000)).changeMessageVisibilityBatchAsync(requestCaptor.capture());
+        ChangeMessageVisibilityBatchRequestEntry entry = requestCaptor.getValue().getEntries().get(0);
+        assertEquals(requestCaptor.getValue().getQueueUrl() + "-handle", entry.getReceiptHandle());
+        assertEquals(Integer.valueOf(0), entry.getVisibilityTimeout());
+        verify(sqs, never()).deleteMessageAsync(any(DeleteMessageRequest.class));
+
+        container.stop();
+        container.destroy();
+    }
+
+    private static void mockReceiveMessageAsync(AmazonSQSAsync sqs, AtomicInteger receiveCount) {
+        when(sqs.receiveMessageAsync(any(ReceiveMessageRequest.class), any())).thenAnswer(invocation -> {
+            ReceiveMessageRequest request = invocation.getArgument(0);
+            @SuppressWarnings("unchecked")
+            AsyncHandler<ReceiveMessageRequest, ReceiveMessageResult> asyncHandler = invocation.getArgument(1);
+            ReceiveMessageResult result = new ReceiveMessageResult();
+            if (receiveCount.incrementAndGet() <= 2) {
+                result.withMessages(new Message().withBody("message").withReceiptHandle(request.getQueueUrl() + "-handle"));
+            }
+            // Simulates a short long poll that completes on a thread of the client
+            CompletableFuture.runAsync(() -> {
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                asyncHandler.onSuccess(request, result);
+            });
+            return null;
+        });
+    }
+
+    private static void mockQueue(AmazonSQSAsync sqs, String queueName, String queueUrl) {
+        when(sqs.getQueueUrl(new GetQueueUrlRequest(queueName))).thenReturn(new GetQueueUrlResult().withQueueUrl(queueUrl));
+        when(sqs.getQueueAttributes(new GetQueueAttributesRequest(queueUrl).withAttributeNames(QueueAttributeName.RedrivePolicy))).
+                thenReturn(new GetQueueAttributesResult());
+    }
+
+    private static class TestMessageListener {
+
+        private final CountDownLatch countDownLatch = new CountDownLatch(2);
+
+        @RuntimeUse
+        @SqsListener({"firstQueue", "secondQueue"})
+        private void handleMessage(String message) {
+            this.countDownLatch.countDown();
+        }
+
+        CountDownLatch getCountDownLatch() {
+            return this.countDownLatch;
+        }
+    }
+
+    private static class AsyncMessageListener {
+
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+        private final CountDownLatch countDownLatch = new CountDownLatch(1);
+
+        @RuntimeUse
+        @SqsListener("asyncQueue")
+        private CompletableFuture<Void> handleMessage(String message) {
+            this.countDownLatch.countDown();
+            return this.result;
+        }
+
+        CompletableFuture<Void> getResult() {
+            return this.result;
+        }
+
+        CountDownLatch getCountDownLatch() {
+            return this.countDownLatch;
+        }
+    }
+
+    private static class BatchMessageListener {
+
+        @RuntimeUse
+        @SqsListener(value = "batchQueue", batch = true, deletionPolicy = SqsMessageDeletionPolicy.ON_SUCCESS)
+        private void handleMessages(List<String> messages) {
+            int failedIndex = messages.indexOf("fail");
+            if (failedIndex >= 0) {
+                throw new PartialBatchFailureException("Message could not be processed", Collections.singleton(failedIndex));
+            }
+        }
+    }
+}
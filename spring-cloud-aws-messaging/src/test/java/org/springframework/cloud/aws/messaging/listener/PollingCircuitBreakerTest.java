@@ -0,0 +1,140 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.aws.messaging.listener;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PollingCircuitBreakerTest {
+
+    @Test
+    public void recordFailure_reachingThreshold_shouldOpenCircuit() throws Exception {
+        // Arrange
+        PollingCircuitBreaker circuitBreaker = new PollingCircuitBreaker(3, 60000);
+
+        // Act
+        boolean openedByFirstFailure = circuitBreaker.recordFailure();
+        boolean openedBySecondFailure = circuitBreaker.recordFailure();
+        boolean openedByThirdFailure = circuitBreaker.recordFailure();
+
+        // Assert
+        assertFalse(openedByFirstFailure);
+        assertFalse(openedBySecondFailure);
+        assertTrue(openedByThirdFailure);
+        assertEquals(PollingCircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.allowRequest());
+        assertTrue(circuitBreaker.getRemainingOpenTime() > 0);
+    }
+
+    @Test
+    public void recordSuccess_beforeReachingThreshold_shouldResetConsecutiveFailures() throws Exception {
+        // Arrange
+        PollingCircuitBreaker circuitBreaker = new PollingCircuitBreaker(2, 60000);
+        circuitBreaker.recordFailure();
+
+        // Act
+        circuitBreaker.recordSuccess();
+
+        // Assert
+        assertFalse(circuitBreaker.recordFailure());
+        assertTrue(circuitBreaker.allowRequest());
+    }
+
+    @Test
+    public void allowRequest_afterOpenTimeout_shouldAllowSingleProbe() throws Exception {
+        // Arrange
+        PollingCircuitBreaker circuitBreaker = new PollingCircuitBreaker(1, 0);
+        circuitBreaker.recordFailure();
+
+        // Act
+        boolean firstProbeAllowed = circuitBreaker.allowRequest();
+        boolean secondProbeAllowed = circuitBreaker.allowRequest();
+
+        // Assert
+        assertTrue(firstProbeAllowed);
+        assertFalse(secondProbeAllowed);
+        assertEquals(PollingCircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    public void recordFailure_duringProbe_shouldReopenCircuit() throws Exception {
+        // Arrange
+        PollingCircuitBreaker circuitBreaker = new PollingCircuitBreaker(1, 0);
+        circuitBreaker.recordFailure();
+        circuitBreaker.allowRequest();
+
+        // Act
+        boolean reopened = circuitBreaker.recordFailure();
+
+        // Assert
+        assertTrue(reopened);
+        assertEquals(PollingCircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    public void recordSuccess_duringProbe_shouldCloseCircuit() throws Exception {
+        // Arrange
+        PollingCircuitBreaker circuitBreaker = new PollingCircuitBreaker(1, 0);
+        circuitBreaker.recordFailure();
+        circuitBreaker.allowRequest();
+
+        // Act
+        boolean closed = circuitBreaker.recordSuccess();
+
+        // Assert
+        assertTrue(closed);
+        assertEquals(PollingCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertTrue(circuitBreaker.allowRequest());
+    }
+
+    @Test
+    public void recordIgnoredFailure_duringProbe_shouldAllowNextProbeWithoutCountingFailure() throws Exception {
+        // Arrange
+        PollingCircuitBreaker circuitBreaker = new PollingCircuitBreaker(2, 60000);
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordFailure();
+        PollingCircuitBreaker probingCircuitBreaker = new PollingCircuitBreaker(1, 0);
+        probingCircuitBreaker.recordFailure();
+        probingCircuitBreaker.allowRequest();
+
+        // Act
+        circuitBreaker.recordIgnoredFailure();
+        probingCircuitBreaker.recordIgnoredFailure();
+
+        // Assert
+        assertEquals(PollingCircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertTrue(circuitBreaker.getRemainingOpenTime() > 0);
+        assertEquals(PollingCircuitBreaker.State.OPEN, probingCircuitBreaker.getState());
+        assertTrue(probingCircuitBreaker.allowRequest());
+    }
+
+    @Test
+    public void recordIgnoredFailure_whileClosed_shouldNotOpenCircuit() throws Exception {
+        // Arrange
+        PollingCircuitBreaker circuitBreaker = new PollingCircuitBreaker(1, 60000);
+
+        // Act
+        circuitBreaker.recordIgnoredFailure();
+
+        // Assert
+        assertEquals(PollingCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertTrue(circuitBreaker.allowRequest());
+    }
+}
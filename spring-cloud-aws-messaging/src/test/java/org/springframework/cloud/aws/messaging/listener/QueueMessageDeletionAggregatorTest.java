@@ -0,0 +1,141 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.aws.messaging.listener;
+
+import com.amazonaws.handlers.AsyncHandler;
+import com.amazonaws.services.sqs.AmazonSQSAsync;
+import com.amazonaws.services.sqs.model.AmazonSQSException;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequest;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchResult;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchResultEntry;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+public class QueueMessageDeletionAggregatorTest {
+
+    private static final String QUEUE_URL = "http://testQueue.amazonaws.com";
+
+    @Test
+    public void deleteMessage_withMaximumNumberOfPendingDeletions_shouldSendBatchImmediately() throws Exception {
+        // Arrange
+        AmazonSQSAsync sqs = mock(AmazonSQSAsync.class);
+        QueueMessageDeletionAggregator deletionAggregator = new QueueMessageDeletionAggregator(sqs, 60000);
+        List<Future<?>> futures = new ArrayList<>();
+
+        // Act
+        for (int i = 0; i < QueueMessageDeletionAggregator.MAX_BATCH_ENTRIES; i++) {
+            futures.add(deletionAggregator.deleteMessage(QUEUE_URL, "receiptHandle" + i));
+        }
+
+        // Assert
+        ArgumentCaptor<DeleteMessageBatchRequest> requestArgumentCaptor = ArgumentCaptor.forClass(DeleteMessageBatchRequest.class);
+        AsyncHandler<DeleteMessageBatchRequest, DeleteMessageBatchResult> asyncHandler = captureAsyncHandler(sqs, requestArgumentCaptor);
+        DeleteMessageBatchRequest request = requestArgumentCaptor.getValue();
+        assertEquals(QUEUE_URL, request.getQueueUrl());
+        assertEquals(QueueMessageDeletionAggregator.MAX_BATCH_ENTRIES, request.getEntries().size());
+        assertEquals(new DeleteMessageBatchRequestEntry("9", "receiptHandle9"), request.getEntries().get(9));
+
+        DeleteMessageBatchResult result = new DeleteMessageBatchResult();
+        for (DeleteMessageBatchRequestEntry entry : request.getEntries()) {
+            result.withSuccessful(new DeleteMessageBatchResultEntry().withId(entry.getId()));
+        }
+        asyncHandler.onSuccess(request, result);
+
+        for (Future<?> future : futures) {
+            assertNull(future.get());
+        }
+
+        deletionAggregator.destroy();
+    }
+
+    @Test
+    public void deleteMessage_withMaxDelayElapsed_shouldSendPendingDeletions() throws Exception {
+        // Arrange
+        AmazonSQSAsync sqs = mock(AmazonSQSAsync.class);
+        QueueMessageDeletionAggregator deletionAggregator = new QueueMessageDeletionAggregator(sqs, 10);
+
+        // Act
+        deletionAggregator.deleteMessage(QUEUE_URL, "first");
+        deletionAggregator.deleteMessage(QUEUE_URL, "second");
+
+        // Assert
+        ArgumentCaptor<DeleteMessageBatchRequest> requestArgumentCaptor = ArgumentCaptor.forClass(DeleteMessageBatchRequest.class);
+        verify(sqs, timeout(1000)).deleteMessageBatchAsync(requestArgumentCaptor.capture(), any());
+        assertEquals(Arrays.asList(new DeleteMessageBatchRequestEntry("0", "first"), new DeleteMessageBatchRequestEntry("1", "second")),
+                requestArgumentCaptor.getValue().getEntries());
+
+        deletionAggregator.destroy();
+    }
+
+    @Test
+    public void flush_withFailedEntry_shouldOnlyCompleteFailedDeletionExceptionally() throws Exception {
+        // Arrange
+        AmazonSQSAsync sqs = mock(AmazonSQSAsync.class);
+        QueueMessageDeletionAggregator deletionAggregator = new QueueMessageDeletionAggregator(sqs, 60000);
+        Future<?> successful = deletionAggregator.deleteMessage(QUEUE_URL, "valid");
+        Future<?> failed = deletionAggregator.deleteMessage(QUEUE_URL, "invalid");
+        verify(sqs, never()).deleteMessageBatchAsync(any(DeleteMessageBatchRequest.class), any());
+
+        // Act
+        deletionAggregator.flush();
+
+        // Assert
+        ArgumentCaptor<DeleteMessageBatchRequest> requestArgumentCaptor = ArgumentCaptor.forClass(DeleteMessageBatchRequest.class);
+        AsyncHandler<DeleteMessageBatchRequest, DeleteMessageBatchResult> asyncHandler = captureAsyncHandler(sqs, requestArgumentCaptor);
+        asyncHandler.onSuccess(requestArgumentCaptor.getValue(), new DeleteMessageBatchResult()
+                .withSuccessful(new DeleteMessageBatchResultEntry().withId("0"))
+                .withFailed(new BatchResultErrorEntry().withId("1").withCode("ReceiptHandleIsInvalid").withMessage("invalid")));
+
+        assertNull(successful.get());
+        assertTrue(failed.isDone());
+        try {
+            failed.get();
+            fail("Expected an ExecutionException");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof AmazonSQSException);
+            assertEquals("ReceiptHandleIsInvalid", ((AmazonSQSException) e.getCause()).getErrorCode());
+        }
+
+        deletionAggregator.destroy();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static AsyncHandler<DeleteMessageBatchRequest, DeleteMessageBatchResult> captureAsyncHandler(AmazonSQSAsync sqs,
+                                                                                                          ArgumentCaptor<DeleteMessageBatchRequest> requestArgumentCaptor) {
+        ArgumentCaptor<AsyncHandler> asyncHandlerArgumentCaptor = ArgumentCaptor.forClass(AsyncHandler.class);
+        verify(sqs).deleteMessageBatchAsync(requestArgumentCaptor.capture(), asyncHandlerArgumentCaptor.capture());
+        return asyncHandlerArgumentCaptor.getValue();
+    }
+}
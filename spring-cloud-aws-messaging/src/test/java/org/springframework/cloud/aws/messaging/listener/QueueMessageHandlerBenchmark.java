@@ -0,0 +1,112 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.cloud.aws.messaging.listener;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.beans.MutablePropertyValues;
+import org.springframework.cloud.aws.messaging.listener.annotation.SqsListener;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the reflective invocation of listener methods with the invocation through a {@link ListenerMethodInvoker}
+ * that is enabled by {@link QueueMessageHandler#setMethodHandleInvocation(boolean)}.
+ * The benchmark is not executed by the build, run it with the {@link #main(String[])} method on the test class path.
+ *
+ * @since 2.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueueMessageHandlerBenchmark {
+
+    @Param({"false", "true"})
+    private boolean methodHandleInvocation;
+
+    private StaticApplicationContext applicationContext;
+    private QueueMessageHandler queueMessageHandler;
+    private BenchmarkMessageListener messageListener;
+    private Message<String> message;
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(QueueMessageHandlerBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    @Setup
+    public void setUp() {
+        this.applicationContext = new StaticApplicationContext();
+        this.applicationContext.registerSingleton("benchmarkMessageListener", BenchmarkMessageListener.class);
+        MutablePropertyValues propertyValues = new MutablePropertyValues();
+        propertyValues.add("methodHandleInvocation", this.methodHandleInvocation);
+        this.applicationContext.registerSingleton("queueMessageHandler", QueueMessageHandler.class, propertyValues);
+        this.applicationContext.refresh();
+
+        this.queueMessageHandler = this.applicationContext.getBean(QueueMessageHandler.class);
+        this.messageListener = this.applicationContext.getBean(BenchmarkMessageListener.class);
+        this.message = MessageBuilder.withPayload("Hello from a sender")
+                .setHeader(QueueMessageHandler.LOGICAL_RESOURCE_ID, "benchmarkQueue")
+                .setHeader("SenderId", "benchmark")
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.applicationContext.close();
+    }
+
+    @Benchmark
+    public int handleMessage() {
+        this.queueMessageHandler.handleMessage(this.message);
+        return this.messageListener.getReceivedMessages();
+    }
+
+    public static class BenchmarkMessageListener {
+
+        private int receivedMessages;
+
+        @SqsListener("benchmarkQueue")
+        public void receive(String payload, @Header("SenderId") String senderId) {
+            this.receivedMessages += payload.length() + senderId.length();
+        }
+
+        public int getReceivedMessages() {
+            return this.receivedMessages;
+        }
+    }
+}
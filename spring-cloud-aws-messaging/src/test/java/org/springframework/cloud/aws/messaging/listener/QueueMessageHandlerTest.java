@@ -25,7 +25,9 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
@@ -58,17 +60,22 @@ import org.springframework.messaging.handler.annotation.Headers;
 import org.springframework.messaging.handler.annotation.MessageExceptionHandler;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.messaging.handler.annotation.SendTo;
+import org.springframework.messaging.handler.annotation.support.DestinationPatternsMessageCondition;
 import org.springframework.messaging.handler.invocation.HandlerMethodArgumentResolver;
 import org.springframework.messaging.handler.invocation.HandlerMethodReturnValueHandler;
 import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
@@ -92,6 +99,9 @@ import static org.mockito.Mockito.when;
 @RunWith(MockitoJUnitRunner.class)
 public class QueueMessageHandlerTest {
 
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
     @Mock
     private DestinationResolvingMessageSendingOperations<?> messageTemplate;
 
@@ -297,6 +307,31 @@ public class QueueMessageHandlerTest {
         assertEquals("testQueue", messageReceiver.getHeaders().get(QueueMessageHandler.LOGICAL_RESOURCE_ID));
     }
 
+    @Test
+    public void receiveMessage_withAndWithoutDispatchTable_shouldPassSameHeadersToHandlerMethod() {
+        // Arrange
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.registerSingleton("messageHandlerWithHeadersAnnotation", MessageReceiverWithHeadersAnnotation.class);
+        applicationContext.registerSingleton("queueMessageHandler", QueueMessageHandler.class);
+        applicationContext.refresh();
+
+        QueueMessageHandler queueMessageHandler = applicationContext.getBean(QueueMessageHandler.class);
+        MessageReceiverWithHeadersAnnotation messageReceiver = applicationContext.getBean(MessageReceiverWithHeadersAnnotation.class);
+        Message<String> message = MessageBuilder.withPayload("Hello from a sender")
+                .setHeader(QueueMessageHandler.LOGICAL_RESOURCE_ID, "testQueue").setHeader("SenderId", "ID").build();
+
+        // Act
+        queueMessageHandler.handleMessage(message);
+        Map<String, Object> dispatchedHeaders = withoutIdAndTimestamp(messageReceiver.getHeaders());
+        ReflectionTestUtils.setField(queueMessageHandler, "dispatchTable", Collections.emptyMap());
+        queueMessageHandler.handleMessage(message);
+        Map<String, Object> matchedHeaders = withoutIdAndTimestamp(messageReceiver.getHeaders());
+
+        // Assert
+        assertEquals("testQueue", dispatchedHeaders.get(DestinationPatternsMessageCondition.LOOKUP_DESTINATION_HEADER));
+        assertEquals(matchedHeaders, dispatchedHeaders);
+    }
+
     @Test
     public void receiveMessage_withCustomArgumentResolvers_shouldCallThemBeforeTheDefaultOnes() throws Exception {
         // Arrange
@@ -443,6 +478,276 @@ public class QueueMessageHandlerTest {
         assertTrue(mappingInformation.getLogicalResourceIds().containsAll(Arrays.asList("queueOne", "queueTwo")));
     }
 
+    @Test
+    public void getMappingForMethod_methodWithoutAcknowledgmentAndVisibilityParameters_shouldNotRequireThem() throws Exception {
+        // Arrange
+        QueueMessageHandler queueMessageHandler = new QueueMessageHandler();
+        Method receiveMethod = SqsListenerDeletionPolicyNeverNoAcknowledgment.class.getMethod("receive", String.class);
+
+        // Act
+        QueueMessageHandler.MappingInformation mappingInformation = queueMessageHandler.getMappingForMethod(receiveMethod, null);
+
+        // Assert
+        assertFalse(mappingInformation.isAcknowledgmentRequired());
+        assertFalse(mappingInformation.isVisibilityRequired());
+    }
+
+    @Test
+    public void getMappingForMethod_methodWithAcknowledgmentParameter_shouldRequireOnlyAcknowledgment() throws Exception {
+        // Arrange
+        QueueMessageHandler queueMessageHandler = new QueueMessageHandler();
+        Method receiveMethod = SqsListenerWithAcknowledgment.class.getMethod("receive", String.class, Acknowledgment.class);
+
+        // Act
+        QueueMessageHandler.MappingInformation mappingInformation = queueMessageHandler.getMappingForMethod(receiveMethod, null);
+
+        // Assert
+        assertTrue(mappingInformation.isAcknowledgmentRequired());
+        assertFalse(mappingInformation.isVisibilityRequired());
+    }
+
+    @Test
+    public void getMappingForMethod_methodWithHeadersParameter_shouldRequireAcknowledgmentAndVisibility() throws Exception {
+        // Arrange
+        QueueMessageHandler queueMessageHandler = new QueueMessageHandler();
+        Method receiveMethod = MessageReceiverWithHeadersAnnotation.class.getMethod("receive", String.class, Map.class);
+
+        // Act
+        QueueMessageHandler.MappingInformation mappingInformation = queueMessageHandler.getMappingForMethod(receiveMethod, null);
+
+        // Assert
+        assertTrue(mappingInformation.isAcknowledgmentRequired());
+        assertTrue(mappingInformation.isVisibilityRequired());
+    }
+
+    @Test
+    public void getMappingForMethod_methodWithQueueSettingPlaceholders_shouldResolveQueueSettings() throws Exception {
+        // Arrange
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.getEnvironment().getPropertySources().addLast(new MapPropertySource("test",
+                Collections.<String, Object>singletonMap("custom.visibilityTimeout", "300")));
+        applicationContext.registerSingleton("ppc", PropertySourcesPlaceholderConfigurer.class);
+        applicationContext.registerSingleton("queueMessageHandler", QueueMessageHandler.class);
+        applicationContext.refresh();
+
+        Method receiveMethod = SqsListenerWithQueueSettings.class.getMethod("receive", String.class);
+        QueueMessageHandler queueMessageHandler = applicationContext.getBean(QueueMessageHandler.class);
+
+        // Act
+        QueueMessageHandler.MappingInformation mappingInformation = queueMessageHandler.getMappingForMethod(receiveMethod, null);
+
+        // Assert
+        assertEquals(Integer.valueOf(1), mappingInformation.getMaxNumberOfMessages());
+        assertEquals(Integer.valueOf(300), mappingInformation.getVisibilityTimeout());
+        assertNull(mappingInformation.getWaitTimeOut());
+        assertEquals(Long.valueOf(500), mappingInformation.getBackOffTime());
+    }
+
+    @Test
+    public void getMappingForMethod_maxNumberOfMessagesPlaceholderOutOfRange_shouldFailWithAttributeName() throws Exception {
+        // Arrange
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.getEnvironment().getPropertySources().addLast(new MapPropertySource("test",
+                Collections.<String, Object>singletonMap("custom.maxNumberOfMessages", "11")));
+        applicationContext.registerSingleton("ppc", PropertySourcesPlaceholderConfigurer.class);
+        applicationContext.registerSingleton("queueMessageHandler", QueueMessageHandler.class);
+        applicationContext.refresh();
+
+        Method receiveMethod = SqsListenerWithInvalidQueueSettings.class.getMethod("receiveTooManyMessages", String.class);
+        QueueMessageHandler queueMessageHandler = applicationContext.getBean(QueueMessageHandler.class);
+
+        // Assert
+        this.expectedException.expect(IllegalArgumentException.class);
+        this.expectedException.expectMessage("The value of attribute 'maxNumberOfMessages' must be between 1 and 10 but was 11");
+
+        // Act
+        queueMessageHandler.getMappingForMethod(receiveMethod, null);
+    }
+
+    @Test
+    public void getMappingForMethod_waitTimeOutOutOfRange_shouldFailWithAttributeName() throws Exception {
+        // Arrange
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.registerSingleton("queueMessageHandler", QueueMessageHandler.class);
+        applicationContext.refresh();
+
+        Method receiveMethod = SqsListenerWithInvalidQueueSettings.class.getMethod("receiveWithTooLongWaitTimeOut", String.class);
+        QueueMessageHandler queueMessageHandler = applicationContext.getBean(QueueMessageHandler.class);
+
+        // Assert
+        this.expectedException.expect(IllegalArgumentException.class);
+        this.expectedException.expectMessage("The value of attribute 'waitTimeOut' must be between 0 and 20 but was 21");
+
+        // Act
+        queueMessageHandler.getMappingForMethod(receiveMethod, null);
+    }
+
+    @Test
+    public void handleMessage_queueMappedToOneHandlerMethod_dispatchesWithoutMatchingTheMappings() {
+        // Arrange
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.registerSingleton("incomingMessageHandler", IncomingMessageHandler.class);
+        applicationContext.registerSingleton("incomingMessageHandlerWithMultipleQueueNames", IncomingMessageHandlerWithMultipleQueueNames.class);
+        applicationContext.registerSingleton("queueMessageHandler", MatchCountingQueueMessageHandler.class);
+        applicationContext.refresh();
+
+        MatchCountingQueueMessageHandler queueMessageHandler = applicationContext.getBean(MatchCountingQueueMessageHandler.class);
+
+        // Act
+        queueMessageHandler.handleMessage(MessageBuilder.withPayload("testContent").setHeader(QueueMessageHandler.LOGICAL_RESOURCE_ID, "receive").build());
+        queueMessageHandler.handleMessage(MessageBuilder.withPayload("Hello").setHeader(QueueMessageHandler.LOGICAL_RESOURCE_ID, "queueTwo").build());
+
+        // Assert
+        assertEquals("testContent", applicationContext.getBean(IncomingMessageHandler.class).getLastReceivedMessage());
+        assertEquals("Hello", applicationContext.getBean(IncomingMessageHandlerWithMultipleQueueNames.class).getLastReceivedMessage());
+        assertEquals(0, queueMessageHandler.getMatchingMappingCalls());
+    }
+
+    @Test
+    public void handleMessage_queueWithoutHandlerMethod_delegatesToGenericMatching() {
+        // Arrange
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.registerSingleton("incomingMessageHandler", IncomingMessageHandler.class);
+        applicationContext.registerSingleton("queueMessageHandler", MatchCountingQueueMessageHandler.class);
+        applicationContext.refresh();
+
+        MatchCountingQueueMessageHandler queueMessageHandler = applicationContext.getBean(MatchCountingQueueMessageHandler.class);
+
+        // Act
+        queueMessageHandler.handleMessage(MessageBuilder.withPayload("testContent").setHeader(QueueMessageHandler.LOGICAL_RESOURCE_ID, "unknownQueue").build());
+
+        // Assert
+        assertNull(applicationContext.getBean(IncomingMessageHandler.class).getLastReceivedMessage());
+        assertTrue(queueMessageHandler.getMatchingMappingCalls() > 0);
+    }
+
+    @Test
+    public void receiveAndReplyMessage_withMethodHandleInvocation_methodInvokedAndReplySentBackToSendToDestination() {
+        // Arrange
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.registerSingleton("incomingMessageHandler", IncomingMessageHandler.class);
+        AbstractBeanDefinition queueMessageHandlerBeanDefinition = getQueueMessageHandlerBeanDefinition();
+        queueMessageHandlerBeanDefinition.getPropertyValues().add("methodHandleInvocation", true);
+        applicationContext.registerBeanDefinition("queueMessageHandler", queueMessageHandlerBeanDefinition);
+        applicationContext.refresh();
+
+        MessageHandler messageHandler = applicationContext.getBean(MessageHandler.class);
+
+        // Act
+        messageHandler.handleMessage(MessageBuilder.withPayload("testContent").setHeader(QueueMessageHandler.LOGICAL_RESOURCE_ID, "receiveAndReply").build());
+
+        // Assert
+        IncomingMessageHandler messageListener = applicationContext.getBean(IncomingMessageHandler.class);
+        assertEquals("testContent", messageListener.getLastReceivedMessage());
+        verify(this.messageTemplate).convertAndSend(eq("sendTo"), eq("TESTCONTENT"));
+    }
+
+    @Test
+    public void receiveMessage_withMethodHandleInvocationAndHeaderAnnotationAsArgument_shouldReceiveRequestedHeader() {
+        // Arrange
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.registerSingleton("messageHandlerWithHeaderAnnotation", MessageReceiverWithHeaderAnnotation.class);
+        MutablePropertyValues propertyValues = new MutablePropertyValues();
+        propertyValues.add("methodHandleInvocation", true);
+        applicationContext.registerSingleton("queueMessageHandler", QueueMessageHandler.class, propertyValues);
+        applicationContext.refresh();
+
+        QueueMessageHandler queueMessageHandler = applicationContext.getBean(QueueMessageHandler.class);
+        MessageReceiverWithHeaderAnnotation messageReceiver = applicationContext.getBean(MessageReceiverWithHeaderAnnotation.class);
+
+        // Act
+        queueMessageHandler.handleMessage(MessageBuilder.withPayload("Hello from a sender")
+                .setHeader(QueueMessageHandler.LOGICAL_RESOURCE_ID, "testQueue").setHeader("SenderId", "elsUnitTest").build());
+
+        // Assert
+        assertEquals("Hello from a sender", messageReceiver.getPayload());
+        assertEquals("elsUnitTest", messageReceiver.getSenderId());
+    }
+
+    @Test
+    public void receiveMessage_withMethodHandleInvocationAndExceptionThrown_shouldCallExceptionHandler() {
+        // Arrange
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.registerSingleton("incomingMessageHandler", IncomingMessageHandler.class);
+        AbstractBeanDefinition queueMessageHandlerBeanDefinition = getQueueMessageHandlerBeanDefinition();
+        queueMessageHandlerBeanDefinition.getPropertyValues().add("methodHandleInvocation", true);
+        applicationContext.registerBeanDefinition("queueMessageHandler", queueMessageHandlerBeanDefinition);
+        applicationContext.refresh();
+
+        MessageHandler messageHandler = applicationContext.getBean(MessageHandler.class);
+        doThrow(new RuntimeException()).when(this.messageTemplate).convertAndSend(anyString(), Optional.ofNullable(any()));
+        IncomingMessageHandler messageListener = applicationContext.getBean(IncomingMessageHandler.class);
+        messageListener.setExceptionHandlerCalled(false);
+
+        // Act
+        try {
+            messageHandler.handleMessage(MessageBuilder.withPayload("testContent").setHeader(QueueMessageHandler.LOGICAL_RESOURCE_ID, "receiveAndReply").build());
+        } catch (MessagingException e) {
+            // ignore
+        }
+
+        // Assert
+        assertTrue(messageListener.isExceptionHandlerCalled());
+    }
+
+    @Test
+    public void receiveMessage_withMethodHandleInvocationAndPublicListenerMethods_shouldInvokeMethodsAndSendReply() {
+        // Arrange
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.registerSingleton("publicMessageListener", PublicMessageListener.class);
+        AbstractBeanDefinition queueMessageHandlerBeanDefinition = getQueueMessageHandlerBeanDefinition();
+        queueMessageHandlerBeanDefinition.getPropertyValues().add("methodHandleInvocation", true);
+        applicationContext.registerBeanDefinition("queueMessageHandler", queueMessageHandlerBeanDefinition);
+        applicationContext.refresh();
+
+        MessageHandler messageHandler = applicationContext.getBean(MessageHandler.class);
+        PublicMessageListener messageListener = applicationContext.getBean(PublicMessageListener.class);
+
+        // Act
+        messageHandler.handleMessage(MessageBuilder.withPayload("Hello from a sender").setHeader(QueueMessageHandler.LOGICAL_RESOURCE_ID, "publicReceive")
+                .setHeader("SenderId", "elsUnitTest").build());
+        messageHandler.handleMessage(MessageBuilder.withPayload("Count").setHeader(QueueMessageHandler.LOGICAL_RESOURCE_ID, "publicReceiveAndReply")
+                .setHeader("count", 42).build());
+
+        // Assert
+        assertEquals("Hello from a sender", messageListener.getPayload());
+        assertEquals("elsUnitTest", messageListener.getSenderId());
+        verify(this.messageTemplate).convertAndSend(eq("sendTo"), eq(43));
+    }
+
+    private static Map<String, Object> withoutIdAndTimestamp(Map<String, ?> headers) {
+        Map<String, Object> filteredHeaders = new HashMap<>(headers);
+        filteredHeaders.remove(MessageHeaders.ID);
+        filteredHeaders.remove(MessageHeaders.TIMESTAMP);
+        return filteredHeaders;
+    }
+
+    public static class PublicMessageListener {
+
+        private String payload;
+        private String senderId;
+
+        @SqsListener("publicReceive")
+        public void receive(@Payload String payload, @Header("SenderId") String senderId) {
+            this.payload = payload;
+            this.senderId = senderId;
+        }
+
+        @SqsListener("publicReceiveAndReply")
+        @SendTo("sendTo")
+        public int receiveAndReply(@Header("count") int count) {
+            return count + 1;
+        }
+
+        public String getPayload() {
+            return this.payload;
+        }
+
+        public String getSenderId() {
+            return this.senderId;
+        }
+    }
+
     @SuppressWarnings("UnusedDeclaration")
     private static class IncomingMessageHandler {
 
@@ -510,6 +815,27 @@ public class QueueMessageHandlerTest {
         }
     }
 
+    private static class SqsListenerWithQueueSettings {
+
+        @RuntimeUse
+        @SqsListener(value = "heavyJobs", maxNumberOfMessages = "1", visibilityTimeout = "${custom.visibilityTimeout}", backOffTime = "500")
+        public void receive(String value) {
+        }
+    }
+
+    private static class SqsListenerWithInvalidQueueSettings {
+
+        @RuntimeUse
+        @SqsListener(value = "tooManyMessages", maxNumberOfMessages = "${custom.maxNumberOfMessages}")
+        public void receiveTooManyMessages(String value) {
+        }
+
+        @RuntimeUse
+        @SqsListener(value = "tooLongWaitTimeOut", waitTimeOut = "21")
+        public void receiveWithTooLongWaitTimeOut(String value) {
+        }
+    }
+
     private static class IncomingMessageHandlerWithPlaceholderName {
 
         private String lastReceivedMessage;
@@ -653,6 +979,30 @@ public class QueueMessageHandlerTest {
 
     }
 
+    private static class MatchCountingQueueMessageHandler extends QueueMessageHandler {
+
+        private final AtomicInteger matchingMappingCalls = new AtomicInteger();
+
+        @Override
+        protected MappingInformation getMatchingMapping(MappingInformation mapping, Message<?> message) {
+            this.matchingMappingCalls.incrementAndGet();
+            return super.getMatchingMapping(mapping, message);
+        }
+
+        private int getMatchingMappingCalls() {
+            return this.matchingMappingCalls.get();
+        }
+    }
+
+    private static class SqsListenerWithAcknowledgment {
+
+        @RuntimeUse
+        @SqsListener(value = "testQueue", deletionPolicy = SqsMessageDeletionPolicy.NEVER)
+        public void receive(String message, Acknowledgment acknowledgment) {
+        }
+
+    }
+
     private static class SqsListenerWithExpressionProducingMultipleQueueNames {
 
         @RuntimeUse
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.aws.messaging.listener;
+
+import com.amazonaws.services.sqs.AmazonSQSAsync;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequestEntry;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class QueueMessageVisibilityHeartbeatTest {
+
+    private static final String QUEUE_URL = "http://testQueue.amazonaws.com";
+
+    @Test
+    public void extendVisibilityOfInFlightMessages_withRegisteredMessages_shouldExtendVisibilityInBatchesOfTen() throws Exception {
+        // Arrange
+        AmazonSQSAsync sqs = mock(AmazonSQSAsync.class);
+        QueueMessageVisibilityHeartbeat heartbeat = new QueueMessageVisibilityHeartbeat(sqs, 3600, 7200);
+        for (int i = 0; i < 12; i++) {
+            heartbeat.register(QUEUE_URL, "receiptHandle" + i);
+        }
+
+        // Act
+        heartbeat.extendVisibilityOfInFlightMessages();
+
+        // Assert
+        ArgumentCaptor<ChangeMessageVisibilityBatchRequest> requestArgumentCaptor = ArgumentCaptor.forClass(ChangeMessageVisibilityBatchRequest.class);
+        verify(sqs, times(2)).changeMessageVisibilityBatchAsync(requestArgumentCaptor.capture(), any());
+
+        List<ChangeMessageVisibilityBatchRequest> requests = requestArgumentCaptor.getAllValues();
+        assertEquals(10, requests.get(0).getEntries().size());
+        assertEquals(2, requests.get(1).getEntries().size());
+        for (ChangeMessageVisibilityBatchRequest request : requests) {
+            assertEquals(QUEUE_URL, request.getQueueUrl());
+            for (ChangeMessageVisibilityBatchRequestEntry entry : request.getEntries()) {
+                assertEquals(Integer.valueOf(7200), entry.getVisibilityTimeout());
+            }
+        }
+
+        heartbeat.destroy();
+    }
+
+    @Test
+    public void extendVisibilityOfInFlightMessages_withUnregisteredMessage_shouldNotExtendItsVisibility() throws Exception {
+        // Arrange
+        AmazonSQSAsync sqs = mock(AmazonSQSAsync.class);
+        QueueMessageVisibilityHeartbeat heartbeat = new QueueMessageVisibilityHeartbeat(sqs, 3600, 7200);
+        heartbeat.register(QUEUE_URL, "processed");
+        heartbeat.register(QUEUE_URL, "inProgress");
+        heartbeat.unregister(QUEUE_URL, "processed");
+
+        // Act
+        heartbeat.extendVisibilityOfInFlightMessages();
+
+        // Assert
+        ArgumentCaptor<ChangeMessageVisibilityBatchRequest> requestArgumentCaptor = ArgumentCaptor.forClass(ChangeMessageVisibilityBatchRequest.class);
+        verify(sqs).changeMessageVisibilityBatchAsync(requestArgumentCaptor.capture(), any());
+        assertEquals(Collections.singletonList(new ChangeMessageVisibilityBatchRequestEntry("0", "inProgress").withVisibilityTimeout(7200)),
+                requestArgumentCaptor.getValue().getEntries());
+
+        heartbeat.destroy();
+    }
+
+    @Test
+    public void extendVisibilityOfInFlightMessages_withoutRegisteredMessages_shouldNotSendRequests() throws Exception {
+        // Arrange
+        AmazonSQSAsync sqs = mock(AmazonSQSAsync.class);
+        QueueMessageVisibilityHeartbeat heartbeat = new QueueMessageVisibilityHeartbeat(sqs, 3600, 7200);
+        heartbeat.register(QUEUE_URL, "processed");
+        heartbeat.unregister(QUEUE_URL, "processed");
+
+        // Act
+        heartbeat.extendVisibilityOfInFlightMessages();
+
+        // Assert
+        verify(sqs, never()).changeMessageVisibilityBatchAsync(any(ChangeMessageVisibilityBatchRequest.class), any());
+
+        heartbeat.destroy();
+    }
+
+    @Test
+    public void extendVisibilityOfInFlightMessages_withQueueVisibilityTimeout_shouldExtendVisibilityByQueueVisibilityTimeout() throws Exception {
+        // Arrange
+        AmazonSQSAsync sqs = mock(AmazonSQSAsync.class);
+        QueueMessageVisibilityHeartbeat heartbeat = new QueueMessageVisibilityHeartbeat(sqs, 3600, 7200);
+        heartbeat.setVisibilityTimeout("http://slowQueue.amazonaws.com", 43200);
+        heartbeat.register("http://slowQueue.amazonaws.com", "slow");
+        heartbeat.register(QUEUE_URL, "default");
+
+        // Act
+        heartbeat.extendVisibilityOfInFlightMessages();
+
+        // Assert
+        ArgumentCaptor<ChangeMessageVisibilityBatchRequest> requestArgumentCaptor = ArgumentCaptor.forClass(ChangeMessageVisibilityBatchRequest.class);
+        verify(sqs, times(2)).changeMessageVisibilityBatchAsync(requestArgumentCaptor.capture(), any());
+        for (ChangeMessageVisibilityBatchRequest request : requestArgumentCaptor.getAllValues()) {
+            Integer expectedVisibilityTimeout = QUEUE_URL.equals(request.getQueueUrl()) ? 7200 : 43200;
+            assertEquals(expectedVisibilityTimeout, request.getEntries().get(0).getVisibilityTimeout());
+        }
+
+        heartbeat.destroy();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setVisibilityTimeout_notGreaterThanInterval_shouldFail() throws Exception {
+        // Arrange
+        QueueMessageVisibilityHeartbeat heartbeat = new QueueMessageVisibilityHeartbeat(mock(AmazonSQSAsync.class), 3600, 7200);
+
+        try {
+            // Act
+            heartbeat.setVisibilityTimeout(QUEUE_URL, 3600);
+        } finally {
+            heartbeat.destroy();
+        }
+    }
+}
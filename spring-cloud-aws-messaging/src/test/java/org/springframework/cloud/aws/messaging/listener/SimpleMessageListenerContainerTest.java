@@ -22,7 +22,10 @@ import ch.qos.logback.classic.LoggerContext;
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.services.sqs.AmazonSQSAsync;
 import com.amazonaws.services.sqs.buffered.AmazonSQSBufferedAsyncClient;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequest;
 import com.amazonaws.services.sqs.model.ChangeMessageVisibilityRequest;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequest;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequestEntry;
 import com.amazonaws.services.sqs.model.DeleteMessageRequest;
 import com.amazonaws.services.sqs.model.GetQueueAttributesRequest;
 import com.amazonaws.services.sqs.model.GetQueueAttributesResult;
@@ -50,6 +53,7 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.support.StaticApplicationContext;
 import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.messaging.MessageHeaders;
 import org.springframework.messaging.MessagingException;
 import org.springframework.messaging.handler.HandlerMethod;
@@ -57,24 +61,34 @@ import org.springframework.messaging.handler.annotation.MessageExceptionHandler;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.util.MimeType;
+import org.springframework.util.ReflectionUtils;
 import org.springframework.util.StopWatch;
 
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -157,6 +171,24 @@ public class SimpleMessageListenerContainerTest {
         assertEquals(expectedPoolMaxSize, taskExecutor.getMaxPoolSize());
     }
 
+    @Test
+    public void testWithDefaultTaskExecutorAndVirtualThreads() throws Exception {
+        SimpleMessageListenerContainer container = new SimpleMessageListenerContainer();
+
+        container.setAmazonSqs(mock(AmazonSQSAsync.class, withSettings().stubOnly()));
+        container.setMessageHandler(mock(QueueMessageHandler.class));
+        container.setVirtualThreads(true);
+        container.afterPropertiesSet();
+
+        if (ReflectionUtils.findMethod(Thread.class, "ofVirtual") != null) {
+            assertTrue(container.getTaskExecutor() instanceof SimpleAsyncTaskExecutor);
+        } else {
+            assertTrue(container.getTaskExecutor() instanceof ThreadPoolTaskExecutor);
+        }
+
+        container.destroy();
+    }
+
     @Test
     public void testCustomTaskExecutor() throws Exception {
         SimpleMessageListenerContainer container = new SimpleMessageListenerContainer();
@@ -1023,6 +1055,204 @@ public class SimpleMessageListenerContainerTest {
         container.stop();
     }
 
+    @Test
+    public void afterPropertiesSet_withLazyRedrivePolicyLookup_shouldLookUpRedrivePolicyWhenFirstNeeded() throws Exception {
+        // Arrange
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.registerSingleton("testMessageListener", TestMessageListener.class);
+
+        SimpleMessageListenerContainer container = new SimpleMessageListenerContainer();
+        AmazonSQSAsync sqs = mock(AmazonSQSAsync.class);
+        container.setAmazonSqs(sqs);
+        container.setLazyRedrivePolicyLookup(true);
+
+        QueueMessageHandler messageHandler = new QueueMessageHandler();
+        messageHandler.setApplicationContext(applicationContext);
+        container.setMessageHandler(messageHandler);
+
+        mockGetQueueUrl(sqs, "testQueue", "http://testQueue.amazonaws.com");
+        mockGetQueueAttributesWithRedrivePolicy(sqs, "http://testQueue.amazonaws.com");
+        messageHandler.afterPropertiesSet();
+
+        // Act
+        container.afterPropertiesSet();
+
+        // Assert
+        verify(sqs, never()).getQueueAttributes(any(GetQueueAttributesRequest.class));
+        assertTrue(container.getRegisteredQueues().get("testQueue").hasRedrivePolicy());
+        assertTrue(container.getRegisteredQueues().get("testQueue").hasRedrivePolicy());
+        verify(sqs, times(1)).getQueueAttributes(any(GetQueueAttributesRequest.class));
+    }
+
+    @Test
+    public void afterPropertiesSet_withAttributeNamesOnListenerMethod_shouldReceiveOnlyTheseAttributes() throws Exception {
+        // Arrange
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.registerSingleton("testMessageListener", TestMessageListenerWithAttributeNames.class);
+
+        SimpleMessageListenerContainer container = new SimpleMessageListenerContainer();
+        AmazonSQSAsync sqs = mock(AmazonSQSAsync.class, withSettings().stubOnly());
+        container.setAmazonSqs(sqs);
+        container.setAttributeNames(Collections.singletonList("ApproximateReceiveCount"));
+
+        QueueMessageHandler messageHandler = new QueueMessageHandler();
+        messageHandler.setApplicationContext(applicationContext);
+        container.setMessageHandler(messageHandler);
+
+        mockGetQueueUrl(sqs, "testQueue", "http://testQueue.amazonaws.com");
+        mockGetQueueAttributesWithEmptyResult(sqs, "http://testQueue.amazonaws.com");
+        messageHandler.afterPropertiesSet();
+
+        // Act
+        container.afterPropertiesSet();
+
+        // Assert
+        ReceiveMessageRequest receiveMessageRequest = container.getRegisteredQueues().get("testQueue").getReceiveMessageRequest();
+        assertEquals(Collections.singletonList("SentTimestamp"), receiveMessageRequest.getAttributeNames());
+        assertTrue(receiveMessageRequest.getMessageAttributeNames().isEmpty());
+    }
+
+    @Test
+    public void afterPropertiesSet_withQueueSettingsOnListenerMethod_shouldOverrideContainerSettings() throws Exception {
+        // Arrange
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.registerSingleton("testMessageListener", TestMessageListenerWithQueueSettings.class);
+
+        SimpleMessageListenerContainer container = new SimpleMessageListenerContainer();
+        AmazonSQSAsync sqs = mock(AmazonSQSAsync.class, withSettings().stubOnly());
+        container.setAmazonSqs(sqs);
+        container.setMaxNumberOfMessages(10);
+        container.setVisibilityTimeout(30);
+        container.setWaitTimeOut(20);
+
+        QueueMessageHandler messageHandler = new QueueMessageHandler();
+        messageHandler.setApplicationContext(applicationContext);
+        container.setMessageHandler(messageHandler);
+
+        mockGetQueueUrl(sqs, "testQueue", "http://testQueue.amazonaws.com");
+        mockGetQueueAttributesWithEmptyResult(sqs, "http://testQueue.amazonaws.com");
+        messageHandler.afterPropertiesSet();
+
+        // Act
+        container.afterPropertiesSet();
+
+        // Assert
+        ReceiveMessageRequest receiveMessageRequest = container.getRegisteredQueues().get("testQueue").getReceiveMessageRequest();
+        assertEquals(Integer.valueOf(1), receiveMessageRequest.getMaxNumberOfMessages());
+        assertEquals(Integer.valueOf(300), receiveMessageRequest.getVisibilityTimeout());
+        assertEquals(Integer.valueOf(20), receiveMessageRequest.getWaitTimeSeconds());
+        assertEquals(Long.valueOf(500), container.getRegisteredQueues().get("testQueue").getBackOffTime());
+    }
+
+    @Test
+    public void afterPropertiesSet_withAttributeNamesOnContainerAndFifoQueue_shouldAlsoReceiveMessageGroupId() throws Exception {
+        // Arrange
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.registerSingleton("testMessageListener", TestMessageListener.class);
+
+        SimpleMessageListenerContainer container = new SimpleMessageListenerContainer();
+        AmazonSQSAsync sqs = mock(AmazonSQSAsync.class, withSettings().stubOnly());
+        container.setAmazonSqs(sqs);
+        container.setAttributeNames(Collections.singletonList("SentTimestamp"));
+
+        QueueMessageHandler messageHandler = new QueueMessageHandler();
+        messageHandler.setApplicationContext(applicationContext);
+        container.setMessageHandler(messageHandler);
+
+        mockGetQueueUrl(sqs, "testQueue", "http://testQueue.amazonaws.com/testQueue.fifo");
+        mockGetQueueAttributesWithEmptyResult(sqs, "http://testQueue.amazonaws.com/testQueue.fifo");
+        messageHandler.afterPropertiesSet();
+
+        // Act
+        container.afterPropertiesSet();
+
+        // Assert
+        ReceiveMessageRequest receiveMessageRequest = container.getRegisteredQueues().get("testQueue").getReceiveMessageRequest();
+        assertEquals(Arrays.asList("SentTimestamp", "MessageGroupId"), receiveMessageRequest.getAttributeNames());
+        assertEquals(Collections.singletonList("All"), receiveMessageRequest.getMessageAttributeNames());
+    }
+
+    @Test
+    public void afterPropertiesSet_withQueueRegistrationParallelism_shouldRegisterAllQueues() throws Exception {
+        // Arrange
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.registerSingleton("testMessageListener", TestMessageListener.class);
+        applicationContext.registerSingleton("anotherTestMessageListener", AnotherTestMessageListener.class);
+
+        SimpleMessageListenerContainer container = new SimpleMessageListenerContainer();
+        AmazonSQSAsync sqs = mock(AmazonSQSAsync.class, withSettings().stubOnly());
+        container.setAmazonSqs(sqs);
+        container.setQueueRegistrationParallelism(2);
+
+        QueueMessageHandler messageHandler = new QueueMessageHandler();
+        messageHandler.setApplicationContext(applicationContext);
+        container.setMessageHandler(messageHandler);
+
+        mockGetQueueUrl(sqs, "testQueue", "http://testQueue.amazonaws.com");
+        mockGetQueueUrl(sqs, "anotherTestQueue", "http://anotherTestQueue.amazonaws.com");
+        mockGetQueueAttributesWithRedrivePolicy(sqs, "http://testQueue.amazonaws.com");
+        mockGetQueueAttributesWithEmptyResult(sqs, "http://anotherTestQueue.amazonaws.com");
+        messageHandler.afterPropertiesSet();
+
+        // Act
+        container.afterPropertiesSet();
+
+        // Assert
+        assertEquals(2, container.getRegisteredQueues().size());
+        assertTrue(container.getRegisteredQueues().get("testQueue").hasRedrivePolicy());
+        assertFalse(container.getRegisteredQueues().get("anotherTestQueue").hasRedrivePolicy());
+        assertEquals("http://anotherTestQueue.amazonaws.com",
+                container.getRegisteredQueues().get("anotherTestQueue").getReceiveMessageRequest().getQueueUrl());
+    }
+
+    @Test
+    public void stop_withDrainTimeout_shouldMakeUndispatchedMessagesVisibleAgain() throws Exception {
+        // Arrange
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.registerSingleton("testMessageListener", TestMessageListener.class);
+
+        CountDownLatch messagesReceived = new CountDownLatch(1);
+
+        SimpleMessageListenerContainer container = new SimpleMessageListenerContainer();
+        AmazonSQSAsync sqs = mock(AmazonSQSAsync.class);
+        container.setAmazonSqs(sqs);
+        container.setDrainTimeout(1000L);
+
+        QueueMessageHandler messageHandler = new QueueMessageHandler();
+        messageHandler.setApplicationContext(applicationContext);
+        container.setMessageHandler(messageHandler);
+
+        mockGetQueueUrl(sqs, "testQueue", "http://testQueue.amazonaws.com");
+        mockGetQueueAttributesWithEmptyResult(sqs, "http://testQueue.amazonaws.com");
+
+        when(sqs.receiveMessage(any(ReceiveMessageRequest.class))).thenAnswer((Answer<ReceiveMessageResult>) invocation -> {
+            // The queue is stopped while the messages are received
+            container.stopQueue("testQueue");
+            messagesReceived.countDown();
+            return new ReceiveMessageResult().withMessages(new Message().withBody("first").withReceiptHandle("first"),
+                    new Message().withBody("second").withReceiptHandle("second"));
+        });
+
+        messageHandler.afterPropertiesSet();
+        container.afterPropertiesSet();
+        container.start();
+        assertTrue(messagesReceived.await(1, TimeUnit.SECONDS));
+
+        // Act
+        container.stop();
+
+        // Assert
+        ArgumentCaptor<ChangeMessageVisibilityBatchRequest> requestCaptor = ArgumentCaptor.forClass(ChangeMessageVisibilityBatchRequest.class);
+        verify(sqs).changeMessageVisibilityBatchAsync(requestCaptor.capture());
+        ChangeMessageVisibilityBatchRequest request = requestCaptor.getValue();
+        assertEquals("http://testQueue.amazonaws.com", request.getQueueUrl());
+        assertEquals(2, request.getEntries().size());
+        assertEquals("first", request.getEntries().get(0).getReceiptHandle());
+        assertEquals(Integer.valueOf(0), request.getEntries().get(0).getVisibilityTimeout());
+        assertEquals("second", request.getEntries().get(1).getReceiptHandle());
+        assertNull(applicationContext.getBean(TestMessageListener.class).getMessage());
+    }
+
     @Test
     public void stop_withContainerHavingMultipleQueuesRunning_shouldStopQueuesInParallel() throws Exception {
         // Arrange
@@ -1095,94 +1325,1003 @@ public class SimpleMessageListenerContainerTest {
         assertTrue("Stop time must be shorter than stopping one queue after the other", stopWatch.getTotalTimeMillis() < 200);
     }
 
-    // This class is needed because it does not seem to work when using mockito to mock those requests
-    private static class MockAmazonSqsAsyncClient extends AmazonSQSBufferedAsyncClient {
+    @Test
+    public void receiveMessage_withConsecutiveErrorsReachingCircuitBreakerThreshold_shouldSuspendPolling() throws Exception {
+        // Arrange
+        Level previous = disableLogging();
 
-        private volatile boolean receiveMessageEnabled;
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.registerSingleton("testMessageListener", TestMessageListener.class);
 
-        private MockAmazonSqsAsyncClient() {
-            super(null);
-        }
+        CountDownLatch failedPolls = new CountDownLatch(2);
 
-        @Override
-        public GetQueueUrlResult getQueueUrl(GetQueueUrlRequest getQueueUrlRequest) throws AmazonClientException {
-            return new GetQueueUrlResult().withQueueUrl("http://" + getQueueUrlRequest.getQueueName() + ".amazonaws.com");
-        }
+        SimpleMessageListenerContainer container = new SimpleMessageListenerContainer();
+        AmazonSQSAsync sqs = mock(AmazonSQSAsync.class);
+        container.setAmazonSqs(sqs);
+        container.setBackOffTime(0);
+        container.setCircuitBreakerFailureThreshold(2);
+        container.setCircuitBreakerOpenTimeout(60000);
 
-        @Override
-        public GetQueueAttributesResult getQueueAttributes(GetQueueAttributesRequest getQueueAttributesRequest) throws AmazonClientException {
-            return new GetQueueAttributesResult();
-        }
+        QueueMessageHandler messageHandler = new QueueMessageHandler();
+        messageHandler.setApplicationContext(applicationContext);
+        container.setMessageHandler(messageHandler);
 
-        @Override
-        public ReceiveMessageResult receiveMessage(ReceiveMessageRequest receiveMessageRequest) throws AmazonClientException {
-            if ("http://testQueue.amazonaws.com".equals(receiveMessageRequest.getQueueUrl()) && this.receiveMessageEnabled) {
-                return new ReceiveMessageResult().withMessages(new Message().withBody("Hello").withReceiptHandle("ReceiptHandle"));
-            } else {
-                return new ReceiveMessageResult();
-            }
-        }
+        mockGetQueueUrl(sqs, "testQueue", "http://testQueue.amazonaws.com");
+        mockGetQueueAttributesWithEmptyResult(sqs, "http://testQueue.amazonaws.com");
 
-        public void setReceiveMessageEnabled(boolean receiveMessageEnabled) {
-            this.receiveMessageEnabled = receiveMessageEnabled;
-        }
+        when(sqs.receiveMessage(any(ReceiveMessageRequest.class))).thenAnswer((Answer<ReceiveMessageResult>) invocation -> {
+            failedPolls.countDown();
+            throw new OverLimitException("Boom");
+        });
 
-    }
+        messageHandler.afterPropertiesSet();
+        container.afterPropertiesSet();
 
-    private static void mockReceiveMessage(AmazonSQSAsync sqs, String queueUrl, String messageContent, String receiptHandle) {
-        when(sqs.receiveMessage(new ReceiveMessageRequest(queueUrl).withAttributeNames("All")
-                .withMessageAttributeNames("All")
-                .withMaxNumberOfMessages(10)
-                .withWaitTimeSeconds(20)))
-                .thenReturn(new ReceiveMessageResult().withMessages(new Message().withBody(messageContent).withReceiptHandle(receiptHandle)),
-                        new ReceiveMessageResult());
-    }
+        // Act
+        container.start();
 
-    private static void mockGetQueueAttributesWithRedrivePolicy(AmazonSQSAsync sqs, String queueUrl) {
-        when(sqs.getQueueAttributes(new GetQueueAttributesRequest(queueUrl).withAttributeNames(QueueAttributeName.RedrivePolicy))).
-                thenReturn(new GetQueueAttributesResult().addAttributesEntry(QueueAttributeName.RedrivePolicy.toString(), "{\"some\": \"JSON\"}"));
-    }
+        // Assert
+        assertTrue(failedPolls.await(1, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        container.stop();
 
-    private static void mockGetQueueAttributesWithEmptyResult(AmazonSQSAsync sqs, String queueUrl) {
-        when(sqs.getQueueAttributes(new GetQueueAttributesRequest(queueUrl).withAttributeNames(QueueAttributeName.RedrivePolicy))).
-                thenReturn(new GetQueueAttributesResult());
-    }
+        verify(sqs, times(2)).receiveMessage(any(ReceiveMessageRequest.class));
 
-    private static void mockGetQueueUrl(AmazonSQSAsync sqs, String queueName, String queueUrl) {
-        when(sqs.getQueueUrl(new GetQueueUrlRequest(queueName))).thenReturn(new GetQueueUrlResult().
-                withQueueUrl(queueUrl));
+        setLogLevel(previous);
     }
 
-    private static class TestMessageListener {
-
-        private String message;
-        private final CountDownLatch countDownLatch = new CountDownLatch(1);
+    @Test
+    public void receiveMessage_withIdleQueuePollingStrategy_shouldPassConsecutiveEmptyReceivesAndResetThemOnMessages() throws Exception {
+        // Arrange
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.registerSingleton("testMessageListener", TestMessageListener.class);
 
-        @RuntimeUse
-        @SqsListener("testQueue")
-        private void handleMessage(String message) {
-            this.message = message;
-            this.countDownLatch.countDown();
-        }
+        List<Integer> consecutiveEmptyReceives = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger receiveCount = new AtomicInteger();
+        CountDownLatch receives = new CountDownLatch(5);
 
-        public String getMessage() {
-            return this.message;
-        }
+        SimpleMessageListenerContainer container = new SimpleMessageListenerContainer();
+        AmazonSQSAsync sqs = mock(AmazonSQSAsync.class);
+        container.setAmazonSqs(sqs);
+        container.setIdleQueuePollingStrategy((logicalQueueName, emptyReceives) -> {
+            consecutiveEmptyReceives.add(emptyReceives);
+            return 10;
+        });
 
-        public CountDownLatch getCountDownLatch() {
-            return this.countDownLatch;
-        }
-    }
+        QueueMessageHandler messageHandler = new QueueMessageHandler();
+        messageHandler.setApplicationContext(applicationContext);
+        container.setMessageHandler(messageHandler);
 
-    private static class AnotherTestMessageListener {
+        mockGetQueueUrl(sqs, "testQueue", "http://testQueue.amazonaws.com");
+        mockGetQueueAttributesWithEmptyResult(sqs, "http://testQueue.amazonaws.com");
 
-        private String message;
+        when(sqs.receiveMessage(any(ReceiveMessageRequest.class))).thenAnswer((Answer<ReceiveMessageResult>) invocation -> {
+            receives.countDown();
+            if (receiveCount.incrementAndGet() == 3) {
+                return new ReceiveMessageResult().withMessages(new Message().withBody("messageContent").withReceiptHandle("ReceiptHandle"));
+            }
+            return new ReceiveMessageResult();
+        });
 
-        @RuntimeUse
-        @SqsListener("anotherTestQueue")
-        private void handleMessage(String message) {
-            this.message = message;
-        }
+        messageHandler.afterPropertiesSet();
+        container.afterPropertiesSet();
+
+        // Act
+        container.start();
+
+        // Assert
+        assertTrue(receives.await(2, TimeUnit.SECONDS));
+        container.stop();
+
+        assertEquals(Arrays.asList(1, 2, 1), new ArrayList<>(consecutiveEmptyReceives).subList(0, 3));
+        assertEquals("messageContent", applicationContext.getBean(TestMessageListener.class).getMessage());
+    }
+
+    @Test
+    public void receiveMessage_withRateLimiter_shouldRequestOnlyAvailablePermits() throws Exception {
+        // Arrange
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.registerSingleton("testMessageListener", TestMessageListener.class);
+
+        List<Integer> requestedMessages = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch receives = new CountDownLatch(3);
+
+        SimpleMessageListenerContainer container = new SimpleMessageListenerContainer();
+        AmazonSQSAsync sqs = mock(AmazonSQSAsync.class);
+        container.setAmazonSqs(sqs);
+        container.setRateLimiters(Collections.singletonMap("testQueue", new TokenBucketRateLimiter(0.001, 3)));
+
+        QueueMessageHandler messageHandler = new QueueMessageHandler();
+        messageHandler.setApplicationContext(applicationContext);
+        container.setMessageHandler(messageHandler);
+
+        mockGetQueueUrl(sqs, "testQueue", "http://testQueue.amazonaws.com");
+        mockGetQueueAttributesWithEmptyResult(sqs, "http://testQueue.amazonaws.com");
+
+        when(sqs.receiveMessage(any(ReceiveMessageRequest.class))).thenAnswer((Answer<ReceiveMessageResult>) invocation -> {
+            requestedMessages.add(((ReceiveMessageRequest) invocation.getArguments()[0]).getMaxNumberOfMessages());
+            receives.countDown();
+            if (requestedMessages.size() == 1) {
+                return new ReceiveMessageResult().withMessages(new Message().withBody("first").withReceiptHandle("first"),
+                        new Message().withBody("second").withReceiptHandle("second"));
+            }
+            return new ReceiveMessageResult();
+        });
+
+        messageHandler.afterPropertiesSet();
+        container.afterPropertiesSet();
+
+        // Act
+        container.start();
+
+        // Assert
+        assertTrue(receives.await(2, TimeUnit.SECONDS));
+        container.stop();
+
+        assertEquals(Arrays.asList(3, 1, 1), new ArrayList<>(requestedMessages).subList(0, 3));
+    }
+
+    @Test
+    public void start_withMultiplePollers_shouldReceiveConcurrentlyFromTheSameQueue() throws Exception {
+        // Arrange
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.registerSingleton("testMessageListener", TestMessageListener.class);
+
+        CountDownLatch pollersStarted = new CountDownLatch(3);
+        CountDownLatch releasePollers = new CountDownLatch(1);
+
+        SimpleMessageListenerContainer container = new SimpleMessageListenerContainer();
+        AmazonSQSAsync sqs = mock(AmazonSQSAsync.class, withSettings().stubOnly());
+        container.setAmazonSqs(sqs);
+        container.setBackOffTime(0);
+        container.setPollerCount(3);
+
+        QueueMessageHandler messageHandler = new QueueMessageHandler();
+        messageHandler.setApplicationContext(applicationContext);
+        container.setMessageHandler(messageHandler);
+
+        mockGetQueueUrl(sqs, "testQueue", "http://start_withMultiplePollers_shouldReceiveConcurrentlyFromTheSameQueue.amazonaws.com");
+        mockGetQueueAttributesWithEmptyResult(sqs, "http://start_withMultiplePollers_shouldReceiveConcurrentlyFromTheSameQueue.amazonaws.com");
+
+        when(sqs.receiveMessage(any(ReceiveMessageRequest.class))).thenAnswer((Answer<ReceiveMessageResult>) invocation -> {
+            pollersStarted.countDown();
+            releasePollers.await(1, TimeUnit.SECONDS);
+            return new ReceiveMessageResult();
+        });
+
+        messageHandler.afterPropertiesSet();
+        container.afterPropertiesSet();
+
+        // Act
+        container.start();
+
+        // Assert
+        assertTrue(pollersStarted.await(1, TimeUnit.SECONDS));
+        assertTrue(container.isRunning("testQueue"));
+
+        releasePollers.countDown();
+        container.stop("testQueue");
+        assertFalse(container.isRunning("testQueue"));
+        container.stop();
+    }
+
+    @Test
+    public void receiveMessage_withContinuousDispatchMode_shouldProcessNextBatchWhileMessageIsStillProcessed() throws Exception {
+        // Arrange
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.registerSingleton("blockingMessageListener", BlockingMessageListener.class);
+
+        SimpleMessageListenerContainer container = new SimpleMessageListenerContainer();
+        AmazonSQSAsync sqs = mock(AmazonSQSAsync.class, withSettings().stubOnly());
+        container.setAmazonSqs(sqs);
+        container.setMessageDispatchMode(MessageDispatchMode.CONTINUOUS);
+
+        QueueMessageHandler messageHandler = new QueueMessageHandler();
+        messageHandler.setApplicationContext(applicationContext);
+        container.setMessageHandler(messageHandler);
+
+        mockGetQueueUrl(sqs, "blockingQueue", "http://receiveMessage_withContinuousDispatchMode.amazonaws.com");
+        mockGetQueueAttributesWithEmptyResult(sqs, "http://receiveMessage_withContinuousDispatchMode.amazonaws.com");
+
+        when(sqs.receiveMessage(any(ReceiveMessageRequest.class)))
+                .thenReturn(new ReceiveMessageResult().withMessages(new Message().withBody("block").withReceiptHandle("first")))
+                .thenReturn(new ReceiveMessageResult().withMessages(new Message().withBody("pass").withReceiptHandle("second")))
+                .thenReturn(new ReceiveMessageResult());
+
+        messageHandler.afterPropertiesSet();
+        container.afterPropertiesSet();
+
+        // Act
+        container.start();
+
+        // Assert
+        BlockingMessageListener blockingMessageListener = applicationContext.getBean(BlockingMessageListener.class);
+        assertTrue(blockingMessageListener.getNonBlockingMessageLatch().await(1, TimeUnit.SECONDS));
+
+        blockingMessageListener.release();
+        container.stop();
+    }
+
+    @Test
+    public void receiveMessage_withContinuousDispatchModeAndDefaultTaskExecutor_shouldProcessAllMessagesOfFullReceiveConcurrently() throws Exception {
+        // Arrange
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.registerSingleton("concurrentMessageListener", ConcurrentMessageListener.class);
+
+        SimpleMessageListenerContainer container = new SimpleMessageListenerContainer();
+        AmazonSQSAsync sqs = mock(AmazonSQSAsync.class, withSettings().stubOnly());
+        container.setAmazonSqs(sqs);
+        container.setMessageDispatchMode(MessageDispatchMode.CONTINUOUS);
+
+        QueueMessageHandler messageHandler = new QueueMessageHandler();
+        messageHandler.setApplicationContext(applicationContext);
+        container.setMessageHandler(messageHandler);
+
+        mockGetQueueUrl(sqs, "concurrentQueue", "http://receiveMessage_withDefaultTaskExecutor.amazonaws.com");
+        mockGetQueueAttributesWithEmptyResult(sqs, "http://receiveMessage_withDefaultTaskExecutor.amazonaws.com");
+
+        List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            messages.add(new Message().withBody("message" + i).withReceiptHandle("receiptHandle" + i));
+        }
+        when(sqs.receiveMessage(any(ReceiveMessageRequest.class)))
+                .thenReturn(new ReceiveMessageResult().withMessages(messages))
+                .thenReturn(new ReceiveMessageResult());
+
+        messageHandler.afterPropertiesSet();
+        container.afterPropertiesSet();
+
+        // Act
+        container.start();
+
+        // Assert
+        ConcurrentMessageListener concurrentMessageListener = applicationContext.getBean(ConcurrentMessageListener.class);
+        assertTrue(concurrentMessageListener.getCountDownLatch().await(2, TimeUnit.SECONDS));
+
+        concurrentMessageListener.release();
+        container.stop();
+    }
+
+    @Test
+    public void receiveMessage_withContinuousDispatchModeAndMaxInFlightMessages_shouldRequestOnlyFreePermits() throws Exception {
+        // Arrange
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.registerSingleton("blockingMessageListener", BlockingMessageListener.class);
+
+        List<Integer> requestedMessages = Collections.synchronizedList(new ArrayList<>());
+
+        SimpleMessageListenerContainer container = new SimpleMessageListenerContainer();
+        AmazonSQSAsync sqs = mock(AmazonSQSAsync.class, withSettings().stubOnly());
+        container.setAmazonSqs(sqs);
+        container.setMessageDispatchMode(MessageDispatchMode.CONTINUOUS);
+        container.setMaxInFlightMessages(3);
+
+        QueueMessageHandler messageHandler = new QueueMessageHandler();
+        messageHandler.setApplicationContext(applicationContext);
+        container.setMessageHandler(messageHandler);
+
+        mockGetQueueUrl(sqs, "blockingQueue", "http://receiveMessage_withMaxInFlightMessages.amazonaws.com");
+        mockGetQueueAttributesWithEmptyResult(sqs, "http://receiveMessage_withMaxInFlightMessages.amazonaws.com");
+
+        when(sqs.receiveMessage(any(ReceiveMessageRequest.class))).thenAnswer((Answer<ReceiveMessageResult>) invocation -> {
+            requestedMessages.add(((ReceiveMessageRequest) invocation.getArguments()[0]).getMaxNumberOfMessages());
+            if (requestedMessages.size() == 1) {
+                return new ReceiveMessageResult().withMessages(new Message().withBody("block").withReceiptHandle("first"));
+            }
+            if (requestedMessages.size() == 2) {
+                return new ReceiveMessageResult().withMessages(new Message().withBody("pass").withReceiptHandle("second"));
+            }
+            return new ReceiveMessageResult();
+        });
+
+        messageHandler.afterPropertiesSet();
+        container.afterPropertiesSet();
+
+        // Act
+        container.start();
+
+        // Assert
+        BlockingMessageListener blockingMessageListener = applicationContext.getBean(BlockingMessageListener.class);
+        assertTrue(blockingMessageListener.getNonBlockingMessageLatch().await(1, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(3, 2), new ArrayList<>(requestedMessages).subList(0, 2));
+
+        blockingMessageListener.release();
+        container.stop();
+    }
+
+    @Test
+    public void receiveMessage_withContinuousDispatchModeAndSmallThreadPool_shouldRequestOnlyMessagesThePoolCanExecute() throws Exception {
+        // Arrange
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.registerSingleton("testMessageListener", TestMessageListener.class);
+
+        List<Integer> requestedMessages = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch receives = new CountDownLatch(1);
+
+        ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
+        taskExecutor.setCorePoolSize(1);
+        taskExecutor.setMaxPoolSize(3);
+        taskExecutor.setQueueCapacity(0);
+        taskExecutor.afterPropertiesSet();
+
+        SimpleMessageListenerContainer container = new SimpleMessageListenerContainer();
+        AmazonSQSAsync sqs = mock(AmazonSQSAsync.class, withSettings().stubOnly());
+        container.setAmazonSqs(sqs);
+        container.setTaskExecutor(taskExecutor);
+        container.setMessageDispatchMode(MessageDispatchMode.CONTINUOUS);
+
+        QueueMessageHandler messageHandler = new QueueMessageHandler();
+        messageHandler.setApplicationContext(applicationContext);
+        container.setMessageHandler(messageHandler);
+
+        mockGetQueueUrl(sqs, "testQueue", "http://receiveMessage_withSmallThreadPool.amazonaws.com");
+        mockGetQueueAttributesWithEmptyResult(sqs, "http://receiveMessage_withSmallThreadPool.amazonaws.com");
+
+        when(sqs.receiveMessage(any(ReceiveMessageRequest.class))).thenAnswer((Answer<ReceiveMessageResult>) invocation -> {
+            requestedMessages.add(((ReceiveMessageRequest) invocation.getArguments()[0]).getMaxNumberOfMessages());
+            receives.countDown();
+            return new ReceiveMessageResult();
+        });
+
+        messageHandler.afterPropertiesSet();
+        container.afterPropertiesSet();
+
+        // Act
+        container.start();
+
+        // Assert
+        assertTrue(receives.await(1, TimeUnit.SECONDS));
+        assertEquals(Integer.valueOf(2), requestedMessages.get(0));
+
+        container.stop();
+        taskExecutor.shutdown();
+    }
+
+    @Test
+    public void receiveMessage_withRejectingTaskExecutor_shouldMakeRejectedMessagesVisibleAgainWithoutBackOff() throws Exception {
+        // Arrange
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.registerSingleton("testMessageListener", TestMessageListener.class);
+
+        SimpleMessageListenerContainer container = new SimpleMessageListenerContainer();
+        AmazonSQSAsync sqs = mock(AmazonSQSAsync.class);
+        container.setAmazonSqs(sqs);
+        container.setMessageDispatchMode(MessageDispatchMode.CONTINUOUS);
+        container.setBackOffTime(10000L);
+        container.setTaskExecutor(new SimpleAsyncTaskExecutor() {
+
+            @Override
+            public void execute(Runnable task) {
+                // Pollers are submitted, message executions are executed
+                throw new TaskRejectedException("No capacity for the message execution");
+            }
+        });
+
+        QueueMessageHandler messageHandler = new QueueMessageHandler();
+        messageHandler.setApplicationContext(applicationContext);
+        container.setMessageHandler(messageHandler);
+
+        mockGetQueueUrl(sqs, "testQueue", "http://receiveMessage_withRejectingTaskExecutor.amazonaws.com");
+        mockGetQueueAttributesWithEmptyResult(sqs, "http://receiveMessage_withRejectingTaskExecutor.amazonaws.com");
+        when(sqs.receiveMessage(any(ReceiveMessageRequest.class)))
+                .thenReturn(new ReceiveMessageResult().withMessages(new Message().withBody("first").withReceiptHandle("first"),
+                        new Message().withBody("second").withReceiptHandle("second")))
+                .thenReturn(new ReceiveMessageResult());
+
+        messageHandler.afterPropertiesSet();
+        container.afterPropertiesSet();
+
+        // Act
+        container.start();
+
+        // Assert
+        ArgumentCaptor<ChangeMessageVisibilityBatchRequest> requestCaptor = ArgumentCaptor.forClass(ChangeMessageVisibilityBatchRequest.class);
+        verify(sqs, timeout(1000)).changeMessageVisibilityBatchAsync(requestCaptor.capture());
+        ChangeMessageVisibilityBatchRequest request = requestCaptor.getValue();
+        assertEquals(2, request.getEntries().size());
+        assertEquals("first", request.getEntries().get(0).getReceiptHandle());
+        assertEquals(Integer.valueOf(0), request.getEntries().get(0).getVisibilityTimeout());
+        assertEquals("second", request.getEntries().get(1).getReceiptHandle());
+        verify(sqs, timeout(1000).atLeast(2)).receiveMessage(any(ReceiveMessageRequest.class));
+        assertNull(applicationContext.getBean(TestMessageListener.class).getMessage());
+
+        container.stop();
+    }
+
+    @Test
+    public void receiveMessage_withBatchDispatchModeAndMaxInFlightMessages_shouldNotRequestMoreMessagesThanAllowed() throws Exception {
+        // Arrange
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.registerSingleton("testMessageListener", TestMessageListener.class);
+
+        CountDownLatch receives = new CountDownLatch(1);
+        List<Integer> requestedMessages = Collections.synchronizedList(new ArrayList<>());
+
+        SimpleMessageListenerContainer container = new SimpleMessageListenerContainer();
+        AmazonSQSAsync sqs = mock(AmazonSQSAsync.class, withSettings().stubOnly());
+        container.setAmazonSqs(sqs);
+        container.setMaxNumberOfMessages(10);
+        container.setMaxInFlightMessages(4);
+
+        QueueMessageHandler messageHandler = new QueueMessageHandler();
+        messageHandler.setApplicationContext(applicationContext);
+        container.setMessageHandler(messageHandler);
+
+        mockGetQueueUrl(sqs, "testQueue", "http://testQueue.amazonaws.com");
+        mockGetQueueAttributesWithEmptyResult(sqs, "http://testQueue.amazonaws.com");
+
+        when(sqs.receiveMessage(any(ReceiveMessageRequest.class))).thenAnswer((Answer<ReceiveMessageResult>) invocation -> {
+            requestedMessages.add(((ReceiveMessageRequest) invocation.getArguments()[0]).getMaxNumberOfMessages());
+            receives.countDown();
+            return new ReceiveMessageResult();
+        });
+
+        messageHandler.afterPropertiesSet();
+        container.afterPropertiesSet();
+
+        // Act
+        container.start();
+
+        // Assert
+        assertTrue(receives.await(1, TimeUnit.SECONDS));
+        container.stop();
+
+        assertEquals(Integer.valueOf(4), requestedMessages.get(0));
+    }
+
+    @Test
+    public void executeMessageBatch_withBatchListenerMethod_shouldInvokeListenerOnceAndDeleteTheBatch() throws Exception {
+        // Arrange
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.registerSingleton("batchMessageListener", BatchMessageListener.class);
+
+        SimpleMessageListenerContainer container = new SimpleMessageListenerContainer();
+        AmazonSQSAsync sqs = mock(AmazonSQSAsync.class);
+        container.setAmazonSqs(sqs);
+
+        QueueMessageHandler messageHandler = new QueueMessageHandler();
+        messageHandler.setApplicationContext(applicationContext);
+        container.setMessageHandler(messageHandler);
+
+        mockGetQueueUrl(sqs, "batchQueue", "http://executeMessageBatch_withBatchListenerMethod.amazonaws.com");
+        mockGetQueueAttributesWithEmptyResult(sqs, "http://executeMessageBatch_withBatchListenerMethod.amazonaws.com");
+
+        when(sqs.receiveMessage(any(ReceiveMessageRequest.class)))
+                .thenReturn(new ReceiveMessageResult().withMessages(new Message().withBody("first").withReceiptHandle("first"),
+                        new Message().withBody("second").withReceiptHandle("second")))
+                .thenReturn(new ReceiveMessageResult());
+
+        messageHandler.afterPropertiesSet();
+        container.afterPropertiesSet();
+
+        // Act
+        container.start();
+
+        // Assert
+        BatchMessageListener batchMessageListener = applicationContext.getBean(BatchMessageListener.class);
+        assertTrue(batchMessageListener.getCountDownLatch().await(1, TimeUnit.SECONDS));
+        container.stop();
+
+        assertEquals(Collections.singletonList(Arrays.asList("first", "second")), batchMessageListener.getReceivedBatches());
+        verify(sqs, times(1)).deleteMessageBatchAsync(eq(new DeleteMessageBatchRequest("http://executeMessageBatch_withBatchListenerMethod.amazonaws.com",
+                Arrays.asList(new DeleteMessageBatchRequestEntry("0", "first"), new DeleteMessageBatchRequestEntry("1", "second")))));
+        verify(sqs, never()).deleteMessageAsync(any(DeleteMessageRequest.class));
+    }
+
+    @Test
+    public void executeMessageBatch_withBatchListenerMethod_shouldProcessBatchOnTaskExecutorInsteadOfPoller() throws Exception {
+        // Arrange
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.registerSingleton("batchMessageListener", BatchMessageListener.class);
+
+        SimpleMessageListenerContainer container = new SimpleMessageListenerContainer();
+        AmazonSQSAsync sqs = mock(AmazonSQSAsync.class);
+        container.setAmazonSqs(sqs);
+        AtomicInteger executedTasks = new AtomicInteger();
+        container.setTaskExecutor(new SimpleAsyncTaskExecutor() {
+
+            @Override
+            public void execute(Runnable task) {
+                // Pollers are submitted, message executions are executed
+                executedTasks.incrementAndGet();
+                super.execute(task);
+            }
+        });
+
+        QueueMessageHandler messageHandler = new QueueMessageHandler();
+        messageHandler.setApplicationContext(applicationContext);
+        container.setMessageHandler(messageHandler);
+
+        mockGetQueueUrl(sqs, "batchQueue", "http://executeMessageBatch_onTaskExecutor.amazonaws.com");
+        mockGetQueueAttributesWithEmptyResult(sqs, "http://executeMessageBatch_onTaskExecutor.amazonaws.com");
+
+        when(sqs.receiveMessage(any(ReceiveMessageRequest.class)))
+                .thenReturn(new ReceiveMessageResult().withMessages(new Message().withBody("first").withReceiptHandle("first"),
+                        new Message().withBody("second").withReceiptHandle("second")))
+                .thenReturn(new ReceiveMessageResult());
+
+        messageHandler.afterPropertiesSet();
+        container.afterPropertiesSet();
+
+        // Act
+        container.start();
+
+        // Assert
+        BatchMessageListener batchMessageListener = applicationContext.getBean(BatchMessageListener.class);
+        assertTrue(batchMessageListener.getCountDownLatch().await(1, TimeUnit.SECONDS));
+        container.stop();
+
+        assertEquals(1, executedTasks.get());
+        assertEquals(Collections.singletonList(Arrays.asList("first", "second")), batchMessageListener.getReceivedBatches());
+    }
+
+    @Test
+    public void executeMessageBatch_withMaxBatchSize_shouldAccumulateSuccessiveReceivesAndFlushRemainderOnStop() throws Exception {
+        // Arrange
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.registerSingleton("aggregatingBatchMessageListener", AggregatingBatchMessageListener.class);
+
+        SimpleMessageListenerContainer container = new SimpleMessageListenerContainer();
+        AmazonSQSAsync sqs = mock(AmazonSQSAsync.class);
+        container.setAmazonSqs(sqs);
+
+        QueueMessageHandler messageHandler = new QueueMessageHandler();
+        messageHandler.setApplicationContext(applicationContext);
+        container.setMessageHandler(messageHandler);
+
+        mockGetQueueUrl(sqs, "aggregatedBatchQueue", "http://executeMessageBatch_withMaxBatchSize.amazonaws.com");
+        mockGetQueueAttributesWithVisibilityTimeout(sqs, "http://executeMessageBatch_withMaxBatchSize.amazonaws.com", 30);
+
+        when(sqs.receiveMessage(any(ReceiveMessageRequest.class)))
+                .thenReturn(new ReceiveMessageResult().withMessages(new Message().withBody("first").withReceiptHandle("first"),
+                        new Message().withBody("second").withReceiptHandle("second")))
+                .thenReturn(new ReceiveMessageResult().withMessages(new Message().withBody("third").withReceiptHandle("third"),
+                        new Message().withBody("fourth").withReceiptHandle("fourth")))
+                .thenReturn(new ReceiveMessageResult());
+
+        messageHandler.afterPropertiesSet();
+        container.afterPropertiesSet();
+
+        // Act
+        container.start();
+
+        // Assert
+        AggregatingBatchMessageListener batchMessageListener = applicationContext.getBean(AggregatingBatchMessageListener.class);
+        assertTrue(batchMessageListener.getCountDownLatch().await(1, TimeUnit.SECONDS));
+        container.stop();
+        container.destroy();
+
+        assertEquals(Arrays.asList(Arrays.asList("first", "second", "third"), Collections.singletonList("fourth")),
+                batchMessageListener.getReceivedBatches());
+        verify(sqs, times(1)).getQueueAttributes(any(GetQueueAttributesRequest.class));
+    }
+
+    @Test
+    public void executeMessageBatch_withBatchWindowOnly_shouldLimitBatchToMaxInFlightMessages() throws Exception {
+        // Arrange
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.registerSingleton("windowedBatchMessageListener", WindowedBatchMessageListener.class);
+
+        SimpleMessageListenerContainer container = new SimpleMessageListenerContainer();
+        container.setMaxInFlightMessages(3);
+        AmazonSQSAsync sqs = mock(AmazonSQSAsync.class);
+        container.setAmazonSqs(sqs);
+
+        QueueMessageHandler messageHandler = new QueueMessageHandler();
+        messageHandler.setApplicationContext(applicationContext);
+        container.setMessageHandler(messageHandler);
+
+        mockGetQueueUrl(sqs, "windowedBatchQueue", "http://executeMessageBatch_withBatchWindowOnly.amazonaws.com");
+        mockGetQueueAttributesWithVisibilityTimeout(sqs, "http://executeMessageBatch_withBatchWindowOnly.amazonaws.com", 30);
+
+        when(sqs.receiveMessage(any(ReceiveMessageRequest.class)))
+                .thenReturn(new ReceiveMessageResult().withMessages(new Message().withBody("first").withReceiptHandle("first"),
+                        new Message().withBody("second").withReceiptHandle("second")))
+                .thenReturn(new ReceiveMessageResult().withMessages(new Message().withBody("third").withReceiptHandle("third"),
+                        new Message().withBody("fourth").withReceiptHandle("fourth")))
+                .thenReturn(new ReceiveMessageResult());
+
+        messageHandler.afterPropertiesSet();
+        container.afterPropertiesSet();
+
+        // Act
+        container.start();
+
+        // Assert
+        WindowedBatchMessageListener batchMessageListener = applicationContext.getBean(WindowedBatchMessageListener.class);
+        assertTrue(batchMessageListener.getCountDownLatch().await(1, TimeUnit.SECONDS));
+        container.stop();
+        container.destroy();
+
+        assertEquals(Arrays.asList(Arrays.asList("first", "second", "third"), Collections.singletonList("fourth")),
+                batchMessageListener.getReceivedBatches());
+        verify(sqs, times(1)).getQueueAttributes(any(GetQueueAttributesRequest.class));
+    }
+
+    @Test
+    public void executeMessageBatch_withPartialBatchFailure_shouldOnlyDeleteSuccessfulMessages() throws Exception {
+        // Arrange
+        Level previous = disableLogging();
+
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.registerSingleton("batchMessageListener", BatchMessageListener.class);
+
+        SimpleMessageListenerContainer container = new SimpleMessageListenerContainer();
+        AmazonSQSAsync sqs = mock(AmazonSQSAsync.class);
+        container.setAmazonSqs(sqs);
+
+        QueueMessageHandler messageHandler = new QueueMessageHandler();
+        messageHandler.setApplicationContext(applicationContext);
+        container.setMessageHandler(messageHandler);
+
+        mockGetQueueUrl(sqs, "batchQueue", "http://executeMessageBatch_withPartialBatchFailure.amazonaws.com");
+        mockGetQueueAttributesWithEmptyResult(sqs, "http://executeMessageBatch_withPartialBatchFailure.amazonaws.com");
+
+        when(sqs.receiveMessage(any(ReceiveMessageRequest.class)))
+                .thenReturn(new ReceiveMessageResult().withMessages(new Message().withBody("first").withReceiptHandle("first"),
+                        new Message().withBody("fail").withReceiptHandle("fail"),
+                        new Message().withBody("third").withReceiptHandle("third")))
+                .thenReturn(new ReceiveMessageResult());
+
+        messageHandler.afterPropertiesSet();
+        container.afterPropertiesSet();
+
+        // Act
+        container.start();
+
+        // Assert
+        BatchMessageListener batchMessageListener = applicationContext.getBean(BatchMessageListener.class);
+        assertTrue(batchMessageListener.getCountDownLatch().await(1, TimeUnit.SECONDS));
+        container.stop();
+
+        verify(sqs, times(1)).deleteMessageBatchAsync(eq(new DeleteMessageBatchRequest("http://executeMessageBatch_withPartialBatchFailure.amazonaws.com",
+                Arrays.asList(new DeleteMessageBatchRequestEntry("0", "first"), new DeleteMessageBatchRequestEntry("1", "third")))));
+
+        setLogLevel(previous);
+    }
+
+    @Test
+    public void executeMessage_withFifoQueue_shouldSkipRemainingMessagesOfGroupAfterFailure() throws Exception {
+        // Arrange
+        Level previous = disableLogging();
+
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.registerSingleton("fifoMessageListener", FifoMessageListener.class);
+
+        SimpleMessageListenerContainer container = new SimpleMessageListenerContainer();
+        AmazonSQSAsync sqs = mock(AmazonSQSAsync.class);
+        container.setAmazonSqs(sqs);
+
+        QueueMessageHandler messageHandler = new QueueMessageHandler();
+        messageHandler.setApplicationContext(applicationContext);
+        container.setMessageHandler(messageHandler);
+
+        mockGetQueueUrl(sqs, "fifoQueue", "http://executeMessage_withFifoQueue.amazonaws.com/fifoQueue.fifo");
+        mockGetQueueAttributesWithEmptyResult(sqs, "http://executeMessage_withFifoQueue.amazonaws.com/fifoQueue.fifo");
+
+        when(sqs.receiveMessage(any(ReceiveMessageRequest.class)))
+                .thenReturn(new ReceiveMessageResult().withMessages(
+                        new Message().withBody("fail").withReceiptHandle("fail").withAttributes(Collections.singletonMap("MessageGroupId", "a")),
+                        new Message().withBody("other").withReceiptHandle("other").withAttributes(Collections.singletonMap("MessageGroupId", "b")),
+                        new Message().withBody("skipped").withReceiptHandle("skipped").withAttributes(Collections.singletonMap("MessageGroupId", "a"))))
+                .thenReturn(new ReceiveMessageResult());
+
+        messageHandler.afterPropertiesSet();
+        container.afterPropertiesSet();
+
+        // Act
+        container.start();
+
+        // Assert
+        FifoMessageListener fifoMessageListener = applicationContext.getBean(FifoMessageListener.class);
+        assertTrue(fifoMessageListener.getCountDownLatch().await(1, TimeUnit.SECONDS));
+        container.stop();
+
+        assertFalse(fifoMessageListener.getReceivedMessages().contains("skipped"));
+        verify(sqs, times(1)).deleteMessageAsync(eq(new DeleteMessageRequest("http://executeMessage_withFifoQueue.amazonaws.com/fifoQueue.fifo", "other")));
+        verify(sqs, never()).deleteMessageAsync(eq(new DeleteMessageRequest("http://executeMessage_withFifoQueue.amazonaws.com/fifoQueue.fifo", "skipped")));
+
+        setLogLevel(previous);
+    }
+
+    @Test
+    public void executeMessage_withAsynchronousResult_shouldDeleteMessageWhenResultCompletes() throws Exception {
+        // Arrange
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.registerSingleton("asyncMessageListener", AsyncMessageListener.class);
+
+        SimpleMessageListenerContainer container = new SimpleMessageListenerContainer();
+        container.setMessageDispatchMode(MessageDispatchMode.CONTINUOUS);
+        AmazonSQSAsync sqs = mock(AmazonSQSAsync.class);
+        container.setAmazonSqs(sqs);
+
+        QueueMessageHandler messageHandler = new QueueMessageHandler();
+        messageHandler.setApplicationContext(applicationContext);
+        container.setMessageHandler(messageHandler);
+
+        mockGetQueueUrl(sqs, "asyncQueue", "http://executeMessage_withAsynchronousResult.amazonaws.com");
+        mockGetQueueAttributesWithEmptyResult(sqs, "http://executeMessage_withAsynchronousResult.amazonaws.com");
+
+        when(sqs.receiveMessage(any(ReceiveMessageRequest.class)))
+                .thenReturn(new ReceiveMessageResult().withMessages(new Message().withBody("message").withReceiptHandle("async")))
+                .thenReturn(new ReceiveMessageResult());
+
+        messageHandler.afterPropertiesSet();
+        container.afterPropertiesSet();
+
+        // Act
+        container.start();
+
+        // Assert
+        AsyncMessageListener asyncMessageListener = applicationContext.getBean(AsyncMessageListener.class);
+        assertTrue(asyncMessageListener.getCountDownLatch().await(1, TimeUnit.SECONDS));
+        verify(sqs, never()).deleteMessageAsync(any(DeleteMessageRequest.class));
+
+        asyncMessageListener.getResult().complete(null);
+        verify(sqs, timeout(1000)).deleteMessageAsync(eq(new DeleteMessageRequest("http://executeMessage_withAsynchronousResult.amazonaws.com", "async")));
+
+        container.stop();
+    }
+
+    @Test
+    public void executeMessage_exceedingProcessingTimeout_shouldInterruptListenerAndNotDeleteMessage() throws Exception {
+        // Arrange
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.registerSingleton("slowMessageListener", SlowMessageListener.class);
+
+        SimpleMessageListenerContainer container = new SimpleMessageListenerContainer();
+        container.setProcessingTimeout(100L);
+        MessageListenerContainerMetrics metrics = mock(MessageListenerContainerMetrics.class);
+        container.setMetrics(metrics);
+        AmazonSQSAsync sqs = mock(AmazonSQSAsync.class);
+        container.setAmazonSqs(sqs);
+
+        QueueMessageHandler messageHandler = new QueueMessageHandler();
+        messageHandler.setApplicationContext(applicationContext);
+        container.setMessageHandler(messageHandler);
+
+        mockGetQueueUrl(sqs, "slowQueue", "http://executeMessage_exceedingProcessingTimeout.amazonaws.com");
+        mockGetQueueAttributesWithEmptyResult(sqs, "http://executeMessage_exceedingProcessingTimeout.amazonaws.com");
+        mockReceiveMessage(sqs, "http://executeMessage_exceedingProcessingTimeout.amazonaws.com", "message", "slow");
+
+        messageHandler.afterPropertiesSet();
+        container.afterPropertiesSet();
+
+        // Act
+        container.start();
+
+        // Assert
+        SlowMessageListener slowMessageListener = applicationContext.getBean(SlowMessageListener.class);
+        assertTrue(slowMessageListener.getInterruptedLatch().await(1, TimeUnit.SECONDS));
+        verify(metrics, timeout(1000)).processingTimedOut("slowQueue", 1);
+        verify(sqs, never()).deleteMessageAsync(any(DeleteMessageRequest.class));
+
+        container.stop();
+    }
+
+    @Test
+    public void executeMessage_throwingExceptionThatIsNoMessagingException_shouldCompleteProcessingAndStopWatch() throws Exception {
+        // Arrange
+        Level previous = disableLogging();
+
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.registerSingleton("testMessageListener", TestMessageListener.class);
+
+        CountDownLatch executed = new CountDownLatch(1);
+        SimpleMessageListenerContainer container = new SimpleMessageListenerContainer() {
+
+            @Override
+            protected void executeMessage(org.springframework.messaging.Message<String> stringMessage) {
+                executed.countDown();
+                throw new IllegalStateException("Not a messaging exception");
+            }
+        };
+        container.setProcessingTimeout(100L);
+        MessageListenerContainerMetrics metrics = mock(MessageListenerContainerMetrics.class);
+        container.setMetrics(metrics);
+        AmazonSQSAsync sqs = mock(AmazonSQSAsync.class);
+        container.setAmazonSqs(sqs);
+
+        QueueMessageHandler messageHandler = new QueueMessageHandler();
+        messageHandler.setApplicationContext(applicationContext);
+        container.setMessageHandler(messageHandler);
+
+        mockGetQueueUrl(sqs, "testQueue", "http://executeMessage_throwingExceptionThatIsNoMessagingException.amazonaws.com");
+        mockGetQueueAttributesWithEmptyResult(sqs, "http://executeMessage_throwingExceptionThatIsNoMessagingException.amazonaws.com");
+        mockReceiveMessage(sqs, "http://executeMessage_throwingExceptionThatIsNoMessagingException.amazonaws.com", "message", "failing");
+
+        messageHandler.afterPropertiesSet();
+        container.afterPropertiesSet();
+
+        // Act
+        container.start();
+
+        // Assert
+        assertTrue(executed.await(1, TimeUnit.SECONDS));
+        verify(metrics, timeout(1000)).processingCompleted(eq("testQueue"), eq(1), anyLong(), eq(false));
+        Thread.sleep(300);
+        verify(metrics, never()).processingTimedOut("testQueue", 1);
+        verify(sqs, never()).deleteMessageAsync(any(DeleteMessageRequest.class));
+
+        container.stop();
+        setLogLevel(previous);
+    }
+
+    @Test
+    public void start_withPrefetchedMessagesExceedingExpiryFraction_shouldMakeExpiredMessagesVisibleAgain() throws Exception {
+        // Arrange
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.registerSingleton("slowMessageListener", SlowMessageListener.class);
+
+        SimpleMessageListenerContainer container = new SimpleMessageListenerContainer();
+        container.setMaxInFlightMessages(1);
+        container.setPrefetchSize(5);
+        container.setVisibilityTimeout(1);
+        container.setPrefetchExpiryFraction(0.1);
+        AmazonSQSAsync sqs = mock(AmazonSQSAsync.class);
+        container.setAmazonSqs(sqs);
+
+        QueueMessageHandler messageHandler = new QueueMessageHandler();
+        messageHandler.setApplicationContext(applicationContext);
+        container.setMessageHandler(messageHandler);
+
+        mockGetQueueUrl(sqs, "slowQueue", "http://start_withPrefetchedMessages.amazonaws.com");
+        mockGetQueueAttributesWithEmptyResult(sqs, "http://start_withPrefetchedMessages.amazonaws.com");
+        when(sqs.receiveMessage(any(ReceiveMessageRequest.class))).thenReturn(
+                new ReceiveMessageResult().withMessages(new Message().withBody("first").withReceiptHandle("first"),
+                        new Message().withBody("second").withReceiptHandle("second"),
+                        new Message().withBody("third").withReceiptHandle("third")),
+                new ReceiveMessageResult());
+
+        messageHandler.afterPropertiesSet();
+        container.afterPropertiesSet();
+
+        // Act
+        container.start();
+
+        // Assert
+        ArgumentCaptor<ChangeMessageVisibilityBatchRequest> requestCaptor = ArgumentCaptor.forClass(ChangeMessageVisibilityBatchRequest.class);
+        verify(sqs, timeout(2000)).changeMessageVisibilityBatchAsync(requestCaptor.capture());
+        ChangeMessageVisibilityBatchRequest request = requestCaptor.getValue();
+        assertEquals("http://start_withPrefetchedMessages.amazonaws.com", request.getQueueUrl());
+        assertEquals(2, request.getEntries().size());
+        assertEquals("second", request.getEntries().get(0).getReceiptHandle());
+        assertEquals(Integer.valueOf(0), request.getEntries().get(0).getVisibilityTimeout());
+        assertEquals("third", request.getEntries().get(1).getReceiptHandle());
+
+        container.stop();
+    }
+
+    // This class is needed because it does not seem to work when using mockito to mock those requests
+    private static class MockAmazonSqsAsyncClient extends AmazonSQSBufferedAsyncClient {
+
+        private volatile boolean receiveMessageEnabled;
+
+        private MockAmazonSqsAsyncClient() {
+            super(null);
+        }
+
+        @Override
+        public GetQueueUrlResult getQueueUrl(GetQueueUrlRequest getQueueUrlRequest) throws AmazonClientException {
+            return new GetQueueUrlResult().withQueueUrl("http://" + getQueueUrlRequest.getQueueName() + ".amazonaws.com");
+        }
+
+        @Override
+        public GetQueueAttributesResult getQueueAttributes(GetQueueAttributesRequest getQueueAttributesRequest) throws AmazonClientException {
+            return new GetQueueAttributesResult();
+        }
+
+        @Override
+        public ReceiveMessageResult receiveMessage(ReceiveMessageRequest receiveMessageRequest) throws AmazonClientException {
+            if ("http://testQueue.amazonaws.com".equals(receiveMessageRequest.getQueueUrl()) && this.receiveMessageEnabled) {
+                return new ReceiveMessageResult().withMessages(new Message().withBody("Hello").withReceiptHandle("ReceiptHandle"));
+            } else {
+                return new ReceiveMessageResult();
+            }
+        }
+
+        public void setReceiveMessageEnabled(boolean receiveMessageEnabled) {
+            this.receiveMessageEnabled = receiveMessageEnabled;
+        }
+
+    }
+
+    private static void mockReceiveMessage(AmazonSQSAsync sqs, String queueUrl, String messageContent, String receiptHandle) {
+        when(sqs.receiveMessage(new ReceiveMessageRequest(queueUrl).withAttributeNames("All")
+                .withMessageAttributeNames("All")
+                .withMaxNumberOfMessages(10)
+                .withWaitTimeSeconds(20)))
+                .thenReturn(new ReceiveMessageResult().withMessages(new Message().withBody(messageContent).withReceiptHandle(receiptHandle)),
+                        new ReceiveMessageResult());
+    }
+
+    private static void mockGetQueueAttributesWithRedrivePolicy(AmazonSQSAsync sqs, String queueUrl) {
+        when(sqs.getQueueAttributes(new GetQueueAttributesRequest(queueUrl).withAttributeNames(QueueAttributeName.RedrivePolicy))).
+                thenReturn(new GetQueueAttributesResult().addAttributesEntry(QueueAttributeName.RedrivePolicy.toString(), "{\"some\": \"JSON\"}"));
+    }
+
+    private static void mockGetQueueAttributesWithEmptyResult(AmazonSQSAsync sqs, String queueUrl) {
+        when(sqs.getQueueAttributes(new GetQueueAttributesRequest(queueUrl).withAttributeNames(QueueAttributeName.RedrivePolicy))).
+                thenReturn(new GetQueueAttributesResult());
+    }
+
+    private static void mockGetQueueAttributesWithVisibilityTimeout(AmazonSQSAsync sqs, String queueUrl, int visibilityTimeout) {
+        when(sqs.getQueueAttributes(new GetQueueAttributesRequest(queueUrl).withAttributeNames(QueueAttributeName.RedrivePolicy,
+                QueueAttributeName.VisibilityTimeout))).
+                thenReturn(new GetQueueAttributesResult().addAttributesEntry(QueueAttributeName.VisibilityTimeout.toString(),
+                        Integer.toString(visibilityTimeout)));
+    }
+
+    private static void mockGetQueueUrl(AmazonSQSAsync sqs, String queueName, String queueUrl) {
+        when(sqs.getQueueUrl(new GetQueueUrlRequest(queueName))).thenReturn(new GetQueueUrlResult().
+                withQueueUrl(queueUrl));
+    }
+
+    private static class TestMessageListener {
+
+        private String message;
+        private final CountDownLatch countDownLatch = new CountDownLatch(1);
+
+        @RuntimeUse
+        @SqsListener("testQueue")
+        private void handleMessage(String message) {
+            this.message = message;
+            this.countDownLatch.countDown();
+        }
+
+        public String getMessage() {
+            return this.message;
+        }
+
+        public CountDownLatch getCountDownLatch() {
+            return this.countDownLatch;
+        }
+    }
+
+    private static class TestMessageListenerWithAttributeNames {
+
+        @RuntimeUse
+        @SqsListener(value = "testQueue", attributeNames = "SentTimestamp", messageAttributeNames = "None")
+        private void handleMessage(String message) {
+        }
+    }
+
+    private static class SlowMessageListener {
+
+        private final CountDownLatch interruptedLatch = new CountDownLatch(1);
+
+        @RuntimeUse
+        @SqsListener(value = "slowQueue", deletionPolicy = SqsMessageDeletionPolicy.ALWAYS)
+        private void handleMessage(String message) {
+            try {
+                Thread.sleep(5000);
+            } catch (InterruptedException e) {
+                this.interruptedLatch.countDown();
+            }
+        }
+
+        public CountDownLatch getInterruptedLatch() {
+            return this.interruptedLatch;
+        }
+    }
+
+    private static class TestMessageListenerWithQueueSettings {
+
+        @RuntimeUse
+        @SqsListener(value = "testQueue", maxNumberOfMessages = "1", visibilityTimeout = "300", backOffTime = "500")
+        private void handleMessage(String message) {
+        }
+    }
+
+    private static class AnotherTestMessageListener {
+
+        private String message;
+
+        @RuntimeUse
+        @SqsListener("anotherTestQueue")
+        private void handleMessage(String message) {
+            this.message = message;
+        }
 
         public String getMessage() {
             return this.message;
@@ -1346,6 +2485,165 @@ public class SimpleMessageListenerContainerTest {
         }
     }
 
+    private static class BlockingMessageListener {
+
+        private final CountDownLatch releaseLatch = new CountDownLatch(1);
+        private final CountDownLatch nonBlockingMessageLatch = new CountDownLatch(1);
+
+        @RuntimeUse
+        @SqsListener("blockingQueue")
+        private void handleMessage(String message) throws InterruptedException {
+            if ("block".equals(message)) {
+                this.releaseLatch.await(5, TimeUnit.SECONDS);
+            } else {
+                this.nonBlockingMessageLatch.countDown();
+            }
+        }
+
+        public void release() {
+            this.releaseLatch.countDown();
+        }
+
+        public CountDownLatch getNonBlockingMessageLatch() {
+            return this.nonBlockingMessageLatch;
+        }
+    }
+
+    private static class ConcurrentMessageListener {
+
+        private final CountDownLatch countDownLatch = new CountDownLatch(10);
+        private final CountDownLatch releaseLatch = new CountDownLatch(1);
+
+        @RuntimeUse
+        @SqsListener("concurrentQueue")
+        private void handleMessage(String message) throws InterruptedException {
+            this.countDownLatch.countDown();
+            this.releaseLatch.await(5, TimeUnit.SECONDS);
+        }
+
+        public void release() {
+            this.releaseLatch.countDown();
+        }
+
+        public CountDownLatch getCountDownLatch() {
+            return this.countDownLatch;
+        }
+    }
+
+    private static class FifoMessageListener {
+
+        private final List<String> receivedMessages = Collections.synchronizedList(new ArrayList<String>());
+        private final CountDownLatch countDownLatch = new CountDownLatch(2);
+
+        @RuntimeUse
+        @SqsListener(value = "fifoQueue", deletionPolicy = SqsMessageDeletionPolicy.ON_SUCCESS)
+        private void handleMessage(String message) {
+            this.receivedMessages.add(message);
+            this.countDownLatch.countDown();
+
+            if ("fail".equals(message)) {
+                throw new IllegalStateException("Message could not be processed");
+            }
+        }
+
+        public List<String> getReceivedMessages() {
+            return this.receivedMessages;
+        }
+
+        public CountDownLatch getCountDownLatch() {
+            return this.countDownLatch;
+        }
+    }
+
+    private static class AsyncMessageListener {
+
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+        private final CountDownLatch countDownLatch = new CountDownLatch(1);
+
+        @RuntimeUse
+        @SqsListener("asyncQueue")
+        private CompletableFuture<Void> handleMessage(String message) {
+            this.countDownLatch.countDown();
+            return this.result;
+        }
+
+        public CompletableFuture<Void> getResult() {
+            return this.result;
+        }
+
+        public CountDownLatch getCountDownLatch() {
+            return this.countDownLatch;
+        }
+    }
+
+    private static class BatchMessageListener {
+
+        private final List<List<String>> receivedBatches = new ArrayList<>();
+        private final CountDownLatch countDownLatch = new CountDownLatch(1);
+
+        @RuntimeUse
+        @SqsListener(value = "batchQueue", batch = true, deletionPolicy = SqsMessageDeletionPolicy.ON_SUCCESS)
+        private void handleMessages(List<String> messages) {
+            this.receivedBatches.add(messages);
+            this.countDownLatch.countDown();
+
+            int failedIndex = messages.indexOf("fail");
+            if (failedIndex >= 0) {
+                throw new PartialBatchFailureException("Message could not be processed", Collections.singleton(failedIndex));
+            }
+        }
+
+        public List<List<String>> getReceivedBatches() {
+            return this.receivedBatches;
+        }
+
+        public CountDownLatch getCountDownLatch() {
+            return this.countDownLatch;
+        }
+    }
+
+    private static class AggregatingBatchMessageListener {
+
+        private final List<List<String>> receivedBatches = new CopyOnWriteArrayList<>();
+        private final CountDownLatch countDownLatch = new CountDownLatch(1);
+
+        @RuntimeUse
+        @SqsListener(value = "aggregatedBatchQueue", batch = true, maxBatchSize = "3", batchWindow = "60000")
+        private void handleMessages(List<String> messages) {
+            this.receivedBatches.add(messages);
+            this.countDownLatch.countDown();
+        }
+
+        public List<List<String>> getReceivedBatches() {
+            return this.receivedBatches;
+        }
+
+        public CountDownLatch getCountDownLatch() {
+            return this.countDownLatch;
+        }
+    }
+
+    private static class WindowedBatchMessageListener {
+
+        private final List<List<String>> receivedBatches = new CopyOnWriteArrayList<>();
+        private final CountDownLatch countDownLatch = new CountDownLatch(1);
+
+        @RuntimeUse
+        @SqsListener(value = "windowedBatchQueue", batch = true, batchWindow = "60000")
+        private void handleMessages(List<String> messages) {
+            this.receivedBatches.add(messages);
+            this.countDownLatch.countDown();
+        }
+
+        public List<List<String>> getReceivedBatches() {
+            return this.receivedBatches;
+        }
+
+        public CountDownLatch getCountDownLatch() {
+            return this.countDownLatch;
+        }
+    }
+
     private static class LongRunningListenerMethod {
 
         private final CountDownLatch countDownLatch = new CountDownLatch(1);
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.aws.messaging.listener;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TokenBucketRateLimiterTest {
+
+    @Test
+    public void tryAcquire_fullBucket_shouldGrantAtMostBurst() throws Exception {
+        // Arrange
+        TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(0.001, 5);
+
+        // Act
+        int firstPermits = rateLimiter.tryAcquire(3);
+        int secondPermits = rateLimiter.tryAcquire(10);
+        int thirdPermits = rateLimiter.tryAcquire(10);
+
+        // Assert
+        assertEquals(3, firstPermits);
+        assertEquals(2, secondPermits);
+        assertEquals(0, thirdPermits);
+        assertTrue(rateLimiter.getWaitTimeForPermit() > 0);
+    }
+
+    @Test
+    public void release_unusedPermits_shouldReturnThemToTheBucketUpToBurst() throws Exception {
+        // Arrange
+        TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(0.001, 5);
+        rateLimiter.tryAcquire(5);
+
+        // Act
+        rateLimiter.release(3);
+        int permitsAfterRelease = rateLimiter.tryAcquire(10);
+        rateLimiter.release(20);
+
+        // Assert
+        assertEquals(3, permitsAfterRelease);
+        assertEquals(5, rateLimiter.getAvailablePermits(), 0.01);
+    }
+
+    @Test
+    public void tryAcquire_emptyBucket_shouldGrantPermitsAfterRefill() throws Exception {
+        // Arrange
+        TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(100, 1);
+        rateLimiter.tryAcquire(1);
+
+        // Act
+        Thread.sleep(rateLimiter.getWaitTimeForPermit() + 10);
+        int permits = rateLimiter.tryAcquire(1);
+
+        // Assert
+        assertEquals(1, permits);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void create_withZeroBurst_shouldThrowException() throws Exception {
+        // Act
+        new TokenBucketRateLimiter(10, 0);
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.aws.messaging.listener;
+
+import org.junit.Test;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class WeightedFairTaskSchedulerTest {
+
+    @Test
+    public void submit_queuesWithWaitingTasks_shouldShareExecutionsAccordingToWeights() throws Exception {
+        // Arrange
+        ManualExecutor executor = new ManualExecutor();
+        Map<String, Integer> weights = new HashMap<>();
+        weights.put("orders", 3);
+        weights.put("bulk", 1);
+        WeightedFairTaskScheduler scheduler = new WeightedFairTaskScheduler(executor, 1, weights);
+        List<String> executedTasks = new ArrayList<>();
+
+        // Act
+        for (int i = 1; i <= 4; i++) {
+            scheduler.submit("bulk", new RecordingTask("b" + i, executedTasks));
+        }
+        for (int i = 1; i <= 4; i++) {
+            scheduler.submit("orders", new RecordingTask("o" + i, executedTasks));
+        }
+        executor.runAll();
+
+        // Assert
+        assertEquals(Arrays.asList("b1", "b2", "o1", "o2", "o3", "b3", "o4", "b4"), executedTasks);
+        assertEquals(0, scheduler.getRunningTaskCount());
+    }
+
+    @Test
+    public void submit_moreTasksThanMaxConcurrentTasks_shouldOnlyExecuteMaxConcurrentTasks() throws Exception {
+        // Arrange
+        ManualExecutor executor = new ManualExecutor();
+        WeightedFairTaskScheduler scheduler = new WeightedFairTaskScheduler(executor, 2, Collections.<String, Integer>emptyMap());
+
+        // Act
+        for (int i = 0; i < 5; i++) {
+            scheduler.getExecutor("queue").execute(new RecordingTask("t" + i, new ArrayList<String>()));
+        }
+
+        // Assert
+        assertEquals(2, executor.pendingTasks.size());
+        assertEquals(2, scheduler.getRunningTaskCount());
+    }
+
+    @Test
+    public void submit_executorRejectsTask_shouldRetryTaskWhenNextTaskCompletes() throws Exception {
+        // Arrange
+        ManualExecutor executor = new ManualExecutor();
+        WeightedFairTaskScheduler scheduler = new WeightedFairTaskScheduler(executor, 2, Collections.<String, Integer>emptyMap(), 60000);
+        List<String> executedTasks = new ArrayList<>();
+        scheduler.submit("queue", new RecordingTask("t1", executedTasks));
+
+        // Act
+        executor.rejecting = true;
+        scheduler.submit("queue", new RecordingTask("t2", executedTasks));
+
+        // Assert
+        assertTrue(executedTasks.isEmpty());
+        assertEquals(1, scheduler.getRunningTaskCount());
+
+        executor.rejecting = false;
+        executor.runAll();
+        assertEquals(Arrays.asList("t1", "t2"), executedTasks);
+        assertEquals(0, scheduler.getRunningTaskCount());
+        scheduler.destroy();
+    }
+
+    @Test
+    public void executePendingTasks_taskRejectedWhileNoTaskWasRunning_shouldExecuteRejectedTask() throws Exception {
+        // Arrange
+        ManualExecutor executor = new ManualExecutor();
+        WeightedFairTaskScheduler scheduler = new WeightedFairTaskScheduler(executor, 1, Collections.<String, Integer>emptyMap(), 60000);
+        List<String> executedTasks = new ArrayList<>();
+        executor.rejecting = true;
+        scheduler.submit("queue", new RecordingTask("t1", executedTasks));
+        executor.rejecting = false;
+
+        // Act
+        scheduler.executePendingTasks();
+
+        // Assert
+        assertEquals(1, executor.pendingTasks.size());
+        executor.runAll();
+        assertEquals(Collections.singletonList("t1"), executedTasks);
+        scheduler.destroy();
+    }
+
+    @Test
+    public void submit_executorRejectsTaskWhileNoTaskIsRunning_shouldRetryTaskAfterRetryDelay() throws Exception {
+        // Arrange
+        AtomicInteger executions = new AtomicInteger();
+        Executor executor = command -> {
+            if (executions.incrementAndGet() == 1) {
+                throw new TaskRejectedException("full");
+            }
+            command.run();
+        };
+        WeightedFairTaskScheduler scheduler = new WeightedFairTaskScheduler(executor, 1, Collections.<String, Integer>emptyMap(), 10);
+        CountDownLatch taskExecuted = new CountDownLatch(1);
+
+        // Act
+        scheduler.submit("queue", taskExecuted::countDown);
+
+        // Assert
+        assertTrue(taskExecuted.await(1, TimeUnit.SECONDS));
+        assertEquals(2, executions.get());
+        scheduler.destroy();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void create_withZeroWeight_shouldThrowException() throws Exception {
+        // Act
+        new WeightedFairTaskScheduler(new ManualExecutor(), 1, Collections.singletonMap("queue", 0));
+    }
+
+    private static final class ManualExecutor implements Executor {
+
+        private final List<Runnable> pendingTasks = new ArrayList<>();
+        private boolean rejecting;
+
+        @Override
+        public void execute(Runnable command) {
+            if (this.rejecting) {
+                throw new TaskRejectedException("full");
+            }
+            this.pendingTasks.add(command);
+        }
+
+        private void runAll() {
+            while (!this.pendingTasks.isEmpty()) {
+                this.pendingTasks.remove(0).run();
+            }
+        }
+    }
+
+    private static final class RecordingTask implements Runnable {
+
+        private final String name;
+        private final List<String> executedTasks;
+
+        private RecordingTask(String name, List<String> executedTasks) {
+            this.name = name;
+            this.executedTasks = executedTasks;
+        }
+
+        @Override
+        public void run() {
+            this.executedTasks.add(this.name);
+        }
+    }
+}
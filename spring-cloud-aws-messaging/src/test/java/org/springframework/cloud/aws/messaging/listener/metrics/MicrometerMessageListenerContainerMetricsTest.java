@@ -0,0 +1,134 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.aws.messaging.listener.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.springframework.cloud.aws.messaging.listener.TokenBucketRateLimiter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+public class MicrometerMessageListenerContainerMetricsTest {
+
+    @Test
+    public void receiveCompleted_emptyReceive_shouldRecordReceiveAndCountEmptyReceive() throws Exception {
+        // Arrange
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        MicrometerMessageListenerContainerMetrics metrics = new MicrometerMessageListenerContainerMetrics(meterRegistry, "container");
+
+        // Act
+        metrics.receiveCompleted("testQueue", TimeUnit.MILLISECONDS.toNanos(20), 0);
+        metrics.receiveCompleted("testQueue", TimeUnit.MILLISECONDS.toNanos(10), 3);
+
+        // Assert
+        Timer receiveTimer = meterRegistry.get("sqs.listener.receive").tags("container", "container", "queue", "testQueue").timer();
+        assertEquals(2, receiveTimer.count());
+        assertEquals(30, receiveTimer.totalTime(TimeUnit.MILLISECONDS), 0.0);
+        assertEquals(1, meterRegistry.get("sqs.listener.receive.empty").tag("queue", "testQueue").counter().count(), 0.0);
+        assertEquals(3, meterRegistry.get("sqs.listener.receive.messages").tag("queue", "testQueue").summary().totalAmount(), 0.0);
+    }
+
+    @Test
+    public void processingCompleted_afterProcessingStarted_shouldTrackInFlightMessagesAndOutcome() throws Exception {
+        // Arrange
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        MicrometerMessageListenerContainerMetrics metrics = new MicrometerMessageListenerContainerMetrics(meterRegistry, "container");
+        metrics.processingStarted("testQueue", 1);
+        metrics.processingStarted("testQueue", 5);
+
+        // Act
+        metrics.processingCompleted("testQueue", 5, TimeUnit.MILLISECONDS.toNanos(100), false);
+
+        // Assert
+        assertEquals(1, meterRegistry.get("sqs.listener.in.flight").tag("queue", "testQueue").gauge().value(), 0.0);
+        assertEquals(1, meterRegistry.get("sqs.listener.processing").tags("queue", "testQueue", "outcome", "failure").timer().count());
+        assertEquals(0, meterRegistry.get("sqs.listener.processing").tags("queue", "testQueue", "outcome", "success").timer().count());
+    }
+
+    @Test
+    public void processingTimedOut_batchOfMessages_shouldCountEveryMessage() throws Exception {
+        // Arrange
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        MicrometerMessageListenerContainerMetrics metrics = new MicrometerMessageListenerContainerMetrics(meterRegistry, "container");
+
+        // Act
+        metrics.processingTimedOut("testQueue", 3);
+        metrics.processingTimedOut("testQueue", 1);
+
+        // Assert
+        assertEquals(4, meterRegistry.get("sqs.listener.processing.timeouts").tag("queue", "testQueue").counter().count(), 0.0);
+    }
+
+    @Test
+    public void deleteFailed_differentQueues_shouldCountPerQueue() throws Exception {
+        // Arrange
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        MicrometerMessageListenerContainerMetrics metrics = new MicrometerMessageListenerContainerMetrics(meterRegistry, "container");
+
+        // Act
+        metrics.deleteFailed("firstQueue");
+        metrics.deleteFailed("firstQueue");
+        metrics.deleteFailed("secondQueue");
+        metrics.receiveFailed("secondQueue");
+        metrics.executionRejected("secondQueue");
+
+        // Assert
+        assertEquals(2, meterRegistry.get("sqs.listener.delete.errors").tag("queue", "firstQueue").counter().count(), 0.0);
+        assertEquals(1, meterRegistry.get("sqs.listener.delete.errors").tag("queue", "secondQueue").counter().count(), 0.0);
+        assertEquals(1, meterRegistry.get("sqs.listener.receive.errors").tag("queue", "secondQueue").counter().count(), 0.0);
+        assertEquals(1, meterRegistry.get("sqs.listener.executor.rejections").tag("queue", "secondQueue").counter().count(), 0.0);
+    }
+
+    @Test
+    public void bindTaskExecutor_threadPoolTaskExecutor_shouldRegisterExecutorGauges() throws Exception {
+        // Arrange
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        MicrometerMessageListenerContainerMetrics metrics = new MicrometerMessageListenerContainerMetrics(meterRegistry, "container");
+        ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
+        taskExecutor.setMaxPoolSize(7);
+        taskExecutor.afterPropertiesSet();
+
+        // Act
+        metrics.bindTaskExecutor(taskExecutor);
+
+        // Assert
+        assertEquals(7, meterRegistry.get("sqs.listener.executor.pool.max").tag("container", "container").gauge().value(), 0.0);
+        assertNotNull(meterRegistry.get("sqs.listener.executor.active").gauge());
+        taskExecutor.destroy();
+    }
+
+    @Test
+    public void bindRateLimiter_rateLimiter_shouldRegisterAvailablePermitsGauge() throws Exception {
+        // Arrange
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        MicrometerMessageListenerContainerMetrics metrics = new MicrometerMessageListenerContainerMetrics(meterRegistry, "container");
+        TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(0.001, 10);
+        rateLimiter.tryAcquire(4);
+
+        // Act
+        metrics.bindRateLimiter("testQueue", rateLimiter);
+
+        // Assert
+        assertEquals(6, meterRegistry.get("sqs.listener.rate.limit.permits").tag("queue", "testQueue").gauge().value(), 0.01);
+    }
+}
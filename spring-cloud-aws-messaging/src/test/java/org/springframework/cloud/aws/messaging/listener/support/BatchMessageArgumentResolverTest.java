@@ -0,0 +1,121 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.aws.messaging.listener.support;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.springframework.cloud.aws.core.support.documentation.RuntimeUse;
+import org.springframework.cloud.aws.messaging.listener.annotation.SqsListener;
+import org.springframework.core.MethodParameter;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.converter.MessageConversionException;
+import org.springframework.messaging.converter.SimpleMessageConverter;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.ReflectionUtils;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @since 2.1
+ */
+public class BatchMessageArgumentResolverTest {
+
+    @Rule
+    public final ExpectedException expectedException = ExpectedException.none();
+
+    private final BatchMessageArgumentResolver batchMessageArgumentResolver = new BatchMessageArgumentResolver(new SimpleMessageConverter());
+
+    @Test
+    public void supportsParameter_listParameterOfBatchListener_returnsTrue() throws Exception {
+        // Act & Assert
+        assertTrue(this.batchMessageArgumentResolver.supportsParameter(methodParameter("payloads")));
+        assertTrue(this.batchMessageArgumentResolver.supportsParameter(methodParameter("messages")));
+    }
+
+    @Test
+    public void supportsParameter_listParameterOfNonBatchListener_returnsFalse() throws Exception {
+        // Act & Assert
+        assertFalse(this.batchMessageArgumentResolver.supportsParameter(methodParameter("single")));
+    }
+
+    @Test
+    public void resolveArgument_listOfPayloads_returnsPayloadOfEachMessage() throws Exception {
+        // Arrange
+        Message<List<Message<String>>> batchMessage = MessageBuilder.withPayload(Arrays.asList(
+                MessageBuilder.withPayload("first").build(), MessageBuilder.withPayload("second").build())).build();
+
+        // Act
+        Object argument = this.batchMessageArgumentResolver.resolveArgument(methodParameter("payloads"), batchMessage);
+
+        // Assert
+        assertEquals(Arrays.asList("first", "second"), argument);
+    }
+
+    @Test
+    public void resolveArgument_listOfMessages_returnsReceivedMessages() throws Exception {
+        // Arrange
+        Message<String> first = MessageBuilder.withPayload("first").build();
+        Message<String> second = MessageBuilder.withPayload("second").build();
+        Message<List<Message<String>>> batchMessage = MessageBuilder.withPayload(Arrays.asList(first, second)).build();
+
+        // Act
+        List<?> argument = (List<?>) this.batchMessageArgumentResolver.resolveArgument(methodParameter("messages"), batchMessage);
+
+        // Assert
+        assertEquals(2, argument.size());
+        assertSame(first, argument.get(0));
+        assertSame(second, argument.get(1));
+    }
+
+    @Test
+    public void resolveArgument_messageWithoutListPayload_throwsMessageConversionException() throws Exception {
+        // Arrange
+        this.expectedException.expect(MessageConversionException.class);
+
+        // Act
+        this.batchMessageArgumentResolver.resolveArgument(methodParameter("payloads"), MessageBuilder.withPayload("no list").build());
+    }
+
+    private static MethodParameter methodParameter(String methodName) {
+        return new MethodParameter(ReflectionUtils.findMethod(BatchListener.class, methodName, List.class), 0);
+    }
+
+    private static class BatchListener {
+
+        @RuntimeUse
+        @SqsListener(value = "testQueue", batch = true)
+        public void payloads(List<String> payloads) {
+        }
+
+        @RuntimeUse
+        @SqsListener(value = "testQueue", batch = true)
+        public void messages(List<Message<String>> messages) {
+        }
+
+        @RuntimeUse
+        @SqsListener("testQueue")
+        public void single(List<String> payload) {
+        }
+    }
+}